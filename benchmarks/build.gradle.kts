@@ -0,0 +1,55 @@
+plugins {
+    java
+    id("me.champeau.jmh") version Versions.JMH_PLUGIN
+}
+
+repositories {
+    mavenCentral()
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(rootProject)
+    jmh(gradleApi())
+    jmhCompileOnly("com.google.code.findbugs:jsr305:3.0.2")
+    jmh("com.github.johnrengelman:shadow:${Versions.SHADOW}")
+    jmh("org.ow2.asm:asm-commons:${Versions.ASM}")
+}
+
+jmh {
+    jmhVersion.set(Versions.JMH)
+    // Machine readable results, so regressions can be tracked across Strawberry versions
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // The description benchmarks create their output directory through ProjectBuilder
+    jvmArgsAppend.add("--add-opens=java.base/java.lang=ALL-UNNAMED")
+    (findProperty("jmh.includes") as String?)?.let { includes.add(it) }
+}
+
+// Generates multi-project builds of growing size and measures them through TestKit
+val scaling by sourceSets.creating
+val scalingPlugin by configurations.creating
+
+dependencies {
+    scalingPlugin(rootProject)
+    "scalingImplementation"(gradleTestKit())
+    "scalingImplementation"("com.fasterxml.jackson.core:jackson-databind:${Versions.JACKSON}")
+    "scalingCompileOnly"("com.google.code.findbugs:jsr305:3.0.2")
+}
+
+tasks.register<JavaExec>("scalingReport") {
+    description = "Measures the configuration and no-op build times of generated multi-project builds."
+    classpath = scaling.runtimeClasspath
+    mainClass.set("com.vouncherstudios.strawberry.benchmark.scaling.ScalingHarness")
+    val outputDirectory = layout.buildDirectory.dir("scaling")
+    val projects = (findProperty("scaling.projects") as String?) ?: "10,100,500"
+    outputs.dir(outputDirectory)
+    outputs.upToDateWhen { false }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(outputDirectory.get().asFile.absolutePath, projects, scalingPlugin.asPath)
+    })
+}
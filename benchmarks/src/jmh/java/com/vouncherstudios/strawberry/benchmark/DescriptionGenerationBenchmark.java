@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark;
+
+import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.LoadOrder;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescriptionGenerator;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescriptionGenerator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.gradle.api.Project;
+import org.gradle.api.file.Directory;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures the generation of the Paper and Velocity plugin descriptions, with many entries. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DescriptionGenerationBenchmark {
+  @Param({"10", "1000"})
+  public int entries;
+
+  private Path projectDirectory;
+  private Directory directory;
+  private PaperDescriptionGenerator paper;
+  private VelocityDescriptionGenerator velocity;
+
+  @Setup
+  public void setup() throws IOException {
+    this.projectDirectory = Files.createTempDirectory("strawberry-description");
+    Project project =
+        ProjectBuilder.builder().withProjectDir(this.projectDirectory.toFile()).build();
+    this.directory = project.getLayout().getProjectDirectory();
+
+    List<String> authors = new ArrayList<>(this.entries);
+    List<Dependency> dependencies = new ArrayList<>(this.entries);
+    List<String> libraries = new ArrayList<>(this.entries);
+    for (int i = 0; i < this.entries; i++) {
+      authors.add("Author" + i);
+      dependencies.add(new Dependency("dependency-" + i, i % 2 == 0));
+      libraries.add("com.example:library-" + i + ":1.0." + i);
+    }
+
+    this.paper =
+        new PaperDescriptionGenerator(
+            new PaperDescription(
+                "ExamplePlugin",
+                "com.example.ExamplePlugin",
+                "1.0.0",
+                "An example plugin",
+                authors,
+                LoadOrder.POSTWORLD,
+                "1.20",
+                dependencies,
+                libraries));
+    this.velocity =
+        new VelocityDescriptionGenerator(
+            new VelocityDescription(
+                "example",
+                "ExamplePlugin",
+                "com.example.ExamplePlugin",
+                "1.0.0",
+                "An example plugin",
+                authors,
+                dependencies));
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(this.projectDirectory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /** Generates the {@code plugin.yml} file. */
+  @Benchmark
+  public void paper() {
+    this.paper.generate(this.directory);
+  }
+
+  /** Generates the {@code velocity-plugin.json} file. */
+  @Benchmark
+  public void velocity() {
+    this.velocity.generate(this.directory);
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.pipeline.RelocatingRemapper;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of relocating synthetic class files, with the relocations compiled into
+ * a single {@link TrieRelocator} and with one {@link SimpleRelocator} per relocation tested in
+ * turn, like Shadow does on its own. Both go through the same remapper, so only the relocator
+ * differs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelocationBenchmark {
+  private static final int CLASSES = 1000;
+
+  @Param({"1", "10", "50"})
+  public int relocations;
+
+  private byte[][] classes;
+  private TrieRelocator trie;
+  private Relocator chain;
+
+  @Setup
+  public void setup() {
+    this.classes = new byte[CLASSES][];
+    for (int i = 0; i < CLASSES; i++) {
+      this.classes[i] = SyntheticClasses.generate(i);
+    }
+    List<Relocation> relocations = SyntheticClasses.relocations(this.relocations);
+    this.trie = new TrieRelocator(relocations);
+    this.chain = new ChainRelocator(relocations);
+  }
+
+  /**
+   * Relocates every class through the prefix tree relocator.
+   *
+   * @return the size of the relocated classes, so they can't be optimized away
+   */
+  @Benchmark
+  public long trie() {
+    return relocate(this.trie);
+  }
+
+  /**
+   * Relocates every class through the chain of relocators.
+   *
+   * @return the size of the relocated classes, so they can't be optimized away
+   */
+  @Benchmark
+  public long chain() {
+    return relocate(this.chain);
+  }
+
+  private long relocate(@Nonnull Relocator relocator) {
+    long size = 0;
+    for (byte[] data : this.classes) {
+      ClassReader reader = new ClassReader(data);
+      ClassWriter writer = new ClassWriter(0);
+      reader.accept(new ClassRemapper(writer, new RelocatingRemapper(relocator)), 0);
+      size += writer.toByteArray().length;
+    }
+    return size;
+  }
+
+  /** The relocators of the relocations tested in declaration order, the first match winning. */
+  private static final class ChainRelocator implements Relocator {
+    private final List<SimpleRelocator> relocators = new ArrayList<>();
+
+    ChainRelocator(@Nonnull List<Relocation> relocations) {
+      for (Relocation relocation : relocations) {
+        this.relocators.add(
+            new SimpleRelocator(
+                relocation.getPattern(),
+                relocation.getDestination(),
+                new ArrayList<>(relocation.getIncludes()),
+                new ArrayList<>(relocation.getExcludes()),
+                relocation.isRawString()));
+      }
+    }
+
+    @Override
+    public boolean canRelocatePath(String path) {
+      for (SimpleRelocator relocator : this.relocators) {
+        if (relocator.canRelocatePath(path)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public String relocatePath(RelocatePathContext context) {
+      for (SimpleRelocator relocator : this.relocators) {
+        if (relocator.canRelocatePath(context.getPath())) {
+          return relocator.relocatePath(context);
+        }
+      }
+      return context.getPath();
+    }
+
+    @Override
+    public boolean canRelocateClass(String className) {
+      for (SimpleRelocator relocator : this.relocators) {
+        if (relocator.canRelocateClass(className)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public String relocateClass(RelocateClassContext context) {
+      for (SimpleRelocator relocator : this.relocators) {
+        if (relocator.canRelocateClass(context.getClassName())) {
+          return relocator.relocateClass(context);
+        }
+      }
+      return context.getClassName();
+    }
+
+    @Override
+    public String applyToSourceContent(String sourceContent) {
+      String content = sourceContent;
+      for (SimpleRelocator relocator : this.relocators) {
+        content = relocator.applyToSourceContent(content);
+      }
+      return content;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark;
+
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingPipeline;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time the shading pipeline takes to relocate a generated jar of 10,000 classes, read
+ * and written from disk like the jar merged by Shadow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShadingBenchmark {
+  private static final int CLASSES = 10_000;
+  private static final int RELOCATIONS = 10;
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  private Path directory;
+  private Path input;
+  private Path output;
+  private ShadingPipeline pipeline;
+
+  @Setup
+  public void setup() throws IOException {
+    this.directory = Files.createTempDirectory("strawberry-shading");
+    this.input = this.directory.resolve("input.jar");
+    this.output = this.directory.resolve("output.jar");
+    SyntheticClasses.writeJar(this.input, CLASSES);
+    this.pipeline =
+        new ShadingPipeline(
+            new TrieRelocator(SyntheticClasses.relocations(RELOCATIONS)), this.parallel);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(this.directory)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * Relocates the generated jar into another one.
+   *
+   * @return the size of the relocated jar
+   * @throws IOException if an I/O error occurs
+   */
+  @Benchmark
+  public long shade() throws IOException {
+    this.pipeline.process(this.input, this.output);
+    return Files.size(this.output);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark;
+
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Generates the synthetic class files the benchmarks relocate. Each class references the types of
+ * several libraries through fields, method descriptors, method calls and string constants, half of
+ * them under {@code com/example/lib} packages matched by the relocations and half of them under
+ * {@code org/other/lib} packages matched by none, like a plugin shading a few of its dependencies.
+ */
+final class SyntheticClasses {
+  static final int LIBRARIES = 50;
+  private static final int REFERENCES = 8;
+
+  private SyntheticClasses() {}
+
+  /**
+   * Creates relocations of the first libraries, in declaration order.
+   *
+   * @param count the number of relocations
+   * @return the relocations
+   */
+  @Nonnull
+  static List<Relocation> relocations(int count) {
+    List<Relocation> relocations = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      relocations.add(new Relocation("com.example.lib" + i, "com.example.shaded.lib" + i));
+    }
+    return relocations;
+  }
+
+  /**
+   * Generates a class file.
+   *
+   * @param index the index of the class, which picks its name and the libraries it references
+   * @return the class file
+   */
+  @Nonnull
+  static byte[] generate(int index) {
+    String name = internalName(index);
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+    MethodVisitor method =
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", "()V", null, null);
+    method.visitCode();
+    for (int i = 0; i < REFERENCES; i++) {
+      String type = library(index + i, i % 2 == 0) + "/Type" + i;
+      writer
+          .visitField(Opcodes.ACC_PRIVATE, "field" + i, "L" + type + ";", null, null)
+          .visitEnd();
+      method.visitLdcInsn(type.replace('/', '.'));
+      method.visitMethodInsn(
+          Opcodes.INVOKESTATIC, type, "of", "(Ljava/lang/String;)L" + type + ";", false);
+      method.visitInsn(Opcodes.POP);
+    }
+    method.visitInsn(Opcodes.RETURN);
+    method.visitMaxs(0, 0);
+    method.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  /**
+   * Writes a jar of generated classes.
+   *
+   * @param jar the jar to write
+   * @param classes the number of classes
+   * @throws IOException if an I/O error occurs
+   */
+  static void writeJar(@Nonnull Path jar, int classes) throws IOException {
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (int i = 0; i < classes; i++) {
+        zip.putNextEntry(new ZipEntry(internalName(i) + ".class"));
+        zip.write(generate(i));
+        zip.closeEntry();
+      }
+    }
+  }
+
+  @Nonnull
+  private static String internalName(int index) {
+    return library(index, index % 2 == 0) + "/internal/Generated" + index;
+  }
+
+  @Nonnull
+  private static String library(int index, boolean relocatable) {
+    return (relocatable ? "com/example/lib" : "org/other/lib") + index % LIBRARIES;
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark.scaling;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToLongFunction;
+import javax.annotation.Nonnull;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Measures how Strawberry scales with the number of projects of a build. For each size, a
+ * {@link SyntheticBuild} is generated and run through TestKit, measuring the configuration time of
+ * the whole build, the time spent applying Strawberry to every project and the time of a build with
+ * nothing to do. Each duration is the median of several runs in a warm daemon.
+ *
+ * <p>The growth between two sizes is reported as the exponent of a power law: 1 means the time
+ * grows linearly with the number of projects, 2 means it grows quadratically. Growth above {@value
+ * #SUPERLINEAR} is flagged, since it means some work is done for every pair of projects.
+ */
+public final class ScalingHarness {
+  private static final int RUNS = 3;
+  private static final double SUPERLINEAR = 1.3;
+  private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+  private ScalingHarness() {}
+
+  /**
+   * Runs the harness.
+   *
+   * @param args the output directory, the comma separated numbers of projects and the classpath of
+   *     the plugin under test
+   * @throws IOException if an I/O error occurs
+   */
+  public static void main(@Nonnull String[] args) throws IOException {
+    if (args.length != 3) {
+      throw new IllegalArgumentException(
+          "Usage: ScalingHarness <output directory> <projects,...> <plugin classpath>");
+    }
+
+    Path outputDirectory = Path.of(args[0]);
+    List<File> pluginClasspath = new ArrayList<>();
+    for (String file : args[2].split(File.pathSeparator)) {
+      pluginClasspath.add(new File(file));
+    }
+
+    List<Measurement> measurements = new ArrayList<>();
+    for (String projects : args[1].split(",")) {
+      int count = Integer.parseInt(projects.strip());
+      Measurement measurement =
+          measure(outputDirectory.resolve("builds/" + count), count, pluginClasspath);
+      System.out.println(measurement);
+      measurements.add(measurement);
+    }
+
+    Files.writeString(
+        outputDirectory.resolve("scaling.txt"), report(measurements), StandardCharsets.UTF_8);
+    MAPPER
+        .writerWithDefaultPrettyPrinter()
+        .writeValue(outputDirectory.resolve("scaling.json").toFile(), json(measurements));
+    System.out.print(report(measurements));
+  }
+
+  @Nonnull
+  private static Measurement measure(
+      @Nonnull Path directory, int projects, @Nonnull List<File> pluginClasspath) {
+    SyntheticBuild.write(directory, projects);
+    GradleRunner runner =
+        GradleRunner.create()
+            .withProjectDir(directory.toFile())
+            .withPluginClasspath(pluginClasspath);
+
+    // The first run starts the daemon and compiles the build scripts
+    runner.withArguments("help", "--offline").build();
+    long[] configuration = new long[RUNS];
+    long[] apply = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      BuildResult result = runner.withArguments("help", "--offline").build();
+      configuration[i] = System.nanoTime() - start;
+      for (long duration : SyntheticBuild.applyDurations(result.getOutput())) {
+        apply[i] += duration;
+      }
+    }
+
+    runner.withArguments("build", "--offline").build();
+    long[] noOp = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      runner.withArguments("build", "--offline").build();
+      noOp[i] = System.nanoTime() - start;
+    }
+    return new Measurement(projects, median(configuration), median(apply), median(noOp));
+  }
+
+  private static long median(@Nonnull long[] durations) {
+    long[] sorted = durations.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+
+  @Nonnull
+  private static String report(@Nonnull List<Measurement> measurements) {
+    StringBuilder report = new StringBuilder();
+    report.append(
+        String.format(
+            Locale.ROOT,
+            "%10s %16s %16s %16s %16s%n",
+            "projects",
+            "configuration",
+            "apply",
+            "apply/project",
+            "no-op build"));
+    for (Measurement measurement : measurements) {
+      report.append(
+          String.format(
+              Locale.ROOT,
+              "%10d %13d ms %13d ms %13d us %13d ms%n",
+              measurement.projects,
+              measurement.configuration / 1_000_000,
+              measurement.apply / 1_000_000,
+              measurement.apply / 1_000 / measurement.projects,
+              measurement.noOp / 1_000_000));
+    }
+
+    for (int i = 1; i < measurements.size(); i++) {
+      Measurement previous = measurements.get(i - 1);
+      Measurement current = measurements.get(i);
+      report.append(
+          String.format(
+              Locale.ROOT, "%n%d -> %d projects:%n", previous.projects, current.projects));
+      report.append(growth("configuration", previous, current, m -> m.configuration));
+      report.append(growth("apply", previous, current, m -> m.apply));
+      report.append(growth("no-op build", previous, current, m -> m.noOp));
+    }
+    return report.toString();
+  }
+
+  @Nonnull
+  private static String growth(
+      @Nonnull String name,
+      @Nonnull Measurement previous,
+      @Nonnull Measurement current,
+      @Nonnull ToLongFunction<Measurement> duration) {
+    double exponent = exponent(previous, current, duration);
+    return String.format(
+        Locale.ROOT,
+        "  %-14s x%.1f, exponent %.2f%s%n",
+        name,
+        (double) duration.applyAsLong(current) / duration.applyAsLong(previous),
+        exponent,
+        exponent > SUPERLINEAR ? " SUPERLINEAR" : "");
+  }
+
+  private static double exponent(
+      @Nonnull Measurement previous,
+      @Nonnull Measurement current,
+      @Nonnull ToLongFunction<Measurement> duration) {
+    return Math.log((double) duration.applyAsLong(current) / duration.applyAsLong(previous))
+        / Math.log((double) current.projects / previous.projects);
+  }
+
+  @Nonnull
+  private static ObjectNode json(@Nonnull List<Measurement> measurements) {
+    ObjectNode root = MAPPER.createObjectNode();
+    ArrayNode entries = root.putArray("measurements");
+    for (int i = 0; i < measurements.size(); i++) {
+      Measurement measurement = measurements.get(i);
+      ObjectNode entry = entries.addObject();
+      entry.put("projects", measurement.projects);
+      entry.put("configurationNanos", measurement.configuration);
+      entry.put("applyNanos", measurement.apply);
+      entry.put("noOpNanos", measurement.noOp);
+      if (i > 0) {
+        Measurement previous = measurements.get(i - 1);
+        ObjectNode exponents = entry.putObject("exponents");
+        exponents.put("configuration", exponent(previous, measurement, m -> m.configuration));
+        exponents.put("apply", exponent(previous, measurement, m -> m.apply));
+        exponents.put("noOp", exponent(previous, measurement, m -> m.noOp));
+      }
+    }
+    root.put("superlinearExponent", SUPERLINEAR);
+    return root;
+  }
+
+  /** The median durations measured for a number of projects, in nanoseconds. */
+  private static final class Measurement {
+    private final int projects;
+    private final long configuration;
+    private final long apply;
+    private final long noOp;
+
+    Measurement(int projects, long configuration, long apply, long noOp) {
+      this.projects = projects;
+      this.configuration = configuration;
+      this.apply = apply;
+      this.noOp = noOp;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          Locale.ROOT,
+          "%d projects: configuration %d ms, apply %d ms, no-op build %d ms",
+          this.projects,
+          this.configuration / 1_000_000,
+          this.apply / 1_000_000,
+          this.noOp / 1_000_000);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.benchmark.scaling;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+
+/**
+ * Generates a multi-project build of plugins, each applying Strawberry. Every project depends on
+ * the previous one and on the one at half its index, relocates the packages of those projects and
+ * generates a Paper or Velocity description, alternately.
+ *
+ * <p>Each build script prints how long applying Strawberry took, in nanoseconds, on a line starting
+ * with {@link #APPLY_MARKER}.
+ */
+final class SyntheticBuild {
+  static final String APPLY_MARKER = "strawberry-apply ";
+
+  private SyntheticBuild() {}
+
+  /**
+   * Writes the build into a directory, replacing the scripts and sources of a previous one.
+   *
+   * @param directory the root directory of the build
+   * @param projects the number of subprojects
+   */
+  static void write(@Nonnull Path directory, int projects) {
+    StringBuilder settings = new StringBuilder("rootProject.name = 'strawberry-scaling'\n");
+    for (int i = 0; i < projects; i++) {
+      settings.append("include 'p").append(i).append("'\n");
+    }
+    write(directory.resolve("settings.gradle"), settings.toString());
+    write(
+        directory.resolve("build.gradle"),
+        "plugins {\n    id 'com.vouncherstudios.strawberry' apply false\n}\n");
+    write(directory.resolve("gradle.properties"), "org.gradle.jvmargs=-Xmx2g\n");
+
+    for (int i = 0; i < projects; i++) {
+      Path project = directory.resolve("p" + i);
+      write(project.resolve("build.gradle"), buildScript(i));
+      write(
+          project.resolve("src/main/java/com/example/p" + i + "/Plugin.java"), pluginClass(i));
+    }
+  }
+
+  @Nonnull
+  private static String buildScript(int index) {
+    StringBuilder script = new StringBuilder();
+    script
+        .append("long strawberryStart = System.nanoTime()\n")
+        .append("apply plugin: 'com.vouncherstudios.strawberry'\n")
+        .append("println \"")
+        .append(APPLY_MARKER)
+        .append("${System.nanoTime() - strawberryStart}\"\n\n")
+        .append("group = 'com.example'\n")
+        .append("version = '1.0.0'\n\n");
+
+    script.append("dependencies {\n");
+    for (int dependency : dependencies(index)) {
+      script.append("    implementation project(':p").append(dependency).append("')\n");
+    }
+    script.append("}\n\n");
+
+    script.append("strawberry {\n");
+    for (int dependency : dependencies(index)) {
+      script
+          .append("    relocate('com.example.p")
+          .append(dependency)
+          .append("', 'com.example.p")
+          .append(index)
+          .append(".libs.p")
+          .append(dependency)
+          .append("')\n");
+    }
+    script.append("    minecraft {\n        plugin {\n");
+    if (index % 2 == 0) {
+      script
+          .append("            paper {\n")
+          .append("                main('com.example.p")
+          .append(index)
+          .append(".Plugin')\n")
+          .append("                name('P")
+          .append(index)
+          .append("')\n")
+          .append("            }\n");
+    } else {
+      script
+          .append("            velocity {\n")
+          .append("                id('p")
+          .append(index)
+          .append("')\n")
+          .append("                main('com.example.p")
+          .append(index)
+          .append(".Plugin')\n")
+          .append("                name('P")
+          .append(index)
+          .append("')\n")
+          .append("            }\n");
+    }
+    script.append("        }\n    }\n}\n");
+    return script.toString();
+  }
+
+  @Nonnull
+  private static String pluginClass(int index) {
+    StringBuilder source = new StringBuilder();
+    source
+        .append("package com.example.p")
+        .append(index)
+        .append(";\n\npublic final class Plugin {\n")
+        .append("  public static String name() {\n")
+        .append("    return \"p")
+        .append(index)
+        .append("\"");
+    for (int dependency : dependencies(index)) {
+      source.append(" + com.example.p").append(dependency).append(".Plugin.name()");
+    }
+    source.append(";\n  }\n}\n");
+    return source.toString();
+  }
+
+  @Nonnull
+  private static Set<Integer> dependencies(int index) {
+    Set<Integer> dependencies = new TreeSet<>();
+    if (index > 0) {
+      dependencies.add(index - 1);
+      dependencies.add(index / 2);
+    }
+    dependencies.remove(index);
+    return dependencies;
+  }
+
+  /**
+   * Reads how long applying Strawberry took in every project, from the output of a build.
+   *
+   * @param output the output of the build
+   * @return the durations, in nanoseconds
+   */
+  @Nonnull
+  static List<Long> applyDurations(@Nonnull String output) {
+    List<Long> durations = new ArrayList<>();
+    for (String line : output.split("\\R")) {
+      if (line.startsWith(APPLY_MARKER)) {
+        durations.add(Long.parseLong(line.substring(APPLY_MARKER.length()).strip()));
+      }
+    }
+    return durations;
+  }
+
+  private static void write(@Nonnull Path file, @Nonnull String content) {
+    try {
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, content, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
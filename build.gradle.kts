@@ -18,8 +18,19 @@ dependencies {
     compileOnly("com.google.code.findbugs:jsr305:3.0.2")
     implementation("net.kyori:indra-common:${Versions.INDRA}")
     implementation("com.github.johnrengelman:shadow:${Versions.SHADOW}")
+    implementation("org.ow2.asm:asm-commons:${Versions.ASM}")
     implementation("com.fasterxml.jackson.core:jackson-databind:${Versions.JACKSON}")
     implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml:${Versions.JACKSON}")
+
+    testCompileOnly("com.google.code.findbugs:jsr305:3.0.2")
+    testImplementation(platform("org.junit:junit-bom:${Versions.JUNIT}"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testImplementation(gradleTestKit())
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+tasks.test {
+    useJUnitPlatform()
 }
 
 indra {
@@ -57,6 +68,20 @@ indraPluginPublishing {
         project.description,
         listOf("java", "minecraft", "boilerplate")
     )
+    plugin(
+        "strawberry.distribution",
+        "com.vouncherstudios.strawberry.distribution.DistributionPlugin",
+        "Strawberry Distribution",
+        "Collects the shaded jar of every Strawberry project into the root project.",
+        listOf("java", "minecraft", "distribution")
+    )
+    plugin(
+        "strawberry.library",
+        "com.vouncherstudios.strawberry.library.SharedLibraryPlugin",
+        "Strawberry Shared Library",
+        "Generates the library plugin holding the modules shared by Strawberry projects.",
+        listOf("java", "minecraft", "library")
+    )
 }
 
 indraSpotlessLicenser {
@@ -27,4 +27,8 @@ object Versions {
     const val GRADLE_PUBLISH = "1.3.1"
     const val SHADOW = "8.1.1"
     const val JACKSON = "2.18.3"
+    const val ASM = "9.7.1"
+    const val JMH = "1.37"
+    const val JMH_PLUGIN = "0.7.3"
+    const val JUNIT = "5.10.3"
 }
\ No newline at end of file
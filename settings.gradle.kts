@@ -1 +1,3 @@
-rootProject.name = "strawberry"
\ No newline at end of file
+rootProject.name = "strawberry"
+
+include("benchmarks")
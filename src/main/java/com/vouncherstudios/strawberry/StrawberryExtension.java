@@ -24,12 +24,14 @@
 
 package com.vouncherstudios.strawberry;
 
-import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
 import com.vouncherstudios.strawberry.minecraft.extension.MinecraftExtension;
 import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.RelocationSpec;
+import com.vouncherstudios.strawberry.shadow.extension.ShadingExtension;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.gradle.api.Action;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
 
 /** Extension exposing extra functionality provided by Strawberry. */
@@ -50,7 +52,7 @@ public interface StrawberryExtension {
    * @param destination the destination package
    */
   default void relocate(@Nonnull String pattern, @Nonnull String destination) {
-    relocate(pattern, destination, null);
+    relocations().add(new Relocation(pattern, destination));
   }
 
   /**
@@ -58,15 +60,46 @@ public interface StrawberryExtension {
    *
    * @param pattern the source pattern to relocate
    * @param destination the destination package
-   * @param configure the configuration of the relocator
+   * @param configure the configuration of the relocation, such as its includes and excludes, none
+   *     if null
    */
   default void relocate(
       @Nonnull String pattern,
       @Nonnull String destination,
-      @Nullable Action<SimpleRelocator> configure) {
-    relocations().add(new Relocation(pattern, destination, configure));
+      @Nullable Action<? super RelocationSpec> configure) {
+    RelocationSpec spec = new RelocationSpec();
+    if (configure != null) {
+      configure.execute(spec);
+    }
+    relocations().add(Relocation.of(pattern, destination, spec));
   }
 
+  /**
+   * The package every shaded third-party package is relocated under. The relocations are computed
+   * from the packages of the shaded jars, leaving out the packages of the project, of the server
+   * API, of the libraries left out of the jar and of the declared relocations. Absent by default,
+   * so only the declared relocations are applied.
+   *
+   * @return a property providing the automatic relocation prefix
+   */
+  @Nonnull
+  Property<String> autoRelocate();
+
+  /**
+   * Relocate every shaded third-party package under the prefix. A package {@code com.example.lib}
+   * is moved to {@code <prefix>.com.example.lib}.
+   *
+   * @param prefix the package the shaded packages are moved under
+   */
+  default void autoRelocate(@Nonnull String prefix) {
+    autoRelocate().set(prefix);
+  }
+
+  @Nonnull
+  ShadingExtension shading();
+
+  void shading(@Nonnull Action<ShadingExtension> action);
+
   @Nonnull
   MinecraftExtension minecraft();
 
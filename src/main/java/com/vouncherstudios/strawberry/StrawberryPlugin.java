@@ -25,28 +25,32 @@
 package com.vouncherstudios.strawberry;
 
 import com.github.jengelman.gradle.plugins.shadow.ShadowPlugin;
-import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.cache.CacheReportConfigurer;
+import com.vouncherstudios.strawberry.distribution.DistributionConfigurer;
 import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
-import com.vouncherstudios.strawberry.minecraft.plugin.exception.InvalidPluginDescriptionException;
+import com.vouncherstudios.strawberry.library.SharedLibraryConfigurer;
+import com.vouncherstudios.strawberry.metrics.ConfigurationTrace;
+import com.vouncherstudios.strawberry.metrics.MetricsService;
+import com.vouncherstudios.strawberry.minecraft.plugin.PluginDescriptionConfigurer;
 import com.vouncherstudios.strawberry.minecraft.plugin.task.GeneratePluginDescriptionTask;
-import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.ShadingConfigurer;
 import javax.annotation.Nonnull;
 import net.kyori.indra.IndraPlugin;
 import net.kyori.mammoth.ProjectPlugin;
-import net.kyori.mammoth.Properties;
-import org.gradle.api.DefaultTask;
 import org.gradle.api.Project;
-import org.gradle.api.Task;
-import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.PluginContainer;
-import org.gradle.api.provider.SetProperty;
-import org.gradle.api.tasks.SourceSet;
-import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.util.GradleVersion;
 
-/** The Strawberry plugin providing project configuration. */
+/**
+ * The Strawberry plugin providing project configuration. Each feature is wired by the configurer
+ * of its package, this plugin only applies them in order.
+ */
 public final class StrawberryPlugin implements ProjectPlugin {
 
   @Override
@@ -55,109 +59,45 @@ public final class StrawberryPlugin implements ProjectPlugin {
       @Nonnull PluginContainer plugins,
       @Nonnull ExtensionContainer extensions,
       @Nonnull TaskContainer tasks) {
+    // The span of the whole project is named after it, the others after their step
+    ConfigurationTrace trace = ConfigurationTrace.of(project);
+    try (ConfigurationTrace.Span span = trace.begin(project.getPath())) {
+      configure(project, plugins, extensions, tasks, trace);
+    }
+  }
+
+  private static void configure(
+      @Nonnull Project project,
+      @Nonnull PluginContainer plugins,
+      @Nonnull ExtensionContainer extensions,
+      @Nonnull TaskContainer tasks,
+      @Nonnull ConfigurationTrace trace) {
     // Apply gradle plugins
-    plugins.apply(IndraPlugin.class);
-    plugins.apply(ShadowPlugin.class);
+    trace.run("apply Indra", () -> plugins.apply(IndraPlugin.class));
+    trace.run("apply Shadow", () -> plugins.apply(ShadowPlugin.class));
 
     StrawberryExtensionImpl strawberry = (StrawberryExtensionImpl) Strawberry.extension(extensions);
+    Provider<MetricsService> metrics = MetricsService.register(project);
+    Provider<Configuration> paperLibraries =
+        trace.measure(
+            "paper libraries",
+            () -> PluginDescriptionConfigurer.configurePaperLibraries(project, strawberry));
+    FileCollection sharedModules =
+        trace.measure(
+            "shared library", () -> SharedLibraryConfigurer.configure(project, tasks, strawberry));
+    ShadingConfigurer.configure(
+        project, tasks, strawberry, paperLibraries, sharedModules, metrics, trace);
+    // Collect the final jar in the root project distribution
+    trace.run("distribution", () -> DistributionConfigurer.configure(project, tasks));
 
-    // Configure shadow
-    tasks
-        .withType(ShadowJar.class)
-        .configureEach(
-            shadowJar -> {
-              // Add relocations
-              SetProperty<Relocation> relocationsProp =
-                  Properties.finalized(strawberry.relocations());
-              for (Relocation relocation : relocationsProp.get()) {
-                shadowJar.relocate(
-                    relocation.getPattern(),
-                    relocation.getDestination(),
-                    relocation.getConfiguration());
-              }
-
-              // Remove archive classifier from output jar
-              shadowJar.getArchiveClassifier().set("");
-              // Copy all final jar to build directory
-              shadowJar.doLast(
-                  task ->
-                      project.copy(
-                          copySpec ->
-                              copySpec
-                                  .from(shadowJar.getArchiveFile())
-                                  .into(project.getRootProject().getProjectDir() + "/build")));
-            });
-    // Add shadowJar task as dependency on build task
-    tasks
-        .named("build", DefaultTask.class)
-        .configure(build -> build.dependsOn(tasks.named("shadowJar", ShadowJar.class)));
-    // Add shadowJar task as dependency on other projects shadowJar task
-    tasks
-        .named("shadowJar", ShadowJar.class)
-        .configure(
-            shadowJar ->
-                project
-                    .getConfigurations()
-                    .forEach(
-                        configuration ->
-                            configuration
-                                .getDependencies()
-                                .forEach(
-                                    dependency -> {
-                                      if (dependency instanceof ProjectDependency) {
-                                        Project dependentProject =
-                                            ((ProjectDependency) dependency).getDependencyProject();
-                                        ShadowJar shadowJarTask =
-                                            dependentProject
-                                                .getTasks()
-                                                .named("shadowJar", ShadowJar.class)
-                                                .getOrNull();
-                                        if (shadowJarTask != null) {
-                                          project
-                                              .getTasks()
-                                              .getByName("shadowJar")
-                                              .dependsOn(shadowJarTask);
-                                        }
-                                      }
-                                    })));
-
-    // Create minecraft generate plugin description task
-    Task generatePluginDescriptionTask =
-        tasks
-            .register(
-                "minecraftGeneratePluginDescription",
-                GeneratePluginDescriptionTask.class,
-                task -> {
-                  String name = "minecraft-plugin-description";
-                  task.setDescription(
-                      "Generate the plugin description based on user defined strawberry configuration.");
-                  task.setGroup(name);
-                  task.setOutputDirectory(
-                      project
-                          .getLayout()
-                          .getBuildDirectory()
-                          .dir("generated/" + Strawberry.EXTENSION_NAME + "/" + name));
-
-                  task.doFirst(
-                      t -> {
-                        task.setGenerators(strawberry);
-                        try {
-                          task.validate();
-                        } catch (InvalidPluginDescriptionException e) {
-                          throw new RuntimeException(e);
-                        }
-                      });
-                })
-            .get();
-    // Add generate plugin description task as dependency on build task
-    tasks
-        .named("build", DefaultTask.class)
-        .configure(build -> build.dependsOn(generatePluginDescriptionTask));
-    // Copy plugin description output to our final jar
-    extensions
-        .getByType(SourceSetContainer.class)
-        .named(SourceSet.MAIN_SOURCE_SET_NAME)
-        .configure(sourceSet -> sourceSet.getResources().srcDir(generatePluginDescriptionTask));
+    TaskProvider<GeneratePluginDescriptionTask> generatePluginDescriptionTask =
+        PluginDescriptionConfigurer.configure(
+            project, tasks, strawberry, paperLibraries, metrics, trace);
+    trace.run(
+        "cache report",
+        () ->
+            CacheReportConfigurer.configure(
+                project, tasks, strawberry, generatePluginDescriptionTask));
   }
 
   @Nonnull
@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.cache;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.cache.task.CacheReportTask;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.minecraft.plugin.task.GeneratePluginDescriptionTask;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.io.File;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/** Configures the cache report of a project applying Strawberry. */
+public final class CacheReportConfigurer {
+  private CacheReportConfigurer() {}
+
+  /**
+   * Registers the cache report task, comparing the inputs of the shadowJar and plugin description
+   * tasks with the ones of its previous run. The shadowJar task is only looked at, never run.
+   *
+   * @param project the project
+   * @param tasks the task container
+   * @param strawberry the strawberry extension
+   * @param generatePluginDescriptionTask the plugin description task
+   */
+  public static void configure(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull TaskProvider<GeneratePluginDescriptionTask> generatePluginDescriptionTask) {
+    tasks.register(
+        "strawberryCacheReport",
+        CacheReportTask.class,
+        task -> {
+          task.setDescription(
+              "Report which inputs of the shadowJar and plugin description tasks changed since the"
+                  + " previous report.");
+          // Only realized along with the report, once every build script configured it
+          ShadowJar shadowJar = tasks.named("shadowJar", ShadowJar.class).get();
+          task.getShadingProperties().set(shadingProperties(shadowJar, strawberry));
+          // The inputs are built but not the shadowJar task itself
+          task.getShadingFiles().from(shadowJar.getInputs().getFiles());
+          task.getPaperDescription()
+              .set(
+                  generatePluginDescriptionTask.flatMap(
+                      GeneratePluginDescriptionTask::getPaperDescription));
+          task.getVelocityDescription()
+              .set(
+                  generatePluginDescriptionTask.flatMap(
+                      GeneratePluginDescriptionTask::getVelocityDescription));
+          task.getRootDirectory().set(project.getRootProject().getLayout().getProjectDirectory());
+          task.getFingerprintFile()
+              .set(
+                  project
+                      .getLayout()
+                      .getBuildDirectory()
+                      .file(Strawberry.EXTENSION_NAME + "/cache/fingerprint.json"));
+          task.getReportFile()
+              .set(
+                  project
+                      .getLayout()
+                      .getBuildDirectory()
+                      .file("reports/" + Strawberry.EXTENSION_NAME + "/cache.txt"));
+        });
+  }
+
+  /**
+   * Gets the values of every input property of the shadowJar task, along with the declared
+   * relocations, the Shadow relocators and transformers, the manifest attributes and the archive
+   * name, which are not input properties. The nested relocators and transformers are described by
+   * their input properties, like Gradle fingerprints them.
+   *
+   * @param shadowJar the shadow jar task
+   * @param strawberry the strawberry extension
+   * @return the values, by input name
+   */
+  @Nonnull
+  private static Map<String, String> shadingProperties(
+      @Nonnull ShadowJar shadowJar, @Nonnull StrawberryExtensionImpl strawberry) {
+    Map<String, String> properties = new TreeMap<>();
+    int index = 0;
+    for (Relocation relocation : strawberry.relocations().get()) {
+      properties.put("relocations[" + index++ + "]", relocation.toString());
+    }
+    for (Map.Entry<String, Object> property : shadowJar.getInputs().getProperties().entrySet()) {
+      if (property.getValue() != null) {
+        properties.put(property.getKey(), stableValue(property.getValue()));
+      }
+    }
+    properties.put("relocators", stableValue(shadowJar.getRelocators()));
+    properties.put("transformers", stableValue(shadowJar.getTransformers()));
+    properties.put(
+        "manifest.attributes",
+        stableValue(new TreeMap<>(shadowJar.getManifest().getEffectiveManifest().getAttributes())));
+    properties.put("archiveFileName", stableValue(shadowJar.getArchiveFileName().getOrNull()));
+    return properties;
+  }
+
+  /**
+   * Describes an input value the same way between two builds. Objects declaring {@link Input} or
+   * {@link Nested} properties, like the Shadow relocators and transformers, are described by their
+   * class name and the values of these properties. The others without a {@link Object#toString()}
+   * of their own are described by their class name, instead of a name changing with their identity
+   * hash code.
+   *
+   * @param value the value
+   * @return the description of the value
+   */
+  @Nonnull
+  private static String stableValue(@Nullable Object value) {
+    if (value instanceof Provider<?>) {
+      return stableValue(((Provider<?>) value).getOrNull());
+    }
+    if (value == null
+        || value instanceof CharSequence
+        || value instanceof Number
+        || value instanceof Boolean
+        || value instanceof Enum<?>
+        || value instanceof File) {
+      return String.valueOf(value);
+    }
+    if (value instanceof Iterable<?>) {
+      List<String> values = new ArrayList<>();
+      for (Object element : (Iterable<?>) value) {
+        values.add(stableValue(element));
+      }
+      return values.toString();
+    }
+    if (value instanceof Map<?, ?>) {
+      Map<String, String> values = new TreeMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        values.put(String.valueOf(entry.getKey()), stableValue(entry.getValue()));
+      }
+      return values.toString();
+    }
+    if (value instanceof Object[]) {
+      return stableValue(Arrays.asList((Object[]) value));
+    }
+    Map<String, String> inputs = inputProperties(value);
+    if (!inputs.isEmpty()) {
+      return value.getClass().getName() + inputs;
+    }
+    try {
+      if (value.getClass().getMethod("toString").getDeclaringClass() != Object.class) {
+        return value.toString();
+      }
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError("Every class has a toString method", e);
+    }
+    return value.getClass().getName();
+  }
+
+  /**
+   * Gets the values of the input properties of an object: the getters and, for Groovy properties,
+   * the fields annotated with {@link Input} or {@link Nested}.
+   *
+   * @param value the object
+   * @return the described values, by property name
+   */
+  @Nonnull
+  private static Map<String, String> inputProperties(@Nonnull Object value) {
+    Map<String, String> properties = new TreeMap<>();
+    for (Class<?> type = value.getClass(); type != Object.class; type = type.getSuperclass()) {
+      for (Method method : type.getDeclaredMethods()) {
+        String name = method.getName();
+        int prefix = name.startsWith("get") ? 3 : name.startsWith("is") ? 2 : 0;
+        if (prefix == 0
+            || name.length() == prefix
+            || method.getParameterCount() != 0
+            || Modifier.isStatic(method.getModifiers())
+            || !isInput(method)) {
+          continue;
+        }
+        String property = Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+        properties.putIfAbsent(property, inputValue(method, value, method::invoke));
+      }
+      for (Field field : type.getDeclaredFields()) {
+        if (!Modifier.isStatic(field.getModifiers()) && isInput(field)) {
+          properties.putIfAbsent(field.getName(), inputValue(field, value, field::get));
+        }
+      }
+    }
+    return properties;
+  }
+
+  private static boolean isInput(@Nonnull AccessibleObject member) {
+    return member.isAnnotationPresent(Input.class) || member.isAnnotationPresent(Nested.class);
+  }
+
+  @Nonnull
+  private static String inputValue(
+      @Nonnull AccessibleObject member, @Nonnull Object value, @Nonnull Accessor accessor) {
+    try {
+      member.setAccessible(true);
+      return stableValue(accessor.get(value));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return "<unreadable>";
+    }
+  }
+
+  /** Reads a member of an object. */
+  @FunctionalInterface
+  private interface Accessor {
+    @Nullable
+    Object get(@Nonnull Object value) throws ReflectiveOperationException;
+  }
+}
@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.cache.task;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescription;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+
+/**
+ * The cache report gradle task. It fingerprints every input property and input file of the
+ * shadowJar task, down to the content of each file, along with the properties of the plugin
+ * descriptions, and compares the fingerprint with the one of its previous run. Each input added,
+ * removed or changed since then is reported, which tells why those tasks missed the build cache.
+ *
+ * <p>The report can't see everything the build cache key holds: the implementation of the task
+ * actions, that is the classpath of the plugins, is not fingerprinted, and the nested Shadow
+ * relocators and transformers are only compared by their {@link Object#toString()}, or by their
+ * class name when they don't declare one. A miss caused by one of them reports no changed input.
+ */
+@UntrackedTask(because = "It compares the inputs with the ones of its previous run")
+public abstract class CacheReportTask extends DefaultTask {
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String SHADOW_JAR = "shadowJar";
+  private static final String DESCRIPTION = "minecraftGeneratePluginDescription";
+
+  /**
+   * The input properties of the shadowJar task, with a description of their value.
+   *
+   * @return a property providing the values of the input properties
+   */
+  @Input
+  public abstract MapProperty<String, String> getShadingProperties();
+
+  /**
+   * The input files of the shadowJar task, such as the project classes and the dependency jars.
+   *
+   * @return the file collection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.RELATIVE)
+  public abstract ConfigurableFileCollection getShadingFiles();
+
+  /**
+   * The paper plugin description, absent if no paper description is configured.
+   *
+   * @return a property providing the paper description
+   */
+  @Nested
+  @Optional
+  public abstract Property<PaperDescription> getPaperDescription();
+
+  /**
+   * The velocity plugin description, absent if no velocity description is configured.
+   *
+   * @return a property providing the velocity description
+   */
+  @Nested
+  @Optional
+  public abstract Property<VelocityDescription> getVelocityDescription();
+
+  /**
+   * The directory the input files are named relative to, when inside it. The files outside it, such
+   * as the dependency jars, are named after their file name, so the fingerprints of two machines
+   * can be compared.
+   *
+   * @return the root directory
+   */
+  @Internal
+  public abstract DirectoryProperty getRootDirectory();
+
+  /**
+   * The file the fingerprint is kept in between two runs of the report.
+   *
+   * @return the fingerprint file
+   */
+  @Internal
+  public abstract RegularFileProperty getFingerprintFile();
+
+  /**
+   * The file the readable report is written to.
+   *
+   * @return the report file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getReportFile();
+
+  /** The task action to compare the inputs with the ones of the previous run. */
+  @TaskAction
+  public void report() {
+    Map<String, String> fingerprint = new TreeMap<>();
+    for (Map.Entry<String, String> property : getShadingProperties().get().entrySet()) {
+      fingerprint.put(SHADOW_JAR + '.' + property.getKey(), property.getValue());
+    }
+    Path root = getRootDirectory().get().getAsFile().toPath();
+    try {
+      for (File file : getShadingFiles().getFiles()) {
+        fingerprintFile(root, file.toPath(), fingerprint);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (getPaperDescription().isPresent()) {
+      flatten(
+          DESCRIPTION + ".paperDescription",
+          MAPPER.valueToTree(getPaperDescription().get()),
+          fingerprint);
+    }
+    if (getVelocityDescription().isPresent()) {
+      flatten(
+          DESCRIPTION + ".velocityDescription",
+          MAPPER.valueToTree(getVelocityDescription().get()),
+          fingerprint);
+    }
+
+    File fingerprintFile = getFingerprintFile().get().getAsFile();
+    List<String> lines = new ArrayList<>();
+    try {
+      if (fingerprintFile.isFile()) {
+        Map<String, String> previous =
+            MAPPER.readValue(fingerprintFile, new TypeReference<TreeMap<String, String>>() {});
+        lines.addAll(diff(previous, fingerprint));
+        if (lines.isEmpty()) {
+          lines.add(
+              "No input changed since the previous report, the miss may come from the plugin"
+                  + " classpath or a Shadow relocator or transformer compared by class name");
+        }
+      } else {
+        lines.add("No previous fingerprint, recorded " + fingerprint.size() + " inputs");
+      }
+
+      File reportFile = getReportFile().get().getAsFile();
+      Files.createDirectories(reportFile.getParentFile().toPath());
+      Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+      Files.createDirectories(fingerprintFile.getParentFile().toPath());
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(fingerprintFile, fingerprint);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    for (String line : lines) {
+      getLogger().lifecycle(line);
+    }
+  }
+
+  /**
+   * Compares two fingerprints.
+   *
+   * @param previous the fingerprint of the previous run
+   * @param current the fingerprint of this run
+   * @return a line for every input added, removed or changed, sorted by input
+   */
+  @Nonnull
+  private static List<String> diff(
+      @Nonnull Map<String, String> previous, @Nonnull Map<String, String> current) {
+    Set<String> inputs = new TreeSet<>(previous.keySet());
+    inputs.addAll(current.keySet());
+
+    List<String> lines = new ArrayList<>();
+    for (String input : inputs) {
+      String before = previous.get(input);
+      String after = current.get(input);
+      if (before == null) {
+        lines.add("Added " + input + ": " + after);
+      } else if (after == null) {
+        lines.add("Removed " + input + ": " + before);
+      } else if (!before.equals(after)) {
+        lines.add("Changed " + input + ": " + before + " -> " + after);
+      }
+    }
+    return lines;
+  }
+
+  private static void fingerprintFile(
+      @Nonnull Path root, @Nonnull Path file, @Nonnull Map<String, String> fingerprint)
+      throws IOException {
+    if (Files.isDirectory(file)) {
+      List<Path> children;
+      try (Stream<Path> stream = Files.walk(file)) {
+        children = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+      }
+      for (Path child : children) {
+        fingerprintFile(root, child, fingerprint);
+      }
+      return;
+    }
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+
+    String name =
+        file.startsWith(root)
+            ? root.relativize(file).toString().replace(File.separatorChar, '/')
+            : file.getFileName().toString();
+    fingerprint.put(SHADOW_JAR + " file " + name, hash(file));
+  }
+
+  private static void flatten(
+      @Nonnull String prefix, @Nonnull JsonNode node, @Nonnull Map<String, String> fingerprint) {
+    if (node.isObject()) {
+      Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+      while (fields.hasNext()) {
+        Map.Entry<String, JsonNode> field = fields.next();
+        flatten(prefix + '.' + field.getKey(), field.getValue(), fingerprint);
+      }
+    } else if (node.isArray()) {
+      for (int i = 0; i < node.size(); i++) {
+        flatten(prefix + '[' + i + ']', node.get(i), fingerprint);
+      }
+    } else if (!node.isNull()) {
+      fingerprint.put(prefix, node.asText());
+    }
+  }
+
+  @Nonnull
+  private static String hash(@Nonnull Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+    }
+
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.distribution;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import javax.annotation.Nonnull;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+
+/**
+ * The task action detaching the archive of a task from the copies the distribution published as
+ * hard links, before the task writes it again. Shadow truncates and rewrites its jar in place,
+ * which would otherwise change every published link while it is being written.
+ *
+ * <p>The archive is replaced by a copy of itself, so it keeps its content for the actions reading
+ * the previous output, such as the incremental shading pipeline, whatever order they run in.
+ */
+public final class DetachArchiveAction implements Action<Task> {
+  private static final String LINK_COUNT_ATTRIBUTE = "unix:nlink";
+  private static final String DETACHING_SUFFIX = ".detaching";
+
+  @Override
+  public void execute(@Nonnull Task task) {
+    Path archive = ((AbstractArchiveTask) task).getArchiveFile().get().getAsFile().toPath();
+    try {
+      if (!isLinked(archive)) {
+        return;
+      }
+
+      Path copy = archive.resolveSibling(archive.getFileName() + DETACHING_SUFFIX);
+      Files.copy(
+          archive, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+      try {
+        Files.move(
+            copy, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(copy, archive, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isLinked(@Nonnull Path archive) throws IOException {
+    if (!Files.isRegularFile(archive)) {
+      return false;
+    }
+
+    try {
+      return ((Number) Files.getAttribute(archive, LINK_COUNT_ATTRIBUTE)).intValue() > 1;
+    } catch (UnsupportedOperationException | IllegalArgumentException e) {
+      // The link count is unknown, so the archive is assumed to be linked
+      return true;
+    }
+  }
+}
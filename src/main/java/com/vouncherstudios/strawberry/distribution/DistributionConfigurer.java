@@ -0,0 +1,75 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.distribution;
+
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.tasks.TaskContainer;
+
+/**
+ * Configures a project applying Strawberry to expose its shaded jar to the {@link
+ * DistributionPlugin}.
+ */
+public final class DistributionConfigurer {
+  private DistributionConfigurer() {}
+
+  /**
+   * Exposes the shaded jar of the project through a consumable variant of the {@value
+   * DistributionPlugin#CATEGORY} category, and applies the distribution plugin to the root project
+   * when it applies Strawberry itself. The shaded jar is detached from the published links before
+   * it is written again.
+   *
+   * @param project the project
+   * @param tasks the project tasks
+   */
+  public static void configure(@Nonnull Project project, @Nonnull TaskContainer tasks) {
+    project
+        .getConfigurations()
+        .create(
+            DistributionPlugin.ELEMENTS_CONFIGURATION_NAME,
+            configuration -> {
+              configuration.setDescription("The shaded jar of this project.");
+              configuration.setCanBeConsumed(true);
+              configuration.setCanBeResolved(false);
+              configuration.setVisible(false);
+              configuration.attributes(
+                  attributes ->
+                      attributes.attribute(
+                          Category.CATEGORY_ATTRIBUTE,
+                          DistributionPlugin.category(project.getObjects())));
+            });
+    project
+        .getArtifacts()
+        .add(DistributionPlugin.ELEMENTS_CONFIGURATION_NAME, tasks.named("shadowJar"));
+    // The distribution may publish the jar as a hard link, which Shadow would rewrite in place
+    tasks.named("shadowJar").configure(shadowJar -> shadowJar.doFirst(new DetachArchiveAction()));
+
+    // The root resolves the variant above, other roots apply the distribution plugin themselves
+    if (project.equals(project.getRootProject())) {
+      project.getPluginManager().apply(DistributionPlugin.class);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.distribution;
+
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.distribution.task.DistributionTask;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import net.kyori.mammoth.ProjectPlugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.DependencySet;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.ExtensionContainer;
+import org.gradle.api.plugins.PluginContainer;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.util.GradleVersion;
+
+/**
+ * The plugin applied to the root project to collect the shaded jar of every project applying
+ * Strawberry.
+ *
+ * <p>Strawberry applies it to the root project when the root applies Strawberry itself, otherwise
+ * the root applies it with the {@code com.vouncherstudios.strawberry.distribution} id. Every
+ * project applying Strawberry only exposes its shaded jar through a consumable variant of the
+ * {@value #CATEGORY} category, and the root resolves that variant from the projects declared in
+ * the {@value #DECLARATION_CONFIGURATION_NAME} configuration. When none are declared, every
+ * project of the build is resolved and the projects without the variant are skipped.
+ */
+public final class DistributionPlugin implements ProjectPlugin {
+  /** The name of the root task collecting every shaded jar. */
+  public static final String TASK_NAME = "strawberryDistribution";
+
+  /** The category of the variant exposing the shaded jar of a project. */
+  public static final String CATEGORY = "strawberry-distribution";
+
+  /** The name of the root configuration declaring the projects to collect. */
+  public static final String DECLARATION_CONFIGURATION_NAME = "strawberryDistribution";
+
+  /** The name of the root configuration resolving every shaded jar. */
+  public static final String CONFIGURATION_NAME = "strawberryDistributionArtifacts";
+
+  /** The name of the configuration exposing the shaded jar of a project. */
+  public static final String ELEMENTS_CONFIGURATION_NAME = "strawberryDistributionElements";
+
+  @Override
+  public void apply(
+      @Nonnull Project project,
+      @Nonnull PluginContainer plugins,
+      @Nonnull ExtensionContainer extensions,
+      @Nonnull TaskContainer tasks) {
+    plugins.apply(BasePlugin.class);
+
+    DependencyHandler dependencies = project.getDependencies();
+    Configuration declaration =
+        project
+            .getConfigurations()
+            .create(
+                DECLARATION_CONFIGURATION_NAME,
+                configuration -> {
+                  configuration.setDescription("The projects to collect the shaded jar of.");
+                  configuration.setCanBeConsumed(false);
+                  configuration.setCanBeResolved(false);
+                  configuration.setVisible(false);
+                  // Only project paths are read, no other project is configured or mutated
+                  configuration.defaultDependencies(
+                      defaults -> addEveryProject(project, dependencies, defaults));
+                });
+    Configuration artifacts =
+        project
+            .getConfigurations()
+            .create(
+                CONFIGURATION_NAME,
+                configuration -> {
+                  configuration.setDescription("The shaded jars of every Strawberry project.");
+                  configuration.setCanBeConsumed(false);
+                  configuration.setCanBeResolved(true);
+                  configuration.setTransitive(false);
+                  configuration.setVisible(false);
+                  configuration.extendsFrom(declaration);
+                  configuration.attributes(
+                      attributes ->
+                          attributes.attribute(
+                              Category.CATEGORY_ATTRIBUTE, category(project.getObjects())));
+                });
+
+    TaskProvider<DistributionTask> distribution =
+        tasks.register(
+            TASK_NAME,
+            DistributionTask.class,
+            task -> {
+              task.setDescription("Collect the shaded jar of every Strawberry project.");
+              task.setGroup(BasePlugin.BUILD_GROUP);
+              // Projects without the distribution variant are not collected
+              task.getArtifacts()
+                  .from(
+                      artifacts
+                          .getIncoming()
+                          .artifactView(view -> view.lenient(true))
+                          .getFiles());
+              task.getDestinationDirectory()
+                  .convention(project.getLayout().getBuildDirectory().dir("distribution"));
+            });
+    // Add distribution task as dependency on assemble task
+    tasks
+        .named(BasePlugin.ASSEMBLE_TASK_NAME)
+        .configure(assemble -> assemble.dependsOn(distribution));
+  }
+
+  /**
+   * Gets the category of the variant exposing the shaded jar of a project.
+   *
+   * @param objects the object factory
+   * @return the distribution category
+   */
+  @Nonnull
+  public static Category category(@Nonnull ObjectFactory objects) {
+    return objects.named(Category.class, CATEGORY);
+  }
+
+  private static void addEveryProject(
+      @Nonnull Project project,
+      @Nonnull DependencyHandler dependencies,
+      @Nonnull DependencySet defaults) {
+    for (Project other : project.getAllprojects()) {
+      defaults.add(dependencies.project(Map.of("path", other.getPath())));
+    }
+  }
+
+  @Nonnull
+  @Override
+  public GradleVersion minimumGradleVersion() {
+    return Strawberry.MINIMUM_SUPPORTED;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.distribution.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vouncherstudios.strawberry.distribution.DetachArchiveAction;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * The distribution gradle task. It collects the shaded jar of every Strawberry project into a
+ * single directory.
+ *
+ * <p>Artifacts are published as hard links when the file system supports them, and copied
+ * otherwise. Every link or copy is staged next to its destination and published with an atomic
+ * rename, so consumers of the directory never observe a partially written jar. The projects detach
+ * their shaded jar from the links before writing it again, see {@link DetachArchiveAction}. A
+ * manifest listing the collected artifacts is written alongside them.
+ */
+@DisableCachingByDefault(because = "Copying files is not worth caching")
+public abstract class DistributionTask extends DefaultTask {
+  /** The name of the manifest file written in the destination directory. */
+  public static final String MANIFEST_FILE_NAME = "strawberry-distribution.json";
+
+  private static final String STAGING_PREFIX = ".staging-";
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+  /**
+   * The artifacts to collect.
+   *
+   * @return the artifacts collection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NAME_ONLY)
+  public abstract ConfigurableFileCollection getArtifacts();
+
+  /**
+   * The directory the artifacts are collected into.
+   *
+   * @return the destination directory
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getDestinationDirectory();
+
+  /** The task action to collect the artifacts into the destination directory. */
+  @TaskAction
+  public void collect() {
+    Path destination = getDestinationDirectory().get().getAsFile().toPath();
+
+    // Sort by name so the manifest is stable between builds
+    Map<String, Path> artifacts = new TreeMap<>();
+    for (File file : getArtifacts().getFiles()) {
+      Path previous = artifacts.put(file.getName(), file.toPath());
+      if (previous != null) {
+        throw new GradleException(
+            "Multiple artifacts named "
+                + file.getName()
+                + " can't be collected: "
+                + previous
+                + " and "
+                + file);
+      }
+    }
+
+    ArrayNode manifest = MAPPER.createArrayNode();
+    try {
+      Files.createDirectories(destination);
+      removeStaleFiles(destination, artifacts);
+
+      for (Map.Entry<String, Path> entry : artifacts.entrySet()) {
+        Path source = entry.getValue();
+        Path target = destination.resolve(entry.getKey());
+
+        ObjectNode node = manifest.addObject();
+        node.put("name", entry.getKey());
+        node.put("size", Files.size(source));
+        node.put("method", publish(source, target));
+      }
+
+      Path manifestFile = destination.resolve(MANIFEST_FILE_NAME);
+      Path staging = destination.resolve(STAGING_PREFIX + MANIFEST_FILE_NAME);
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(staging.toFile(), manifest);
+      move(staging, manifestFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Publishes the source file at the target path through a staged, atomically renamed file. The
+   * staged file is a hard link to the source, or a copy of it when the file system can't link
+   * them, such as across devices.
+   *
+   * @param source the artifact file
+   * @param target the published file
+   * @return how the artifact was published
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  private static String publish(@Nonnull Path source, @Nonnull Path target) throws IOException {
+    if (Files.isRegularFile(target) && Files.isSameFile(source, target)) {
+      return "unchanged";
+    }
+    // Copies keep the modification time of the artifact, an identical one has nothing to publish.
+    // File systems store it at different precisions, so it is only compared to the millisecond
+    if (Files.isRegularFile(target)
+        && Files.size(source) == Files.size(target)
+        && Files.getLastModifiedTime(source).toMillis()
+            == Files.getLastModifiedTime(target).toMillis()) {
+      return "unchanged";
+    }
+
+    Path staging = target.resolveSibling(STAGING_PREFIX + target.getFileName());
+    Files.deleteIfExists(staging);
+    String method;
+    try {
+      Files.createLink(staging, source);
+      method = "link";
+    } catch (IOException | UnsupportedOperationException e) {
+      Files.deleteIfExists(staging);
+      Files.copy(source, staging, StandardCopyOption.COPY_ATTRIBUTES);
+      method = "copy";
+    }
+    move(staging, target);
+    return method;
+  }
+
+  private static void move(@Nonnull Path source, @Nonnull Path target) throws IOException {
+    try {
+      Files.move(
+          source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void removeStaleFiles(
+      @Nonnull Path destination, @Nonnull Map<String, Path> artifacts) throws IOException {
+    try (Stream<Path> files = Files.list(destination)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        String name = file.getFileName().toString();
+        if (Files.isRegularFile(file)
+            && !artifacts.containsKey(name)
+            && !name.equals(MANIFEST_FILE_NAME)) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.gradle.utils;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.plugins.JavaPlugin;
+
+/** Helpers reading the runtime classpath of a project, shared by the feature configurers. */
+public final class ResolutionUtils {
+  private ResolutionUtils() {}
+
+  /**
+   * Gets the runtime classpath of the project.
+   *
+   * @param project the project
+   * @return the runtime classpath configuration
+   */
+  @Nonnull
+  public static Configuration runtimeClasspath(@Nonnull Project project) {
+    return project.getConfigurations().getByName(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME);
+  }
+
+  /**
+   * Gets the runtime classpath jars of the external modules shaded into the jar, or of every other
+   * component.
+   *
+   * @param project the project
+   * @param leftOut the modules left out of the jar
+   * @param shaded whether to get the shaded jars or the other ones
+   * @return the jars
+   */
+  @Nonnull
+  public static FileCollection runtimeJars(
+      @Nonnull Project project, @Nonnull Predicate<String> leftOut, boolean shaded) {
+    return runtimeClasspath(project)
+        .getIncoming()
+        .artifactView(
+            view ->
+                view.componentFilter(
+                    id ->
+                        (id instanceof ModuleComponentIdentifier
+                                && !leftOut.test(
+                                    ((ModuleComponentIdentifier) id).getGroup()
+                                        + ':'
+                                        + ((ModuleComponentIdentifier) id).getModule()))
+                            == shaded))
+        .getFiles();
+  }
+
+  /**
+   * Gets the components reachable from the roots, the roots included.
+   *
+   * @param roots the components to start from
+   * @return the reachable components
+   */
+  @Nonnull
+  public static Set<ResolvedComponentResult> reachableComponents(
+      @Nonnull Collection<ResolvedComponentResult> roots) {
+    Set<ResolvedComponentResult> visited = new HashSet<>();
+    Deque<ResolvedComponentResult> queue = new ArrayDeque<>(roots);
+    while (!queue.isEmpty()) {
+      ResolvedComponentResult component = queue.poll();
+      if (!visited.add(component)) {
+        continue;
+      }
+      for (DependencyResult dependency : component.getDependencies()) {
+        if (dependency instanceof ResolvedDependencyResult) {
+          queue.add(((ResolvedDependencyResult) dependency).getSelected());
+        }
+      }
+    }
+    return visited;
+  }
+}
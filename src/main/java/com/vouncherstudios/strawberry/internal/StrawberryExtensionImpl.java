@@ -26,22 +26,29 @@ package com.vouncherstudios.strawberry.internal;
 
 import com.vouncherstudios.strawberry.StrawberryExtension;
 import com.vouncherstudios.strawberry.internal.minecraft.MinecraftExtensionImpl;
+import com.vouncherstudios.strawberry.internal.shadow.ShadingExtensionImpl;
 import com.vouncherstudios.strawberry.minecraft.extension.MinecraftExtension;
 import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.extension.ShadingExtension;
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import net.kyori.mammoth.Configurable;
 import org.gradle.api.Action;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
 
 public class StrawberryExtensionImpl implements StrawberryExtension {
   private final SetProperty<Relocation> relocations;
+  private final Property<String> autoRelocate;
+  private final ShadingExtensionImpl shading;
   private final MinecraftExtension minecraft;
 
   @Inject
   public StrawberryExtensionImpl(@Nonnull ObjectFactory objects) {
     this.relocations = objects.setProperty(Relocation.class);
+    this.autoRelocate = objects.property(String.class);
+    this.shading = objects.newInstance(ShadingExtensionImpl.class);
     this.minecraft = objects.newInstance(MinecraftExtensionImpl.class);
   }
 
@@ -51,6 +58,23 @@ public class StrawberryExtensionImpl implements StrawberryExtension {
     return this.relocations;
   }
 
+  @Nonnull
+  @Override
+  public Property<String> autoRelocate() {
+    return this.autoRelocate;
+  }
+
+  @Nonnull
+  @Override
+  public ShadingExtensionImpl shading() {
+    return this.shading;
+  }
+
+  @Override
+  public void shading(@Nonnull Action<ShadingExtension> action) {
+    Configurable.configure(this.shading, action);
+  }
+
   @Nonnull
   @Override
   public MinecraftExtension minecraft() {
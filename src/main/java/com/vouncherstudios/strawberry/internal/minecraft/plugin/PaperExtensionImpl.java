@@ -41,6 +41,7 @@ public class PaperExtensionImpl implements PaperExtension {
   private final SetProperty<String> authors;
   private final Property<LoadOrder> load;
   private final SetProperty<Dependency> dependencies;
+  private final SetProperty<String> libraries;
   private final Property<String> apiVersion;
 
   @Inject
@@ -52,6 +53,7 @@ public class PaperExtensionImpl implements PaperExtension {
     this.authors = objects.setProperty(String.class);
     this.load = objects.property(LoadOrder.class).convention(LoadOrder.POSTWORLD);
     this.dependencies = objects.setProperty(Dependency.class);
+    this.libraries = objects.setProperty(String.class);
     this.apiVersion = objects.property(String.class);
   }
 
@@ -97,6 +99,12 @@ public class PaperExtensionImpl implements PaperExtension {
     return this.dependencies;
   }
 
+  @Nonnull
+  @Override
+  public SetProperty<String> libraries() {
+    return this.libraries;
+  }
+
   @Nonnull
   @Override
   public Property<String> apiVersion() {
@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.internal.shadow;
+
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Packaging;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.UnusedRelocationPolicy;
+import com.vouncherstudios.strawberry.shadow.extension.ShadingExtension;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceTransformer;
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+
+public class ShadingExtensionImpl implements ShadingExtension {
+  private final Property<Boolean> parallel;
+  private final Property<Boolean> cacheDependencies;
+  private final Property<Boolean> incremental;
+  private final Property<Boolean> minimize;
+  private final SetProperty<String> keep;
+  private final Property<ServerProvidedPolicy> serverProvided;
+  private final Property<DuplicateClassPolicy> duplicateClasses;
+  private final Property<UnusedRelocationPolicy> unusedRelocations;
+  private final Property<Packaging> packaging;
+  private final Property<String> sharedLibrary;
+  private final Property<Boolean> mergeServiceFiles;
+  private final ListProperty<ResourceTransformer> transformers;
+  private final Property<CompressionProfile> compression;
+
+  @Inject
+  public ShadingExtensionImpl(@Nonnull ObjectFactory objects) {
+    this.parallel = objects.property(Boolean.class).convention(false);
+    this.cacheDependencies = objects.property(Boolean.class).convention(false);
+    this.incremental = objects.property(Boolean.class).convention(false);
+    this.minimize = objects.property(Boolean.class).convention(false);
+    this.keep = objects.setProperty(String.class);
+    this.serverProvided =
+        objects.property(ServerProvidedPolicy.class).convention(ServerProvidedPolicy.IGNORE);
+    this.duplicateClasses =
+        objects.property(DuplicateClassPolicy.class).convention(DuplicateClassPolicy.IGNORE);
+    this.unusedRelocations =
+        objects.property(UnusedRelocationPolicy.class).convention(UnusedRelocationPolicy.WARN);
+    this.packaging = objects.property(Packaging.class).convention(Packaging.RELOCATE);
+    this.sharedLibrary = objects.property(String.class);
+    this.mergeServiceFiles = objects.property(Boolean.class).convention(false);
+    this.transformers = objects.listProperty(ResourceTransformer.class);
+    this.compression =
+        objects.property(CompressionProfile.class).convention(CompressionProfile.DEFAULT);
+  }
+
+  @Nonnull
+  @Override
+  public Property<Boolean> parallel() {
+    return this.parallel;
+  }
+
+  @Nonnull
+  @Override
+  public Property<Boolean> cacheDependencies() {
+    return this.cacheDependencies;
+  }
+
+  @Nonnull
+  @Override
+  public Property<Boolean> incremental() {
+    return this.incremental;
+  }
+
+  @Nonnull
+  @Override
+  public Property<Boolean> minimize() {
+    return this.minimize;
+  }
+
+  @Nonnull
+  @Override
+  public SetProperty<String> keep() {
+    return this.keep;
+  }
+
+  @Nonnull
+  @Override
+  public Property<ServerProvidedPolicy> serverProvided() {
+    return this.serverProvided;
+  }
+
+  @Nonnull
+  @Override
+  public Property<DuplicateClassPolicy> duplicateClasses() {
+    return this.duplicateClasses;
+  }
+
+  @Nonnull
+  @Override
+  public Property<UnusedRelocationPolicy> unusedRelocations() {
+    return this.unusedRelocations;
+  }
+
+  @Nonnull
+  @Override
+  public Property<Packaging> packaging() {
+    return this.packaging;
+  }
+
+  @Nonnull
+  @Override
+  public Property<String> sharedLibrary() {
+    return this.sharedLibrary;
+  }
+
+  @Nonnull
+  @Override
+  public Property<Boolean> mergeServiceFiles() {
+    return this.mergeServiceFiles;
+  }
+
+  @Nonnull
+  @Override
+  public ListProperty<ResourceTransformer> transformers() {
+    return this.transformers;
+  }
+
+  @Nonnull
+  @Override
+  public Property<CompressionProfile> compression() {
+    return this.compression;
+  }
+}
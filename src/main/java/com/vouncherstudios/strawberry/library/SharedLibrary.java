@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library;
+
+import java.util.Locale;
+import javax.annotation.Nonnull;
+
+/**
+ * The names of the plugin generated for a shared library. The plugins depending on the shared
+ * library and the generated plugin derive them from the same library name, so they always agree.
+ */
+public final class SharedLibrary {
+  private static final int MAX_VELOCITY_ID_LENGTH = 64;
+
+  private SharedLibrary() {}
+
+  /**
+   * Gets the id of the generated Velocity plugin, the library name lower-cased with every
+   * character Velocity doesn't accept in an id replaced by a dash.
+   *
+   * @param name the library name
+   * @return the Velocity plugin id
+   */
+  @Nonnull
+  public static String velocityId(@Nonnull String name) {
+    StringBuilder id = new StringBuilder();
+    for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+      id.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_' ? c : '-');
+    }
+    if (id.length() == 0 || id.charAt(0) < 'a' || id.charAt(0) > 'z') {
+      id.insert(0, "library-");
+    }
+    return id.length() > MAX_VELOCITY_ID_LENGTH
+        ? id.substring(0, MAX_VELOCITY_ID_LENGTH)
+        : id.toString();
+  }
+
+  /**
+   * Gets the main class of the generated Paper plugin.
+   *
+   * @param name the library name
+   * @return the Paper main class name
+   */
+  @Nonnull
+  public static String paperMain(@Nonnull String name) {
+    return packageName(name) + ".PaperLibraryPlugin";
+  }
+
+  /**
+   * Gets the main class of the generated Velocity plugin.
+   *
+   * @param name the library name
+   * @return the Velocity main class name
+   */
+  @Nonnull
+  public static String velocityMain(@Nonnull String name) {
+    return packageName(name) + ".VelocityLibraryPlugin";
+  }
+
+  @Nonnull
+  private static String packageName(@Nonnull String name) {
+    StringBuilder segment = new StringBuilder();
+    for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+      if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+        segment.append(c);
+      }
+    }
+    if (segment.length() == 0 || Character.isDigit(segment.charAt(0))) {
+      segment.insert(0, "library");
+    }
+    return "strawberry.library." + segment;
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library;
+
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.gradle.utils.ResolutionUtils;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.library.task.SharedLibraryModulesTask;
+import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
+import com.vouncherstudios.strawberry.minecraft.plugin.extension.PluginExtension;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGeneratorType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Configures a project applying Strawberry to share its modules through the library plugin
+ * generated by the {@link SharedLibraryPlugin}.
+ */
+public final class SharedLibraryConfigurer {
+  private SharedLibraryConfigurer() {}
+
+  /**
+   * Lets the project move the modules it shares with sibling projects into the library plugin
+   * generated by the root project, and depend on that plugin. The project only exposes its module
+   * list and runtime dependencies through consumable configurations, the root project applies the
+   * shared library plugin and declares the projects sharing the library itself.
+   *
+   * @param project the project
+   * @param tasks the project tasks
+   * @param strawberry the strawberry extension
+   * @return the shared modules file of the root project, empty unless a shared library is named
+   */
+  @Nonnull
+  public static FileCollection configure(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry) {
+    Provider<String> library = strawberry.shading().sharedLibrary();
+    Configuration runtimeClasspath = ResolutionUtils.runtimeClasspath(project);
+    TaskProvider<SharedLibraryModulesTask> moduleList =
+        tasks.register(
+            "strawberrySharedLibraryModules",
+            SharedLibraryModulesTask.class,
+            task -> {
+              task.setDescription("List the modules this project may share with sibling projects.");
+              task.getProjectPath().set(project.getPath());
+              task.getLibrary().set(library);
+              task.getRelocations().set(strawberry.relocations().map(ArrayList::new));
+              task.getPlatforms().set(project.provider(() -> platforms(strawberry)));
+              task.getModules()
+                  .set(
+                      runtimeClasspath
+                          .getIncoming()
+                          .getResolutionResult()
+                          .getRootComponent()
+                          .map(SharedLibraryConfigurer::externalModules));
+              task.getOutputFile()
+                  .set(
+                      project
+                          .getLayout()
+                          .getBuildDirectory()
+                          .file(Strawberry.EXTENSION_NAME + "/shared-library/modules.json"));
+            });
+
+    ConfigurationContainer configurations = project.getConfigurations();
+    configurations.create(
+        SharedLibraryPlugin.MODULE_LIST_ELEMENTS_CONFIGURATION_NAME,
+        configuration -> {
+          configuration.setDescription("The modules this project may share with sibling projects.");
+          configuration.setCanBeConsumed(true);
+          configuration.setCanBeResolved(false);
+          configuration.setVisible(false);
+        });
+    project
+        .getArtifacts()
+        .add(
+            SharedLibraryPlugin.MODULE_LIST_ELEMENTS_CONFIGURATION_NAME,
+            moduleList.flatMap(SharedLibraryModulesTask::getOutputFile));
+    configurations.create(
+        SharedLibraryPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME,
+        configuration -> {
+          configuration.setDescription("The runtime dependencies of this project.");
+          configuration.setCanBeConsumed(true);
+          configuration.setCanBeResolved(false);
+          configuration.setVisible(false);
+          configuration.extendsFrom(runtimeClasspath);
+        });
+
+    Configuration sharedModules =
+        configurations.create(
+            "strawberrySharedModules",
+            configuration -> {
+              configuration.setDescription("The modules shaded into the shared library plugin.");
+              configuration.setCanBeConsumed(false);
+              configuration.setCanBeResolved(true);
+              configuration.setTransitive(false);
+              configuration.setVisible(false);
+            });
+    DependencyHandler dependencies = project.getDependencies();
+    Project root = project.getRootProject();
+    sharedModules
+        .getDependencies()
+        .addAllLater(
+            library
+                .map(
+                    name -> {
+                      // Without it, the modules configuration of the root would just be missing
+                      if (!root.getPlugins().hasPlugin(SharedLibraryPlugin.class)) {
+                        throw new GradleException(
+                            "The project "
+                                + project.getPath()
+                                + " shares its modules through the library plugin "
+                                + name
+                                + ", which the root project generates: apply the "
+                                + SharedLibraryPlugin.ID
+                                + " plugin to the root project and declare "
+                                + project.getPath()
+                                + " in its "
+                                + SharedLibraryPlugin.PROJECTS_CONFIGURATION_NAME
+                                + " configuration");
+                      }
+                      return List.of(
+                          dependencies.project(
+                              Map.of(
+                                  "path",
+                                  Project.PATH_SEPARATOR,
+                                  "configuration",
+                                  SharedLibraryPlugin.MODULES_ELEMENTS_CONFIGURATION_NAME)));
+                    })
+                .orElse(List.of()));
+
+    // The plugin can't load without the classes moved into the library plugin
+    PluginExtension plugin = strawberry.minecraft().plugin();
+    plugin
+        .paper()
+        .dependencies()
+        .addAll(library.map(name -> Set.of(new Dependency(name, false))).orElse(Set.of()));
+    plugin
+        .velocity()
+        .dependencies()
+        .addAll(
+            library
+                .map(name -> Set.of(new Dependency(SharedLibrary.velocityId(name), false)))
+                .orElse(Set.of()));
+    return sharedModules;
+  }
+
+  @Nonnull
+  private static Set<String> platforms(@Nonnull StrawberryExtensionImpl strawberry) {
+    Set<String> platforms = new TreeSet<>();
+    if (DescriptionGeneratorType.PAPER.isAvailable(strawberry)) {
+      platforms.add("paper");
+    }
+    if (DescriptionGeneratorType.VELOCITY.isAvailable(strawberry)) {
+      platforms.add("velocity");
+    }
+    return platforms;
+  }
+
+  /**
+   * Gets the external modules a component depends on, directly or transitively.
+   *
+   * @param root the component
+   * @return the modules, as group and name separated by a colon
+   */
+  @Nonnull
+  private static Set<String> externalModules(@Nonnull ResolvedComponentResult root) {
+    Set<String> modules = new TreeSet<>();
+    for (ResolvedComponentResult component : ResolutionUtils.reachableComponents(List.of(root))) {
+      if (component.getId() instanceof ModuleComponentIdentifier) {
+        ModuleComponentIdentifier module = (ModuleComponentIdentifier) component.getId();
+        modules.add(module.getGroup() + ':' + module.getModule());
+      }
+    }
+    return modules;
+  }
+}
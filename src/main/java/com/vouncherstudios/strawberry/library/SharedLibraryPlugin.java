@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library;
+
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.distribution.DistributionPlugin;
+import com.vouncherstudios.strawberry.distribution.task.DistributionTask;
+import com.vouncherstudios.strawberry.library.task.GenerateSharedLibraryTask;
+import com.vouncherstudios.strawberry.library.task.SharedModulesTask;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import net.kyori.mammoth.ProjectPlugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Bundling;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.ExtensionContainer;
+import org.gradle.api.plugins.PluginContainer;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.util.GradleVersion;
+
+/**
+ * The plugin applied to the root project to generate the library plugin holding the modules shared
+ * by the projects applying Strawberry.
+ *
+ * <p>The root project applies it with the {@code com.vouncherstudios.strawberry.library} id and
+ * declares the projects naming the shared library in the {@value #PROJECTS_CONFIGURATION_NAME}
+ * configuration. Their module lists and runtime dependencies are resolved from the consumable
+ * configurations every project applying Strawberry exposes, no other project is configured by the
+ * root.
+ */
+public final class SharedLibraryPlugin implements ProjectPlugin {
+  /** The id of the plugin. */
+  public static final String ID = "com.vouncherstudios.strawberry.library";
+
+  /** The name of the root task finding the modules shared by the projects. */
+  public static final String MODULES_TASK_NAME = "strawberrySharedModules";
+
+  /** The name of the root task generating the library plugin. */
+  public static final String TASK_NAME = "strawberrySharedLibrary";
+
+  /** The name of the root configuration declaring the projects sharing the library. */
+  public static final String PROJECTS_CONFIGURATION_NAME = "strawberrySharedLibraryProjects";
+
+  /** The name of the root configuration resolving the module list of every project. */
+  public static final String MODULE_LISTS_CONFIGURATION_NAME = "strawberrySharedLibraryModuleLists";
+
+  /** The name of the root configuration resolving the runtime dependencies of every project. */
+  public static final String CLASSPATH_CONFIGURATION_NAME = "strawberrySharedLibraryClasspath";
+
+  /** The name of the root configuration exposing the shared modules to the projects. */
+  public static final String MODULES_ELEMENTS_CONFIGURATION_NAME =
+      "strawberrySharedModulesElements";
+
+  /** The name of the configuration exposing the module list of a project. */
+  public static final String MODULE_LIST_ELEMENTS_CONFIGURATION_NAME =
+      "strawberrySharedLibraryModuleListElements";
+
+  /** The name of the configuration exposing the runtime dependencies of a project. */
+  public static final String RUNTIME_ELEMENTS_CONFIGURATION_NAME =
+      "strawberrySharedLibraryRuntimeElements";
+
+  @Override
+  public void apply(
+      @Nonnull Project project,
+      @Nonnull PluginContainer plugins,
+      @Nonnull ExtensionContainer extensions,
+      @Nonnull TaskContainer tasks) {
+    plugins.apply(DistributionPlugin.class);
+
+    ObjectFactory objects = project.getObjects();
+    Configuration projects =
+        project
+            .getConfigurations()
+            .create(
+                PROJECTS_CONFIGURATION_NAME,
+                configuration -> {
+                  configuration.setDescription("The projects sharing the library.");
+                  configuration.setCanBeConsumed(false);
+                  configuration.setCanBeResolved(false);
+                  configuration.setVisible(false);
+                });
+    Configuration moduleLists =
+        project
+            .getConfigurations()
+            .create(
+                MODULE_LISTS_CONFIGURATION_NAME,
+                configuration -> {
+                  configuration.setDescription(
+                      "The module lists of the projects sharing the library.");
+                  configuration.setCanBeConsumed(false);
+                  configuration.setCanBeResolved(true);
+                  configuration.setTransitive(false);
+                  configuration.setVisible(false);
+                  configuration
+                      .getDependencies()
+                      .addAllLater(
+                          targeting(project, projects, MODULE_LIST_ELEMENTS_CONFIGURATION_NAME));
+                });
+    Configuration classpath =
+        project
+            .getConfigurations()
+            .create(
+                CLASSPATH_CONFIGURATION_NAME,
+                configuration -> {
+                  configuration.setDescription(
+                      "The runtime dependencies of the projects sharing the library.");
+                  configuration.setCanBeConsumed(false);
+                  configuration.setCanBeResolved(true);
+                  configuration.setVisible(false);
+                  configuration
+                      .getDependencies()
+                      .addAllLater(
+                          targeting(project, projects, RUNTIME_ELEMENTS_CONFIGURATION_NAME));
+
+                  AttributeContainer attributes = configuration.getAttributes();
+                  attributes.attribute(
+                      Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, Usage.JAVA_RUNTIME));
+                  attributes.attribute(
+                      Category.CATEGORY_ATTRIBUTE,
+                      objects.named(Category.class, Category.LIBRARY));
+                  attributes.attribute(
+                      LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                      objects.named(LibraryElements.class, LibraryElements.JAR));
+                  attributes.attribute(
+                      Bundling.BUNDLING_ATTRIBUTE,
+                      objects.named(Bundling.class, Bundling.EXTERNAL));
+                });
+
+    TaskProvider<SharedModulesTask> sharedModules =
+        tasks.register(
+            MODULES_TASK_NAME,
+            SharedModulesTask.class,
+            task -> {
+              task.setDescription("Find the modules shared by the Strawberry projects.");
+              task.getModuleLists().from(moduleLists);
+              task.getOutputFile()
+                  .convention(
+                      project
+                          .getLayout()
+                          .getBuildDirectory()
+                          .file(Strawberry.EXTENSION_NAME + "/shared-library/modules.json"));
+            });
+    project
+        .getConfigurations()
+        .create(
+            MODULES_ELEMENTS_CONFIGURATION_NAME,
+            configuration -> {
+              configuration.setDescription("The modules shared by the Strawberry projects.");
+              configuration.setCanBeConsumed(true);
+              configuration.setCanBeResolved(false);
+              configuration.setVisible(false);
+            });
+    project
+        .getArtifacts()
+        .add(
+            MODULES_ELEMENTS_CONFIGURATION_NAME,
+            sharedModules.flatMap(SharedModulesTask::getOutputFile));
+
+    // Only the external modules are shaded, the projects are never built for the library
+    ArtifactView moduleJars =
+        classpath
+            .getIncoming()
+            .artifactView(
+                view -> view.componentFilter(id -> id instanceof ModuleComponentIdentifier));
+    TaskProvider<GenerateSharedLibraryTask> library =
+        tasks.register(
+            TASK_NAME,
+            GenerateSharedLibraryTask.class,
+            task -> {
+              task.setDescription("Generate the library plugin shared by the Strawberry projects.");
+              task.setGroup(BasePlugin.BUILD_GROUP);
+              task.getSharedModules().set(sharedModules.flatMap(SharedModulesTask::getOutputFile));
+              task.getClasspath().from(moduleJars.getFiles());
+              task.getArtifacts().set(moduleJars.getArtifacts().getResolvedArtifacts());
+              task.getModuleIdentities()
+                  .set(
+                      moduleJars
+                          .getArtifacts()
+                          .getResolvedArtifacts()
+                          .map(GenerateSharedLibraryTask::moduleIdentities));
+              task.getVersion().set(project.provider(() -> project.getVersion().toString()));
+              task.getDestinationDirectory()
+                  .convention(
+                      project
+                          .getLayout()
+                          .getBuildDirectory()
+                          .dir(Strawberry.EXTENSION_NAME + "/shared-library/plugin"));
+            });
+    // Distribute the library plugin along with the plugins depending on it
+    tasks
+        .named(DistributionPlugin.TASK_NAME, DistributionTask.class)
+        .configure(task -> task.getArtifacts().from(project.files(library).getAsFileTree()));
+  }
+
+  /**
+   * Gets the declared projects, targeting a configuration each of them exposes.
+   *
+   * @param project the root project
+   * @param projects the configuration declaring the projects
+   * @param name the name of the configuration to target
+   * @return a provider of the project dependencies
+   */
+  @Nonnull
+  private static Provider<List<Dependency>> targeting(
+      @Nonnull Project project, @Nonnull Configuration projects, @Nonnull String name) {
+    return project.provider(
+        () -> {
+          List<Dependency> dependencies = new ArrayList<>();
+          for (ProjectDependency dependency :
+              projects.getDependencies().withType(ProjectDependency.class)) {
+            ProjectDependency copy = dependency.copy();
+            copy.setTargetConfiguration(name);
+            dependencies.add(copy);
+          }
+          return dependencies;
+        });
+  }
+
+  @Nonnull
+  @Override
+  public GradleVersion minimumGradleVersion() {
+    return Strawberry.MINIMUM_SUPPORTED;
+  }
+}
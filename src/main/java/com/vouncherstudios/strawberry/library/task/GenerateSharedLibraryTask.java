@@ -0,0 +1,343 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.vouncherstudios.strawberry.library.SharedLibrary;
+import com.vouncherstudios.strawberry.minecraft.plugin.exception.InvalidPluginDescriptionException;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGenerator;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.LoadOrder;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescriptionGenerator;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescriptionGenerator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.pipeline.ArchiveMerger;
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingPipeline;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import javax.annotation.Nonnull;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The generate shared library gradle task. It shades the modules shared by the projects opting into
+ * the shared library into a single plugin jar, relocated like the projects relocate them, with a
+ * generated main class and plugin description for every platform the projects target.
+ */
+@CacheableTask
+public abstract class GenerateSharedLibraryTask extends DefaultTask {
+  private static final String PAPER_PLUGIN_CLASS = "org/bukkit/plugin/java/JavaPlugin";
+
+  /**
+   * The shared modules file written by the {@link SharedModulesTask}.
+   *
+   * @return the shared modules file
+   */
+  @InputFile
+  @PathSensitive(PathSensitivity.NONE)
+  public abstract RegularFileProperty getSharedModules();
+
+  /**
+   * The jars of the modules the projects depend on, resolved together so a single version of each
+   * module is shaded.
+   *
+   * @return the jars collection
+   */
+  @Classpath
+  public abstract ConfigurableFileCollection getClasspath();
+
+  /**
+   * The artifacts of the {@link #getClasspath() classpath}, to tell which module each jar belongs
+   * to. Their identities are an input through {@link #getModuleIdentities()}.
+   *
+   * @return a property providing the artifacts
+   */
+  @Internal
+  public abstract SetProperty<ResolvedArtifactResult> getArtifacts();
+
+  /**
+   * The module of each of the {@link #getArtifacts() artifacts}, in the same order, which decides
+   * the jars shaded into the library plugin.
+   *
+   * @return a property providing the modules, as group, name and version separated by colons
+   */
+  @Input
+  public abstract ListProperty<String> getModuleIdentities();
+
+  /**
+   * The version of the library plugin.
+   *
+   * @return a property providing the version
+   */
+  @Input
+  public abstract Property<String> getVersion();
+
+  /**
+   * The directory the library plugin jar is written to.
+   *
+   * @return the destination directory
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getDestinationDirectory();
+
+  @Inject
+  protected abstract FileSystemOperations getFileSystemOperations();
+
+  @Inject
+  protected abstract ObjectFactory getObjects();
+
+  /** The task action to generate the library plugin jar. */
+  @TaskAction
+  public void generate() {
+    // Start from an empty directory so a library that is no longer shared doesn't linger
+    Directory destination = getDestinationDirectory().get();
+    getFileSystemOperations().delete(spec -> spec.delete(destination));
+    destination.getAsFile().mkdirs();
+
+    File sharedModules = getSharedModules().getAsFile().get();
+    try {
+      JsonNode shared = SharedLibraryModulesTask.MAPPER.readTree(sharedModules);
+      if (!shared.has("library")) {
+        // No project opts into the shared library
+        return;
+      }
+
+      String name = shared.get("library").asText();
+      String version = getVersion().get();
+      Set<String> platforms = new TreeSet<>();
+      shared.get("platforms").forEach(platform -> platforms.add(platform.asText()));
+      Set<String> modules = SharedModulesTask.readModules(sharedModules);
+      List<Relocation> relocations = new ArrayList<>();
+      for (JsonNode relocation : shared.get("relocations")) {
+        relocations.add(
+            new Relocation(
+                relocation.get("pattern").asText(),
+                relocation.get("destination").asText(),
+                textValues(relocation.get("includes")),
+                textValues(relocation.get("excludes")),
+                relocation.get("rawString").asBoolean(),
+                relocation.get("skipStringLiterals").asBoolean()));
+      }
+
+      List<File> jars = new ArrayList<>();
+      for (ResolvedArtifactResult artifact : getArtifacts().get()) {
+        ComponentIdentifier component = artifact.getId().getComponentIdentifier();
+        if (component instanceof ModuleComponentIdentifier) {
+          ModuleComponentIdentifier module = (ModuleComponentIdentifier) component;
+          if (modules.contains(module.getGroup() + ':' + module.getModule())) {
+            jars.add(artifact.getFile());
+          }
+        }
+      }
+
+      Path merged = new File(getTemporaryDir(), "merged.jar").toPath();
+      ArchiveMerger.merge(jars, generatedEntries(name, version, platforms), merged);
+
+      Path output = destination.file(name + '-' + version + ".jar").getAsFile().toPath();
+      if (relocations.isEmpty()) {
+        Files.move(merged, output, StandardCopyOption.REPLACE_EXISTING);
+      } else {
+        new ShadingPipeline(new TrieRelocator(relocations), true).process(merged, output);
+        Files.delete(merged);
+      }
+      getLogger()
+          .lifecycle(
+              "Shaded {} modules shared by {} into the library plugin {}",
+              modules.size(),
+              String.join(", ", textValues(shared.get("projects"))),
+              name);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Generates the main classes and plugin descriptions of the library plugin.
+   *
+   * @param name the library name
+   * @param version the library version
+   * @param platforms the platforms to generate a plugin for
+   * @return the generated entries, by name
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  private Map<String, byte[]> generatedEntries(
+      @Nonnull String name, @Nonnull String version, @Nonnull Set<String> platforms)
+      throws IOException {
+    String description = "The libraries shared by the plugins depending on " + name;
+    List<DescriptionGenerator> generators = new ArrayList<>();
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    if (platforms.contains("paper")) {
+      String main = SharedLibrary.paperMain(name);
+      // The plugins loaded on startup must be able to depend on the library
+      generators.add(
+          new PaperDescriptionGenerator(
+              new PaperDescription(
+                  name,
+                  main,
+                  version,
+                  description,
+                  List.of(),
+                  LoadOrder.STARTUP,
+                  null,
+                  List.of(),
+                  List.of())));
+      entries.put(classEntry(main), pluginClass(main, PAPER_PLUGIN_CLASS));
+    }
+    if (platforms.contains("velocity")) {
+      String main = SharedLibrary.velocityMain(name);
+      generators.add(
+          new VelocityDescriptionGenerator(
+              new VelocityDescription(
+                  SharedLibrary.velocityId(name),
+                  name,
+                  main,
+                  version,
+                  description,
+                  List.of(),
+                  List.of())));
+      entries.put(classEntry(main), pluginClass(main, "java/lang/Object"));
+    }
+
+    File descriptions = new File(getTemporaryDir(), "descriptions");
+    getFileSystemOperations().delete(spec -> spec.delete(descriptions));
+    descriptions.mkdirs();
+    Directory directory = getObjects().directoryProperty().fileValue(descriptions).get();
+    for (DescriptionGenerator generator : generators) {
+      try {
+        generator.validate();
+      } catch (InvalidPluginDescriptionException e) {
+        throw new GradleException(e.getMessage(), e);
+      }
+      generator.generate(directory);
+    }
+    try (Stream<Path> files = Files.list(descriptions.toPath())) {
+      for (Path file : (Iterable<Path>) files.sorted()::iterator) {
+        entries.put(file.getFileName().toString(), Files.readAllBytes(file));
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Gets the module of each artifact, the artifacts which are not modules being left out.
+   *
+   * @param artifacts the artifacts
+   * @return the modules, as group, name and version separated by colons
+   */
+  @Nonnull
+  public static List<String> moduleIdentities(@Nonnull Set<ResolvedArtifactResult> artifacts) {
+    List<String> identities = new ArrayList<>();
+    for (ResolvedArtifactResult artifact : artifacts) {
+      ComponentIdentifier component = artifact.getId().getComponentIdentifier();
+      if (component instanceof ModuleComponentIdentifier) {
+        ModuleComponentIdentifier module = (ModuleComponentIdentifier) component;
+        identities.add(module.getGroup() + ':' + module.getModule() + ':' + module.getVersion());
+      }
+    }
+    return identities;
+  }
+
+  @Nonnull
+  private static String classEntry(@Nonnull String className) {
+    return className.replace('.', '/') + ".class";
+  }
+
+  /**
+   * Generates an empty plugin main class, only there for the platform to load the plugin.
+   *
+   * @param className the class name
+   * @param superName the internal name of the super class
+   * @return the class file
+   */
+  @Nonnull
+  private static byte[] pluginClass(@Nonnull String className, @Nonnull String superName) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        className.replace('.', '/'),
+        null,
+        superName,
+        null);
+
+    MethodVisitor constructor =
+        writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    constructor.visitCode();
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+    constructor.visitInsn(Opcodes.RETURN);
+    constructor.visitMaxs(0, 0);
+    constructor.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static List<String> textValues(@Nonnull JsonNode array) {
+    List<String> values = new ArrayList<>();
+    array.forEach(value -> values.add(value.asText()));
+    return values;
+  }
+}
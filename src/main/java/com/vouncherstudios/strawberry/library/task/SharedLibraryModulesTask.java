@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.TreeSet;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * The shared library modules gradle task. It lists the external modules on the runtime classpath of
+ * a project, along with the shared library the project wants them moved into and how the project
+ * relocates them, for the root project to find the modules shared with sibling projects.
+ */
+@CacheableTask
+public abstract class SharedLibraryModulesTask extends DefaultTask {
+  static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+  /**
+   * The path of the project, to report which projects disagree.
+   *
+   * @return a property providing the project path
+   */
+  @Input
+  public abstract Property<String> getProjectPath();
+
+  /**
+   * The name of the shared library plugin.
+   *
+   * @return a property providing the library name
+   */
+  @Input
+  public abstract Property<String> getLibrary();
+
+  /**
+   * The relocations of the project, in declaration order.
+   *
+   * @return a property providing the relocations
+   */
+  @Nested
+  public abstract ListProperty<Relocation> getRelocations();
+
+  /**
+   * The platforms the project describes a plugin for, {@code paper} or {@code velocity}.
+   *
+   * @return a property providing the platforms
+   */
+  @Input
+  public abstract SetProperty<String> getPlatforms();
+
+  /**
+   * The external modules on the runtime classpath, as group and name separated by a colon.
+   *
+   * @return a property providing the modules
+   */
+  @Input
+  public abstract SetProperty<String> getModules();
+
+  /**
+   * The file the module list is written to.
+   *
+   * @return the output file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getOutputFile();
+
+  /** The task action to write the module list. */
+  @TaskAction
+  public void write() {
+    ObjectNode node = MAPPER.createObjectNode();
+    node.put("project", getProjectPath().get());
+    node.put("library", getLibrary().get());
+
+    ArrayNode relocations = node.putArray("relocations");
+    for (Relocation relocation : getRelocations().get()) {
+      ObjectNode entry = relocations.addObject();
+      entry.put("pattern", relocation.getPattern());
+      entry.put("destination", relocation.getDestination());
+      ArrayNode includes = entry.putArray("includes");
+      relocation.getIncludes().forEach(includes::add);
+      ArrayNode excludes = entry.putArray("excludes");
+      relocation.getExcludes().forEach(excludes::add);
+      entry.put("rawString", relocation.isRawString());
+      entry.put("skipStringLiterals", relocation.isSkipStringLiterals());
+    }
+
+    ArrayNode platforms = node.putArray("platforms");
+    new TreeSet<>(getPlatforms().get()).forEach(platforms::add);
+
+    ArrayNode modules = node.putArray("modules");
+    new TreeSet<>(getModules().get()).forEach(modules::add);
+
+    try {
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(getOutputFile().get().getAsFile(), node);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.library.task;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * The shared modules gradle task. It reads the module list of every project opting into the shared
+ * library and keeps the modules at least two of them depend on.
+ *
+ * <p>The shared modules are shaded once into the library plugin, relocated like the projects
+ * relocate them, so every project naming the library must name the same one and relocate the same
+ * way.
+ */
+@CacheableTask
+public abstract class SharedModulesTask extends DefaultTask {
+  private static final int MIN_PROJECTS = 2;
+
+  /**
+   * The module lists of the projects opting into the shared library.
+   *
+   * @return the module lists collection
+   */
+  @InputFiles
+  @PathSensitive(PathSensitivity.NONE)
+  public abstract ConfigurableFileCollection getModuleLists();
+
+  /**
+   * The file the shared modules are written to.
+   *
+   * @return the output file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getOutputFile();
+
+  /** The task action to write the shared modules. */
+  @TaskAction
+  public void write() {
+    ObjectNode shared = SharedLibraryModulesTask.MAPPER.createObjectNode();
+    Map<String, Integer> counts = new TreeMap<>();
+    Set<String> platforms = new TreeSet<>();
+    Set<String> projects = new TreeSet<>();
+    JsonNode first = null;
+    try {
+      for (File file : getModuleLists().getFiles()) {
+        JsonNode list = SharedLibraryModulesTask.MAPPER.readTree(file);
+        if (first == null) {
+          first = list;
+          shared.put("library", list.get("library").asText());
+          shared.set("relocations", list.get("relocations"));
+        } else {
+          checkConsistent(first, list);
+        }
+
+        projects.add(list.get("project").asText());
+        list.get("platforms").forEach(platform -> platforms.add(platform.asText()));
+        list.get("modules").forEach(module -> counts.merge(module.asText(), 1, Integer::sum));
+      }
+
+      shared.putArray("projects").addAll(textNodes(projects));
+      shared.putArray("platforms").addAll(textNodes(platforms));
+      ArrayNode modules = shared.putArray("modules");
+      counts.forEach(
+          (module, count) -> {
+            if (count >= MIN_PROJECTS) {
+              modules.add(module);
+            }
+          });
+
+      SharedLibraryModulesTask.MAPPER
+          .writerWithDefaultPrettyPrinter()
+          .writeValue(getOutputFile().get().getAsFile(), shared);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the modules left out of the project jars from a shared modules file.
+   *
+   * @param file the shared modules file
+   * @return the modules, as group and name separated by a colon
+   */
+  @Nonnull
+  public static Set<String> readModules(@Nonnull File file) {
+    Set<String> modules = new LinkedHashSet<>();
+    try {
+      SharedLibraryModulesTask.MAPPER
+          .readTree(file)
+          .get("modules")
+          .forEach(module -> modules.add(module.asText()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return modules;
+  }
+
+  private static void checkConsistent(@Nonnull JsonNode first, @Nonnull JsonNode list) {
+    String project = list.get("project").asText();
+    String firstProject = first.get("project").asText();
+    if (!first.get("library").equals(list.get("library"))) {
+      throw new GradleException(
+          "Projects "
+              + firstProject
+              + " and "
+              + project
+              + " name different shared libraries, "
+              + first.get("library").asText()
+              + " and "
+              + list.get("library").asText()
+              + ", only one shared library can be generated per build");
+    }
+    if (!first.get("relocations").equals(list.get("relocations"))) {
+      throw new GradleException(
+          "Projects "
+              + firstProject
+              + " and "
+              + project
+              + " relocate differently, so they can't share the library "
+              + list.get("library").asText());
+    }
+  }
+
+  @Nonnull
+  private static ArrayNode textNodes(@Nonnull Set<String> values) {
+    ArrayNode nodes = SharedLibraryModulesTask.MAPPER.createArrayNode();
+    values.forEach(nodes::add);
+    return nodes;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+
+/**
+ * Records spans of the configuration of a project by Strawberry, from the steps of applying the
+ * plugin to the callbacks it registers, such as the configuration of the tasks. Tracing is enabled
+ * by the {@value #PROPERTY} gradle property, otherwise every span is a no-op and the callbacks are
+ * left as they are.
+ */
+public final class ConfigurationTrace {
+  /** The gradle property enabling the trace. */
+  public static final String PROPERTY = "strawberry.trace";
+
+  private static final Span NO_SPAN = () -> {};
+  private static final ConfigurationTrace DISABLED = new ConfigurationTrace(null, "");
+
+  private final ConfigurationTraceService service;
+  private final String project;
+
+  private ConfigurationTrace(@Nullable ConfigurationTraceService service, @Nonnull String project) {
+    this.service = service;
+    this.project = project;
+  }
+
+  /**
+   * Gets the trace of a project.
+   *
+   * @param project the project
+   * @return the trace, which records nothing unless tracing is enabled
+   */
+  @Nonnull
+  public static ConfigurationTrace of(@Nonnull Project project) {
+    boolean enabled =
+        project
+            .getProviders()
+            .gradleProperty(PROPERTY)
+            .map(Boolean::parseBoolean)
+            .getOrElse(false);
+    if (!enabled) {
+      return DISABLED;
+    }
+    return new ConfigurationTrace(
+        ConfigurationTraceService.register(project).get(), project.getPath());
+  }
+
+  /**
+   * Begins a span, ended when closed. Spans begun while another one is open on the same thread are
+   * nested in it.
+   *
+   * @param name the name of the span
+   * @return the span
+   */
+  @Nonnull
+  public Span begin(@Nonnull String name) {
+    if (this.service == null) {
+      return NO_SPAN;
+    }
+
+    ConfigurationTraceService service = this.service;
+    Thread thread = Thread.currentThread();
+    long start = System.nanoTime();
+    return () -> service.record(this.project, name, thread, start, System.nanoTime() - start);
+  }
+
+  /**
+   * Runs a step within a span.
+   *
+   * @param name the name of the span
+   * @param step the step
+   */
+  public void run(@Nonnull String name, @Nonnull Runnable step) {
+    try (Span span = begin(name)) {
+      step.run();
+    }
+  }
+
+  /**
+   * Computes a value within a span.
+   *
+   * @param name the name of the span
+   * @param step the step computing the value
+   * @param <T> the type of the value
+   * @return the value
+   */
+  public <T> T measure(@Nonnull String name, @Nonnull Supplier<T> step) {
+    try (Span span = begin(name)) {
+      return step.get();
+    }
+  }
+
+  /**
+   * Wraps a callback so each of its executions is recorded as a span.
+   *
+   * @param name the name of the spans
+   * @param action the callback
+   * @param <T> the type of the object the callback is executed against
+   * @return the recorded callback, or the callback itself when tracing is disabled
+   */
+  @Nonnull
+  public <T> Action<T> action(@Nonnull String name, @Nonnull Action<T> action) {
+    if (this.service == null) {
+      return action;
+    }
+    return target -> {
+      try (Span span = begin(name)) {
+        action.execute(target);
+      }
+    };
+  }
+
+  /**
+   * Wraps a provider value computation so each of its executions is recorded as a span.
+   *
+   * @param name the name of the spans
+   * @param callable the computation
+   * @param <T> the type of the value
+   * @return the recorded computation, or the computation itself when tracing is disabled
+   */
+  @Nonnull
+  public <T> Callable<T> callable(@Nonnull String name, @Nonnull Callable<T> callable) {
+    if (this.service == null) {
+      return callable;
+    }
+    return () -> {
+      try (Span span = begin(name)) {
+        return callable.call();
+      }
+    };
+  }
+
+  /** A span of the trace, recorded when closed. */
+  @FunctionalInterface
+  public interface Span extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * The build service collecting the spans of the {@link ConfigurationTrace} of every project. Once
+ * the build is over, they are written in the Chrome trace event format, which Perfetto and
+ * chrome://tracing open: each thread configuring projects is a track, on which the spans of the
+ * steps and callbacks are nested in the span of the project applying Strawberry.
+ */
+public abstract class ConfigurationTraceService
+    implements BuildService<ConfigurationTraceService.Parameters>, AutoCloseable {
+  /** The name of the service, shared by every project of the build. */
+  public static final String NAME = "strawberryConfigurationTrace";
+
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+  private static final int PROCESS_ID = 1;
+
+  private final long origin = System.nanoTime();
+  private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+  /**
+   * Registers the service, unless another project did already. The trace is written into the root
+   * project build directory.
+   *
+   * @param project the project
+   * @return the service
+   */
+  @Nonnull
+  public static Provider<ConfigurationTraceService> register(@Nonnull Project project) {
+    return project
+        .getGradle()
+        .getSharedServices()
+        .registerIfAbsent(
+            NAME,
+            ConfigurationTraceService.class,
+            spec ->
+                spec.getParameters()
+                    .getTraceFile()
+                    .set(
+                        project
+                            .getRootProject()
+                            .getLayout()
+                            .getBuildDirectory()
+                            .file("reports/strawberry/configuration-trace.json")));
+  }
+
+  /**
+   * Records a span.
+   *
+   * @param project the path of the project the span belongs to
+   * @param name the name of the span
+   * @param thread the thread the span ran on
+   * @param start the start of the span, from {@link System#nanoTime()}
+   * @param duration the duration of the span, in nanoseconds
+   */
+  void record(
+      @Nonnull String project,
+      @Nonnull String name,
+      @Nonnull Thread thread,
+      long start,
+      long duration) {
+    this.events.add(
+        new Event(project, name, thread.getId(), thread.getName(), start - this.origin, duration));
+  }
+
+  @Override
+  public void close() {
+    if (this.events.isEmpty()) {
+      return;
+    }
+
+    ObjectNode root = MAPPER.createObjectNode();
+    root.put("displayTimeUnit", "ms");
+    ArrayNode events = root.putArray("traceEvents");
+    events
+        .addObject()
+        .put("name", "process_name")
+        .put("ph", "M")
+        .put("pid", PROCESS_ID)
+        .putObject("args")
+        .put("name", "Strawberry configuration");
+
+    Map<Long, String> threads = new TreeMap<>();
+    for (Event event : this.events) {
+      threads.put(event.threadId, event.threadName);
+      ObjectNode node =
+          events
+              .addObject()
+              .put("name", event.name)
+              .put("cat", "strawberry")
+              .put("ph", "X")
+              .put("pid", PROCESS_ID)
+              .put("tid", event.threadId)
+              // The trace event format counts in microseconds
+              .put("ts", event.start / 1_000D)
+              .put("dur", event.duration / 1_000D);
+      node.putObject("args").put("project", event.project);
+    }
+    for (Map.Entry<Long, String> thread : threads.entrySet()) {
+      events
+          .addObject()
+          .put("name", "thread_name")
+          .put("ph", "M")
+          .put("pid", PROCESS_ID)
+          .put("tid", thread.getKey())
+          .putObject("args")
+          .put("name", thread.getValue());
+    }
+
+    File file = getParameters().getTraceFile().get().getAsFile();
+    try {
+      Files.createDirectories(file.getParentFile().toPath());
+      MAPPER.writeValue(file, root);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Logging.getLogger(ConfigurationTraceService.class)
+        .lifecycle("Strawberry wrote the configuration trace to {}", file);
+  }
+
+  /** A span of the trace, with times relative to the creation of the service. */
+  private static final class Event {
+    private final String project;
+    private final String name;
+    private final long threadId;
+    private final String threadName;
+    private final long start;
+    private final long duration;
+
+    Event(
+        @Nonnull String project,
+        @Nonnull String name,
+        long threadId,
+        @Nonnull String threadName,
+        long start,
+        long duration) {
+      this.project = project;
+      this.name = name;
+      this.threadId = threadId;
+      this.threadName = threadName;
+      this.start = start;
+      this.duration = duration;
+    }
+  }
+
+  /** The parameters of the configuration trace service. */
+  public interface Parameters extends BuildServiceParameters {
+    /**
+     * The Chrome trace event file.
+     *
+     * @return the file property
+     */
+    RegularFileProperty getTraceFile();
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.ToLongFunction;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * The build service collecting the metrics of the Strawberry tasks of every project. The metrics
+ * are only collected when enabled by the {@code strawberry.metrics} gradle property, or by the
+ * {@code strawberry.metrics.prometheus} one, so a build not asking for them pays nothing for them.
+ * They are written once the build is over, as JSON and optionally as a Prometheus textfile. A build
+ * running no Strawberry task, such as a fully up-to-date one, leaves the previous reports as they
+ * are.
+ *
+ * <p>Only the tasks run by Strawberry are measured: the shading pipeline and the plugin description
+ * generation. A shadowJar task left entirely to Shadow, which happens when no shading feature of
+ * Strawberry is enabled, records nothing.
+ */
+public abstract class MetricsService
+    implements BuildService<MetricsService.Parameters>, AutoCloseable {
+  /** The name of the service, shared by every project of the build. */
+  public static final String NAME = "strawberryMetrics";
+  /** The gradle property enabling the metrics. */
+  public static final String PROPERTY = "strawberry.metrics";
+  /** The gradle property enabling the Prometheus textfile, along with the metrics. */
+  public static final String PROMETHEUS_PROPERTY = "strawberry.metrics.prometheus";
+
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+  private static final double NANOS_PER_SECOND = 1_000_000_000D;
+
+  private final Map<String, TaskMetrics> tasks = new ConcurrentSkipListMap<>();
+
+  /**
+   * Registers the service, unless another project did already. The reports are written into the
+   * root project build directory.
+   *
+   * @param project the project
+   * @return the service
+   */
+  @Nonnull
+  public static Provider<MetricsService> register(@Nonnull Project project) {
+    return project
+        .getGradle()
+        .getSharedServices()
+        .registerIfAbsent(
+            NAME,
+            MetricsService.class,
+            spec -> {
+              Project root = project.getRootProject();
+              String reports = "reports/strawberry/";
+              spec.getParameters()
+                  .getJsonFile()
+                  .set(root.getLayout().getBuildDirectory().file(reports + "metrics.json"));
+              boolean prometheus = isEnabled(project, PROMETHEUS_PROPERTY);
+              spec.getParameters().getEnabled().set(prometheus || isEnabled(project, PROPERTY));
+              if (prometheus) {
+                spec.getParameters()
+                    .getPrometheusFile()
+                    .set(root.getLayout().getBuildDirectory().file(reports + "metrics.prom"));
+              }
+            });
+  }
+
+  /**
+   * Checks whether the metrics are collected. The tasks only measure their work when they are, as
+   * counting the relocation hits alone costs a lookup per relocated name.
+   *
+   * @return whether the metrics are collected
+   */
+  public boolean isEnabled() {
+    return getParameters().getEnabled().get();
+  }
+
+  /**
+   * Records the metrics of a task execution.
+   *
+   * @param metrics the metrics
+   */
+  public void record(@Nonnull TaskMetrics metrics) {
+    this.tasks.put(metrics.getPath(), metrics);
+  }
+
+  @Override
+  public void close() {
+    if (this.tasks.isEmpty()) {
+      return;
+    }
+
+    Collection<TaskMetrics> tasks = this.tasks.values();
+    try {
+      File json = getParameters().getJsonFile().get().getAsFile();
+      Files.createDirectories(json.getParentFile().toPath());
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(json, json(tasks));
+
+      if (getParameters().getPrometheusFile().isPresent()) {
+        File prometheus = getParameters().getPrometheusFile().get().getAsFile();
+        Files.createDirectories(prometheus.getParentFile().toPath());
+        // Write then move, so the collector never reads a partial file
+        File temporary = new File(prometheus.getPath() + ".tmp");
+        Files.writeString(temporary.toPath(), prometheus(tasks), StandardCharsets.UTF_8);
+        Files.move(temporary.toPath(), prometheus.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Creates the JSON report of the metrics.
+   *
+   * @param tasks the metrics of the tasks
+   * @return the report
+   */
+  @Nonnull
+  static ObjectNode json(@Nonnull Collection<TaskMetrics> tasks) {
+    ObjectNode root = MAPPER.createObjectNode();
+    ObjectNode entries = root.putObject("tasks");
+    for (TaskMetrics metrics : tasks) {
+      ObjectNode task = entries.putObject(metrics.getPath());
+      task.put("durationNanos", metrics.getDuration());
+      task.put("entriesRead", metrics.getEntriesRead());
+      task.put("entriesRelocated", metrics.getEntriesRelocated());
+      task.put("bytesIn", metrics.getBytesIn());
+      task.put("bytesOut", metrics.getBytesOut());
+      task.put("remappingNanos", metrics.getRemappingTime());
+      task.put("compressionNanos", metrics.getCompressionTime());
+      task.put("ioNanos", metrics.getIoTime());
+      task.put("descriptionGenerationNanos", metrics.getDescriptionTime());
+
+      ArrayNode relocations = task.putArray("relocations");
+      for (int i = 0; i < metrics.getRelocations().size(); i++) {
+        relocations
+            .addObject()
+            .put("relocation", metrics.getRelocations().get(i))
+            .put("hits", metrics.getRelocationHits(i));
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Creates the Prometheus textfile of the metrics, in the text exposition format.
+   *
+   * @param tasks the metrics of the tasks
+   * @return the textfile content
+   */
+  @Nonnull
+  static String prometheus(@Nonnull Collection<TaskMetrics> tasks) {
+    StringBuilder text = new StringBuilder();
+    count(text, tasks, "entries_read", "Entries read by the task.", TaskMetrics::getEntriesRead);
+    count(
+        text,
+        tasks,
+        "entries_relocated",
+        "Entries renamed or rewritten by the task.",
+        TaskMetrics::getEntriesRelocated);
+    count(text, tasks, "bytes_in", "Bytes read by the task.", TaskMetrics::getBytesIn);
+    count(text, tasks, "bytes_out", "Bytes written by the task.", TaskMetrics::getBytesOut);
+
+    header(text, "duration_seconds", "Wall-clock time of the work measured for the task.");
+    for (TaskMetrics metrics : tasks) {
+      sample(text, "duration_seconds", metrics, "", seconds(metrics.getDuration()));
+    }
+
+    header(text, "phase_seconds", "Time of work spent by the task in each phase.");
+    for (TaskMetrics metrics : tasks) {
+      Map<String, Long> phases = new LinkedHashMap<>();
+      phases.put("remapping", metrics.getRemappingTime());
+      phases.put("compression", metrics.getCompressionTime());
+      phases.put("io", metrics.getIoTime());
+      phases.put("description", metrics.getDescriptionTime());
+      for (Map.Entry<String, Long> phase : phases.entrySet()) {
+        String labels = ",phase=\"" + phase.getKey() + "\"";
+        sample(text, "phase_seconds", metrics, labels, seconds(phase.getValue()));
+      }
+    }
+
+    header(text, "relocation_hits", "Names rewritten by each relocation.");
+    for (TaskMetrics metrics : tasks) {
+      for (int i = 0; i < metrics.getRelocations().size(); i++) {
+        String labels = ",relocation=\"" + escape(metrics.getRelocations().get(i)) + "\"";
+        sample(
+            text,
+            "relocation_hits",
+            metrics,
+            labels,
+            Long.toString(metrics.getRelocationHits(i)));
+      }
+    }
+    return text.toString();
+  }
+
+  private static void count(
+      @Nonnull StringBuilder text,
+      @Nonnull Collection<TaskMetrics> tasks,
+      @Nonnull String name,
+      @Nonnull String help,
+      @Nonnull ToLongFunction<TaskMetrics> value) {
+    header(text, name, help);
+    for (TaskMetrics metrics : tasks) {
+      sample(text, name, metrics, "", Long.toString(value.applyAsLong(metrics)));
+    }
+  }
+
+  private static void header(
+      @Nonnull StringBuilder text, @Nonnull String name, @Nonnull String help) {
+    // Every file describes a single build, so each metric is a gauge
+    text.append("# HELP strawberry_").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE strawberry_").append(name).append(" gauge\n");
+  }
+
+  private static void sample(
+      @Nonnull StringBuilder text,
+      @Nonnull String name,
+      @Nonnull TaskMetrics metrics,
+      @Nonnull String labels,
+      @Nonnull String value) {
+    text.append("strawberry_")
+        .append(name)
+        .append("{task=\"")
+        .append(escape(metrics.getPath()))
+        .append('"')
+        .append(labels)
+        .append("} ")
+        .append(value)
+        .append('\n');
+  }
+
+  @Nonnull
+  private static String seconds(long nanos) {
+    return String.format(Locale.ROOT, "%.9f", nanos / NANOS_PER_SECOND);
+  }
+
+  private static boolean isEnabled(@Nonnull Project project, @Nonnull String property) {
+    return project
+        .getProviders()
+        .gradleProperty(property)
+        .map(Boolean::parseBoolean)
+        .getOrElse(false);
+  }
+
+  @Nonnull
+  private static String escape(@Nonnull String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  /** The parameters of the metrics service. */
+  public interface Parameters extends BuildServiceParameters {
+    /**
+     * Whether the metrics are collected, enabled by the {@code strawberry.metrics} gradle property.
+     *
+     * @return the enabled property
+     */
+    Property<Boolean> getEnabled();
+
+    /**
+     * The JSON report of the metrics.
+     *
+     * @return the file property
+     */
+    RegularFileProperty getJsonFile();
+
+    /**
+     * The Prometheus textfile of the metrics, absent unless enabled by the
+     * {@code strawberry.metrics.prometheus} gradle property.
+     *
+     * @return the file property
+     */
+    RegularFileProperty getPrometheusFile();
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nonnull;
+
+/**
+ * The metrics of a single execution of a Strawberry task. Every counter can be updated
+ * concurrently, the times are in nanoseconds of work summed across threads.
+ */
+public final class TaskMetrics {
+  private final String path;
+  private final List<String> relocations;
+  private final AtomicLongArray relocationHits;
+  private final AtomicLong entriesRead = new AtomicLong();
+  private final AtomicLong entriesRelocated = new AtomicLong();
+  private final AtomicLong bytesIn = new AtomicLong();
+  private final AtomicLong bytesOut = new AtomicLong();
+  private final AtomicLong remappingTime = new AtomicLong();
+  private final AtomicLong compressionTime = new AtomicLong();
+  private final AtomicLong ioTime = new AtomicLong();
+  private final AtomicLong descriptionTime = new AtomicLong();
+  private final AtomicLong duration = new AtomicLong();
+
+  /**
+   * Create new metrics of a task.
+   *
+   * @param path the path of the task
+   * @param relocations the relocations applied by the task, in declaration order
+   */
+  public TaskMetrics(@Nonnull String path, @Nonnull List<String> relocations) {
+    this.path = path;
+    this.relocations = List.copyOf(relocations);
+    this.relocationHits = new AtomicLongArray(relocations.size());
+  }
+
+  @Nonnull
+  public String getPath() {
+    return this.path;
+  }
+
+  @Nonnull
+  public List<String> getRelocations() {
+    return this.relocations;
+  }
+
+  /**
+   * Gets how many names a relocation rewrote.
+   *
+   * @param relocation the index of the relocation, in declaration order
+   * @return the number of rewritten names
+   */
+  public long getRelocationHits(int relocation) {
+    return this.relocationHits.get(relocation);
+  }
+
+  public void addRelocationHits(int relocation, long hits) {
+    this.relocationHits.addAndGet(relocation, hits);
+  }
+
+  public long getEntriesRead() {
+    return this.entriesRead.get();
+  }
+
+  public void addEntriesRead(long entries) {
+    this.entriesRead.addAndGet(entries);
+  }
+
+  public long getEntriesRelocated() {
+    return this.entriesRelocated.get();
+  }
+
+  public void addEntriesRelocated(long entries) {
+    this.entriesRelocated.addAndGet(entries);
+  }
+
+  public long getBytesIn() {
+    return this.bytesIn.get();
+  }
+
+  public void addBytesIn(long bytes) {
+    this.bytesIn.addAndGet(bytes);
+  }
+
+  public long getBytesOut() {
+    return this.bytesOut.get();
+  }
+
+  public void addBytesOut(long bytes) {
+    this.bytesOut.addAndGet(bytes);
+  }
+
+  public long getRemappingTime() {
+    return this.remappingTime.get();
+  }
+
+  public void addRemappingTime(long nanos) {
+    this.remappingTime.addAndGet(nanos);
+  }
+
+  public long getCompressionTime() {
+    return this.compressionTime.get();
+  }
+
+  public void addCompressionTime(long nanos) {
+    this.compressionTime.addAndGet(nanos);
+  }
+
+  public long getIoTime() {
+    return this.ioTime.get();
+  }
+
+  public void addIoTime(long nanos) {
+    this.ioTime.addAndGet(nanos);
+  }
+
+  public long getDescriptionTime() {
+    return this.descriptionTime.get();
+  }
+
+  public void addDescriptionTime(long nanos) {
+    this.descriptionTime.addAndGet(nanos);
+  }
+
+  /**
+   * Gets the wall-clock time of the work measured for the task.
+   *
+   * @return the duration, in nanoseconds
+   */
+  public long getDuration() {
+    return this.duration.get();
+  }
+
+  public void addDuration(long nanos) {
+    this.duration.addAndGet(nanos);
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.minecraft.plugin;
+
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.metrics.ConfigurationTrace;
+import com.vouncherstudios.strawberry.metrics.MetricsService;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGeneratorType;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.task.GeneratePluginDescriptionTask;
+import com.vouncherstudios.strawberry.shadow.Packaging;
+import com.vouncherstudios.strawberry.shadow.nested.NestedBootstrap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.NamedDomainObjectProvider;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
+import org.gradle.api.attributes.Bundling;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Configures the plugin descriptions of a project applying Strawberry: the libraries downloaded by
+ * Paper and the task generating the descriptions into the main resources.
+ */
+public final class PluginDescriptionConfigurer {
+  private static final String PAPER_LIBRARIES_CONFIGURATION_NAME = "paperLibraries";
+
+  private PluginDescriptionConfigurer() {}
+
+  /**
+   * Registers the configuration of the libraries downloaded by Paper, declared through the Paper
+   * extension or directly in the dependencies block. The configuration is only created once Paper
+   * is configured or the dependencies block declares a library, and the project compiles against
+   * it from then on.
+   *
+   * @param project the project
+   * @param strawberry the strawberry extension
+   * @return a provider of the paper libraries configuration, absent until Paper is configured
+   */
+  @Nonnull
+  public static Provider<Configuration> configurePaperLibraries(
+      @Nonnull Project project, @Nonnull StrawberryExtensionImpl strawberry) {
+    ConfigurationContainer configurations = project.getConfigurations();
+    DependencyHandler dependencies = project.getDependencies();
+    ObjectFactory objects = project.getObjects();
+    NamedDomainObjectProvider<Configuration> paperLibraries =
+        configurations.register(
+            PAPER_LIBRARIES_CONFIGURATION_NAME,
+            configuration -> {
+              configuration.setDescription("The libraries downloaded by Paper.");
+              configuration.setCanBeConsumed(false);
+              configuration.setCanBeResolved(true);
+              configuration.setVisible(false);
+              configuration
+                  .getDependencies()
+                  .addAllLater(
+                      strawberry
+                          .minecraft()
+                          .plugin()
+                          .paper()
+                          .libraries()
+                          .map(
+                              notations ->
+                                  notations.stream()
+                                      .map(dependencies::create)
+                                      .collect(Collectors.toList())));
+              configuration.attributes(
+                  attributes -> {
+                    attributes.attribute(
+                        Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, Usage.JAVA_RUNTIME));
+                    attributes.attribute(
+                        Category.CATEGORY_ATTRIBUTE,
+                        objects.named(Category.class, Category.LIBRARY));
+                    attributes.attribute(
+                        LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE,
+                        objects.named(LibraryElements.class, LibraryElements.JAR));
+                    attributes.attribute(
+                        Bundling.BUNDLING_ATTRIBUTE,
+                        objects.named(Bundling.class, Bundling.EXTERNAL));
+                  });
+              configurations
+                  .getByName(JavaPlugin.COMPILE_ONLY_CONFIGURATION_NAME)
+                  .extendsFrom(configuration);
+            });
+    // Paper is configured by the build script, so the libraries are known once it has run
+    project.afterEvaluate(
+        evaluated -> {
+          if (isPaperConfigured(strawberry)) {
+            paperLibraries.get();
+          }
+        });
+    return project
+        .getProviders()
+        .provider(() -> isPaperConfigured(strawberry) ? paperLibraries.get() : null);
+  }
+
+  private static boolean isPaperConfigured(@Nonnull StrawberryExtensionImpl strawberry) {
+    return DescriptionGeneratorType.PAPER.isAvailable(strawberry)
+        || !strawberry.minecraft().plugin().paper().libraries().get().isEmpty();
+  }
+
+  /**
+   * Registers the task generating the plugin descriptions, which the build task depends on, and
+   * adds its output to the main resources.
+   *
+   * @param project the project
+   * @param tasks the task container
+   * @param strawberry the strawberry extension
+   * @param paperLibraries the libraries downloaded by Paper, absent until Paper is configured
+   * @param metrics the service recording the metrics of the task
+   * @param trace the configuration trace
+   * @return the plugin description task
+   */
+  @Nonnull
+  public static TaskProvider<GeneratePluginDescriptionTask> configure(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull Provider<Configuration> paperLibraries,
+      @Nonnull Provider<MetricsService> metrics,
+      @Nonnull ConfigurationTrace trace) {
+    // Create minecraft generate plugin description task
+    TaskProvider<GeneratePluginDescriptionTask> generatePluginDescriptionTask =
+        tasks.register(
+            "minecraftGeneratePluginDescription",
+            GeneratePluginDescriptionTask.class,
+            trace.action(
+                "configure minecraftGeneratePluginDescription",
+                task -> {
+                  String name = "minecraft-plugin-description";
+                  task.setDescription(
+                      "Generate the plugin description based on user defined strawberry configuration.");
+                  task.setGroup(name);
+                  task.getMetricsService().set(metrics);
+                  task.usesService(metrics);
+                  task.getOutputDirectory()
+                      .set(
+                          project
+                              .getLayout()
+                              .getBuildDirectory()
+                              .dir("generated/" + Strawberry.EXTENSION_NAME + "/" + name));
+
+                  // Snapshot the descriptions so the task never touches the project while executing
+                  ProviderFactory providers = project.getProviders();
+                  task.getPaperDescription()
+                      .set(
+                          providers.provider(
+                              trace.callable(
+                                  "paper description",
+                                  () ->
+                                      DescriptionGeneratorType.PAPER.isAvailable(strawberry)
+                                          ? paperDescription(
+                                              project, strawberry, paperLibraries.get())
+                                          : null)));
+                  // The task reports the libraries which failed to resolve when it runs
+                  task.getUnresolvedPaperLibraries()
+                      .set(
+                          providers.provider(
+                              () ->
+                                  DescriptionGeneratorType.PAPER.isAvailable(strawberry)
+                                      ? unresolvedLibraries(paperLibraries.get())
+                                      : List.of()));
+                  task.getVelocityDescription()
+                      .set(
+                          providers.provider(
+                              trace.callable(
+                                  "velocity description",
+                                  () ->
+                                      DescriptionGeneratorType.VELOCITY.isAvailable(strawberry)
+                                          ? velocityDescription(project, strawberry)
+                                          : null)));
+                }));
+    // Add generate plugin description task as dependency on build task
+    tasks
+        .named("build", DefaultTask.class)
+        .configure(build -> build.dependsOn(generatePluginDescriptionTask));
+    // Copy plugin description output to our final jar
+    project
+        .getExtensions()
+        .getByType(SourceSetContainer.class)
+        .named(SourceSet.MAIN_SOURCE_SET_NAME)
+        .configure(sourceSet -> sourceSet.getResources().srcDir(generatePluginDescriptionTask));
+    return generatePluginDescriptionTask;
+  }
+
+  /**
+   * Creates the Paper description, naming the bootstrap main class when the dependencies are
+   * packaged as nested jars.
+   *
+   * @param project the project
+   * @param strawberry the strawberry extension
+   * @param paperLibraries the libraries downloaded by Paper
+   * @return the Paper description
+   */
+  @Nonnull
+  private static PaperDescription paperDescription(
+      @Nonnull Project project,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull Configuration paperLibraries) {
+    PaperDescription description =
+        PaperDescription.from(
+            strawberry.minecraft().plugin().paper(),
+            project.getVersion().toString(),
+            project.getDescription(),
+            libraryCoordinates(paperLibraries));
+    return isNested(strawberry)
+        ? description.withMain(NestedBootstrap.paperBootstrap(description.getMain()))
+        : description;
+  }
+
+  /**
+   * Creates the Velocity description, naming the bootstrap main class when the dependencies are
+   * packaged as nested jars.
+   *
+   * @param project the project
+   * @param strawberry the strawberry extension
+   * @return the Velocity description
+   */
+  @Nonnull
+  private static VelocityDescription velocityDescription(
+      @Nonnull Project project, @Nonnull StrawberryExtensionImpl strawberry) {
+    VelocityDescription description =
+        VelocityDescription.from(
+            strawberry.minecraft().plugin().velocity(),
+            project.getVersion().toString(),
+            project.getDescription());
+    return isNested(strawberry)
+        ? description.withMain(NestedBootstrap.velocityBootstrap(description.getMain()))
+        : description;
+  }
+
+  private static boolean isNested(@Nonnull StrawberryExtensionImpl strawberry) {
+    return strawberry.shading().packaging().get() == Packaging.NESTED;
+  }
+
+  /**
+   * Gets the Maven coordinates of the libraries downloaded by Paper, with their resolved versions.
+   * Paper resolves their transitive dependencies itself. The libraries which failed to resolve are
+   * skipped, {@link #unresolvedLibraries(Configuration)} reports them.
+   *
+   * @param paperLibraries the paper libraries configuration
+   * @return the coordinates of the libraries
+   */
+  @Nonnull
+  private static List<String> libraryCoordinates(@Nonnull Configuration paperLibraries) {
+    List<String> coordinates = new ArrayList<>();
+    for (DependencyResult dependency : libraryResults(paperLibraries)) {
+      if (dependency instanceof ResolvedDependencyResult) {
+        ModuleVersionIdentifier module =
+            ((ResolvedDependencyResult) dependency).getSelected().getModuleVersion();
+        if (module != null) {
+          coordinates.add(module.getGroup() + ':' + module.getName() + ':' + module.getVersion());
+        }
+      }
+    }
+    return coordinates;
+  }
+
+  /**
+   * Gets the libraries downloaded by Paper which failed to resolve.
+   *
+   * @param paperLibraries the paper libraries configuration
+   * @return the requested libraries, as displayed by Gradle
+   */
+  @Nonnull
+  private static List<String> unresolvedLibraries(@Nonnull Configuration paperLibraries) {
+    List<String> unresolved = new ArrayList<>();
+    for (DependencyResult dependency : libraryResults(paperLibraries)) {
+      if (dependency instanceof UnresolvedDependencyResult) {
+        unresolved.add(dependency.getRequested().getDisplayName());
+      }
+    }
+    return unresolved;
+  }
+
+  @Nonnull
+  private static Set<? extends DependencyResult> libraryResults(
+      @Nonnull Configuration paperLibraries) {
+    ResolvedComponentResult root =
+        paperLibraries.getIncoming().getResolutionResult().getRootComponent().get();
+    return root.getDependencies();
+  }
+}
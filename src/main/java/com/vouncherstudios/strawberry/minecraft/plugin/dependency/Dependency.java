@@ -24,12 +24,16 @@
 
 package com.vouncherstudios.strawberry.minecraft.plugin.dependency;
 
+import java.io.Serializable;
 import java.util.Objects;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import org.gradle.api.tasks.Input;
 
 /** Indicates that the plugin depends on another plugin in order to enable. */
-public final class Dependency {
+public final class Dependency implements Serializable {
+  private static final long serialVersionUID = 1L;
+
   private final String id;
   private final boolean optional;
 
@@ -43,6 +47,7 @@ public final class Dependency {
    *
    * @return the unique identifier of the dependency
    */
+  @Input
   @Nonnull
   public String getId() {
     return this.id;
@@ -53,6 +58,7 @@ public final class Dependency {
    *
    * @return if the dependency is optional
    */
+  @Input
   public boolean isOptional() {
     return this.optional;
   }
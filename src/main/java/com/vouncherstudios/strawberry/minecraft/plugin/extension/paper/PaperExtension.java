@@ -193,6 +193,28 @@ public interface PaperExtension {
     }
   }
 
+  /**
+   * The libraries Paper downloads from Maven Central and adds to the classpath of this plugin, as
+   * Maven coordinates such as {@code com.google.code.gson:gson:2.10.1}. They are added to the
+   * {@code paperLibraries} configuration, which the project compiles against, and are left out of
+   * the shaded jar along with their transitive dependencies.
+   *
+   * @return a property providing the libraries of the plugin
+   */
+  @Nonnull
+  SetProperty<String> libraries();
+
+  /**
+   * Adds libraries Paper downloads and adds to the classpath of this plugin.
+   *
+   * @param libraries the Maven coordinates of the libraries
+   */
+  default void libraries(@Nonnull String... libraries) {
+    for (String library : libraries) {
+      libraries().add(library);
+    }
+  }
+
   /**
    * The API version which this plugin is designed to support.
    *
@@ -39,12 +39,24 @@ public interface DescriptionGenerator {
       Set.of("net.minecraft.", "org.bukkit.", "io.papermc.paper.", "com.destroystokoyo.paper.");
 
   /**
-   * Generates the description for the project.
+   * Generates the description into the output directory.
+   *
+   * @param directory the output file directory
+   */
+  void generate(@Nonnull Directory directory);
+
+  /**
+   * Generates the description into the output directory.
    *
    * @param project the project
    * @param directory the output file directory
+   * @deprecated the description no longer reads the project, use {@link #generate(Directory)}
+   *     instead, this method will be removed in the next release
    */
-  void generate(@Nonnull Project project, @Nonnull Directory directory);
+  @Deprecated
+  default void generate(@Nonnull Project project, @Nonnull Directory directory) {
+    generate(directory);
+  }
 
   /**
    * Checks whether the generator has all mandatory parameters.
@@ -37,6 +37,7 @@ import javax.annotation.Nonnull;
 /** The implemented generators type. */
 public enum DescriptionGeneratorType {
   PAPER {
+    @Deprecated
     @Override
     public DescriptionGenerator getGenerator(@Nonnull StrawberryExtension extension) {
       return new PaperDescriptionGenerator(extension);
@@ -50,6 +51,7 @@ public enum DescriptionGeneratorType {
     }
   },
   VELOCITY {
+    @Deprecated
     @Override
     public DescriptionGenerator getGenerator(@Nonnull StrawberryExtension extension) {
       return new VelocityDescriptionGenerator(extension);
@@ -64,16 +66,34 @@ public enum DescriptionGeneratorType {
     }
   };
 
-  public abstract DescriptionGenerator getGenerator(@Nonnull StrawberryExtension extension);
-
+  /**
+   * Checks whether the extension has enough information to generate this type of description.
+   *
+   * @param extension the strawberry extension
+   * @return whether the description should be generated
+   */
   public abstract boolean isAvailable(@Nonnull StrawberryExtension extension);
 
+  /**
+   * Creates a generator reading the description from the extension.
+   *
+   * @param extension the strawberry extension
+   * @return the generator
+   * @deprecated the plugin snapshots the extension into the description task, this method will be
+   *     removed in the next release
+   */
+  @Deprecated
+  public abstract DescriptionGenerator getGenerator(@Nonnull StrawberryExtension extension);
+
   /**
    * Returns a set of generator types based on the extension.
    *
    * @param extension the minecraft extension
    * @return the set of generator types
+   * @deprecated the plugin snapshots the extension into the description task, this method will be
+   *     removed in the next release
    */
+  @Deprecated
   @Nonnull
   public static Set<DescriptionGenerator> fromExt(@Nonnull StrawberryExtension extension) {
     HashSet<DescriptionGenerator> types = new HashSet<>();
@@ -0,0 +1,254 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.minecraft.plugin.generator.paper;
+
+import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
+import com.vouncherstudios.strawberry.minecraft.plugin.extension.paper.PaperExtension;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * An immutable snapshot of a {@link PaperExtension}, resolved at configuration time so the plugin
+ * description can be generated without access to the project.
+ */
+public final class PaperDescription implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String name;
+  private final String main;
+  private final String version;
+  private final String description;
+  private final List<String> authors;
+  private final LoadOrder load;
+  private final String apiVersion;
+  private final List<Dependency> dependencies;
+  private final List<String> libraries;
+
+  public PaperDescription(
+      @Nonnull String name,
+      @Nonnull String main,
+      @Nonnull String version,
+      @Nullable String description,
+      @Nonnull List<String> authors,
+      @Nonnull LoadOrder load,
+      @Nullable String apiVersion,
+      @Nonnull List<Dependency> dependencies,
+      @Nonnull List<String> libraries) {
+    this.name = name;
+    this.main = main;
+    this.version = version;
+    this.description = description;
+    this.authors = List.copyOf(authors);
+    this.load = load;
+    this.apiVersion = apiVersion;
+    this.dependencies = List.copyOf(dependencies);
+    this.libraries = List.copyOf(libraries);
+  }
+
+  /**
+   * Creates a snapshot of the extension, falling back to the project's version and description when
+   * they are not set on the extension.
+   *
+   * @param extension the paper extension
+   * @param projectVersion the project's version
+   * @param projectDescription the project's description
+   * @param libraries the resolved Maven coordinates of the plugin libraries
+   * @return the description snapshot
+   */
+  @Nonnull
+  public static PaperDescription from(
+      @Nonnull PaperExtension extension,
+      @Nonnull String projectVersion,
+      @Nullable String projectDescription,
+      @Nonnull List<String> libraries) {
+    return new PaperDescription(
+        extension.name().get(),
+        extension.main().get(),
+        extension.version().getOrElse(projectVersion),
+        extension.description().getOrElse(projectDescription),
+        List.copyOf(extension.authors().get()),
+        extension.load().get(),
+        extension.apiVersion().getOrNull(),
+        List.copyOf(extension.dependencies().get()),
+        libraries);
+  }
+
+  /**
+   * Creates a copy of this description with another main class.
+   *
+   * @param main the main class
+   * @return the description copy
+   */
+  @Nonnull
+  public PaperDescription withMain(@Nonnull String main) {
+    return new PaperDescription(
+        this.name,
+        main,
+        this.version,
+        this.description,
+        this.authors,
+        this.load,
+        this.apiVersion,
+        this.dependencies,
+        this.libraries);
+  }
+
+  /**
+   * Gets the name of the plugin.
+   *
+   * @return the name of the plugin
+   */
+  @Input
+  @Nonnull
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the plugin's initial class file.
+   *
+   * @return the plugin's initial class file
+   */
+  @Input
+  @Nonnull
+  public String getMain() {
+    return this.main;
+  }
+
+  /**
+   * Gets the version of the plugin.
+   *
+   * @return the version of the plugin
+   */
+  @Input
+  @Nonnull
+  public String getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the description of the plugin.
+   *
+   * @return the description of the plugin, or {@code null} if there is none
+   */
+  @Input
+  @Optional
+  @Nullable
+  public String getDescription() {
+    return this.description;
+  }
+
+  /**
+   * Gets the authors of the plugin.
+   *
+   * @return the authors of the plugin
+   */
+  @Input
+  @Nonnull
+  public List<String> getAuthors() {
+    return this.authors;
+  }
+
+  /**
+   * Gets the phase of server-startup this plugin will load during.
+   *
+   * @return the plugin's load order
+   */
+  @Input
+  @Nonnull
+  public LoadOrder getLoad() {
+    return this.load;
+  }
+
+  /**
+   * Gets the API version which this plugin is designed to support.
+   *
+   * @return the api version, or {@code null} if there is none
+   */
+  @Input
+  @Optional
+  @Nullable
+  public String getApiVersion() {
+    return this.apiVersion;
+  }
+
+  /**
+   * Gets the dependencies required to load before this plugin.
+   *
+   * @return the plugin dependencies
+   */
+  @Nested
+  @Nonnull
+  public List<Dependency> getDependencies() {
+    return this.dependencies;
+  }
+
+  /**
+   * Gets the libraries Paper downloads for this plugin.
+   *
+   * @return the Maven coordinates of the libraries
+   */
+  @Input
+  @Nonnull
+  public List<String> getLibraries() {
+    return this.libraries;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    PaperDescription that = (PaperDescription) o;
+    return Objects.equals(this.name, that.name)
+        && Objects.equals(this.main, that.main)
+        && Objects.equals(this.version, that.version)
+        && Objects.equals(this.description, that.description)
+        && Objects.equals(this.authors, that.authors)
+        && this.load == that.load
+        && Objects.equals(this.apiVersion, that.apiVersion)
+        && Objects.equals(this.dependencies, that.dependencies)
+        && Objects.equals(this.libraries, that.libraries);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        this.name,
+        this.main,
+        this.version,
+        this.description,
+        this.authors,
+        this.load,
+        this.apiVersion,
+        this.dependencies,
+        this.libraries);
+  }
+}
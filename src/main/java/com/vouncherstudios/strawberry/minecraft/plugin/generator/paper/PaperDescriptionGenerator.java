@@ -30,18 +30,16 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
 import com.vouncherstudios.strawberry.StrawberryExtension;
-import com.vouncherstudios.strawberry.gradle.utils.GradlePropertyUtils;
 import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
 import com.vouncherstudios.strawberry.minecraft.plugin.exception.InvalidPluginDescriptionException;
-import com.vouncherstudios.strawberry.minecraft.plugin.extension.paper.PaperExtension;
 import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGenerator;
 import java.io.File;
-import java.util.Set;
+import java.util.List;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.gradle.api.Project;
 import org.gradle.api.file.Directory;
-import org.gradle.api.provider.Property;
 
 /** Represents a Paper plugin description generator. */
 public final class PaperDescriptionGenerator implements DescriptionGenerator {
@@ -54,55 +52,79 @@ public final class PaperDescriptionGenerator implements DescriptionGenerator {
           .enable(YAMLGenerator.Feature.ALWAYS_QUOTE_NUMBERS_AS_STRINGS)
           .enable(YAMLGenerator.Feature.INDENT_ARRAYS_WITH_INDICATOR)
           .build();
-  private final StrawberryExtension strawberry;
+  @Nullable private final PaperDescription description;
+  @Nullable private final StrawberryExtension strawberry;
 
+  public PaperDescriptionGenerator(@Nonnull PaperDescription description) {
+    this.description = description;
+    this.strawberry = null;
+  }
+
+  /**
+   * Create a generator reading the description from the extension, falling back to the default
+   * project version.
+   *
+   * @param strawberry the strawberry extension
+   * @deprecated snapshot the extension into a {@link PaperDescription} and use {@link
+   *     #PaperDescriptionGenerator(PaperDescription)} instead, this constructor will be removed
+   *     in the next release
+   */
+  @Deprecated
   public PaperDescriptionGenerator(@Nonnull StrawberryExtension strawberry) {
+    this.description = null;
     this.strawberry = strawberry;
   }
 
+  /**
+   * Generates the description for the project, falling back to its version and description when
+   * the generator reads them from the extension.
+   *
+   * @param project the project
+   * @param directory the output file directory
+   * @deprecated use {@link #generate(Directory)} instead, this method will be removed in the next
+   *     release
+   */
+  @Deprecated
   @Override
   public void generate(@Nonnull Project project, @Nonnull Directory directory) {
-    PaperExtension extension = this.strawberry.minecraft().plugin().paper();
-
-    ObjectNode node = MAPPER.createObjectNode();
-
-    node.put("name", extension.name().get());
-    node.put("main", extension.main().get());
-    node.put("load", extension.load().get().toString());
+    if (this.strawberry == null) {
+      generate(directory);
+      return;
+    }
 
-    String version = project.getVersion().toString();
+    snapshot(project.getVersion().toString(), project.getDescription()).generate(directory);
+  }
 
-    Property<String> versionProp = extension.version();
-    if (versionProp.isPresent()) {
-      version = versionProp.get();
+  @Override
+  public void generate(@Nonnull Directory directory) {
+    if (this.description == null) {
+      snapshot(Project.DEFAULT_VERSION, null).generate(directory);
+      return;
     }
 
-    node.put("version", version);
-
-    String description = project.getDescription();
+    ObjectNode node = MAPPER.createObjectNode();
 
-    Property<String> descriptionProp = extension.description();
-    if (descriptionProp.isPresent()) {
-      description = descriptionProp.get();
-    }
+    node.put("name", this.description.getName());
+    node.put("main", this.description.getMain());
+    node.put("load", this.description.getLoad().toString());
+    node.put("version", this.description.getVersion());
 
+    String description = this.description.getDescription();
     if (description != null && !description.isBlank()) {
       node.put("description", description);
     }
 
-    Property<String> apiVersionProp = extension.apiVersion();
-    if (apiVersionProp.isPresent()) {
-      node.put("api-version", apiVersionProp.get());
+    String apiVersion = this.description.getApiVersion();
+    if (apiVersion != null) {
+      node.put("api-version", apiVersion);
     }
 
-    Set<String> authors = extension.authors().get();
+    List<String> authors = this.description.getAuthors();
     if (!authors.isEmpty()) {
 
       // Single author
       if (authors.size() == 1) {
-        for (String author : authors) {
-          node.put("author", author);
-        }
+        node.put("author", authors.get(0));
       } else {
         // Multiple authors
         ArrayNode authorsNode = MAPPER.createArrayNode();
@@ -117,7 +139,7 @@ public final class PaperDescriptionGenerator implements DescriptionGenerator {
     ArrayNode depend = MAPPER.createArrayNode();
     ArrayNode softDepend = MAPPER.createArrayNode();
 
-    for (Dependency dependency : extension.dependencies().get()) {
+    for (Dependency dependency : this.description.getDependencies()) {
       String dependencyId = dependency.getId();
 
       if (dependency.isOptional()) {
@@ -134,6 +156,16 @@ public final class PaperDescriptionGenerator implements DescriptionGenerator {
       node.set("softdepend", softDepend);
     }
 
+    List<String> libraries = this.description.getLibraries();
+    if (!libraries.isEmpty()) {
+      ArrayNode librariesNode = MAPPER.createArrayNode();
+      for (String library : libraries) {
+        librariesNode.add(library);
+      }
+
+      node.set("libraries", librariesNode);
+    }
+
     try {
       File file = directory.file(FILE_NAME).getAsFile();
       file.createNewFile();
@@ -146,9 +178,12 @@ public final class PaperDescriptionGenerator implements DescriptionGenerator {
 
   @Override
   public void validate() throws InvalidPluginDescriptionException {
-    PaperExtension extension = this.strawberry.minecraft().plugin().paper();
+    if (this.description == null) {
+      snapshot(Project.DEFAULT_VERSION, null).validate();
+      return;
+    }
 
-    String main = extension.main().get().toLowerCase();
+    String main = this.description.getMain().toLowerCase();
     for (String invalidNamespace : INVALID_NAMESPACES) {
       if (main.startsWith(invalidNamespace)) {
         throw new InvalidPluginDescriptionException(
@@ -156,18 +191,27 @@ public final class PaperDescriptionGenerator implements DescriptionGenerator {
       }
     }
 
-    String name = extension.name().get();
+    String name = this.description.getName();
     if (!VALID_NAME.matcher(name).matches()) {
       throw new InvalidPluginDescriptionException(
           "Invalid plugin name, should match " + VALID_NAME);
     }
 
-    if (GradlePropertyUtils.isNotEmpty(extension.version())) {
+    if (this.description.getVersion().isBlank()) {
       throw new InvalidPluginDescriptionException("Version can't be empty if present");
     }
 
-    if (GradlePropertyUtils.isNotEmpty(extension.description())) {
+    String description = this.description.getDescription();
+    if (description != null && description.isBlank()) {
       throw new InvalidPluginDescriptionException("Description can't be empty if present");
     }
   }
+
+  @Nonnull
+  private PaperDescriptionGenerator snapshot(
+      @Nonnull String version, @Nullable String description) {
+    return new PaperDescriptionGenerator(
+        PaperDescription.from(
+            this.strawberry.minecraft().plugin().paper(), version, description, List.of()));
+  }
 }
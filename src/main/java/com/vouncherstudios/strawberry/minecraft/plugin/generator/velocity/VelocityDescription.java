@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity;
+
+import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
+import com.vouncherstudios.strawberry.minecraft.plugin.extension.velocity.VelocityExtension;
+import java.io.Serializable;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * An immutable snapshot of a {@link VelocityExtension}, resolved at configuration time so the
+ * plugin description can be generated without access to the project.
+ */
+public final class VelocityDescription implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private final String id;
+  private final String name;
+  private final String main;
+  private final String version;
+  private final String description;
+  private final List<String> authors;
+  private final List<Dependency> dependencies;
+
+  public VelocityDescription(
+      @Nonnull String id,
+      @Nonnull String name,
+      @Nonnull String main,
+      @Nonnull String version,
+      @Nullable String description,
+      @Nonnull List<String> authors,
+      @Nonnull List<Dependency> dependencies) {
+    this.id = id;
+    this.name = name;
+    this.main = main;
+    this.version = version;
+    this.description = description;
+    this.authors = List.copyOf(authors);
+    this.dependencies = List.copyOf(dependencies);
+  }
+
+  /**
+   * Creates a snapshot of the extension, falling back to the project's version and description when
+   * they are not set on the extension.
+   *
+   * @param extension the velocity extension
+   * @param projectVersion the project's version
+   * @param projectDescription the project's description
+   * @return the description snapshot
+   */
+  @Nonnull
+  public static VelocityDescription from(
+      @Nonnull VelocityExtension extension,
+      @Nonnull String projectVersion,
+      @Nullable String projectDescription) {
+    return new VelocityDescription(
+        extension.id().get(),
+        extension.name().get(),
+        extension.main().get(),
+        extension.version().getOrElse(projectVersion),
+        extension.description().getOrElse(projectDescription),
+        List.copyOf(extension.authors().get()),
+        List.copyOf(extension.dependencies().get()));
+  }
+
+  /**
+   * Creates a copy of this description with another main class.
+   *
+   * @param main the main class
+   * @return the description copy
+   */
+  @Nonnull
+  public VelocityDescription withMain(@Nonnull String main) {
+    return new VelocityDescription(
+        this.id, this.name, main, this.version, this.description, this.authors, this.dependencies);
+  }
+
+  /**
+   * Gets the id of the plugin.
+   *
+   * @return the id of the plugin
+   */
+  @Input
+  @Nonnull
+  public String getId() {
+    return this.id;
+  }
+
+  /**
+   * Gets the human-readable name of the plugin.
+   *
+   * @return the name of the plugin
+   */
+  @Input
+  @Nonnull
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Gets the plugin's initial class file.
+   *
+   * @return the plugin's initial class file
+   */
+  @Input
+  @Nonnull
+  public String getMain() {
+    return this.main;
+  }
+
+  /**
+   * Gets the version of the plugin.
+   *
+   * @return the version of the plugin
+   */
+  @Input
+  @Nonnull
+  public String getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the description of the plugin.
+   *
+   * @return the description of the plugin, or {@code null} if there is none
+   */
+  @Input
+  @Optional
+  @Nullable
+  public String getDescription() {
+    return this.description;
+  }
+
+  /**
+   * Gets the authors of the plugin.
+   *
+   * @return the authors of the plugin
+   */
+  @Input
+  @Nonnull
+  public List<String> getAuthors() {
+    return this.authors;
+  }
+
+  /**
+   * Gets the dependencies required to load before this plugin.
+   *
+   * @return the plugin dependencies
+   */
+  @Nested
+  @Nonnull
+  public List<Dependency> getDependencies() {
+    return this.dependencies;
+  }
+
+  @Override
+  public boolean equals(@Nullable Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    VelocityDescription that = (VelocityDescription) o;
+    return Objects.equals(this.id, that.id)
+        && Objects.equals(this.name, that.name)
+        && Objects.equals(this.main, that.main)
+        && Objects.equals(this.version, that.version)
+        && Objects.equals(this.description, that.description)
+        && Objects.equals(this.authors, that.authors)
+        && Objects.equals(this.dependencies, that.dependencies);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(
+        this.id,
+        this.name,
+        this.main,
+        this.version,
+        this.description,
+        this.authors,
+        this.dependencies);
+  }
+}
@@ -30,18 +30,15 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.vouncherstudios.strawberry.StrawberryExtension;
-import com.vouncherstudios.strawberry.gradle.utils.GradlePropertyUtils;
 import com.vouncherstudios.strawberry.minecraft.plugin.dependency.Dependency;
 import com.vouncherstudios.strawberry.minecraft.plugin.exception.InvalidPluginDescriptionException;
-import com.vouncherstudios.strawberry.minecraft.plugin.extension.velocity.VelocityExtension;
 import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGenerator;
 import java.io.File;
-import java.util.Set;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.gradle.api.Project;
 import org.gradle.api.file.Directory;
-import org.gradle.api.provider.Property;
 
 /** Represents a VelocityExtension plugin description generator. */
 public final class VelocityDescriptionGenerator implements DescriptionGenerator {
@@ -50,54 +47,76 @@ public final class VelocityDescriptionGenerator implements DescriptionGenerator
   private static final ObjectMapper MAPPER =
       JsonMapper.builder().addModule(new SimpleModule()).build();
 
-  private final StrawberryExtension strawberry;
+  @Nullable private final VelocityDescription description;
+  @Nullable private final StrawberryExtension strawberry;
 
+  public VelocityDescriptionGenerator(@Nonnull VelocityDescription description) {
+    this.description = description;
+    this.strawberry = null;
+  }
+
+  /**
+   * Create a generator reading the description from the extension, falling back to the default
+   * project version.
+   *
+   * @param strawberry the strawberry extension
+   * @deprecated snapshot the extension into a {@link VelocityDescription} and use {@link
+   *     #VelocityDescriptionGenerator(VelocityDescription)} instead, this constructor will be
+   *     removed in the next release
+   */
+  @Deprecated
   public VelocityDescriptionGenerator(@Nonnull StrawberryExtension strawberry) {
+    this.description = null;
     this.strawberry = strawberry;
   }
 
+  /**
+   * Generates the description for the project, falling back to its version and description when
+   * the generator reads them from the extension.
+   *
+   * @param project the project
+   * @param directory the output file directory
+   * @deprecated use {@link #generate(Directory)} instead, this method will be removed in the next
+   *     release
+   */
+  @Deprecated
   @Override
   public void generate(@Nonnull Project project, @Nonnull Directory directory) {
-    VelocityExtension extension = this.strawberry.minecraft().plugin().velocity();
-
-    ObjectNode node = MAPPER.createObjectNode();
-
-    node.put("id", extension.id().get());
-    node.put("name", extension.name().get());
-    node.put("main", extension.main().get());
+    if (this.strawberry == null) {
+      generate(directory);
+      return;
+    }
 
-    String version = project.getVersion().toString();
+    snapshot(project.getVersion().toString(), project.getDescription()).generate(directory);
+  }
 
-    Property<String> versionProp = extension.version();
-    if (versionProp.isPresent()) {
-      version = versionProp.get();
+  @Override
+  public void generate(@Nonnull Directory directory) {
+    if (this.description == null) {
+      snapshot(Project.DEFAULT_VERSION, null).generate(directory);
+      return;
     }
 
-    node.put("version", version);
-
-    String description = project.getDescription();
+    ObjectNode node = MAPPER.createObjectNode();
 
-    Property<String> descriptionProp = extension.description();
-    if (descriptionProp.isPresent()) {
-      description = descriptionProp.get();
-    }
+    node.put("id", this.description.getId());
+    node.put("name", this.description.getName());
+    node.put("main", this.description.getMain());
+    node.put("version", this.description.getVersion());
 
+    String description = this.description.getDescription();
     if (description != null && !description.isBlank()) {
       node.put("description", description);
     }
 
     ArrayNode authorsNode = MAPPER.createArrayNode();
-
-    Set<String> authors = extension.authors().get();
-    if (!authors.isEmpty()) {
-      for (String author : authors) {
-        authorsNode.add(author);
-      }
+    for (String author : this.description.getAuthors()) {
+      authorsNode.add(author);
     }
     node.set("authors", authorsNode);
 
     ArrayNode dependencies = MAPPER.createArrayNode();
-    for (Dependency dependency : extension.dependencies().get()) {
+    for (Dependency dependency : this.description.getDependencies()) {
       ObjectNode dep = MAPPER.createObjectNode();
       dep.put("id", dependency.getId());
       dep.put("optional", dependency.isOptional());
@@ -118,14 +137,17 @@ public final class VelocityDescriptionGenerator implements DescriptionGenerator
 
   @Override
   public void validate() throws InvalidPluginDescriptionException {
-    VelocityExtension extension = this.strawberry.minecraft().plugin().velocity();
+    if (this.description == null) {
+      snapshot(Project.DEFAULT_VERSION, null).validate();
+      return;
+    }
 
-    String id = extension.id().get();
+    String id = this.description.getId();
     if (!ID_PATTERN.matcher(id).matches()) {
       throw new InvalidPluginDescriptionException("Invalid plugin id, should match " + ID_PATTERN);
     }
 
-    String main = extension.main().get().toLowerCase();
+    String main = this.description.getMain().toLowerCase();
     for (String invalidNamespace : INVALID_NAMESPACES) {
       if (main.startsWith(invalidNamespace)) {
         throw new InvalidPluginDescriptionException(
@@ -133,12 +155,21 @@ public final class VelocityDescriptionGenerator implements DescriptionGenerator
       }
     }
 
-    if (GradlePropertyUtils.isNotEmpty(extension.version())) {
+    if (this.description.getVersion().isBlank()) {
       throw new InvalidPluginDescriptionException("Version can't be empty if present");
     }
 
-    if (GradlePropertyUtils.isNotEmpty(extension.description())) {
+    String description = this.description.getDescription();
+    if (description != null && description.isBlank()) {
       throw new InvalidPluginDescriptionException("Description can't be empty if present");
     }
   }
+
+  @Nonnull
+  private VelocityDescriptionGenerator snapshot(
+      @Nonnull String version, @Nullable String description) {
+    return new VelocityDescriptionGenerator(
+        VelocityDescription.from(
+            this.strawberry.minecraft().plugin().velocity(), version, description));
+  }
 }
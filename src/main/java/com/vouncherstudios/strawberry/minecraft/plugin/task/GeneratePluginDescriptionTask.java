@@ -25,37 +25,125 @@
 package com.vouncherstudios.strawberry.minecraft.plugin.task;
 
 import com.vouncherstudios.strawberry.StrawberryExtension;
+import com.vouncherstudios.strawberry.metrics.MetricsService;
+import com.vouncherstudios.strawberry.metrics.TaskMetrics;
 import com.vouncherstudios.strawberry.minecraft.plugin.exception.InvalidPluginDescriptionException;
 import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGenerator;
 import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGeneratorType;
-import java.util.HashSet;
-import java.util.Set;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.paper.PaperDescriptionGenerator;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescription;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.velocity.VelocityDescriptionGenerator;
+import java.util.ArrayList;
+import java.util.List;
 import javax.annotation.Nonnull;
+import javax.inject.Inject;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.TaskAction;
 
 /**
  * The generate plugin description gradle task. It will generate the plugin description based on
  * user defined Strawberry configuration.
+ *
+ * <p>The descriptions are snapshots of the Strawberry extension taken at configuration time, so the
+ * task never needs the project while executing and is compatible with the configuration cache.
+ * Every description property is a declared input, so any change regenerates the description and
+ * the output can be reused from the build cache.
  */
+@CacheableTask
 public abstract class GeneratePluginDescriptionTask extends DefaultTask {
-  // A set to hold the different types of description generators
-  private final Set<DescriptionGenerator> generators = new HashSet<>();
 
-  // The output directory for the generated plugin description
-  @OutputDirectory private Provider<Directory> outputDirectory;
+  /**
+   * The paper plugin description to generate, absent if no paper description is configured.
+   *
+   * @return a property providing the paper description
+   */
+  @Nested
+  @Optional
+  public abstract Property<PaperDescription> getPaperDescription();
 
   /**
-   * The task action to generate the plugin description. It iterates over the set of generators and
-   * calls the generate method on each one.
+   * The velocity plugin description to generate, absent if no velocity description is configured.
+   *
+   * @return a property providing the velocity description
+   */
+  @Nested
+  @Optional
+  public abstract Property<VelocityDescription> getVelocityDescription();
+
+  /**
+   * The libraries downloaded by Paper which failed to resolve, reported when the task runs.
+   *
+   * @return a property providing the unresolved libraries
+   */
+  @Input
+  public abstract ListProperty<String> getUnresolvedPaperLibraries();
+
+  /**
+   * Returns the output directory for the generated plugin description.
+   *
+   * @return the output directory
+   */
+  @OutputDirectory
+  public abstract DirectoryProperty getOutputDirectory();
+
+  /**
+   * The service recording how long generating the descriptions took.
+   *
+   * @return a property providing the metrics service
+   */
+  @Internal
+  public abstract Property<MetricsService> getMetricsService();
+
+  @Inject
+  protected abstract FileSystemOperations getFileSystemOperations();
+
+  /**
+   * The task action to generate the plugin description. It fails if a Paper library couldn't be
+   * resolved, validates every generator and then calls the generate method on each one.
    */
   @TaskAction
   public void generate() {
-    for (DescriptionGenerator generator : this.generators) {
-      generator.generate(getProject(), outputDirectory.get());
+    List<String> unresolved = getUnresolvedPaperLibraries().getOrElse(List.of());
+    if (!unresolved.isEmpty()) {
+      throw new GradleException(
+          "Could not resolve the Paper libraries " + String.join(", ", unresolved));
+    }
+    try {
+      validate();
+    } catch (InvalidPluginDescriptionException e) {
+      throw new GradleException(e.getMessage(), e);
+    }
+
+    // Start from an empty directory so a description that is no longer configured doesn't linger
+    Directory directory = getOutputDirectory().get();
+    getFileSystemOperations().delete(spec -> spec.delete(directory));
+    directory.getAsFile().mkdirs();
+
+    long start = System.nanoTime();
+    for (DescriptionGenerator generator : getGenerators()) {
+      generator.generate(directory);
+    }
+    long elapsed = System.nanoTime() - start;
+
+    if (getMetricsService().isPresent() && getMetricsService().get().isEnabled()) {
+      TaskMetrics metrics = new TaskMetrics(getPath(), List.of());
+      metrics.addDescriptionTime(elapsed);
+      metrics.addDuration(elapsed);
+      getMetricsService().get().record(metrics);
     }
   }
 
@@ -66,20 +154,36 @@ public abstract class GeneratePluginDescriptionTask extends DefaultTask {
    * @throws InvalidPluginDescriptionException if the plugin description is invalid
    */
   public void validate() throws InvalidPluginDescriptionException {
-    for (DescriptionGenerator generator : this.generators) {
+    for (DescriptionGenerator generator : getGenerators()) {
       generator.validate();
     }
   }
 
   /**
-   * Sets the generators based on the provided strawberry extension. It checks the generator types
-   * from the extension and adds the corresponding generators to the set.
+   * Sets the descriptions based on the provided strawberry extension, snapshotting every available
+   * description with the project version and description.
    *
    * @param strawberry the strawberry extension
+   * @deprecated set {@link #getPaperDescription()} and {@link #getVelocityDescription()} instead,
+   *     this method will be removed in the next release
    */
+  @Deprecated
   public void setGenerators(@Nonnull StrawberryExtension strawberry) {
-    Set<DescriptionGenerator> generators = DescriptionGeneratorType.fromExt(strawberry);
-    this.generators.addAll(generators);
+    String version = getProject().getVersion().toString();
+    String description = getProject().getDescription();
+
+    if (DescriptionGeneratorType.PAPER.isAvailable(strawberry)) {
+      getPaperDescription()
+          .set(
+              PaperDescription.from(
+                  strawberry.minecraft().plugin().paper(), version, description, List.of()));
+    }
+    if (DescriptionGeneratorType.VELOCITY.isAvailable(strawberry)) {
+      getVelocityDescription()
+          .set(
+              VelocityDescription.from(
+                  strawberry.minecraft().plugin().velocity(), version, description));
+    }
   }
 
   /**
@@ -88,16 +192,22 @@ public abstract class GeneratePluginDescriptionTask extends DefaultTask {
    * @param outputDirectory the output directory
    */
   public void setOutputDirectory(@Nonnull Provider<Directory> outputDirectory) {
-    this.outputDirectory = outputDirectory;
+    getOutputDirectory().set(outputDirectory);
   }
 
-  /**
-   * Returns the output directory for the generated plugin description.
-   *
-   * @return the output directory
-   */
   @Nonnull
-  public Provider<Directory> getOutputDirectory() {
-    return this.outputDirectory;
+  private List<DescriptionGenerator> getGenerators() {
+    List<DescriptionGenerator> generators = new ArrayList<>();
+
+    PaperDescription paper = getPaperDescription().getOrNull();
+    if (paper != null) {
+      generators.add(new PaperDescriptionGenerator(paper));
+    }
+
+    VelocityDescription velocity = getVelocityDescription().getOrNull();
+    if (velocity != null) {
+      generators.add(new VelocityDescriptionGenerator(velocity));
+    }
+    return generators;
   }
 }
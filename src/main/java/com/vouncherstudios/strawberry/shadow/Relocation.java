@@ -25,30 +25,113 @@
 package com.vouncherstudios.strawberry.shadow;
 
 import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.TreeSet;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import org.gradle.api.Action;
+import org.gradle.api.tasks.Input;
+
+/**
+ * A relocation of the classes matching a pattern to a destination package.
+ *
+ * <p>Relocations are plain values, fully described by their properties, so they can be stored in
+ * the configuration cache and used as task inputs: two relocations are equal only if they relocate
+ * identically.
+ */
+public final class Relocation implements Serializable {
+  private static final long serialVersionUID = 1L;
 
-public final class Relocation {
   private final String pattern;
   private final String destination;
-  private final Action<SimpleRelocator> configuration;
+  private final List<String> includes;
+  private final List<String> excludes;
+  private final boolean rawString;
+  private final boolean skipStringLiterals;
+
+  /**
+   * Create a new relocation of every class matching the pattern.
+   *
+   * @param pattern the source pattern to relocate
+   * @param destination the destination package
+   */
+  public Relocation(@Nonnull String pattern, @Nonnull String destination) {
+    this(pattern, destination, List.of(), List.of(), false, false);
+  }
 
   /**
    * Create a new relocation.
    *
    * @param pattern the source pattern to relocate
    * @param destination the destination package
+   * @param includes the patterns of the classes to relocate, all if empty
+   * @param excludes the patterns of the classes not to relocate
+   * @param rawString whether the pattern is a regular expression applied to raw strings
+   * @param skipStringLiterals whether string literals are left unchanged
+   */
+  public Relocation(
+      @Nonnull String pattern,
+      @Nonnull String destination,
+      @Nonnull Iterable<String> includes,
+      @Nonnull Iterable<String> excludes,
+      boolean rawString,
+      boolean skipStringLiterals) {
+    this.pattern = pattern;
+    this.destination = destination;
+    this.includes = sorted(includes);
+    this.excludes = sorted(excludes);
+    this.rawString = rawString;
+    this.skipStringLiterals = skipStringLiterals;
+  }
+
+  /**
+   * Create a new relocation configured by an action on a Shadow relocator. The action is run on a
+   * Shadow relocator of the pattern, and only the includes and excludes it adds are kept.
+   *
+   * @param pattern the source pattern to relocate
+   * @param destination the destination package
    * @param configuration the configuration of the relocator
+   * @deprecated configure a {@link RelocationSpec} with {@link #of(String, String,
+   *     RelocationSpec)} instead, this constructor will be removed in the next release
    */
+  @Deprecated
   public Relocation(
       @Nonnull String pattern,
       @Nonnull String destination,
       @Nullable Action<SimpleRelocator> configuration) {
+    SimpleRelocator relocator = new SimpleRelocator(pattern, destination, List.of(), List.of());
+    if (configuration != null) {
+      configuration.execute(relocator);
+    }
     this.pattern = pattern;
     this.destination = destination;
-    this.configuration = configuration;
+    this.includes = sorted(classPatterns(relocator.getIncludes()));
+    this.excludes = sorted(classPatterns(relocator.getExcludes()));
+    this.rawString = false;
+    this.skipStringLiterals = false;
+  }
+
+  /**
+   * Create a new relocation from a specification.
+   *
+   * @param pattern the source pattern to relocate
+   * @param destination the destination package
+   * @param spec the specification of the relocation
+   * @return the relocation
+   */
+  @Nonnull
+  public static Relocation of(
+      @Nonnull String pattern, @Nonnull String destination, @Nonnull RelocationSpec spec) {
+    return new Relocation(
+        pattern,
+        destination,
+        spec.getIncludes(),
+        spec.getExcludes(),
+        spec.isRawString(),
+        spec.isSkipStringLiterals());
   }
 
   /**
@@ -56,6 +139,7 @@ public final class Relocation {
    *
    * @return the source pattern
    */
+  @Input
   @Nonnull
   public String getPattern() {
     return this.pattern;
@@ -66,19 +150,91 @@ public final class Relocation {
    *
    * @return the destination package
    */
+  @Input
   @Nonnull
   public String getDestination() {
     return this.destination;
   }
 
   /**
-   * Get the configuration of the relocator.
+   * Get the patterns of the classes to relocate, sorted. Every class matching the pattern is
+   * relocated if there are none.
+   *
+   * @return the include patterns
+   */
+  @Input
+  @Nonnull
+  public List<String> getIncludes() {
+    return this.includes;
+  }
+
+  /**
+   * Get the patterns of the classes not to relocate, sorted.
+   *
+   * @return the exclude patterns
+   */
+  @Input
+  @Nonnull
+  public List<String> getExcludes() {
+    return this.excludes;
+  }
+
+  /**
+   * Get whether the pattern is a regular expression applied to raw strings.
+   *
+   * @return whether the pattern is a raw string pattern
+   */
+  @Input
+  public boolean isRawString() {
+    return this.rawString;
+  }
+
+  /**
+   * Get whether string literals are left unchanged, only class references being relocated.
+   *
+   * @return whether string literals are skipped
+   */
+  @Input
+  public boolean isSkipStringLiterals() {
+    return this.skipStringLiterals;
+  }
+
+  /**
+   * Get the configuration of a Shadow relocator applying the includes and excludes of the
+   * relocation.
    *
    * @return the configuration
+   * @deprecated read the properties of the relocation instead, this method will be removed in the
+   *     next release
    */
-  @Nullable
+  @Deprecated
+  @Nonnull
   public Action<SimpleRelocator> getConfiguration() {
-    return this.configuration;
+    return relocator -> {
+      this.includes.forEach(relocator::include);
+      this.excludes.forEach(relocator::exclude);
+    };
+  }
+
+  /**
+   * Turns the patterns read back from a Shadow relocator, which stores them as paths, into patterns
+   * of class names again, so the relocation equals the one declared through a specification.
+   */
+  @Nonnull
+  private static List<String> classPatterns(@Nonnull Iterable<String> patterns) {
+    List<String> classPatterns = new ArrayList<>();
+    for (String pattern : patterns) {
+      // Regex and ant patterns are kept as written
+      classPatterns.add(pattern.startsWith("%") ? pattern : pattern.replace('/', '.'));
+    }
+    return classPatterns;
+  }
+
+  @Nonnull
+  private static List<String> sorted(@Nonnull Iterable<String> patterns) {
+    TreeSet<String> sorted = new TreeSet<>();
+    patterns.forEach(sorted::add);
+    return List.copyOf(sorted);
   }
 
   @Override
@@ -86,12 +242,37 @@ public final class Relocation {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     Relocation that = (Relocation) o;
-    return Objects.equals(this.pattern, that.pattern)
-        && Objects.equals(this.destination, that.destination);
+    return this.rawString == that.rawString
+        && this.skipStringLiterals == that.skipStringLiterals
+        && Objects.equals(this.pattern, that.pattern)
+        && Objects.equals(this.destination, that.destination)
+        && Objects.equals(this.includes, that.includes)
+        && Objects.equals(this.excludes, that.excludes);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(this.pattern, this.destination);
+    return Objects.hash(
+        this.pattern,
+        this.destination,
+        this.includes,
+        this.excludes,
+        this.rawString,
+        this.skipStringLiterals);
+  }
+
+  @Override
+  public String toString() {
+    return this.pattern
+        + " -> "
+        + this.destination
+        + " includes="
+        + this.includes
+        + " excludes="
+        + this.excludes
+        + " raw="
+        + this.rawString
+        + " skipStringLiterals="
+        + this.skipStringLiterals;
   }
 }
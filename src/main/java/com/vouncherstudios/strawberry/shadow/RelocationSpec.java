@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/**
+ * The specification of a {@link Relocation}, configured through {@code relocate} in the build
+ * script. Include and exclude patterns are globs of class names, such as {@code
+ * com.example.internal.*} or {@code com.example.**}, matched like the patterns of Shadow.
+ */
+public final class RelocationSpec {
+  private final List<String> includes = new ArrayList<>();
+  private final List<String> excludes = new ArrayList<>();
+  private boolean rawString;
+  private boolean skipStringLiterals;
+
+  /**
+   * Only relocate the classes matching any of the patterns.
+   *
+   * @param patterns the patterns of the classes to relocate
+   * @return this specification
+   */
+  @Nonnull
+  public RelocationSpec include(@Nonnull String... patterns) {
+    this.includes.addAll(Arrays.asList(patterns));
+    return this;
+  }
+
+  /**
+   * Never relocate the classes matching any of the patterns.
+   *
+   * @param patterns the patterns of the classes not to relocate
+   * @return this specification
+   */
+  @Nonnull
+  public RelocationSpec exclude(@Nonnull String... patterns) {
+    this.excludes.addAll(Arrays.asList(patterns));
+    return this;
+  }
+
+  /**
+   * Set whether the pattern is a regular expression applied to raw strings instead of a package.
+   *
+   * @param rawString whether the pattern is a raw string pattern
+   * @return this specification
+   */
+  @Nonnull
+  public RelocationSpec rawString(boolean rawString) {
+    this.rawString = rawString;
+    return this;
+  }
+
+  /**
+   * Set whether string literals are left unchanged, only class references being relocated. This
+   * keeps strings such as log messages or configuration keys which happen to look like a relocated
+   * name.
+   *
+   * @param skipStringLiterals whether string literals are skipped
+   * @return this specification
+   */
+  @Nonnull
+  public RelocationSpec skipStringLiterals(boolean skipStringLiterals) {
+    this.skipStringLiterals = skipStringLiterals;
+    return this;
+  }
+
+  @Nonnull
+  List<String> getIncludes() {
+    return this.includes;
+  }
+
+  @Nonnull
+  List<String> getExcludes() {
+    return this.excludes;
+  }
+
+  boolean isRawString() {
+    return this.rawString;
+  }
+
+  boolean isSkipStringLiterals() {
+    return this.skipStringLiterals;
+  }
+}
@@ -0,0 +1,626 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.Strawberry;
+import com.vouncherstudios.strawberry.gradle.utils.ResolutionUtils;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.library.task.SharedModulesTask;
+import com.vouncherstudios.strawberry.metrics.ConfigurationTrace;
+import com.vouncherstudios.strawberry.metrics.MetricsService;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGeneratorType;
+import com.vouncherstudios.strawberry.shadow.extension.ShadingExtension;
+import com.vouncherstudios.strawberry.shadow.nested.NestingConfigurer;
+import com.vouncherstudios.strawberry.shadow.pipeline.Minimization;
+import com.vouncherstudios.strawberry.shadow.pipeline.RetainOutputAction;
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingAction;
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingPipeline;
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingPoolService;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import com.vouncherstudios.strawberry.shadow.task.AutoRelocationTask;
+import com.vouncherstudios.strawberry.shadow.task.RelocationReportTask;
+import com.vouncherstudios.strawberry.shadow.transform.RelocationTransformConfigurer;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceTransformer;
+import com.vouncherstudios.strawberry.shadow.transformer.ServiceFileMerger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import net.kyori.mammoth.Properties;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.attributes.Bundling;
+import org.gradle.api.attributes.Category;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.ClasspathNormalizer;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+/**
+ * Configures the shadow jar of a project applying Strawberry: what it leaves out, the relocation
+ * tasks and whether Shadow or the Strawberry shading pipeline relocates it.
+ */
+public final class ShadingConfigurer {
+  // The server APIs, whose dependencies are provided by the server as well
+  private static final Set<String> SERVER_API_MODULES =
+      Set.of(
+          "io.papermc.paper:paper-api",
+          "com.destroystokyo.paper:paper-api",
+          "org.spigotmc:spigot-api",
+          "org.bukkit:bukkit",
+          "com.velocitypowered:velocity-api");
+
+  private ShadingConfigurer() {}
+
+  /**
+   * Configures every shadow jar task of the project, which the build task depends on, and the
+   * relocation tasks they use.
+   *
+   * @param project the project
+   * @param tasks the task container
+   * @param strawberry the strawberry extension
+   * @param paperLibraries the libraries downloaded by Paper, absent until Paper is configured
+   * @param sharedModules the modules shaded into the shared library plugin
+   * @param metrics the service recording the metrics of the shading pipeline
+   * @param trace the configuration trace
+   */
+  public static void configure(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull Provider<Configuration> paperLibraries,
+      @Nonnull FileCollection sharedModules,
+      @Nonnull Provider<MetricsService> metrics,
+      @Nonnull ConfigurationTrace trace) {
+    FileCollection serverApis = trace.measure("server APIs", () -> serverApis(project));
+    TaskProvider<RelocationReportTask> relocationReport =
+        trace.measure(
+            "relocation report", () -> configureRelocationReport(project, tasks, strawberry));
+    Predicate<String> leftOut = leftOutModules(paperLibraries, sharedModules);
+    TaskProvider<AutoRelocationTask> autoRelocation =
+        trace.measure(
+            "auto relocation",
+            () ->
+                configureAutoRelocation(
+                    project, tasks, strawberry, leftOut, paperLibraries, serverApis));
+
+    // Configure shadow
+    tasks
+        .withType(ShadowJar.class)
+        .configureEach(
+            trace.action(
+                "configure shadowJar",
+                shadowJar -> {
+                  configureShadowJar(
+                      project,
+                      shadowJar,
+                      strawberry,
+                      paperLibraries,
+                      serverApis,
+                      sharedModules,
+                      leftOut,
+                      relocationReport,
+                      autoRelocation,
+                      metrics);
+
+                  // Remove archive classifier from output jar
+                  shadowJar.getArchiveClassifier().set("");
+                }));
+    // Add shadowJar task as dependency on build task
+    tasks
+        .named("build", DefaultTask.class)
+        .configure(build -> build.dependsOn(tasks.named("shadowJar", ShadowJar.class)));
+    // Add shadowJar task as dependency on other projects shadowJar task
+    FileCollection shadedProjectDependencies =
+        trace.measure("shaded project dependencies", () -> shadedProjectDependencies(project));
+    tasks
+        .named("shadowJar", ShadowJar.class)
+        .configure(shadowJar -> shadowJar.dependsOn(shadedProjectDependencies));
+  }
+
+  /**
+   * Gets the shaded jars of the projects this project depends on. The shaded variants are selected
+   * through attributes, so the producing tasks are wired by Gradle when the task graph is built
+   * instead of by reaching into other projects while configuring this one.
+   *
+   * @param project the project
+   * @return the shaded jars of the depended projects
+   */
+  @Nonnull
+  private static FileCollection shadedProjectDependencies(@Nonnull Project project) {
+    ObjectFactory objects = project.getObjects();
+    ConfigurableFileCollection files = objects.fileCollection();
+    for (String name :
+        List.of(
+            JavaPlugin.COMPILE_CLASSPATH_CONFIGURATION_NAME,
+            JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME)) {
+      Configuration classpath = project.getConfigurations().getByName(name);
+      files.from(
+          classpath
+              .getIncoming()
+              .artifactView(
+                  view -> {
+                    view.withVariantReselection();
+                    // Projects without a shaded variant are simply not depended on
+                    view.lenient(true);
+                    view.componentFilter(id -> id instanceof ProjectComponentIdentifier);
+                    view.attributes(
+                        attributes -> {
+                          attributes.attribute(
+                              Usage.USAGE_ATTRIBUTE,
+                              objects.named(Usage.class, Usage.JAVA_RUNTIME));
+                          attributes.attribute(
+                              Category.CATEGORY_ATTRIBUTE,
+                              objects.named(Category.class, Category.LIBRARY));
+                          attributes.attribute(
+                              Bundling.BUNDLING_ATTRIBUTE,
+                              objects.named(Bundling.class, Bundling.SHADOWED));
+                        });
+                  })
+              .getFiles());
+    }
+    return files;
+  }
+
+  /**
+   * Configures how the shadow jar is relocated: by Shadow, or by the Strawberry shading pipeline
+   * once any of its features is enabled.
+   *
+   * @param project the project
+   * @param shadowJar the shadow jar task
+   * @param strawberry the strawberry extension
+   * @param paperLibraries the libraries downloaded by Paper, absent until Paper is configured
+   * @param serverApis the server API jars
+   * @param sharedModules the modules shaded into the shared library plugin
+   * @param leftOut the modules left out of the jar
+   * @param relocationReport the relocation report, finding the relocations to prune
+   * @param autoRelocation the automatic relocation task, computing the relocations to add
+   * @param metrics the service recording the metrics of the shading pipeline
+   */
+  private static void configureShadowJar(
+      @Nonnull Project project,
+      @Nonnull ShadowJar shadowJar,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull Provider<Configuration> paperLibraries,
+      @Nonnull FileCollection serverApis,
+      @Nonnull FileCollection sharedModules,
+      @Nonnull Predicate<String> leftOut,
+      @Nonnull TaskProvider<RelocationReportTask> relocationReport,
+      @Nonnull TaskProvider<AutoRelocationTask> autoRelocation,
+      @Nonnull Provider<MetricsService> metrics) {
+    shadowJar.dependencies(
+        filter ->
+            filter.exclude(
+                dependency ->
+                    leftOut.test(dependency.getModuleGroup() + ':' + dependency.getModuleName())));
+    // The shared library plugin holds the modules shared with sibling projects
+    shadowJar
+        .getInputs()
+        .files(sharedModules)
+        .withPropertyName("strawberrySharedModules")
+        .withPathSensitivity(PathSensitivity.NONE);
+
+    // Add relocations, compiled into a single relocator
+    SetProperty<Relocation> relocationsProp = Properties.finalized(strawberry.relocations());
+    Set<Relocation> relocations = relocationsProp.get();
+    ShadingExtension shading = strawberry.shading();
+    boolean parallel = Properties.finalized(shading.parallel()).get();
+    boolean incremental = Properties.finalized(shading.incremental()).get();
+    CompressionProfile compression = Properties.finalized(shading.compression()).get();
+    boolean minimize = Properties.finalized(shading.minimize()).get();
+    ServerProvidedPolicy serverProvided = Properties.finalized(shading.serverProvided()).get();
+    DuplicateClassPolicy duplicateClasses =
+        Properties.finalized(shading.duplicateClasses()).get();
+    List<ResourceTransformer> transformers = new ArrayList<>();
+    if (Properties.finalized(shading.mergeServiceFiles()).get()) {
+      transformers.add(new ServiceFileMerger());
+    }
+    transformers.addAll(Properties.finalized(shading.transformers()).get());
+    boolean autoRelocate = Properties.finalized(strawberry.autoRelocate()).isPresent();
+    boolean prune =
+        !relocations.isEmpty()
+            && Properties.finalized(shading.unusedRelocations()).get()
+                == UnusedRelocationPolicy.PRUNE;
+    // Paper downloads no library until it is configured
+    Configuration libraryConfiguration = paperLibraries.getOrNull();
+    FileCollection libraryJars =
+        libraryConfiguration != null ? libraryConfiguration : project.files();
+    // The references to the library classes must not be relocated
+    boolean libraries =
+        (!relocations.isEmpty() || autoRelocate)
+            && libraryConfiguration != null
+            && !libraryConfiguration.getAllDependencies().isEmpty();
+    if (Properties.finalized(shading.packaging()).get() == Packaging.NESTED) {
+      boolean relocating = !relocations.isEmpty() || autoRelocate;
+      NestingConfigurer.configure(project, shadowJar, strawberry, relocating, compression, leftOut);
+      return;
+    }
+    boolean cacheDependencies =
+        !relocations.isEmpty() && Properties.finalized(shading.cacheDependencies()).get();
+    if (cacheDependencies && !RelocationTransformConfigurer.isTransformable(relocations)) {
+      project
+          .getLogger()
+          .warn(
+              "Strawberry can't cache the relocated dependencies of {}, a relocation matches raw"
+                  + " strings or is relocated again by another one",
+              project.getPath());
+      cacheDependencies = false;
+    }
+
+    // Shadow relocates every string literal, only the shading pipeline can skip them
+    boolean skipStringLiterals = relocations.stream().anyMatch(Relocation::isSkipStringLiterals);
+    if (!parallel
+        && !skipStringLiterals
+        && !prune
+        && !autoRelocate
+        && !incremental
+        && !cacheDependencies
+        && !minimize
+        && !libraries
+        && serverProvided == ServerProvidedPolicy.IGNORE
+        && duplicateClasses == DuplicateClassPolicy.IGNORE
+        && transformers.isEmpty()
+        && compression != CompressionProfile.RELEASE) {
+      if (!relocations.isEmpty()) {
+        shadowJar.relocate(new TrieRelocator(relocations));
+      }
+      // Shadow stores the entries on its own
+      if (compression == CompressionProfile.DEV) {
+        shadowJar.setEntryCompression(ZipEntryCompression.STORED);
+      }
+      return;
+    }
+
+    if (cacheDependencies) {
+      // Merge the already relocated dependencies instead of the original ones
+      Configuration relocatedClasspath =
+          RelocationTransformConfigurer.configure(project, strawberry);
+      List<FileCollection> configurations = new ArrayList<>();
+      for (FileCollection configuration : shadowJar.getConfigurations()) {
+        configurations.add(
+            configuration == ResolutionUtils.runtimeClasspath(project)
+                ? relocatedClasspath
+                : configuration);
+      }
+      shadowJar.setConfigurations(configurations);
+    }
+
+    File stateDirectory =
+        incremental
+            ? project
+                .getLayout()
+                .getBuildDirectory()
+                .dir(Strawberry.EXTENSION_NAME + "/shading/" + shadowJar.getName())
+                .get()
+                .getAsFile()
+            : null;
+    Minimization minimization = minimize ? minimization(strawberry) : null;
+    TrieRelocator relocator = new TrieRelocator(relocations);
+    ShadingPipeline pipeline =
+        new ShadingPipeline(
+                relocator,
+                parallel,
+                stateDirectory,
+                compression,
+                minimization,
+                serverProvided,
+                duplicateClasses)
+            .withTransformers(transformers);
+
+    // Shadow only merges the jar, the shading pipeline relocates and compresses it
+    shadowJar.setEntryCompression(ZipEntryCompression.STORED);
+    shadowJar.getInputs().property("strawberryRelocations", relocator.fingerprint());
+    shadowJar.getInputs().property("strawberryCompression", compression);
+    if (minimization != null) {
+      shadowJar.getInputs().property("strawberryMinimization", minimization.fingerprint());
+    }
+    shadowJar
+        .getInputs()
+        .files(libraryJars)
+        .withPropertyName("strawberryPaperLibraries")
+        .withNormalizer(ClasspathNormalizer.class);
+    shadowJar.getInputs().property("strawberryServerProvided", serverProvided);
+    shadowJar.getInputs().property("strawberryDuplicateClasses", duplicateClasses);
+    shadowJar
+        .getInputs()
+        .property("strawberryTransformers", pipeline.getTransformerFingerprints());
+    if (serverProvided != ServerProvidedPolicy.IGNORE) {
+      shadowJar
+          .getInputs()
+          .files(serverApis)
+          .withPropertyName("strawberryServerApis")
+          .withNormalizer(ClasspathNormalizer.class);
+    }
+    if (incremental) {
+      // The previous output and its index, removed by Gradle when the jar comes from the cache
+      shadowJar.getLocalState().register(stateDirectory);
+      shadowJar.doFirst(new RetainOutputAction(pipeline));
+    }
+    Provider<RegularFile> usageFile = null;
+    if (prune) {
+      usageFile = relocationReport.flatMap(RelocationReportTask::getUsageFile);
+      shadowJar
+          .getInputs()
+          .file(usageFile)
+          .withPropertyName("strawberryRelocationUsage")
+          .withPathSensitivity(PathSensitivity.NONE);
+    }
+    Provider<RegularFile> autoRelocations = null;
+    if (autoRelocate) {
+      autoRelocations = autoRelocation.flatMap(AutoRelocationTask::getOutputFile);
+      shadowJar
+          .getInputs()
+          .file(autoRelocations)
+          .withPropertyName("strawberryAutoRelocations")
+          .withPathSensitivity(PathSensitivity.NONE);
+    }
+    Provider<ShadingPoolService> pool = ShadingPoolService.register(project);
+    shadowJar.usesService(metrics);
+    shadowJar.usesService(pool);
+    shadowJar.doLast(
+        new ShadingAction(
+            pipeline, usageFile, autoRelocations, libraryJars, serverApis, metrics, pool));
+  }
+
+  /**
+   * Gets the roots of the minimization: the main classes of the plugin descriptions and the keep
+   * rules.
+   *
+   * @param strawberry the strawberry extension
+   * @return the minimization
+   */
+  @Nonnull
+  private static Minimization minimization(@Nonnull StrawberryExtensionImpl strawberry) {
+    Set<String> entryPoints = new LinkedHashSet<>();
+    if (DescriptionGeneratorType.PAPER.isAvailable(strawberry)) {
+      entryPoints.add(strawberry.minecraft().plugin().paper().main().get());
+    }
+    if (DescriptionGeneratorType.VELOCITY.isAvailable(strawberry)) {
+      entryPoints.add(strawberry.minecraft().plugin().velocity().main().get());
+    }
+    return new Minimization(
+        entryPoints, Properties.finalized(strawberry.shading().keep()).get());
+  }
+
+  /**
+   * Gets the server API jars on the compile classpath, with the libraries they depend on. The
+   * server provides them at runtime.
+   *
+   * @param project the project
+   * @return the server API jars
+   */
+  @Nonnull
+  private static FileCollection serverApis(@Nonnull Project project) {
+    Configuration compileClasspath =
+        project.getConfigurations().getByName(JavaPlugin.COMPILE_CLASSPATH_CONFIGURATION_NAME);
+    Provider<Set<ComponentIdentifier>> serverComponents =
+        compileClasspath
+            .getIncoming()
+            .getResolutionResult()
+            .getRootComponent()
+            .map(ShadingConfigurer::serverComponents);
+    return compileClasspath
+        .getIncoming()
+        .artifactView(view -> view.componentFilter(id -> serverComponents.get().contains(id)))
+        .getFiles();
+  }
+
+  @Nonnull
+  private static Set<ComponentIdentifier> serverComponents(@Nonnull ResolvedComponentResult root) {
+    List<ResolvedComponentResult> serverApis = new ArrayList<>();
+    for (ResolvedComponentResult component : ResolutionUtils.reachableComponents(List.of(root))) {
+      ModuleVersionIdentifier module = component.getModuleVersion();
+      if (module != null
+          && SERVER_API_MODULES.contains(module.getGroup() + ':' + module.getName())) {
+        serverApis.add(component);
+      }
+    }
+
+    Set<ComponentIdentifier> components = new HashSet<>();
+    for (ResolvedComponentResult component : ResolutionUtils.reachableComponents(serverApis)) {
+      components.add(component.getId());
+    }
+    return components;
+  }
+
+  /**
+   * Gets the modules left out of the jar. Paper downloads the libraries, so they are left out
+   * along with their dependencies, and the shared library plugin holds the modules shared with
+   * sibling projects.
+   *
+   * @param paperLibraries the libraries downloaded by Paper, absent until Paper is configured
+   * @param sharedModules the modules shaded into the shared library plugin
+   * @return whether a module, as group and name separated by a colon, is left out
+   */
+  @Nonnull
+  private static Predicate<String> leftOutModules(
+      @Nonnull Provider<Configuration> paperLibraries, @Nonnull FileCollection sharedModules) {
+    Provider<Set<String>> libraryModules =
+        paperLibraries
+            .flatMap(
+                configuration ->
+                    configuration.getIncoming().getResolutionResult().getRootComponent())
+            .map(ShadingConfigurer::dependencyModules)
+            .orElse(Set.of());
+    return module ->
+        libraryModules.get().contains(module)
+            || (!sharedModules.isEmpty()
+                && SharedModulesTask.readModules(sharedModules.getSingleFile()).contains(module));
+  }
+
+  /**
+   * Gets the modules a component depends on, directly or transitively.
+   *
+   * @param root the component
+   * @return the modules, as group and name separated by a colon
+   */
+  @Nonnull
+  private static Set<String> dependencyModules(@Nonnull ResolvedComponentResult root) {
+    Set<String> modules = new HashSet<>();
+    for (ResolvedComponentResult component : ResolutionUtils.reachableComponents(List.of(root))) {
+      ModuleVersionIdentifier module = component.getModuleVersion();
+      if (component != root && module != null) {
+        modules.add(module.getGroup() + ':' + module.getName());
+      }
+    }
+    return modules;
+  }
+
+  /**
+   * Registers the relocation report, reporting what each relocation rewrites in the runtime
+   * classpath. The check task depends on it when unused relocations fail the build.
+   *
+   * @param project the project
+   * @param tasks the task container
+   * @param strawberry the strawberry extension
+   * @return the relocation report task
+   */
+  @Nonnull
+  private static TaskProvider<RelocationReportTask> configureRelocationReport(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry) {
+    Provider<UnusedRelocationPolicy> policy = strawberry.shading().unusedRelocations();
+    TaskProvider<RelocationReportTask> relocationReport =
+        tasks.register(
+            "strawberryRelocationReport",
+            RelocationReportTask.class,
+            task -> {
+              task.setDescription("Report what each relocation rewrites in the runtime classpath.");
+              task.getRelocations().set(strawberry.relocations().map(ArrayList::new));
+              task.getClasspath()
+                  .from(
+                      project
+                          .getExtensions()
+                          .getByType(SourceSetContainer.class)
+                          .named(SourceSet.MAIN_SOURCE_SET_NAME)
+                          .map(SourceSet::getOutput),
+                      ResolutionUtils.runtimeClasspath(project));
+              task.getPolicy().set(policy);
+              task.getIndexDirectory().set(packageIndexDirectory(project, task.getName()));
+              Provider<Directory> reports =
+                  project
+                      .getLayout()
+                      .getBuildDirectory()
+                      .dir("reports/" + Strawberry.EXTENSION_NAME);
+              task.getReportFile().set(reports.map(directory -> directory.file("relocations.txt")));
+              task.getUsageFile().set(reports.map(directory -> directory.file("relocations.json")));
+            });
+    tasks
+        .named("check")
+        .configure(
+            check ->
+                check.dependsOn(
+                    policy.map(
+                        value ->
+                            value == UnusedRelocationPolicy.FAIL
+                                ? List.of(relocationReport)
+                                : List.of())));
+    return relocationReport;
+  }
+
+  /**
+   * Registers the automatic relocation task, computing the relocations of every shaded package
+   * under the {@code autoRelocate} prefix.
+   *
+   * @param project the project
+   * @param tasks the task container
+   * @param strawberry the strawberry extension
+   * @param leftOut the modules left out of the jar
+   * @param paperLibraries the libraries downloaded by Paper, absent until Paper is configured
+   * @param serverApis the server API jars
+   * @return the automatic relocation task
+   */
+  @Nonnull
+  private static TaskProvider<AutoRelocationTask> configureAutoRelocation(
+      @Nonnull Project project,
+      @Nonnull TaskContainer tasks,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      @Nonnull Predicate<String> leftOut,
+      @Nonnull Provider<Configuration> paperLibraries,
+      @Nonnull FileCollection serverApis) {
+    return tasks.register(
+        "strawberryAutoRelocations",
+        AutoRelocationTask.class,
+        task -> {
+          task.setDescription("Compute the relocations of every shaded third-party package.");
+          task.getPrefix().set(strawberry.autoRelocate());
+          task.getDeclaredRelocations().set(strawberry.relocations().map(ArrayList::new));
+          task.getShadedClasspath().from(ResolutionUtils.runtimeJars(project, leftOut, true));
+          task.getProvidedClasspath()
+              .from(
+                  project
+                      .getExtensions()
+                      .getByType(SourceSetContainer.class)
+                      .named(SourceSet.MAIN_SOURCE_SET_NAME)
+                      .map(SourceSet::getOutput),
+                  ResolutionUtils.runtimeJars(project, leftOut, false),
+                  serverApis);
+          Configuration libraries = paperLibraries.getOrNull();
+          if (libraries != null) {
+            task.getProvidedClasspath().from(libraries);
+          }
+          task.getIndexDirectory().set(packageIndexDirectory(project, task.getName()));
+          task.getOutputFile()
+              .set(
+                  project
+                      .getLayout()
+                      .getBuildDirectory()
+                      .file(Strawberry.EXTENSION_NAME + "/auto-relocations.json"));
+        });
+  }
+
+  @Nonnull
+  private static Provider<Directory> packageIndexDirectory(
+      @Nonnull Project project, @Nonnull String taskName) {
+    // Owned by a single task, so tasks running in parallel never write into each other's state
+    return project
+        .getLayout()
+        .getBuildDirectory()
+        .dir(Strawberry.EXTENSION_NAME + "/package-index/" + taskName);
+  }
+}
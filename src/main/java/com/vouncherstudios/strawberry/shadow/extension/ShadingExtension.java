@@ -0,0 +1,352 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.extension;
+
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Packaging;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.UnusedRelocationPolicy;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceTransformer;
+import java.util.Locale;
+import javax.annotation.Nonnull;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+
+/** A shading configurable interface. */
+public interface ShadingExtension {
+  /**
+   * Whether the shaded classes should be remapped by Strawberry across all available cores, instead
+   * of sequentially by Shadow. The output jar is identical either way. Disabled by default.
+   *
+   * @return a property providing whether the classes are remapped in parallel
+   */
+  @Nonnull
+  Property<Boolean> parallel();
+
+  /**
+   * Sets whether the shaded classes should be remapped in parallel.
+   *
+   * @param parallel whether the classes are remapped in parallel
+   */
+  default void parallel(boolean parallel) {
+    parallel().set(parallel);
+  }
+
+  /**
+   * Whether the dependency jars should be relocated by a cacheable artifact transform, once per
+   * machine or remote build cache, instead of on every shadowJar run. It is only applied when no
+   * relocation is configured by an action and no destination lies inside another pattern. Disabled
+   * by default.
+   *
+   * @return a property providing whether the relocated dependencies are cached
+   */
+  @Nonnull
+  Property<Boolean> cacheDependencies();
+
+  /**
+   * Sets whether the dependency jars should be relocated by a cacheable artifact transform.
+   *
+   * @param cacheDependencies whether the relocated dependencies are cached
+   */
+  default void cacheDependencies(boolean cacheDependencies) {
+    cacheDependencies().set(cacheDependencies);
+  }
+
+  /**
+   * Whether the shading should be incremental. The previous output is kept along with the content
+   * hash of every entry, and only the changed entries are remapped and compressed again, the others
+   * being copied from the previous output. Disabled by default.
+   *
+   * @return a property providing whether the shading is incremental
+   */
+  @Nonnull
+  Property<Boolean> incremental();
+
+  /**
+   * Sets whether the shading should be incremental.
+   *
+   * @param incremental whether the shading is incremental
+   */
+  default void incremental(boolean incremental) {
+    incremental().set(incremental);
+  }
+
+  /**
+   * Whether the classes of the shaded dependencies which the plugin can't reach should be removed.
+   * The classes are reached from the project classes, the Paper and Velocity main classes, the
+   * service providers and the {@link #keep() keep rules}, by following the references of their
+   * constant pools. Disabled by default.
+   *
+   * @return a property providing whether the shaded dependencies are minimized
+   */
+  @Nonnull
+  Property<Boolean> minimize();
+
+  /**
+   * Sets whether the classes of the shaded dependencies which the plugin can't reach should be
+   * removed.
+   *
+   * @param minimize whether the shaded dependencies are minimized
+   */
+  default void minimize(boolean minimize) {
+    minimize().set(minimize);
+  }
+
+  /**
+   * The rules of the dependency classes kept by the minimization, such as the ones only loaded
+   * through reflection with a computed name. A rule is a class name, a package followed by {@code
+   * .*} or a package followed by {@code .**} to include its subpackages.
+   *
+   * @return a property providing the keep rules
+   */
+  @Nonnull
+  SetProperty<String> keep();
+
+  /**
+   * Adds rules of dependency classes kept by the minimization.
+   *
+   * @param rules the keep rules
+   */
+  default void keep(@Nonnull String... rules) {
+    for (String rule : rules) {
+      keep().add(rule);
+    }
+  }
+
+  /**
+   * What to do with the shaded dependencies whose classes the server already provides, such as
+   * Adventure, Gson or Guava. The packages are read from the {@code compileOnly} server API, like
+   * paper-api or velocity-api, along with the libraries it depends on. Defaults to {@link
+   * ServerProvidedPolicy#IGNORE}.
+   *
+   * @return a property providing the server provided dependencies policy
+   */
+  @Nonnull
+  Property<ServerProvidedPolicy> serverProvided();
+
+  /**
+   * Sets what to do with the shaded dependencies whose classes the server already provides.
+   *
+   * @param policy the server provided dependencies policy
+   */
+  default void serverProvided(@Nonnull ServerProvidedPolicy policy) {
+    serverProvided().set(policy);
+  }
+
+  /**
+   * Sets what to do with the shaded dependencies whose classes the server already provides by
+   * name, such as {@code "warn"} or {@code "exclude"}.
+   *
+   * @param policy the server provided dependencies policy name
+   */
+  default void serverProvided(@Nonnull String policy) {
+    serverProvided(ServerProvidedPolicy.valueOf(policy.toUpperCase(Locale.ROOT)));
+  }
+
+  /**
+   * What to do with the classes shipped by more than one shaded dependency, such as two versions of
+   * Netty. Byte-identical copies are kept once without being reported. Defaults to {@link
+   * DuplicateClassPolicy#IGNORE}.
+   *
+   * @return a property providing the duplicate classes policy
+   */
+  @Nonnull
+  Property<DuplicateClassPolicy> duplicateClasses();
+
+  /**
+   * Sets what to do with the classes shipped by more than one shaded dependency.
+   *
+   * @param policy the duplicate classes policy
+   */
+  default void duplicateClasses(@Nonnull DuplicateClassPolicy policy) {
+    duplicateClasses().set(policy);
+  }
+
+  /**
+   * Sets what to do with the classes shipped by more than one shaded dependency by name, such as
+   * {@code "warn"} or {@code "fail"}.
+   *
+   * @param policy the duplicate classes policy name
+   */
+  default void duplicateClasses(@Nonnull String policy) {
+    duplicateClasses(DuplicateClassPolicy.valueOf(policy.toUpperCase(Locale.ROOT)));
+  }
+
+  /**
+   * What to do with the relocations which rewrite nothing in the runtime classpath, either because
+   * they match nothing or because a relocation declared before them rewrites everything they match.
+   * They are found by the {@code strawberryRelocationReport} task. Defaults to {@link
+   * UnusedRelocationPolicy#WARN}.
+   *
+   * @return a property providing the unused relocations policy
+   */
+  @Nonnull
+  Property<UnusedRelocationPolicy> unusedRelocations();
+
+  /**
+   * Sets what to do with the relocations which rewrite nothing in the runtime classpath.
+   *
+   * @param policy the unused relocations policy
+   */
+  default void unusedRelocations(@Nonnull UnusedRelocationPolicy policy) {
+    unusedRelocations().set(policy);
+  }
+
+  /**
+   * Sets what to do with the relocations which rewrite nothing in the runtime classpath by name,
+   * such as {@code "fail"} or {@code "prune"}.
+   *
+   * @param policy the unused relocations policy name
+   */
+  default void unusedRelocations(@Nonnull String policy) {
+    unusedRelocations(UnusedRelocationPolicy.valueOf(policy.toUpperCase(Locale.ROOT)));
+  }
+
+  /**
+   * How the dependencies are packaged into the jar. With {@link Packaging#NESTED nested}
+   * packaging, the dependency jars are embedded unmodified and the generated plugin descriptions
+   * name a bootstrap main class loading them, along with the project classes, through an isolated
+   * class loader. The relocations and the other shading features are not applied then. Defaults to
+   * {@link Packaging#RELOCATE}.
+   *
+   * @return a property providing the packaging
+   */
+  @Nonnull
+  Property<Packaging> packaging();
+
+  /**
+   * Sets how the dependencies are packaged into the jar.
+   *
+   * @param packaging the packaging
+   */
+  default void packaging(@Nonnull Packaging packaging) {
+    packaging().set(packaging);
+  }
+
+  /**
+   * Sets how the dependencies are packaged into the jar by name, such as {@code "nested"}.
+   *
+   * @param packaging the packaging name
+   */
+  default void packaging(@Nonnull String packaging) {
+    packaging(Packaging.valueOf(packaging.toUpperCase(Locale.ROOT)));
+  }
+
+  /**
+   * The name of the library plugin the dependencies shared with sibling projects are moved into.
+   * The external runtime dependencies of at least two projects naming the same library plugin are
+   * left out of their jars, and shaded once into a generated plugin, relocated like the projects
+   * relocate them, which every project then depends on. Absent by default, so every dependency is
+   * shaded into the project jar.
+   *
+   * @return a property providing the name of the shared library plugin
+   */
+  @Nonnull
+  Property<String> sharedLibrary();
+
+  /**
+   * Sets the name of the library plugin the dependencies shared with sibling projects are moved
+   * into.
+   *
+   * @param name the name of the shared library plugin
+   */
+  default void sharedLibrary(@Nonnull String name) {
+    sharedLibrary().set(name);
+  }
+
+  /**
+   * Whether the {@code META-INF/services} files shipped by several dependencies should be merged.
+   * Shadow only keeps the first copy of a file, the providers of the others are appended to it.
+   * Disabled by default.
+   *
+   * @return a property providing whether the service files are merged
+   */
+  @Nonnull
+  Property<Boolean> mergeServiceFiles();
+
+  /**
+   * Sets whether the {@code META-INF/services} files shipped by several dependencies should be
+   * merged.
+   *
+   * @param merge whether the service files are merged
+   */
+  default void mergeServiceFiles(boolean merge) {
+    mergeServiceFiles().set(merge);
+  }
+
+  /**
+   * The custom transformers of the resources of the shaded jar. They run in the same pass as the
+   * relocation of the classes, before the built-in transformers relocating the service files, the
+   * Kotlin module metadata and the plugin descriptors.
+   *
+   * @return a property providing the resource transformers
+   */
+  @Nonnull
+  ListProperty<ResourceTransformer> transformers();
+
+  /**
+   * Adds custom transformers of the resources of the shaded jar.
+   *
+   * @param transformers the resource transformers, in the order they run
+   */
+  default void transformer(@Nonnull ResourceTransformer... transformers) {
+    for (ResourceTransformer transformer : transformers) {
+      transformers().add(transformer);
+    }
+  }
+
+  /**
+   * The compression profile of the shaded jar. The {@link CompressionProfile#DEV dev} profile
+   * stores the entries uncompressed, while the {@link CompressionProfile#RELEASE release} profile
+   * deflates them at the maximum level, splitting the large entries into chunks compressed across
+   * all available cores. Entries copied as they are from the dependency jars keep their
+   * compression, except with the release profile. Defaults to {@link CompressionProfile#DEFAULT}.
+   *
+   * @return a property providing the compression profile
+   */
+  @Nonnull
+  Property<CompressionProfile> compression();
+
+  /**
+   * Sets the compression profile of the shaded jar.
+   *
+   * @param profile the compression profile
+   */
+  default void compression(@Nonnull CompressionProfile profile) {
+    compression().set(profile);
+  }
+
+  /**
+   * Sets the compression profile of the shaded jar by name, such as {@code "dev"} or {@code
+   * "release"}.
+   *
+   * @param profile the compression profile name
+   */
+  default void compression(@Nonnull String profile) {
+    compression(CompressionProfile.valueOf(profile.toUpperCase(Locale.ROOT)));
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.nested;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+/**
+ * Generates the bootstrap main classes of a plugin packaged with nested jars. A bootstrap is loaded
+ * by the platform in place of the plugin main class, creates a {@link NestedJarClassLoader} and
+ * hands the plugin lifecycle over to the main class it loads.
+ *
+ * <p>The Paper bootstrap extends {@code JavaPlugin} and calls the {@code onLoad}, {@code onEnable}
+ * and {@code onDisable} methods of the main class, which receives the bootstrap through its
+ * constructor. The Velocity bootstrap waits for the proxy to initialize, when the plugin is loaded,
+ * then creates the main class through the Guice injector of the plugin, registers it as an event
+ * listener and hands it the initialization event.
+ */
+public final class NestedBootstrap {
+  private static final String PACKAGE = "strawberry";
+  private static final String LOADER = NestedJarClassLoader.class.getName().replace('.', '/');
+  private static final String PAPER_PLUGIN = "org/bukkit/plugin/java/JavaPlugin";
+  private static final String GUICE_INJECT = "Lcom/google/inject/Inject;";
+  private static final String GUICE_INJECTOR = "Lcom/google/inject/Injector;";
+  private static final String VELOCITY_SUBSCRIBE = "Lcom/velocitypowered/api/event/Subscribe;";
+  private static final String VELOCITY_DATA_DIRECTORY =
+      "Lcom/velocitypowered/api/plugin/annotation/DataDirectory;";
+  private static final String VELOCITY_INITIALIZE_EVENT =
+      "Lcom/velocitypowered/api/event/proxy/ProxyInitializeEvent;";
+  private static final String PATH = "Ljava/nio/file/Path;";
+  private static final String PLUGIN_FIELD = "plugin";
+  private static final String INJECTOR_FIELD = "injector";
+  private static final String DATA_DIRECTORY_FIELD = "dataDirectory";
+  private static final String OBJECT = "java/lang/Object";
+  private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+  private NestedBootstrap() {}
+
+  /**
+   * Gets the bootstrap main class of a Paper plugin.
+   *
+   * @param mainClass the plugin main class name
+   * @return the bootstrap class name
+   */
+  @Nonnull
+  public static String paperBootstrap(@Nonnull String mainClass) {
+    return packageOf(mainClass) + "PaperBootstrap";
+  }
+
+  /**
+   * Gets the bootstrap main class of a Velocity plugin.
+   *
+   * @param mainClass the plugin main class name
+   * @return the bootstrap class name
+   */
+  @Nonnull
+  public static String velocityBootstrap(@Nonnull String mainClass) {
+    return packageOf(mainClass) + "VelocityBootstrap";
+  }
+
+  /**
+   * Generates the bootstrap classes, along with the class loader renamed into their package.
+   *
+   * @param paperMain the Paper plugin main class name, or {@code null} if there is none
+   * @param velocityMain the Velocity plugin main class name, or {@code null} if there is none
+   * @return the class files, by entry name
+   * @throws IOException if the class loader can't be read
+   */
+  @Nonnull
+  public static Map<String, byte[]> generate(
+      @Nullable String paperMain, @Nullable String velocityMain) throws IOException {
+    Map<String, byte[]> classes = new LinkedHashMap<>();
+    if (paperMain != null) {
+      String bootstrap = paperBootstrap(paperMain).replace('.', '/');
+      String loader = loaderOf(bootstrap);
+      classes.put(bootstrap + ".class", paperClass(bootstrap, loader, paperMain));
+      classes.put(loader + ".class", loaderClass(loader));
+    }
+    if (velocityMain != null) {
+      String bootstrap = velocityBootstrap(velocityMain).replace('.', '/');
+      String loader = loaderOf(bootstrap);
+      classes.put(bootstrap + ".class", velocityClass(bootstrap, loader, velocityMain));
+      classes.put(loader + ".class", loaderClass(loader));
+    }
+    return classes;
+  }
+
+  @Nonnull
+  private static byte[] paperClass(
+      @Nonnull String bootstrap, @Nonnull String loader, @Nonnull String mainClass) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        bootstrap,
+        null,
+        PAPER_PLUGIN,
+        null);
+    writer.visitField(Opcodes.ACC_PRIVATE, PLUGIN_FIELD, OBJECT_DESCRIPTOR, null, null).visitEnd();
+
+    MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    constructor.visitCode();
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, PAPER_PLUGIN, "<init>", "()V", false);
+    constructor.visitInsn(Opcodes.RETURN);
+    constructor.visitMaxs(0, 0);
+    constructor.visitEnd();
+
+    // The main class is created once the plugin is loaded, when the data folder is known
+    MethodVisitor onLoad = writer.visitMethod(Opcodes.ACC_PUBLIC, "onLoad", "()V", null, null);
+    onLoad.visitCode();
+    onLoad.visitVarInsn(Opcodes.ALOAD, 0);
+    onLoad.visitVarInsn(Opcodes.ALOAD, 0);
+    onLoad.visitLdcInsn(mainClass);
+    onLoad.visitMethodInsn(
+        Opcodes.INVOKESTATIC,
+        loader,
+        "create",
+        "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;",
+        false);
+    onLoad.visitFieldInsn(Opcodes.PUTFIELD, bootstrap, PLUGIN_FIELD, OBJECT_DESCRIPTOR);
+    visitCall(onLoad, bootstrap, loader, "onLoad");
+    onLoad.visitInsn(Opcodes.RETURN);
+    onLoad.visitMaxs(0, 0);
+    onLoad.visitEnd();
+
+    for (String name : new String[] {"onEnable", "onDisable"}) {
+      MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, name, "()V", null, null);
+      method.visitCode();
+      visitCall(method, bootstrap, loader, name);
+      method.visitInsn(Opcodes.RETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static byte[] velocityClass(
+      @Nonnull String bootstrap, @Nonnull String loader, @Nonnull String mainClass) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        bootstrap,
+        null,
+        OBJECT,
+        null);
+    int finalField = Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL;
+    writer.visitField(finalField, INJECTOR_FIELD, GUICE_INJECTOR, null, null).visitEnd();
+    writer.visitField(finalField, DATA_DIRECTORY_FIELD, PATH, null, null).visitEnd();
+    writer.visitField(Opcodes.ACC_PRIVATE, PLUGIN_FIELD, OBJECT_DESCRIPTOR, null, null).visitEnd();
+
+    MethodVisitor constructor =
+        writer.visitMethod(
+            Opcodes.ACC_PUBLIC, "<init>", "(" + GUICE_INJECTOR + PATH + ")V", null, null);
+    constructor.visitAnnotation(GUICE_INJECT, true).visitEnd();
+    constructor.visitAnnotableParameterCount(2, true);
+    constructor.visitParameterAnnotation(1, VELOCITY_DATA_DIRECTORY, true).visitEnd();
+    constructor.visitCode();
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitVarInsn(Opcodes.ALOAD, 1);
+    constructor.visitFieldInsn(Opcodes.PUTFIELD, bootstrap, INJECTOR_FIELD, GUICE_INJECTOR);
+    constructor.visitVarInsn(Opcodes.ALOAD, 0);
+    constructor.visitVarInsn(Opcodes.ALOAD, 2);
+    constructor.visitFieldInsn(Opcodes.PUTFIELD, bootstrap, DATA_DIRECTORY_FIELD, PATH);
+    constructor.visitInsn(Opcodes.RETURN);
+    constructor.visitMaxs(0, 0);
+    constructor.visitEnd();
+
+    // The plugin is only registered once the constructor returns, so the main class is created
+    // when the proxy initializes
+    MethodVisitor initialize =
+        writer.visitMethod(
+            Opcodes.ACC_PUBLIC,
+            "onProxyInitialization",
+            "(" + VELOCITY_INITIALIZE_EVENT + ")V",
+            null,
+            null);
+    initialize.visitAnnotation(VELOCITY_SUBSCRIBE, true).visitEnd();
+    initialize.visitCode();
+    initialize.visitVarInsn(Opcodes.ALOAD, 0);
+    initialize.visitVarInsn(Opcodes.ALOAD, 0);
+    initialize.visitVarInsn(Opcodes.ALOAD, 0);
+    initialize.visitFieldInsn(Opcodes.GETFIELD, bootstrap, INJECTOR_FIELD, GUICE_INJECTOR);
+    initialize.visitVarInsn(Opcodes.ALOAD, 0);
+    initialize.visitFieldInsn(Opcodes.GETFIELD, bootstrap, DATA_DIRECTORY_FIELD, PATH);
+    initialize.visitLdcInsn(mainClass);
+    initialize.visitVarInsn(Opcodes.ALOAD, 1);
+    initialize.visitMethodInsn(
+        Opcodes.INVOKESTATIC,
+        loader,
+        "inject",
+        "(Ljava/lang/Object;Ljava/lang/Object;"
+            + PATH
+            + "Ljava/lang/String;Ljava/lang/Object;)Ljava/lang/Object;",
+        false);
+    initialize.visitFieldInsn(Opcodes.PUTFIELD, bootstrap, PLUGIN_FIELD, OBJECT_DESCRIPTOR);
+    initialize.visitInsn(Opcodes.RETURN);
+    initialize.visitMaxs(0, 0);
+    initialize.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  private static void visitCall(
+      @Nonnull MethodVisitor method,
+      @Nonnull String bootstrap,
+      @Nonnull String loader,
+      @Nonnull String name) {
+    method.visitVarInsn(Opcodes.ALOAD, 0);
+    method.visitFieldInsn(Opcodes.GETFIELD, bootstrap, PLUGIN_FIELD, OBJECT_DESCRIPTOR);
+    method.visitLdcInsn(name);
+    method.visitMethodInsn(
+        Opcodes.INVOKESTATIC, loader, "call", "(Ljava/lang/Object;Ljava/lang/String;)V", false);
+  }
+
+  /**
+   * Reads the class loader, renamed so the class of every plugin is its own.
+   *
+   * @param loader the internal name of the renamed class loader
+   * @return the class file
+   * @throws IOException if the class loader can't be read
+   */
+  @Nonnull
+  private static byte[] loaderClass(@Nonnull String loader) throws IOException {
+    String resource = NestedJarClassLoader.class.getSimpleName() + ".class";
+    try (InputStream input = NestedJarClassLoader.class.getResourceAsStream(resource)) {
+      if (input == null) {
+        throw new IOException("Missing class file " + resource);
+      }
+      ClassWriter writer = new ClassWriter(0);
+      new ClassReader(input)
+          .accept(new ClassRemapper(writer, new SimpleRemapper(LOADER, loader)), 0);
+      return writer.toByteArray();
+    }
+  }
+
+  @Nonnull
+  private static String loaderOf(@Nonnull String bootstrap) {
+    return bootstrap.substring(0, bootstrap.lastIndexOf('/') + 1)
+        + NestedJarClassLoader.class.getSimpleName();
+  }
+
+  @Nonnull
+  private static String packageOf(@Nonnull String mainClass) {
+    int separator = mainClass.lastIndexOf('.');
+    return separator < 0 ? PACKAGE + '.' : mainClass.substring(0, separator + 1) + PACKAGE + '.';
+  }
+}
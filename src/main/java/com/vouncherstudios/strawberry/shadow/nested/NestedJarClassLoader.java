@@ -0,0 +1,313 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.nested;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * The class loader of a plugin packaged with nested jars. It is not used by the build: it is copied
+ * into the plugin jar, renamed into the package of the bootstrap main class, and called by the
+ * bootstrap at runtime.
+ *
+ * <p>The nested jars are stored under the SHA-256 of their content. They are extracted once into
+ * the data folder of the plugin, where the later starts find them, and loaded child-first along
+ * with the plugin jar itself, so the project classes and their dependencies are defined by this
+ * loader and never conflict with the classes of the server or of other plugins. Only the classes of the bootstrap
+ * package and the platform classes missing from the jars are loaded by the parent.
+ *
+ * <p>This class only depends on the JDK, the platform types are reached through reflection.
+ */
+public final class NestedJarClassLoader extends URLClassLoader {
+  /** The directory of the plugin jar holding the nested jars. */
+  public static final String LIBRARIES_DIRECTORY = "META-INF/strawberry/libraries/";
+
+  /** The directory of the data folder the nested jars are extracted into. */
+  private static final String CACHE_DIRECTORY = ".libraries";
+
+  private static final String VELOCITY_PROXY = "com.velocitypowered.api.proxy.ProxyServer";
+  private static final String VELOCITY_EVENT_MANAGER = "com.velocitypowered.api.event.EventManager";
+  private static final String VELOCITY_SUBSCRIBE = "com.velocitypowered.api.event.Subscribe";
+  private static final String GUICE_INJECTOR = "com.google.inject.Injector";
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
+  private final String bootstrapPackage;
+
+  private NestedJarClassLoader(URL[] urls, ClassLoader parent) {
+    super(urls, parent);
+    String name = NestedJarClassLoader.class.getName();
+    this.bootstrapPackage = name.substring(0, name.lastIndexOf('.') + 1);
+  }
+
+  /**
+   * Creates the plugin main class instance, passing the bootstrap to its constructor if it has one
+   * accepting it. Used by the Paper bootstrap once it is loaded.
+   *
+   * @param bootstrap the bootstrap plugin
+   * @param mainClass the plugin main class name
+   * @return the plugin main class instance
+   * @throws Exception if the plugin can't be loaded or created
+   */
+  public static Object create(Object bootstrap, String mainClass) throws Exception {
+    File dataFolder = (File) invoke(bootstrap.getClass().getMethod("getDataFolder"), bootstrap);
+    Class<?> type = load(bootstrap, dataFolder.toPath(), mainClass);
+    for (Constructor<?> constructor : type.getConstructors()) {
+      Class<?>[] parameters = constructor.getParameterTypes();
+      if (parameters.length == 1 && parameters[0].isInstance(bootstrap)) {
+        return newInstance(constructor, bootstrap);
+      }
+    }
+    return newInstance(type.getConstructor());
+  }
+
+  /**
+   * Creates the plugin main class instance through the Guice injector of the plugin, registers it
+   * as an event listener of the plugin and hands it the initialization event. Used by the Velocity
+   * bootstrap when the proxy initializes, the plugin being loaded by then.
+   *
+   * @param bootstrap the bootstrap plugin
+   * @param injector the Guice injector of the plugin
+   * @param dataDirectory the data directory of the plugin
+   * @param mainClass the plugin main class name
+   * @param event the proxy initialization event
+   * @return the plugin main class instance
+   * @throws Exception if the plugin can't be loaded or created
+   */
+  public static Object inject(
+      Object bootstrap, Object injector, Path dataDirectory, String mainClass, Object event)
+      throws Exception {
+    ClassLoader platform = bootstrap.getClass().getClassLoader();
+    Class<?> injectorType = Class.forName(GUICE_INJECTOR, false, platform);
+    Method getInstance = injectorType.getMethod("getInstance", Class.class);
+
+    Class<?> proxyType = Class.forName(VELOCITY_PROXY, false, platform);
+
+    Object plugin = invoke(getInstance, injector, load(bootstrap, dataDirectory, mainClass));
+    Object proxy = invoke(getInstance, injector, proxyType);
+    Object eventManager = invoke(proxyType.getMethod("getEventManager"), proxy);
+    invoke(
+        Class.forName(VELOCITY_EVENT_MANAGER, false, platform)
+            .getMethod("register", Object.class, Object.class),
+        eventManager,
+        bootstrap,
+        plugin);
+
+    // The event is being fired, so the listener registered above won't receive it
+    for (Class<?> type = plugin.getClass(); type != null; type = type.getSuperclass()) {
+      for (Method method : type.getDeclaredMethods()) {
+        Class<?>[] parameters = method.getParameterTypes();
+        if (parameters.length == 1 && parameters[0].isInstance(event) && isSubscriber(method)) {
+          method.setAccessible(true);
+          invoke(method, plugin, event);
+        }
+      }
+    }
+    return plugin;
+  }
+
+  /**
+   * Calls a public method without parameters of the plugin main class instance, if it has one.
+   *
+   * @param plugin the plugin main class instance, or {@code null} if it failed to be created
+   * @param name the method name
+   * @throws Exception if the method fails
+   */
+  public static void call(Object plugin, String name) throws Exception {
+    if (plugin == null) {
+      return;
+    }
+
+    Method method;
+    try {
+      method = plugin.getClass().getMethod(name);
+    } catch (NoSuchMethodException e) {
+      return;
+    }
+    invoke(method, plugin);
+  }
+
+  @Override
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    if (name.startsWith("java.") || name.startsWith(this.bootstrapPackage)) {
+      return super.loadClass(name, resolve);
+    }
+
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> type = findLoadedClass(name);
+      if (type == null) {
+        try {
+          type = findClass(name);
+        } catch (ClassNotFoundException e) {
+          return super.loadClass(name, resolve);
+        }
+      }
+      if (resolve) {
+        resolveClass(type);
+      }
+      return type;
+    }
+  }
+
+  @Override
+  public URL getResource(String name) {
+    URL resource = findResource(name);
+    return resource != null ? resource : super.getResource(name);
+  }
+
+  private static Class<?> load(Object bootstrap, Path dataFolder, String mainClass)
+      throws Exception {
+    Class<?> bootstrapClass = bootstrap.getClass();
+    File jar = new File(bootstrapClass.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+    List<URL> urls = new ArrayList<>();
+    for (Path library : extract(jar, dataFolder.resolve(CACHE_DIRECTORY))) {
+      urls.add(library.toUri().toURL());
+    }
+    urls.add(jar.toURI().toURL());
+
+    ClassLoader loader =
+        new NestedJarClassLoader(urls.toArray(new URL[0]), bootstrapClass.getClassLoader());
+    return Class.forName(mainClass, true, loader);
+  }
+
+  /**
+   * Extracts the nested jars into the cache directory, under the hash of their content, unless a
+   * previous start already did. The jars no longer nested are deleted.
+   */
+  private static List<Path> extract(File jar, Path cache) throws IOException {
+    List<Path> libraries = new ArrayList<>();
+    Set<String> hashes = new HashSet<>();
+    try (JarFile file = new JarFile(jar)) {
+      Enumeration<JarEntry> entries = file.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (!name.startsWith(LIBRARIES_DIRECTORY) || !name.endsWith(".jar")) {
+          continue;
+        }
+
+        // Named <hash>/<file name>, so an extracted jar only matches the same content
+        String path = name.substring(LIBRARIES_DIRECTORY.length());
+        hashes.add(path.substring(0, path.indexOf('/')));
+        Path library = cache.resolve(path);
+        if (!Files.isRegularFile(library) || Files.size(library) != entry.getSize()) {
+          Files.createDirectories(library.getParent());
+          Path extracted = Files.createTempFile(library.getParent(), "strawberry-", ".tmp");
+          try (InputStream input = file.getInputStream(entry)) {
+            Files.copy(input, extracted, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(
+                extracted,
+                library,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+          } finally {
+            Files.deleteIfExists(extracted);
+          }
+        }
+        libraries.add(library);
+      }
+    }
+
+    prune(cache, hashes);
+    return libraries;
+  }
+
+  private static void prune(Path cache, Set<String> hashes) {
+    File[] directories = cache.toFile().listFiles();
+    if (directories == null) {
+      return;
+    }
+
+    for (File directory : directories) {
+      if (hashes.contains(directory.getName())) {
+        continue;
+      }
+
+      // Best effort, a jar still open elsewhere is deleted by a later start
+      File[] files = directory.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      directory.delete();
+    }
+  }
+
+  private static boolean isSubscriber(Method method) {
+    for (Annotation annotation : method.getAnnotations()) {
+      if (annotation.annotationType().getName().equals(VELOCITY_SUBSCRIBE)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Object newInstance(Constructor<?> constructor, Object... arguments)
+      throws Exception {
+    try {
+      return constructor.newInstance(arguments);
+    } catch (InvocationTargetException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Object invoke(Method method, Object target, Object... arguments)
+      throws Exception {
+    try {
+      return method.invoke(target, arguments);
+    } catch (InvocationTargetException e) {
+      throw rethrow(e);
+    }
+  }
+
+  private static Exception rethrow(InvocationTargetException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return cause instanceof Exception ? (Exception) cause : e;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.nested;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.gradle.utils.ResolutionUtils;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.minecraft.plugin.generator.DescriptionGeneratorType;
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.pipeline.NestingAction;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.tasks.ClasspathNormalizer;
+import org.gradle.api.tasks.bundling.ZipEntryCompression;
+
+/** Configures the shadow jar of a project packaging its dependencies as nested jars. */
+public final class NestingConfigurer {
+  private NestingConfigurer() {}
+
+  /**
+   * Configures the shadow jar to embed the dependency jars unmodified instead of merging and
+   * relocating their classes. Shadow only merges the project classes, the nested jars and the
+   * bootstrap main classes are added once it is done.
+   *
+   * @param project the project
+   * @param shadowJar the shadow jar task
+   * @param strawberry the strawberry extension
+   * @param relocating whether relocations are declared, which are not applied
+   * @param compression the compression profile
+   * @param leftOut the modules left out of the jar
+   */
+  public static void configure(
+      @Nonnull Project project,
+      @Nonnull ShadowJar shadowJar,
+      @Nonnull StrawberryExtensionImpl strawberry,
+      boolean relocating,
+      @Nonnull CompressionProfile compression,
+      @Nonnull Predicate<String> leftOut) {
+    if (relocating) {
+      project
+          .getLogger()
+          .warn(
+              "Strawberry doesn't relocate {}, its dependencies are packaged as nested jars",
+              project.getPath());
+    }
+
+    shadowJar.dependencies(filter -> filter.exclude(NestingConfigurer::isExternal));
+    FileCollection nestedJars = ResolutionUtils.runtimeJars(project, leftOut, true);
+    if (compression == CompressionProfile.DEV) {
+      shadowJar.setEntryCompression(ZipEntryCompression.STORED);
+    }
+
+    String paperMain =
+        DescriptionGeneratorType.PAPER.isAvailable(strawberry)
+            ? strawberry.minecraft().plugin().paper().main().get()
+            : null;
+    String velocityMain =
+        DescriptionGeneratorType.VELOCITY.isAvailable(strawberry)
+            ? strawberry.minecraft().plugin().velocity().main().get()
+            : null;
+    shadowJar
+        .getInputs()
+        .files(nestedJars)
+        .withPropertyName("strawberryNestedJars")
+        .withNormalizer(ClasspathNormalizer.class);
+    shadowJar.getInputs().property("strawberryPaperMain", paperMain).optional(true);
+    shadowJar.getInputs().property("strawberryVelocityMain", velocityMain).optional(true);
+    shadowJar.doLast(new NestingAction(nestedJars, paperMain, velocityMain));
+  }
+
+  /**
+   * Checks whether a dependency comes from outside the build. The projects of the build are still
+   * merged into the jar.
+   *
+   * @param dependency the dependency
+   * @return whether the dependency is an external module
+   */
+  private static boolean isExternal(@Nonnull ResolvedDependency dependency) {
+    for (ResolvedArtifact artifact : dependency.getModuleArtifacts()) {
+      if (artifact.getId().getComponentIdentifier() instanceof ProjectComponentIdentifier) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.annotation.Nonnull;
+
+/**
+ * Merges jars into a single one. The first entry of a name wins, except for service files whose
+ * providers are concatenated. Manifests, signatures and module descriptors only describe the jar
+ * they come from, so they are left out.
+ */
+public final class ArchiveMerger {
+  private static final String SERVICES_DIRECTORY = "META-INF/services/";
+
+  private ArchiveMerger() {}
+
+  /**
+   * Merges the jars into the output jar. The generated entries are written first and win over the
+   * entries of the jars.
+   *
+   * @param jars the jars to merge, in order of precedence
+   * @param generated the generated entries, by name
+   * @param output the merged jar to write
+   * @throws IOException if an I/O error occurs
+   */
+  public static void merge(
+      @Nonnull List<File> jars, @Nonnull Map<String, byte[]> generated, @Nonnull Path output)
+      throws IOException {
+    Set<String> written = new HashSet<>();
+    Map<String, Set<String>> services = new LinkedHashMap<>();
+    try (ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+      for (Map.Entry<String, byte[]> entry : generated.entrySet()) {
+        written.add(entry.getKey());
+        writeStored(writer, entry.getKey(), entry.getValue());
+      }
+
+      for (File jar : jars) {
+        try (ZipArchive archive = ZipArchive.open(jar.toPath())) {
+          for (ZipArchive.Entry entry : archive.entries()) {
+            String name = entry.getName();
+            if (entry.isDirectory() || isLeftOut(name) || written.contains(name)) {
+              continue;
+            }
+            if (name.startsWith(SERVICES_DIRECTORY)) {
+              Set<String> providers = services.computeIfAbsent(name, key -> new LinkedHashSet<>());
+              for (String line : new String(entry.read(), StandardCharsets.UTF_8).split("\n")) {
+                String provider = line.trim();
+                if (!provider.isEmpty() && !provider.startsWith("#")) {
+                  providers.add(provider);
+                }
+              }
+              continue;
+            }
+
+            written.add(name);
+            writer.write(
+                name,
+                entry.getDosTime(),
+                entry.getMethod(),
+                entry.getCrc(),
+                entry.getSize(),
+                entry.readRaw(),
+                entry);
+          }
+        }
+      }
+
+      for (Map.Entry<String, Set<String>> service : services.entrySet()) {
+        StringBuilder content = new StringBuilder();
+        for (String provider : service.getValue()) {
+          content.append(provider).append('\n');
+        }
+        writeStored(writer, service.getKey(), content.toString().getBytes(StandardCharsets.UTF_8));
+      }
+    }
+  }
+
+  private static boolean isLeftOut(@Nonnull String name) {
+    if (name.equals("META-INF/MANIFEST.MF")
+        || name.equals("module-info.class")
+        || (name.startsWith("META-INF/versions/") && name.endsWith("/module-info.class"))) {
+      return true;
+    }
+
+    // Signature files of the signed jars
+    String upperName = name.toUpperCase(Locale.ROOT);
+    return upperName.startsWith("META-INF/")
+        && upperName.indexOf('/', "META-INF/".length()) < 0
+        && (upperName.endsWith(".SF")
+            || upperName.endsWith(".RSA")
+            || upperName.endsWith(".DSA")
+            || upperName.endsWith(".EC"));
+  }
+
+  private static void writeStored(
+      @Nonnull ZipArchiveWriter writer, @Nonnull String name, @Nonnull byte[] data)
+      throws IOException {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    writer.write(
+        name,
+        ZipArchiveWriter.EARLIEST_DOS_TIME,
+        ZipArchive.STORED,
+        crc.getValue(),
+        data.length,
+        ByteBuffer.wrap(data));
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Computes the relocations moving every shaded package under a prefix. Each package of the shaded
+ * jars is relocated through its shortest ancestor, of at least two segments, under which no
+ * provided package lies: the project classes, the server API and the libraries left out of the
+ * jar must keep their names. The ancestors covering others are then dropped, leaving the minimal
+ * set of relocations which don't overlap.
+ *
+ * <p>The packages of each jar are read from the {@link PackageIndex package index}, so only the
+ * jars never seen before are read again.
+ */
+public final class AutoRelocations {
+  private static final int MIN_SEGMENTS = 2;
+
+  private AutoRelocations() {}
+
+  /**
+   * Computes the relocations moving every shaded package under the prefix.
+   *
+   * @param prefix the package the shaded packages are moved under
+   * @param declared the declared relocations, whose packages are left to them
+   * @param shaded the shaded jars
+   * @param provided the jars and class directories whose packages must not be relocated
+   * @param indexDirectory the directory the jar indexes are stored in
+   * @return the relocations, sorted by pattern
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  public static List<Relocation> compute(
+      @Nonnull String prefix,
+      @Nonnull Collection<Relocation> declared,
+      @Nonnull Collection<File> shaded,
+      @Nonnull Collection<File> provided,
+      @Nonnull Path indexDirectory)
+      throws IOException {
+    NavigableSet<String> providedPackages = packages(provided, indexDirectory);
+    Set<String> roots = new TreeSet<>();
+    for (String packageName : packages(shaded, indexDirectory)) {
+      String root = root(packageName, providedPackages);
+      if (root != null && !isCovered(root, declared)) {
+        roots.add(root);
+      }
+    }
+
+    // Sorted, so the ancestors of a root are kept before it is reached
+    Set<String> kept = new TreeSet<>();
+    List<Relocation> relocations = new ArrayList<>();
+    for (String root : roots) {
+      if (!hasAncestor(root, kept)) {
+        kept.add(root);
+        relocations.add(new Relocation(root, prefix + '.' + root));
+      }
+    }
+    return relocations;
+  }
+
+  @Nonnull
+  private static NavigableSet<String> packages(
+      @Nonnull Collection<File> files, @Nonnull Path indexDirectory) throws IOException {
+    NavigableSet<String> packages = new TreeSet<>();
+    for (File file : files) {
+      for (String packageName : PackageIndex.of(file, indexDirectory).getPackages()) {
+        packages.add(packageName.replace('/', '.'));
+      }
+    }
+    return packages;
+  }
+
+  /**
+   * Finds the shortest ancestor of the package under which no provided package lies.
+   *
+   * @param packageName the shaded package
+   * @param provided the provided packages
+   * @return the ancestor, or {@code null} if the package itself is provided
+   */
+  @Nullable
+  private static String root(@Nonnull String packageName, @Nonnull NavigableSet<String> provided) {
+    if (packageName.isEmpty() || provided.contains(packageName)) {
+      return null;
+    }
+
+    int end = 0;
+    for (int segment = 1; ; segment++) {
+      end = packageName.indexOf('.', end + 1);
+      String ancestor = end < 0 ? packageName : packageName.substring(0, end);
+      if (segment >= MIN_SEGMENTS || end < 0) {
+        // Packages sort right after their parent, '/' being the character after '.'
+        if (!provided.contains(ancestor)
+            && provided.subSet(ancestor + '.', ancestor + '/').isEmpty()) {
+          return ancestor;
+        }
+      }
+      if (end < 0) {
+        return null;
+      }
+    }
+  }
+
+  private static boolean isCovered(@Nonnull String root, @Nonnull Collection<Relocation> declared) {
+    for (Relocation relocation : declared) {
+      if (!relocation.isRawString() && isInside(root, relocation.getPattern())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasAncestor(@Nonnull String packageName, @Nonnull Set<String> ancestors) {
+    for (int end = packageName.indexOf('.'); end >= 0; end = packageName.indexOf('.', end + 1)) {
+      if (ancestors.contains(packageName.substring(0, end))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isInside(@Nonnull String packageName, @Nonnull String ancestor) {
+    return packageName.equals(ancestor) || packageName.startsWith(ancestor + '.');
+  }
+}
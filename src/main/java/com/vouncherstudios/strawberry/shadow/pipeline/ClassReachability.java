@@ -0,0 +1,293 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The classes of the shaded dependencies reachable from the plugin. Classes which are not merged
+ * from a dependency jar belong to the project and are all reachable, like the listeners the plugin
+ * registers. The entry points, the keep rules and the providers of the services used by a reachable
+ * class are reachable as well, and so is every class referenced by a reachable one.
+ *
+ * <p>References are read from the constant pool: the class constants, the descriptors and
+ * signatures, and the string literals naming a class, so a class loaded through {@code
+ * Class.forName} with a constant name is kept.
+ */
+final class ClassReachability {
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String SERVICES_PREFIX = "META-INF/services/";
+  private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+  private final Set<String> unreachableEntries;
+  private final int dependencyClasses;
+  private final int unreachableClasses;
+
+  private ClassReachability(
+      @Nonnull Set<String> unreachableEntries, int dependencyClasses, int unreachableClasses) {
+    this.unreachableEntries = unreachableEntries;
+    this.dependencyClasses = dependencyClasses;
+    this.unreachableClasses = unreachableClasses;
+  }
+
+  /**
+   * Finds the classes of the shaded dependencies reachable from the plugin. When a class can't be
+   * scanned, its references are unknown and every class is considered reachable.
+   *
+   * @param archive the jar merged by Shadow
+   * @param dependencies the dependency jars the archive was merged from
+   * @param minimization the roots of the minimization
+   * @param pool the pool scanning the classes, or {@code null} to scan them sequentially
+   * @return the reachability of the classes
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static ClassReachability analyze(
+      @Nonnull ZipArchive archive,
+      @Nonnull SourceArchives dependencies,
+      @Nonnull Minimization minimization,
+      @Nullable ForkJoinPool pool)
+      throws IOException {
+    Map<String, List<ZipArchive.Entry>> classes = new LinkedHashMap<>();
+    Map<String, List<String>> providers = new HashMap<>();
+    Set<String> dependencyClasses = new HashSet<>();
+    Set<String> projectClasses = new HashSet<>();
+    for (ZipArchive.Entry entry : archive.entries()) {
+      String name = entry.getName();
+      if (entry.isDirectory()) {
+        continue;
+      }
+      if (name.startsWith(SERVICES_PREFIX) && name.indexOf('/', SERVICES_PREFIX.length()) < 0) {
+        String service = name.substring(SERVICES_PREFIX.length()).replace('.', '/');
+        providers.computeIfAbsent(service, key -> new ArrayList<>()).addAll(providers(entry));
+        continue;
+      }
+
+      String className = className(name);
+      if (className == null) {
+        continue;
+      }
+      classes.computeIfAbsent(className, key -> new ArrayList<>()).add(entry);
+      if (dependencies.find(entry) != null) {
+        dependencyClasses.add(className);
+      } else {
+        projectClasses.add(className);
+      }
+    }
+    // A class with a version merged from the project can't be removed
+    dependencyClasses.removeAll(projectClasses);
+
+    List<Callable<Set<String>>> scans = new ArrayList<>(classes.size());
+    for (List<ZipArchive.Entry> entries : classes.values()) {
+      scans.add(() -> references(entries, classes.keySet()));
+    }
+    List<Set<String>> references = ShadingPipeline.run(pool, scans);
+    if (references.contains(null)) {
+      return new ClassReachability(Set.of(), dependencyClasses.size(), 0);
+    }
+
+    Deque<String> queue = new ArrayDeque<>(projectClasses);
+    for (String entryPoint : minimization.getEntryPoints()) {
+      queue.add(entryPoint.replace('.', '/'));
+    }
+    for (String className : classes.keySet()) {
+      if (minimization.keeps(className)) {
+        queue.add(className);
+      }
+    }
+    // Services provided to the server or the JDK may be loaded without any reference to them
+    for (Map.Entry<String, List<String>> service : providers.entrySet()) {
+      if (!classes.containsKey(service.getKey())) {
+        queue.addAll(service.getValue());
+      }
+    }
+
+    Map<String, Set<String>> graph = new HashMap<>();
+    int index = 0;
+    for (String className : classes.keySet()) {
+      graph.put(className, references.get(index++));
+    }
+    Set<String> reachable = new HashSet<>();
+    while (!queue.isEmpty()) {
+      String className = queue.poll();
+      Set<String> referenced = graph.get(className);
+      if (referenced == null || !reachable.add(className)) {
+        continue;
+      }
+      queue.addAll(referenced);
+      queue.addAll(providers.getOrDefault(className, List.of()));
+    }
+
+    Set<String> unreachableEntries = new HashSet<>();
+    int unreachableClasses = 0;
+    for (String className : dependencyClasses) {
+      if (!reachable.contains(className)) {
+        unreachableClasses++;
+        for (ZipArchive.Entry entry : classes.get(className)) {
+          unreachableEntries.add(entry.getName());
+        }
+      }
+    }
+    return new ClassReachability(
+        unreachableEntries, dependencyClasses.size(), unreachableClasses);
+  }
+
+  /**
+   * Checks whether the entry is a dependency class unreachable from the plugin.
+   *
+   * @param name the entry name
+   * @return whether the entry can be removed
+   */
+  boolean isUnreachable(@Nonnull String name) {
+    return this.unreachableEntries.contains(name);
+  }
+
+  /**
+   * Gets the number of classes merged from the dependency jars.
+   *
+   * @return the number of dependency classes
+   */
+  int getDependencyClasses() {
+    return this.dependencyClasses;
+  }
+
+  /**
+   * Gets the number of dependency classes unreachable from the plugin.
+   *
+   * @return the number of unreachable classes
+   */
+  int getUnreachableClasses() {
+    return this.unreachableClasses;
+  }
+
+  /**
+   * Gets the class name of an entry. Classes of a multi-release jar share the name of their base
+   * version, and module or package descriptors are not classes of their own.
+   *
+   * @param name the entry name
+   * @return the class name, with slashes as separators, or {@code null} if the entry isn't a class
+   */
+  @Nullable
+  static String className(@Nonnull String name) {
+    if (!name.endsWith(CLASS_SUFFIX)) {
+      return null;
+    }
+
+    String className = name.substring(0, name.length() - CLASS_SUFFIX.length());
+    if (className.startsWith(VERSIONS_PREFIX)) {
+      int separator = className.indexOf('/', VERSIONS_PREFIX.length());
+      if (separator < 0) {
+        return null;
+      }
+      className = className.substring(separator + 1);
+    }
+    if (className.equals("module-info") || className.endsWith("package-info")) {
+      return null;
+    }
+    return className;
+  }
+
+  @Nonnull
+  private static List<String> providers(@Nonnull ZipArchive.Entry entry) throws IOException {
+    List<String> providers = new ArrayList<>();
+    for (String line : new String(entry.read(), StandardCharsets.UTF_8).split("\n")) {
+      int comment = line.indexOf('#');
+      String provider = (comment < 0 ? line : line.substring(0, comment)).strip();
+      if (!provider.isEmpty()) {
+        providers.add(provider.replace('.', '/'));
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * Collects the classes of the archive referenced by every version of a class.
+   *
+   * @param entries the versions of the class
+   * @param classes the classes of the archive
+   * @return the referenced classes, or {@code null} if a version can't be scanned
+   * @throws IOException if an I/O error occurs
+   */
+  @Nullable
+  private static Set<String> references(
+      @Nonnull List<ZipArchive.Entry> entries, @Nonnull Set<String> classes) throws IOException {
+    Set<String> references = new HashSet<>();
+    for (ZipArchive.Entry entry : entries) {
+      if (!ConstantPoolScanner.visit(
+          entry.read(), constant -> collect(constant, classes, references))) {
+        return null;
+      }
+    }
+    return references;
+  }
+
+  private static void collect(
+      @Nonnull String constant, @Nonnull Set<String> classes, @Nonnull Set<String> references) {
+    // Class constants and string literals naming a class, in internal or binary form
+    if (classes.contains(constant)) {
+      references.add(constant);
+    } else if (constant.indexOf('.') > 0 && constant.indexOf('/') < 0) {
+      String className = constant.replace('.', '/');
+      if (classes.contains(className)) {
+        references.add(className);
+      }
+    }
+
+    // Descriptors and signatures name classes as Lname; or Lname<...>;
+    if (constant.indexOf(';') < 0) {
+      return;
+    }
+    for (int start = constant.indexOf('L'); start >= 0; start = constant.indexOf('L', start + 1)) {
+      int end = start + 1;
+      while (end < constant.length()) {
+        char c = constant.charAt(end);
+        if (c == ';' || c == '<') {
+          break;
+        }
+        end++;
+      }
+      if (end < constant.length()) {
+        String className = constant.substring(start + 1, end);
+        if (classes.contains(className)) {
+          references.add(className);
+        }
+      }
+    }
+  }
+}
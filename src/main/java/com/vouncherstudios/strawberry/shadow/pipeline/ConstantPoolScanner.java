@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import javax.annotation.Nonnull;
+
+/**
+ * Scans the constant pool of a class file without parsing the rest of it. Every name, descriptor,
+ * signature and string literal of a class is a UTF-8 constant, so a class none of whose constants
+ * may be relocated is guaranteed to be left unchanged by the remapper, and the classes a class
+ * references can be found without parsing its code.
+ */
+final class ConstantPoolScanner {
+  private static final int MAGIC = 0xCAFEBABE;
+
+  private ConstantPoolScanner() {}
+
+  /**
+   * Checks whether any constant of the class may be relocated. Malformed or unknown class files are
+   * reported as relocatable so they go through the full remapper.
+   *
+   * @param data the class file
+   * @param relocator the relocator
+   * @return whether the class may be relocated
+   */
+  static boolean mayRelocate(@Nonnull byte[] data, @Nonnull TrieRelocator relocator) {
+    return scan(data, relocator::mayRelocate) != Scan.COMPLETED;
+  }
+
+  /**
+   * Visits every UTF-8 constant of the class.
+   *
+   * @param data the class file
+   * @param visitor the visitor of the constants
+   * @return whether the class file could be scanned, {@code false} if it is malformed or unknown
+   */
+  static boolean visit(@Nonnull byte[] data, @Nonnull Consumer<String> visitor) {
+    return scan(
+            data,
+            constant -> {
+              visitor.accept(constant);
+              return false;
+            })
+        == Scan.COMPLETED;
+  }
+
+  @Nonnull
+  private static Scan scan(@Nonnull byte[] data, @Nonnull Predicate<String> stop) {
+    if (data.length < 10 || readInt(data, 0) != MAGIC) {
+      return Scan.MALFORMED;
+    }
+
+    try {
+      int count = readUnsignedShort(data, 8);
+      int offset = 10;
+      for (int i = 1; i < count; i++) {
+        switch (data[offset]) {
+          case 1: // Utf8
+            int length = readUnsignedShort(data, offset + 1);
+            if (stop.test(readUtf8(data, offset + 3, length))) {
+              return Scan.STOPPED;
+            }
+            offset += 3 + length;
+            break;
+          case 3: // Integer
+          case 4: // Float
+          case 9: // Fieldref
+          case 10: // Methodref
+          case 11: // InterfaceMethodref
+          case 12: // NameAndType
+          case 17: // Dynamic
+          case 18: // InvokeDynamic
+            offset += 5;
+            break;
+          case 5: // Long
+          case 6: // Double
+            offset += 9;
+            i++;
+            break;
+          case 7: // Class
+          case 8: // String
+          case 16: // MethodType
+          case 19: // Module
+          case 20: // Package
+            offset += 3;
+            break;
+          case 15: // MethodHandle
+            offset += 4;
+            break;
+          default:
+            return Scan.MALFORMED;
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException | IOException e) {
+      return Scan.MALFORMED;
+    }
+    return Scan.COMPLETED;
+  }
+
+  @Nonnull
+  private static String readUtf8(@Nonnull byte[] data, int offset, int length) throws IOException {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      byte b = data[offset + i];
+      if (b <= 0) {
+        // Decode multi-byte and null characters the slow way, nearly no class needs it
+        return new DataInputStream(new ByteArrayInputStream(data, offset - 2, length + 2))
+            .readUTF();
+      }
+      chars[i] = (char) b;
+    }
+    return new String(chars);
+  }
+
+  private static int readUnsignedShort(@Nonnull byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+  }
+
+  private static int readInt(@Nonnull byte[] data, int offset) {
+    return (readUnsignedShort(data, offset) << 16) | readUnsignedShort(data, offset + 2);
+  }
+
+  /** The outcome of a constant pool scan. */
+  private enum Scan {
+    COMPLETED,
+    STOPPED,
+    MALFORMED
+  }
+}
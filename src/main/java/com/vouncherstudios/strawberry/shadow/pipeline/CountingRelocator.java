@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+
+/**
+ * A relocator counting how many names each relocation rewrites. The counters are striped, so the
+ * entries remapped concurrently don't contend on the relocations they share.
+ */
+final class CountingRelocator implements Relocator {
+  private final TrieRelocator relocator;
+  private final Map<SimpleRelocator, LongAdder> hits = new IdentityHashMap<>();
+
+  /**
+   * Create a new counting relocator.
+   *
+   * @param relocator the relocator to count the relocations of
+   * @param relocations the relocations of the pipeline, in declaration order, which may be more
+   *     than the relocator applies
+   * @param hits the counters of the relocations, in declaration order
+   */
+  CountingRelocator(
+      @Nonnull TrieRelocator relocator,
+      @Nonnull List<Relocation> relocations,
+      @Nonnull LongAdder[] hits) {
+    this.relocator = relocator;
+    for (int i = 0; i < relocator.getRelocators().size(); i++) {
+      int index = relocations.indexOf(relocator.getRelocations().get(i));
+      this.hits.put(relocator.getRelocators().get(i), hits[index]);
+    }
+  }
+
+  @Override
+  public boolean canRelocatePath(String path) {
+    return this.relocator.canRelocatePath(path);
+  }
+
+  @Override
+  public String relocatePath(RelocatePathContext context) {
+    SimpleRelocator relocator = this.relocator.findPathRelocator(context.getPath());
+    if (relocator == null) {
+      return context.getPath();
+    }
+    this.hits.get(relocator).increment();
+    return relocator.relocatePath(context);
+  }
+
+  @Override
+  public boolean canRelocateClass(String className) {
+    return this.relocator.canRelocateClass(className);
+  }
+
+  @Override
+  public String relocateClass(RelocateClassContext context) {
+    SimpleRelocator relocator = this.relocator.findClassRelocator(context.getClassName());
+    if (relocator == null) {
+      return context.getClassName();
+    }
+    this.hits.get(relocator).increment();
+    return relocator.relocateClass(context);
+  }
+
+  @Override
+  public String applyToSourceContent(String sourceContent) {
+    return this.relocator.applyToSourceContent(sourceContent);
+  }
+}
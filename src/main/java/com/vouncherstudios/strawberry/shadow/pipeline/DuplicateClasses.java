@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+
+/**
+ * The classes shipped by more than one dependency jar. Shadow merges the jars in order and keeps
+ * the first copy of each entry, so a class shipped twice with different content, like by two
+ * versions of Netty, silently mixes both versions in the jar.
+ *
+ * <p>Every class entry is fingerprinted by its name, size and checksum, read from the central
+ * directory of the jars without inflating anything, into a {@link FingerprintTable}. Copies having
+ * the same fingerprint are byte-identical and harmless, so they are only counted. A package whose
+ * classes are first shipped by more than one jar is split, which breaks package-private access and
+ * sealed packages at runtime.
+ */
+final class DuplicateClasses {
+  private static final int EXPECTED_CLASSES = 16 * 1024;
+
+  private final List<String> sources = new ArrayList<>();
+  // The conflicting class names, by the source they are kept from and the source dropping them
+  private final Map<Long, List<String>> conflicts = new TreeMap<>();
+  private final Map<String, Set<Integer>> splitPackages = new TreeMap<>();
+  private int classes;
+  private int identicalClasses;
+
+  private DuplicateClasses() {}
+
+  /**
+   * Fingerprints the classes of the dependency jars, in the order Shadow merges them.
+   *
+   * @param sources the dependency jars
+   * @return the duplicate classes
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static DuplicateClasses analyze(@Nonnull Collection<File> sources) throws IOException {
+    DuplicateClasses duplicates = new DuplicateClasses();
+    FingerprintTable classes = new FingerprintTable(EXPECTED_CLASSES);
+    FingerprintTable packages = new FingerprintTable(EXPECTED_CLASSES / 16);
+    for (File source : sources) {
+      String fileName = source.getName();
+      if (!source.isFile() || !(fileName.endsWith(".jar") || fileName.endsWith(".zip"))) {
+        continue;
+      }
+
+      int index = duplicates.sources.size();
+      duplicates.sources.add(fileName);
+      try (ZipArchive archive = ZipArchive.open(source.toPath())) {
+        for (ZipArchive.Entry entry : archive.entries()) {
+          String className = ClassReachability.className(entry.getName());
+          if (className != null) {
+            duplicates.add(classes, packages, entry, className, index);
+          }
+        }
+      }
+    }
+    return duplicates;
+  }
+
+  private void add(
+      @Nonnull FingerprintTable classes,
+      @Nonnull FingerprintTable packages,
+      @Nonnull ZipArchive.Entry entry,
+      @Nonnull String className,
+      int source) {
+    // Versions of a multi-release class are distinct entries
+    long hash = FingerprintTable.hash(entry.getName());
+    int slot = classes.slot(hash);
+    if (!classes.isFree(slot)) {
+      int kept = classes.source(slot);
+      if (kept == source) {
+        return;
+      }
+      if (classes.size(slot) == entry.getSize() && classes.crc(slot) == (int) entry.getCrc()) {
+        this.identicalClasses++;
+      } else {
+        this.conflicts
+            .computeIfAbsent(((long) kept << 32) | source, key -> new ArrayList<>())
+            .add(className.replace('/', '.'));
+      }
+      return;
+    }
+    classes.put(slot, hash, entry.getSize(), (int) entry.getCrc(), source);
+    this.classes++;
+
+    int separator = className.lastIndexOf('/');
+    if (separator < 0) {
+      return;
+    }
+    long packageHash = FingerprintTable.hash(className, 0, separator);
+    int packageSlot = packages.slot(packageHash);
+    if (packages.isFree(packageSlot)) {
+      packages.put(packageSlot, packageHash, 0, 0, source);
+    } else if (packages.source(packageSlot) != source) {
+      Set<Integer> split =
+          this.splitPackages.computeIfAbsent(
+              className.substring(0, separator).replace('/', '.'), key -> new TreeSet<>());
+      split.add(packages.source(packageSlot));
+      split.add(source);
+    }
+  }
+
+  /**
+   * Gets the number of distinct classes shipped by the dependencies.
+   *
+   * @return the number of classes
+   */
+  int getClasses() {
+    return this.classes;
+  }
+
+  /**
+   * Gets the number of copies of a class having the same content as the copy kept.
+   *
+   * @return the number of identical copies
+   */
+  int getIdenticalClasses() {
+    return this.identicalClasses;
+  }
+
+  /**
+   * Checks whether any class is shipped with different content by two dependencies.
+   *
+   * @return whether a class conflicts
+   */
+  boolean hasConflicts() {
+    return !this.conflicts.isEmpty();
+  }
+
+  /**
+   * Gets the classes shipped with different content by two dependencies, by pair of dependencies.
+   *
+   * @return the conflicts, in the order the dependencies are merged
+   */
+  @Nonnull
+  List<Conflict> getConflicts() {
+    List<Conflict> conflicts = new ArrayList<>(this.conflicts.size());
+    for (Map.Entry<Long, List<String>> entry : this.conflicts.entrySet()) {
+      long key = entry.getKey();
+      conflicts.add(
+          new Conflict(
+              this.sources.get((int) (key >>> 32)),
+              this.sources.get((int) key),
+              entry.getValue()));
+    }
+    return conflicts;
+  }
+
+  /**
+   * Gets the packages whose classes are shipped by more than one dependency, with the names of
+   * those dependencies.
+   *
+   * @return the split packages, sorted by name
+   */
+  @Nonnull
+  Map<String, List<String>> getSplitPackages() {
+    Map<String, List<String>> splitPackages = new TreeMap<>();
+    for (Map.Entry<String, Set<Integer>> entry : this.splitPackages.entrySet()) {
+      List<String> sources = new ArrayList<>(entry.getValue().size());
+      for (int source : entry.getValue()) {
+        sources.add(this.sources.get(source));
+      }
+      splitPackages.put(entry.getKey(), sources);
+    }
+    return splitPackages;
+  }
+
+  /** The classes two dependencies ship with different content. */
+  static final class Conflict {
+    private final String kept;
+    private final String dropped;
+    private final List<String> classes;
+
+    Conflict(@Nonnull String kept, @Nonnull String dropped, @Nonnull List<String> classes) {
+      this.kept = kept;
+      this.dropped = dropped;
+      this.classes = classes;
+    }
+
+    /**
+     * Gets the name of the dependency whose copies of the classes are kept.
+     *
+     * @return the dependency name
+     */
+    @Nonnull
+    String getKept() {
+      return this.kept;
+    }
+
+    /**
+     * Gets the name of the dependency whose copies of the classes are dropped.
+     *
+     * @return the dependency name
+     */
+    @Nonnull
+    String getDropped() {
+      return this.dropped;
+    }
+
+    /**
+     * Gets the conflicting classes, in the order of the dropping dependency.
+     *
+     * @return the class names, with dots as separators
+     */
+    @Nonnull
+    List<String> getClasses() {
+      return this.classes;
+    }
+  }
+}
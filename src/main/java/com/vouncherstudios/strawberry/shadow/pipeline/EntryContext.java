@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceContext;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/** A resource of the jar being shaded, handed to the resource transformers in turn. */
+final class EntryContext implements ResourceContext {
+  // A package is relocated like its package-info class, so the includes and excludes apply
+  private static final String PACKAGE_CLASS = "/package-info";
+
+  private final String name;
+  private final RelocatingRemapper remapper;
+  private final SourceArchives sources;
+  private byte[] data;
+
+  EntryContext(
+      @Nonnull String name,
+      @Nonnull byte[] data,
+      @Nonnull RelocatingRemapper remapper,
+      @Nullable SourceArchives sources) {
+    this.name = name;
+    this.data = data;
+    this.remapper = remapper;
+    this.sources = sources;
+  }
+
+  @Nonnull
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Nonnull
+  @Override
+  public byte[] getData() {
+    return this.data;
+  }
+
+  void setData(@Nonnull byte[] data) {
+    this.data = data;
+  }
+
+  @Nonnull
+  @Override
+  public List<byte[]> getCopies() throws IOException {
+    if (this.sources == null) {
+      return List.of();
+    }
+
+    List<ZipArchive.Entry> entries = this.sources.findAll(this.name);
+    List<byte[]> copies = new ArrayList<>(entries.size());
+    for (ZipArchive.Entry entry : entries) {
+      copies.add(entry.read());
+    }
+    return copies;
+  }
+
+  @Nonnull
+  @Override
+  public String relocateClass(@Nonnull String className) {
+    return this.remapper.mapClassName(className);
+  }
+
+  @Nonnull
+  @Override
+  public String relocatePath(@Nonnull String path) {
+    return this.remapper.mapPath(path);
+  }
+
+  @Nonnull
+  @Override
+  public String relocatePackage(@Nonnull String packageName) {
+    if (packageName.isEmpty()) {
+      return packageName;
+    }
+    String relocated =
+        this.remapper.mapPath(packageName.replace('.', '/') + PACKAGE_CLASS).replace('/', '.');
+    return relocated.substring(0, relocated.length() - PACKAGE_CLASS.length());
+  }
+}
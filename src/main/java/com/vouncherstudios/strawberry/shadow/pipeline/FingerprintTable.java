@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.nio.ByteBuffer;
+import javax.annotation.Nonnull;
+
+/**
+ * An open addressing hash table of entry fingerprints, stored off-heap in a direct buffer. Each
+ * slot holds the 64-bit hash of a name along with the size, checksum and source of the entry first
+ * seen with that name, in 24 bytes and no object per entry, so indexing the 100,000 classes of a
+ * large plugin takes a few megabytes outside of the Gradle daemon heap.
+ *
+ * <p>Names are only kept as their hash. Two of a million names share a 64-bit hash with a
+ * probability of about one in thirty million, which is far below the odds of a corrupted jar.
+ */
+final class FingerprintTable {
+  private static final int SLOT_SIZE = 24;
+  private static final int HASH = 0;
+  private static final int SIZE = 8;
+  private static final int CRC = 16;
+  private static final int SOURCE = 20;
+  // A hash of zero marks a free slot
+  private static final long FREE = 0;
+
+  private ByteBuffer slots;
+  private int mask;
+  private int size;
+
+  /**
+   * Create a new table.
+   *
+   * @param expected the number of entries expected, to size the table upfront
+   */
+  FingerprintTable(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+    this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    this.mask = capacity - 1;
+  }
+
+  /**
+   * Hashes a name.
+   *
+   * @param name the name
+   * @return the hash, never zero
+   */
+  static long hash(@Nonnull CharSequence name) {
+    return hash(name, 0, name.length());
+  }
+
+  /**
+   * Hashes a part of a name, such as the package of a class name, without copying it.
+   *
+   * @param name the name
+   * @param from the index of the first character, inclusive
+   * @param to the index of the last character, exclusive
+   * @return the hash, never zero
+   */
+  static long hash(@Nonnull CharSequence name, int from, int to) {
+    // FNV-1a, then the MurmurHash3 finalizer to spread the bits used as the slot index
+    long hash = 0xCBF29CE484222325L;
+    for (int i = from; i < to; i++) {
+      hash = (hash ^ name.charAt(i)) * 0x100000001B3L;
+    }
+    hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    hash ^= hash >>> 33;
+    return hash == FREE ? 1 : hash;
+  }
+
+  /**
+   * Finds the slot of a hash, which is either the one holding it or the free one it would be put
+   * into. The slot is only valid until the next entry is put.
+   *
+   * @param hash the hash of the name
+   * @return the slot
+   */
+  int slot(long hash) {
+    int slot = (int) hash & this.mask;
+    while (true) {
+      long current = this.slots.getLong(slot * SLOT_SIZE + HASH);
+      if (current == FREE || current == hash) {
+        return slot;
+      }
+      slot = (slot + 1) & this.mask;
+    }
+  }
+
+  /**
+   * Checks whether the slot holds no entry.
+   *
+   * @param slot the slot
+   * @return whether the slot is free
+   */
+  boolean isFree(int slot) {
+    return this.slots.getLong(slot * SLOT_SIZE + HASH) == FREE;
+  }
+
+  /**
+   * Puts an entry into a free slot found for its hash.
+   *
+   * @param slot the free slot
+   * @param hash the hash of the name
+   * @param size the uncompressed size of the entry
+   * @param crc the checksum of the entry
+   * @param source the index of the jar the entry comes from
+   */
+  void put(int slot, long hash, long size, int crc, int source) {
+    write(this.slots, slot * SLOT_SIZE, hash, size, crc, source);
+    if (++this.size * 2 > this.mask + 1) {
+      grow();
+    }
+  }
+
+  /**
+   * Gets the uncompressed size of the entry of a slot.
+   *
+   * @param slot the slot
+   * @return the size
+   */
+  long size(int slot) {
+    return this.slots.getLong(slot * SLOT_SIZE + SIZE);
+  }
+
+  /**
+   * Gets the checksum of the entry of a slot.
+   *
+   * @param slot the slot
+   * @return the checksum
+   */
+  int crc(int slot) {
+    return this.slots.getInt(slot * SLOT_SIZE + CRC);
+  }
+
+  /**
+   * Gets the index of the jar the entry of a slot comes from.
+   *
+   * @param slot the slot
+   * @return the source index
+   */
+  int source(int slot) {
+    return this.slots.getInt(slot * SLOT_SIZE + SOURCE);
+  }
+
+  private void grow() {
+    ByteBuffer previous = this.slots;
+    int capacity = (this.mask + 1) * 2;
+    this.slots = ByteBuffer.allocateDirect(capacity * SLOT_SIZE);
+    this.mask = capacity - 1;
+    for (int offset = 0; offset < previous.capacity(); offset += SLOT_SIZE) {
+      long hash = previous.getLong(offset + HASH);
+      if (hash != FREE) {
+        write(
+            this.slots,
+            slot(hash) * SLOT_SIZE,
+            hash,
+            previous.getLong(offset + SIZE),
+            previous.getInt(offset + CRC),
+            previous.getInt(offset + SOURCE));
+      }
+    }
+  }
+
+  private static void write(
+      @Nonnull ByteBuffer slots, int offset, long hash, long size, int crc, int source) {
+    slots.putLong(offset + HASH, hash);
+    slots.putLong(offset + SIZE, size);
+    slots.putInt(offset + CRC, crc);
+    slots.putInt(offset + SOURCE, source);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * A relocator leaving the classes of the plugin libraries untouched. Paper loads the libraries as
+ * they are published, so a reference to one of their classes must keep its name even when a
+ * relocation pattern covers it. The same goes for the dependencies left out of the jar because the
+ * server provides them.
+ */
+final class LibraryExcludingRelocator implements Relocator {
+  private static final String CLASS_SUFFIX = ".class";
+
+  private final Relocator relocator;
+  private final Set<String> libraryClasses;
+
+  LibraryExcludingRelocator(@Nonnull Relocator relocator, @Nonnull Set<String> libraryClasses) {
+    this.relocator = relocator;
+    this.libraryClasses = libraryClasses;
+  }
+
+  /**
+   * Lists the classes of the library jars.
+   *
+   * @param libraries the library jars
+   * @return the class names, with slashes as separators
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static Set<String> classes(@Nonnull Collection<File> libraries) throws IOException {
+    Set<String> classes = new HashSet<>();
+    for (File library : libraries) {
+      if (!library.isFile()) {
+        continue;
+      }
+      try (ZipArchive archive = ZipArchive.open(library.toPath())) {
+        for (ZipArchive.Entry entry : archive.entries()) {
+          String className = ClassReachability.className(entry.getName());
+          if (className != null) {
+            classes.add(className);
+          }
+        }
+      }
+    }
+    return classes;
+  }
+
+  @Override
+  public boolean canRelocatePath(String path) {
+    return !isLibraryPath(path) && this.relocator.canRelocatePath(path);
+  }
+
+  @Override
+  public String relocatePath(RelocatePathContext context) {
+    return isLibraryPath(context.getPath())
+        ? context.getPath()
+        : this.relocator.relocatePath(context);
+  }
+
+  @Override
+  public boolean canRelocateClass(String className) {
+    return !isLibraryClass(className) && this.relocator.canRelocateClass(className);
+  }
+
+  @Override
+  public String relocateClass(RelocateClassContext context) {
+    return isLibraryClass(context.getClassName())
+        ? context.getClassName()
+        : this.relocator.relocateClass(context);
+  }
+
+  @Override
+  public String applyToSourceContent(String sourceContent) {
+    return this.relocator.applyToSourceContent(sourceContent);
+  }
+
+  private boolean isLibraryPath(@Nonnull String path) {
+    String name = path.startsWith("/") ? path.substring(1) : path;
+    if (name.endsWith(CLASS_SUFFIX)) {
+      name = name.substring(0, name.length() - CLASS_SUFFIX.length());
+    }
+    return this.libraryClasses.contains(name);
+  }
+
+  private boolean isLibraryClass(@Nonnull String className) {
+    return this.libraryClasses.contains(className.replace('.', '/'));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+
+/**
+ * The roots of the minimization of the shaded dependencies: the entry points loaded by the server
+ * and the keep rules of classes only loaded reflectively.
+ *
+ * <p>A keep rule is either a class name, such as {@code com.example.Foo}, a package followed by
+ * {@code .*} keeping the classes of the package, or a package followed by {@code .**} keeping the
+ * classes of the package and of its subpackages.
+ */
+public final class Minimization {
+  private final Set<String> entryPoints;
+  private final Set<String> keepRules;
+
+  /**
+   * Create a new minimization.
+   *
+   * @param entryPoints the class names loaded first by the server, such as the plugin main class
+   * @param keepRules the keep rules
+   */
+  public Minimization(
+      @Nonnull Collection<String> entryPoints, @Nonnull Collection<String> keepRules) {
+    this.entryPoints = new TreeSet<>(entryPoints);
+    this.keepRules = new TreeSet<>(keepRules);
+  }
+
+  /**
+   * Gets the class names loaded first by the server.
+   *
+   * @return the entry points, with dots as separators
+   */
+  @Nonnull
+  public Set<String> getEntryPoints() {
+    return this.entryPoints;
+  }
+
+  /**
+   * Gets the keep rules.
+   *
+   * @return the keep rules
+   */
+  @Nonnull
+  public Set<String> getKeepRules() {
+    return this.keepRules;
+  }
+
+  /**
+   * Describes the roots of the minimization, so it can be used as a task input.
+   *
+   * @return the description of the minimization
+   */
+  @Nonnull
+  public List<String> fingerprint() {
+    List<String> fingerprint = new ArrayList<>();
+    for (String entryPoint : this.entryPoints) {
+      fingerprint.add("entry " + entryPoint);
+    }
+    for (String keepRule : this.keepRules) {
+      fingerprint.add("keep " + keepRule);
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Checks whether a keep rule matches the class.
+   *
+   * @param className the class name, with slashes as separators
+   * @return whether the class is kept
+   */
+  boolean keeps(@Nonnull String className) {
+    String name = className.replace('/', '.');
+    int separator = name.lastIndexOf('.');
+    String packageName = separator < 0 ? "" : name.substring(0, separator);
+    for (String rule : this.keepRules) {
+      if (rule.endsWith(".**")) {
+        String prefix = rule.substring(0, rule.length() - 3);
+        if (packageName.equals(prefix) || packageName.startsWith(prefix + '.')) {
+          return true;
+        }
+      } else if (rule.endsWith(".*")) {
+        if (packageName.equals(rule.substring(0, rule.length() - 2))) {
+          return true;
+        }
+      } else if (name.equals(rule)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.shadow.nested.NestedBootstrap;
+import com.vouncherstudios.strawberry.shadow.nested.NestedJarClassLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * The task action embedding the dependency jars unmodified into the jar merged by Shadow, along
+ * with the bootstrap main classes loading them. The entries merged by Shadow are copied as they are
+ * and the dependency jars are stored, so nothing is compressed again. Each dependency jar is stored
+ * under the SHA-256 of its content, which the bootstrap uses to reuse the jars it extracted.
+ */
+public final class NestingAction implements Action<Task> {
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String PAPER_PLUGIN = "org/bukkit/plugin/java/JavaPlugin";
+
+  private final FileCollection libraries;
+  private final String paperMain;
+  private final String velocityMain;
+
+  /**
+   * Create a new nesting action.
+   *
+   * @param libraries the dependency jars to embed
+   * @param paperMain the Paper plugin main class name, or {@code null} if there is none
+   * @param velocityMain the Velocity plugin main class name, or {@code null} if there is none
+   */
+  public NestingAction(
+      @Nonnull FileCollection libraries,
+      @Nullable String paperMain,
+      @Nullable String velocityMain) {
+    this.libraries = libraries;
+    this.paperMain = paperMain;
+    this.velocityMain = velocityMain;
+  }
+
+  @Override
+  public void execute(@Nonnull Task task) {
+    Path archive = ((ShadowJar) task).getArchiveFile().get().getAsFile().toPath();
+    Path output = archive.resolveSibling(archive.getFileName() + ".nesting");
+    Set<String> written = new HashSet<>();
+    try {
+      try (ZipArchive input = ZipArchive.open(archive);
+          ZipArchiveWriter writer = new ZipArchiveWriter(output)) {
+        for (ZipArchive.Entry entry : input.entries()) {
+          if (this.paperMain != null
+              && entry.getName().equals(this.paperMain.replace('.', '/') + ".class")) {
+            checkPaperMain(entry.read());
+          }
+          written.add(entry.getName());
+          writer.write(
+              entry.getName(),
+              entry.getDosTime(),
+              entry.getMethod(),
+              entry.getCrc(),
+              entry.getSize(),
+              entry.readRaw(),
+              entry);
+        }
+
+        for (Map.Entry<String, byte[]> bootstrap :
+            NestedBootstrap.generate(this.paperMain, this.velocityMain).entrySet()) {
+          writeStored(writer, written, bootstrap.getKey(), bootstrap.getValue());
+        }
+        for (File library : this.libraries.getFiles()) {
+          byte[] data = Files.readAllBytes(library.toPath());
+          writeStored(
+              writer,
+              written,
+              NestedJarClassLoader.LIBRARIES_DIRECTORY + hash(data) + '/' + library.getName(),
+              data);
+        }
+      }
+      Files.move(output, archive, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    task.getLogger()
+        .info("Embedded {} dependency jars into {}", this.libraries.getFiles().size(), archive);
+  }
+
+  /**
+   * Fails if the Paper main class still extends {@code JavaPlugin}, which the bootstrap can't
+   * create: Paper only allows a single plugin instance per jar.
+   */
+  private void checkPaperMain(@Nonnull byte[] data) {
+    if (PAPER_PLUGIN.equals(new ClassReader(data).getSuperName())) {
+      throw new GradleException(
+          "The Paper main class "
+              + this.paperMain
+              + " extends JavaPlugin, which the nested packaging doesn't support. The bootstrap"
+              + " is the JavaPlugin: make the main class a plain class receiving it through its"
+              + " constructor, or use the default packaging");
+    }
+  }
+
+  @Nonnull
+  private static String hash(@Nonnull byte[] data) {
+    byte[] digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM).digest(data);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+    }
+
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  private static void writeStored(
+      @Nonnull ZipArchiveWriter writer,
+      @Nonnull Set<String> written,
+      @Nonnull String name,
+      @Nonnull byte[] data)
+      throws IOException {
+    if (!written.add(name)) {
+      throw new GradleException("The jar already has an entry named " + name);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    writer.write(
+        name,
+        ZipArchiveWriter.EARLIEST_DOS_TIME,
+        ZipArchive.STORED,
+        crc.getValue(),
+        data.length,
+        ByteBuffer.wrap(data));
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * The index of the names a jar or a class directory may have relocated: the classes it declares or
+ * references, grouped by package, its string constants, resources and service providers, along
+ * with the packages of the classes it declares. The names are collected by remapping every class,
+ * so they are exactly the ones the shading pipeline would look up.
+ *
+ * <p>A jar never changes once published, so the index of a jar is stored under the hash of its
+ * content and reused by every later analysis of the same jar.
+ */
+final class PackageIndex {
+  private static final int VERSION = 2;
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String SERVICES_PREFIX = "META-INF/services/";
+
+  private final Set<String> packages = new TreeSet<>();
+  private final Map<String, Set<String>> classes = new TreeMap<>();
+  private final Set<String> strings = new TreeSet<>();
+  private final Set<String> resources = new TreeSet<>();
+  private final Set<String> services = new TreeSet<>();
+
+  private PackageIndex() {}
+
+  /**
+   * Indexes a jar or a class directory. The index of a jar is read from the index directory when
+   * it was already built, and stored there otherwise. Class directories are indexed on each call.
+   *
+   * @param file the jar or the class directory
+   * @param indexDirectory the directory the jar indexes are stored in
+   * @return the index
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static PackageIndex of(@Nonnull File file, @Nonnull Path indexDirectory) throws IOException {
+    Path path = file.toPath();
+    if (Files.isDirectory(path)) {
+      return indexDirectory(path);
+    }
+    if (!Files.isRegularFile(path)) {
+      return new PackageIndex();
+    }
+
+    Path indexFile = indexDirectory.resolve(hash(path) + ".bin");
+    PackageIndex index = read(indexFile);
+    if (index == null) {
+      index = indexArchive(path);
+      // Analyses running concurrently may index the same jar, the last one wins
+      Files.createDirectories(indexDirectory);
+      Path temporary = Files.createTempFile(indexDirectory, indexFile.getFileName().toString(), "");
+      index.write(temporary);
+      ShadingPipeline.move(temporary, indexFile);
+    }
+    return index;
+  }
+
+  /**
+   * Gets the packages of the declared classes.
+   *
+   * @return the package names, with slashes as separators
+   */
+  @Nonnull
+  Set<String> getPackages() {
+    return this.packages;
+  }
+
+  /**
+   * Gets the classes declared or referenced, by package.
+   *
+   * @return the simple class names by package, with slashes as separators
+   */
+  @Nonnull
+  Map<String, Set<String>> getClasses() {
+    return this.classes;
+  }
+
+  @Nonnull
+  Set<String> getStrings() {
+    return this.strings;
+  }
+
+  @Nonnull
+  Set<String> getResources() {
+    return this.resources;
+  }
+
+  /**
+   * Gets the service files and the providers they list.
+   *
+   * @return the service and provider class names, with dots as separators
+   */
+  @Nonnull
+  Set<String> getServices() {
+    return this.services;
+  }
+
+  @Nonnull
+  private static PackageIndex indexArchive(@Nonnull Path path) throws IOException {
+    PackageIndex index = new PackageIndex();
+    try (ZipArchive archive = ZipArchive.open(path)) {
+      for (ZipArchive.Entry entry : archive.entries()) {
+        if (!entry.isDirectory()) {
+          index.add(entry.getName(), entry.read());
+        }
+      }
+    }
+    return index;
+  }
+
+  @Nonnull
+  private static PackageIndex indexDirectory(@Nonnull Path directory) throws IOException {
+    PackageIndex index = new PackageIndex();
+    try (Stream<Path> files = Files.walk(directory)) {
+      for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+        String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+        index.add(name, Files.readAllBytes(file));
+      }
+    }
+    return index;
+  }
+
+  private void add(@Nonnull String name, @Nonnull byte[] data) {
+    if (name.endsWith(CLASS_SUFFIX)) {
+      String className = ClassReachability.className(name);
+      if (className != null) {
+        int separator = className.lastIndexOf('/');
+        this.packages.add(separator < 0 ? "" : className.substring(0, separator));
+      }
+      try {
+        new ClassReader(data).accept(new ClassRemapper(new ClassWriter(0), new Collector()), 0);
+      } catch (RuntimeException e) {
+        // The pipeline copies malformed classes as they are
+      }
+    } else if (name.startsWith(SERVICES_PREFIX)
+        && name.indexOf('/', SERVICES_PREFIX.length()) < 0) {
+      this.services.add(name.substring(SERVICES_PREFIX.length()));
+      for (String line : new String(data, StandardCharsets.UTF_8).split("\n")) {
+        String provider = line.strip();
+        if (!provider.isEmpty() && !provider.startsWith("#")) {
+          this.services.add(provider);
+        }
+      }
+    } else {
+      this.resources.add(name);
+    }
+  }
+
+  private void addClass(@Nonnull String internalName) {
+    int separator = internalName.lastIndexOf('/');
+    this.classes
+        .computeIfAbsent(
+            separator < 0 ? "" : internalName.substring(0, separator), key -> new TreeSet<>())
+        .add(internalName.substring(separator + 1));
+  }
+
+  @Nullable
+  private static PackageIndex read(@Nonnull Path file) {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != VERSION) {
+        return null;
+      }
+
+      PackageIndex index = new PackageIndex();
+      readNames(in, index.packages);
+      int packages = in.readInt();
+      for (int i = 0; i < packages; i++) {
+        String packageName = in.readUTF();
+        Set<String> names = new TreeSet<>();
+        readNames(in, names);
+        index.classes.put(packageName, names);
+      }
+      readNames(in, index.strings);
+      readNames(in, index.resources);
+      readNames(in, index.services);
+      return index;
+    } catch (IOException e) {
+      // A truncated index is built again
+      return null;
+    }
+  }
+
+  private static void readNames(@Nonnull DataInputStream in, @Nonnull Set<String> names)
+      throws IOException {
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      names.add(in.readUTF());
+    }
+  }
+
+  private void write(@Nonnull Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(VERSION);
+      writeNames(out, this.packages);
+      out.writeInt(this.classes.size());
+      for (Map.Entry<String, Set<String>> entry : this.classes.entrySet()) {
+        out.writeUTF(entry.getKey());
+        writeNames(out, entry.getValue());
+      }
+      writeNames(out, this.strings);
+      writeNames(out, this.resources);
+      writeNames(out, this.services);
+    }
+  }
+
+  private static void writeNames(@Nonnull DataOutputStream out, @Nonnull Collection<String> names)
+      throws IOException {
+    out.writeInt(names.size());
+    for (String name : names) {
+      out.writeUTF(name);
+    }
+  }
+
+  @Nonnull
+  private static String hash(@Nonnull Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+    }
+
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  /** A remapper collecting the names it is asked to map instead of mapping them. */
+  private final class Collector extends Remapper {
+    @Override
+    public Object mapValue(Object value) {
+      if (value instanceof String) {
+        PackageIndex.this.strings.add((String) value);
+        return value;
+      }
+      return super.mapValue(value);
+    }
+
+    @Override
+    public String map(String internalName) {
+      if (internalName != null) {
+        addClass(internalName);
+      }
+      return internalName;
+    }
+  }
+}
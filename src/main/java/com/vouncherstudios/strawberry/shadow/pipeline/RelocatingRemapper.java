@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.ShadowStats;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * A remapper applying a relocator to class names, descriptors and string constants, following the
+ * same rules as Shadow's own remapper. A remapper is not thread-safe, each class should be remapped
+ * with its own instance.
+ */
+public final class RelocatingRemapper extends Remapper {
+  private static final Pattern CLASS_PATTERN = Pattern.compile("(\\[*)?L(.+)");
+
+  private final Relocator relocator;
+  private final Relocator literalRelocator;
+  private final ShadowStats stats = new ShadowStats();
+  private boolean relocated;
+
+  public RelocatingRemapper(@Nonnull Relocator relocator) {
+    this(relocator, relocator);
+  }
+
+  /**
+   * Create a new remapper applying a different relocator to string constants.
+   *
+   * @param relocator the relocator of class names, descriptors and resource paths
+   * @param literalRelocator the relocator of string constants
+   */
+  public RelocatingRemapper(@Nonnull Relocator relocator, @Nonnull Relocator literalRelocator) {
+    this.relocator = relocator;
+    this.literalRelocator = literalRelocator;
+  }
+
+  /**
+   * Checks whether any name was relocated by this remapper.
+   *
+   * @return whether any name was relocated
+   */
+  public boolean isRelocated() {
+    return this.relocated;
+  }
+
+  @Override
+  public Object mapValue(Object value) {
+    if (value instanceof String) {
+      return relocate((String) value, true);
+    }
+    return super.mapValue(value);
+  }
+
+  @Override
+  public String map(String internalName) {
+    return internalName == null ? null : relocate(internalName, false);
+  }
+
+  /**
+   * Relocates the path of a resource.
+   *
+   * @param path the path of the resource
+   * @return the relocated path
+   */
+  @Nonnull
+  public String mapPath(@Nonnull String path) {
+    return relocate(path, false);
+  }
+
+  /**
+   * Relocates a class name, as found in service files.
+   *
+   * @param className the class name, with dots as separators
+   * @return the relocated class name
+   */
+  @Nonnull
+  public String mapClassName(@Nonnull String className) {
+    if (this.relocator.canRelocateClass(className)) {
+      this.relocated = true;
+      return this.relocator.relocateClass(new RelocateClassContext(className, this.stats));
+    }
+    return className;
+  }
+
+  @Nonnull
+  private String relocate(@Nonnull String value, boolean constant) {
+    Relocator relocator = constant ? this.literalRelocator : this.relocator;
+    String name = value;
+    String prefix = "";
+    String suffix = "";
+
+    Matcher matcher = CLASS_PATTERN.matcher(name);
+    if (matcher.matches()) {
+      prefix = matcher.group(1) + "L";
+      suffix = ";";
+      name = matcher.group(2);
+    }
+
+    // String constants may hold class names with dots, internal names always use slashes
+    if (constant && relocator.canRelocateClass(name)) {
+      this.relocated = true;
+      return prefix
+          + relocator.relocateClass(new RelocateClassContext(name, this.stats))
+          + suffix;
+    }
+    if (relocator.canRelocatePath(name)) {
+      this.relocated = true;
+      return prefix
+          + relocator.relocatePath(new RelocatePathContext(name, this.stats))
+          + suffix;
+    }
+    return value;
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+
+/**
+ * The analysis of what each relocation rewrites in a classpath. Every class name, string constant,
+ * resource and service provider of the classpath is looked up the way the shading pipeline would,
+ * and credited to the relocation rewriting it. A relocation rewriting nothing is dead when it
+ * matches nothing at all, or shadowed when every name it matches is rewritten by a relocation
+ * declared before it.
+ */
+public final class RelocationUsage {
+  private static final int NO_MATCH = -1;
+
+  private final List<Usage> usages;
+
+  private RelocationUsage(@Nonnull List<Usage> usages) {
+    this.usages = usages;
+  }
+
+  /**
+   * Analyzes the relocations against a classpath.
+   *
+   * @param relocations the relocations, in declaration order
+   * @param classpath the jars and class directories
+   * @param indexDirectory the directory the jar indexes are stored in
+   * @return the analysis
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  public static RelocationUsage analyze(
+      @Nonnull List<Relocation> relocations,
+      @Nonnull Collection<File> classpath,
+      @Nonnull Path indexDirectory)
+      throws IOException {
+    Map<Kind, Set<String>> names = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      names.put(kind, new HashSet<>());
+    }
+    for (File file : classpath) {
+      PackageIndex index = PackageIndex.of(file, indexDirectory);
+      index
+          .getClasses()
+          .forEach(
+              (packageName, simpleNames) -> {
+                String prefix = packageName.isEmpty() ? "" : packageName + '/';
+                simpleNames.forEach(name -> names.get(Kind.CLASS).add(prefix + name));
+              });
+      names.get(Kind.STRING).addAll(index.getStrings());
+      names.get(Kind.RESOURCE).addAll(index.getResources());
+      names.get(Kind.SERVICE).addAll(index.getServices());
+    }
+
+    // Credit each name to the relocation rewriting it
+    Lookup lookup = new Lookup(relocations);
+    Map<Kind, int[]> counts = new EnumMap<>(Kind.class);
+    Map<Kind, Map<String, Integer>> rewrittenBy = new EnumMap<>(Kind.class);
+    for (Kind kind : Kind.values()) {
+      int[] kindCounts = new int[relocations.size()];
+      Map<String, Integer> kindRewrittenBy = new HashMap<>();
+      for (String name : names.get(kind)) {
+        int index = lookup.find(kind, name);
+        if (index != NO_MATCH) {
+          kindCounts[index]++;
+          kindRewrittenBy.put(name, index);
+        }
+      }
+      counts.put(kind, kindCounts);
+      rewrittenBy.put(kind, kindRewrittenBy);
+    }
+
+    // Look the names up again against each relocation on its own to find the overlaps
+    List<Usage> usages = new ArrayList<>(relocations.size());
+    for (int i = 0; i < relocations.size(); i++) {
+      Relocation relocation = relocations.get(i);
+      Lookup alone = new Lookup(List.of(relocation));
+      boolean matched = false;
+      Set<Integer> overlapping = new TreeSet<>();
+      for (Kind kind : Kind.values()) {
+        for (String name : names.get(kind)) {
+          if (alone.find(kind, name) != NO_MATCH) {
+            matched = true;
+            Integer index = rewrittenBy.get(kind).get(name);
+            if (index != null && index != i) {
+              overlapping.add(index);
+            }
+          }
+        }
+      }
+
+      int classes = counts.get(Kind.CLASS)[i] + counts.get(Kind.SERVICE)[i];
+      int strings = counts.get(Kind.STRING)[i];
+      int resources = counts.get(Kind.RESOURCE)[i];
+      Status status;
+      if (classes + strings + resources > 0) {
+        status = Status.USED;
+      } else {
+        status = matched ? Status.SHADOWED : Status.DEAD;
+      }
+      List<Relocation> overlappedBy = new ArrayList<>(overlapping.size());
+      overlapping.forEach(index -> overlappedBy.add(relocations.get(index)));
+      usages.add(new Usage(relocation, status, classes, strings, resources, overlappedBy));
+    }
+    return new RelocationUsage(usages);
+  }
+
+  /**
+   * Gets the usage of each relocation, in declaration order.
+   *
+   * @return the usages
+   */
+  @Nonnull
+  public List<Usage> getUsages() {
+    return this.usages;
+  }
+
+  /** What a relocation rewrites. */
+  public enum Status {
+    /** The relocation rewrites some names. */
+    USED,
+    /** The relocation matches no name of the classpath. */
+    DEAD,
+    /** Every name the relocation matches is rewritten by a relocation declared before it. */
+    SHADOWED
+  }
+
+  /** The usage of a relocation. */
+  public static final class Usage {
+    private final Relocation relocation;
+    private final Status status;
+    private final int classes;
+    private final int strings;
+    private final int resources;
+    private final List<Relocation> overlappedBy;
+
+    Usage(
+        @Nonnull Relocation relocation,
+        @Nonnull Status status,
+        int classes,
+        int strings,
+        int resources,
+        @Nonnull List<Relocation> overlappedBy) {
+      this.relocation = relocation;
+      this.status = status;
+      this.classes = classes;
+      this.strings = strings;
+      this.resources = resources;
+      this.overlappedBy = overlappedBy;
+    }
+
+    /**
+     * Gets the relocation.
+     *
+     * @return the relocation
+     */
+    @Nonnull
+    public Relocation getRelocation() {
+      return this.relocation;
+    }
+
+    /**
+     * Gets what the relocation rewrites.
+     *
+     * @return the status
+     */
+    @Nonnull
+    public Status getStatus() {
+      return this.status;
+    }
+
+    /**
+     * Gets the number of class names and service providers the relocation rewrites.
+     *
+     * @return the number of classes
+     */
+    public int getClasses() {
+      return this.classes;
+    }
+
+    /**
+     * Gets the number of distinct string constants the relocation rewrites.
+     *
+     * @return the number of strings
+     */
+    public int getStrings() {
+      return this.strings;
+    }
+
+    /**
+     * Gets the number of resources the relocation moves.
+     *
+     * @return the number of resources
+     */
+    public int getResources() {
+      return this.resources;
+    }
+
+    /**
+     * Gets the relocations declared before this one which rewrite some of the names it matches.
+     *
+     * @return the overlapping relocations, in declaration order
+     */
+    @Nonnull
+    public List<Relocation> getOverlappedBy() {
+      return this.overlappedBy;
+    }
+  }
+
+  /** The kind of a name, telling how the shading pipeline relocates it. */
+  private enum Kind {
+    CLASS,
+    STRING,
+    RESOURCE,
+    SERVICE
+  }
+
+  /**
+   * Looks names up through the same remapper as the shading pipeline, recording which relocation
+   * rewrote them. Not thread-safe.
+   */
+  private static final class Lookup {
+    private final TrieRelocator trie;
+    private final CreditingRelocator relocator;
+    private final CreditingRelocator literalRelocator;
+    private final RelocatingRemapper remapper;
+
+    Lookup(@Nonnull List<Relocation> relocations) {
+      this.trie = new TrieRelocator(relocations);
+      this.relocator = new CreditingRelocator(this.trie, relocations);
+      this.literalRelocator = new CreditingRelocator(this.trie.literalRelocator(), relocations);
+      this.remapper = new RelocatingRemapper(this.relocator, this.literalRelocator);
+    }
+
+    /**
+     * Finds the relocation rewriting the name.
+     *
+     * @param kind the kind of the name
+     * @param name the name
+     * @return the index of the relocation, or {@link #NO_MATCH} if the name is left unchanged
+     */
+    int find(@Nonnull Kind kind, @Nonnull String name) {
+      if (!this.trie.mayRelocate(name)) {
+        return NO_MATCH;
+      }
+
+      this.relocator.credited = NO_MATCH;
+      this.literalRelocator.credited = NO_MATCH;
+      switch (kind) {
+        case CLASS:
+          this.remapper.map(name);
+          break;
+        case STRING:
+          this.remapper.mapValue(name);
+          break;
+        case RESOURCE:
+          this.remapper.mapPath(name);
+          break;
+        default:
+          this.remapper.mapClassName(name);
+          break;
+      }
+      return Math.max(this.relocator.credited, this.literalRelocator.credited);
+    }
+  }
+
+  /** A relocator recording which of the relocations it last applied. */
+  private static final class CreditingRelocator implements Relocator {
+    private final TrieRelocator trie;
+    private final Map<SimpleRelocator, Integer> indexes = new IdentityHashMap<>();
+    private int credited = NO_MATCH;
+
+    CreditingRelocator(@Nonnull TrieRelocator trie, @Nonnull List<Relocation> relocations) {
+      this.trie = trie;
+      List<SimpleRelocator> relocators = trie.getRelocators();
+      for (int i = 0; i < relocators.size(); i++) {
+        this.indexes.put(relocators.get(i), relocations.indexOf(trie.getRelocations().get(i)));
+      }
+    }
+
+    @Override
+    public boolean canRelocatePath(String path) {
+      return this.trie.canRelocatePath(path);
+    }
+
+    @Override
+    public String relocatePath(RelocatePathContext context) {
+      SimpleRelocator relocator = this.trie.findPathRelocator(context.getPath());
+      if (relocator != null) {
+        this.credited = this.indexes.get(relocator);
+      }
+      return this.trie.relocatePath(context);
+    }
+
+    @Override
+    public boolean canRelocateClass(String className) {
+      return this.trie.canRelocateClass(className);
+    }
+
+    @Override
+    public String relocateClass(RelocateClassContext context) {
+      SimpleRelocator relocator = this.trie.findClassRelocator(context.getClassName());
+      if (relocator != null) {
+        this.credited = this.indexes.get(relocator);
+      }
+      return this.trie.relocateClass(context);
+    }
+
+    @Override
+    public String applyToSourceContent(String sourceContent) {
+      return sourceContent;
+    }
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.annotation.Nonnull;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+
+/**
+ * The task action keeping the output of the previous run of an incremental shading pipeline,
+ * before Shadow overwrites it.
+ */
+public final class RetainOutputAction implements Action<Task> {
+  private final ShadingPipeline pipeline;
+
+  public RetainOutputAction(@Nonnull ShadingPipeline pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  @Override
+  public void execute(@Nonnull Task task) {
+    ShadowJar shadowJar = (ShadowJar) task;
+    try {
+      this.pipeline.retain(shadowJar.getArchiveFile().get().getAsFile().toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+
+/**
+ * The classes of the shaded dependencies the server already provides. The server API jars, such as
+ * paper-api and the libraries it depends on, are indexed by package: a dependency class in one of
+ * these packages would be loaded next to the server's own copy, or never be loaded at all.
+ *
+ * <p>A dependency whose classes are all in server packages can be left out of the jar. When only
+ * some of them are, the dependency is kept, since the server may provide another version of the
+ * package.
+ */
+final class ServerProvidedClasses {
+  private static final String META_INF = "META-INF/";
+
+  private final List<Dependency> dependencies;
+  // The entries of the excluded dependencies, by name
+  private final Map<String, ZipArchive.Entry> excludedEntries = new HashMap<>();
+  private final Set<String> excludedClasses = new HashSet<>();
+
+  private ServerProvidedClasses(@Nonnull List<Dependency> dependencies) {
+    this.dependencies = dependencies;
+  }
+
+  /**
+   * Checks the dependency jars against the packages of the server API jars.
+   *
+   * @param serverApis the server API jars
+   * @param sources the dependency jars
+   * @param policy what to do with the dependencies the server provides
+   * @return the server provided classes
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static ServerProvidedClasses analyze(
+      @Nonnull Collection<File> serverApis,
+      @Nonnull Collection<File> sources,
+      @Nonnull ServerProvidedPolicy policy)
+      throws IOException {
+    Set<String> serverPackages = new HashSet<>();
+    for (File serverApi : serverApis) {
+      if (!serverApi.isFile()) {
+        continue;
+      }
+      try (ZipArchive archive = ZipArchive.open(serverApi.toPath())) {
+        for (ZipArchive.Entry entry : archive.entries()) {
+          String className = ClassReachability.className(entry.getName());
+          // Classes of the unnamed package are not part of any API
+          if (className != null && className.indexOf('/') >= 0) {
+            serverPackages.add(packageName(className));
+          }
+        }
+      }
+    }
+
+    List<Dependency> dependencies = new ArrayList<>();
+    ServerProvidedClasses provided = new ServerProvidedClasses(dependencies);
+    if (serverPackages.isEmpty()) {
+      return provided;
+    }
+
+    for (File source : sources) {
+      String name = source.getName();
+      if (!source.isFile() || !(name.endsWith(".jar") || name.endsWith(".zip"))) {
+        continue;
+      }
+      try (ZipArchive archive = ZipArchive.open(source.toPath())) {
+        List<ZipArchive.Entry> entries = archive.entries();
+        int classes = 0;
+        int providedClasses = 0;
+        long providedBytes = 0;
+        Set<String> packages = new TreeSet<>();
+        for (ZipArchive.Entry entry : entries) {
+          String className = ClassReachability.className(entry.getName());
+          if (className == null) {
+            continue;
+          }
+          classes++;
+          String packageName = packageName(className);
+          if (serverPackages.contains(packageName)) {
+            providedClasses++;
+            providedBytes += entry.getSize();
+            packages.add(packageName.replace('/', '.'));
+          }
+        }
+        if (providedClasses == 0) {
+          continue;
+        }
+
+        boolean excluded = policy == ServerProvidedPolicy.EXCLUDE && providedClasses == classes;
+        if (excluded) {
+          for (ZipArchive.Entry entry : entries) {
+            // The manifest and the like may have been merged from another jar
+            if (!entry.isDirectory() && !entry.getName().startsWith(META_INF)) {
+              provided.excludedEntries.putIfAbsent(entry.getName(), entry);
+            }
+            String className = ClassReachability.className(entry.getName());
+            if (className != null) {
+              provided.excludedClasses.add(className);
+            }
+          }
+        }
+        dependencies.add(
+            new Dependency(name, classes, providedClasses, providedBytes, packages, excluded));
+      }
+    }
+    return provided;
+  }
+
+  /**
+   * Checks whether the entry was merged from a dependency left out of the jar.
+   *
+   * @param entry the entry of the jar merged by Shadow
+   * @return whether the entry is left out
+   */
+  boolean isExcluded(@Nonnull ZipArchive.Entry entry) {
+    ZipArchive.Entry excluded = this.excludedEntries.get(entry.getName());
+    return excluded != null
+        && excluded.getCrc() == entry.getCrc()
+        && excluded.getSize() == entry.getSize();
+  }
+
+  /**
+   * Gets the classes of the dependencies left out of the jar. The server loads them under their
+   * own names, so the references to them must not be relocated.
+   *
+   * @return the class names, with slashes as separators
+   */
+  @Nonnull
+  Set<String> getExcludedClasses() {
+    return this.excludedClasses;
+  }
+
+  /**
+   * Gets the dependencies having classes the server provides.
+   *
+   * @return the dependencies
+   */
+  @Nonnull
+  List<Dependency> getDependencies() {
+    return this.dependencies;
+  }
+
+  @Nonnull
+  private static String packageName(@Nonnull String className) {
+    int separator = className.lastIndexOf('/');
+    return separator < 0 ? "" : className.substring(0, separator);
+  }
+
+  /** A dependency jar having classes the server provides. */
+  static final class Dependency {
+    private final String name;
+    private final int classes;
+    private final int providedClasses;
+    private final long providedBytes;
+    private final Set<String> packages;
+    private final boolean excluded;
+
+    Dependency(
+        @Nonnull String name,
+        int classes,
+        int providedClasses,
+        long providedBytes,
+        @Nonnull Set<String> packages,
+        boolean excluded) {
+      this.name = name;
+      this.classes = classes;
+      this.providedClasses = providedClasses;
+      this.providedBytes = providedBytes;
+      this.packages = packages;
+      this.excluded = excluded;
+    }
+
+    @Nonnull
+    String getName() {
+      return this.name;
+    }
+
+    int getClasses() {
+      return this.classes;
+    }
+
+    int getProvidedClasses() {
+      return this.providedClasses;
+    }
+
+    long getProvidedBytes() {
+      return this.providedBytes;
+    }
+
+    @Nonnull
+    Set<String> getPackages() {
+      return this.packages;
+    }
+
+    boolean isExcluded() {
+      return this.excluded;
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.tasks.ShadowJar;
+import com.vouncherstudios.strawberry.metrics.MetricsService;
+import com.vouncherstudios.strawberry.metrics.TaskMetrics;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.task.AutoRelocationTask;
+import com.vouncherstudios.strawberry.shadow.task.RelocationReportTask;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+
+/**
+ * The task action running the Strawberry shading pipeline on the jar merged by Shadow. The action
+ * is stored in the configuration cache along with the task, so it only holds the pipeline and the
+ * files of the relocation tasks, which it applies once they ran.
+ */
+public final class ShadingAction implements Action<Task> {
+  private final ShadingPipeline pipeline;
+  private final Provider<RegularFile> usageFile;
+  private final Provider<RegularFile> autoRelocations;
+  private final FileCollection libraries;
+  private final FileCollection serverApis;
+  private final Provider<MetricsService> metrics;
+  private final Provider<ShadingPoolService> pool;
+
+  /**
+   * Create a new shading action.
+   *
+   * @param pipeline the shading pipeline, with the declared relocations
+   * @param usageFile the relocation usage, whose unused relocations are pruned, or {@code null} to
+   *     prune nothing
+   * @param autoRelocations the automatic relocations, added after the declared ones, or {@code
+   *     null} to add none
+   * @param libraries the library jars loaded by the server, whose classes are never relocated
+   * @param serverApis the server API jars, with the libraries the server provides along with them
+   * @param metrics the service recording the metrics of the run, when enabled
+   * @param pool the service holding the pool running the concurrent work
+   */
+  public ShadingAction(
+      @Nonnull ShadingPipeline pipeline,
+      @Nullable Provider<RegularFile> usageFile,
+      @Nullable Provider<RegularFile> autoRelocations,
+      @Nonnull FileCollection libraries,
+      @Nonnull FileCollection serverApis,
+      @Nonnull Provider<MetricsService> metrics,
+      @Nonnull Provider<ShadingPoolService> pool) {
+    this.pipeline = pipeline;
+    this.usageFile = usageFile;
+    this.autoRelocations = autoRelocations;
+    this.libraries = libraries;
+    this.serverApis = serverApis;
+    this.metrics = metrics;
+    this.pool = pool;
+  }
+
+  @Override
+  public void execute(@Nonnull Task task) {
+    ShadowJar shadowJar = (ShadowJar) task;
+    ShadingPipeline pipeline = this.pipeline;
+    if (this.usageFile != null) {
+      // The unused relocations rewrite nothing, leaving them out doesn't change the jar
+      pipeline =
+          pipeline.withoutRelocations(
+              RelocationReportTask.readUnused(this.usageFile.get().getAsFile()));
+    }
+    if (this.autoRelocations != null) {
+      // The automatic relocations come after the declared ones, which take precedence
+      pipeline =
+          pipeline.withRelocations(
+              AutoRelocationTask.readRelocations(this.autoRelocations.get().getAsFile()));
+    }
+    MetricsService service = this.metrics.get();
+    TaskMetrics metrics = null;
+    if (service.isEnabled()) {
+      List<String> relocations = new ArrayList<>();
+      for (Relocation relocation : pipeline.getRelocations()) {
+        relocations.add(relocation.getPattern() + " -> " + relocation.getDestination());
+      }
+      metrics = new TaskMetrics(shadowJar.getPath(), relocations);
+    }
+    try {
+      pipeline.process(
+          shadowJar.getArchiveFile().get().getAsFile().toPath(),
+          shadowJar.getIncludedDependencies().getFiles(),
+          this.libraries.getFiles(),
+          this.serverApis.getFiles(),
+          this.pool.get().getPool(),
+          shadowJar.getLogger(),
+          metrics);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (metrics != null) {
+      service.record(metrics);
+    }
+  }
+}
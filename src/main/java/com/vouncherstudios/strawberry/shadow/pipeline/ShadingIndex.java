@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The per-entry index of an incremental pipeline run. It maps each entry of the jar merged by
+ * Shadow to the hash of its content and to the entry it was shaded to, so the next run can copy
+ * the compressed bytes of every unchanged entry from the previous output.
+ *
+ * <p>The index is bound to the output it describes through the fingerprint of its central
+ * directory, so an output replaced behind its back, such as restored from the build cache, is never
+ * reused through a stale index.
+ */
+final class ShadingIndex {
+  private static final int VERSION = 2;
+  private static final String HASH_ALGORITHM = "SHA-256";
+
+  private final String fingerprint;
+  private final Map<String, Record> records = new ConcurrentHashMap<>();
+  private String outputFingerprint = "";
+
+  /**
+   * Creates a new empty index.
+   *
+   * @param fingerprint the fingerprint of the pipeline configuration the entries were shaded with
+   */
+  ShadingIndex(@Nonnull String fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Reads an index. A missing or unreadable index, or one written with another pipeline
+   * configuration, is read as an empty one.
+   *
+   * @param file the index file
+   * @param fingerprint the fingerprint of the current pipeline configuration
+   * @return the index
+   */
+  @Nonnull
+  static ShadingIndex read(@Nonnull Path file, @Nonnull String fingerprint) {
+    ShadingIndex index = new ShadingIndex(fingerprint);
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != VERSION || !in.readUTF().equals(fingerprint)) {
+        return index;
+      }
+      index.outputFingerprint = in.readUTF();
+
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        String name = in.readUTF();
+        byte[] hash = new byte[in.readUnsignedByte()];
+        in.readFully(hash);
+        index.records.put(
+            name, new Record(hash, in.readUTF(), in.readInt() & 0xFFFFFFFFL, in.readBoolean()));
+      }
+      return index;
+    } catch (NoSuchFileException e) {
+      return index;
+    } catch (IOException e) {
+      return new ShadingIndex(fingerprint);
+    }
+  }
+
+  /**
+   * Hashes the content of an entry.
+   *
+   * @param data the uncompressed bytes of the entry
+   * @return the hash
+   */
+  @Nonnull
+  static byte[] hash(@Nonnull byte[] data) {
+    try {
+      return MessageDigest.getInstance(HASH_ALGORITHM).digest(data);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+    }
+  }
+
+  /**
+   * Fingerprints an archive through its central directory: the name, the method, the sizes and the
+   * CRC of every entry.
+   *
+   * @param archive the archive
+   * @return the fingerprint
+   */
+  @Nonnull
+  static String fingerprint(@Nonnull ZipArchive archive) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+    }
+
+    ByteBuffer fields = ByteBuffer.allocate(28);
+    for (ZipArchive.Entry entry : archive.entries()) {
+      digest.update(entry.getName().getBytes(StandardCharsets.UTF_8));
+      fields.clear();
+      fields
+          .putInt(entry.getMethod())
+          .putLong(entry.getCrc())
+          .putLong(entry.getSize())
+          .putLong(entry.getCompressedSize());
+      digest.update(fields.array());
+    }
+
+    StringBuilder hash = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  /**
+   * Checks whether the index describes the archive, the output of the run which wrote it.
+   *
+   * @param archive the previous output
+   * @return whether the index describes the archive
+   */
+  boolean describes(@Nonnull ZipArchive archive) {
+    return !this.records.isEmpty() && this.outputFingerprint.equals(fingerprint(archive));
+  }
+
+  boolean isEmpty() {
+    return this.records.isEmpty();
+  }
+
+  @Nullable
+  Record get(@Nonnull String name) {
+    return this.records.get(name);
+  }
+
+  void put(@Nonnull String name, @Nonnull Record record) {
+    this.records.putIfAbsent(name, record);
+  }
+
+  /**
+   * Writes the index of an output.
+   *
+   * @param file the index file
+   * @param output the output the index describes
+   * @throws IOException if an I/O error occurs
+   */
+  void write(@Nonnull Path file, @Nonnull ZipArchive output) throws IOException {
+    Files.createDirectories(file.getParent());
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(VERSION);
+      out.writeUTF(this.fingerprint);
+      out.writeUTF(fingerprint(output));
+      out.writeInt(this.records.size());
+      for (Map.Entry<String, Record> entry : this.records.entrySet()) {
+        Record record = entry.getValue();
+        out.writeUTF(entry.getKey());
+        out.writeByte(record.hash.length);
+        out.write(record.hash);
+        out.writeUTF(record.outputName);
+        out.writeInt((int) record.outputCrc);
+        out.writeBoolean(record.relocated);
+      }
+    }
+  }
+
+  /** An indexed entry. */
+  static final class Record {
+    private final byte[] hash;
+    private final String outputName;
+    private final long outputCrc;
+    private final boolean relocated;
+
+    Record(@Nonnull byte[] hash, @Nonnull String outputName, long outputCrc, boolean relocated) {
+      this.hash = hash;
+      this.outputName = outputName;
+      this.outputCrc = outputCrc;
+      this.relocated = relocated;
+    }
+
+    @Nonnull
+    byte[] getHash() {
+      return this.hash;
+    }
+
+    @Nonnull
+    String getOutputName() {
+      return this.outputName;
+    }
+
+    long getOutputCrc() {
+      return this.outputCrc;
+    }
+
+    boolean isRelocated() {
+      return this.relocated;
+    }
+  }
+}
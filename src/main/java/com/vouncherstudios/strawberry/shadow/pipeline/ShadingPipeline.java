@@ -0,0 +1,1299 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import com.vouncherstudios.strawberry.metrics.TaskMetrics;
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import com.vouncherstudios.strawberry.shadow.transformer.KotlinModuleTransformer;
+import com.vouncherstudios.strawberry.shadow.transformer.PluginDescriptorTransformer;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceTransformer;
+import com.vouncherstudios.strawberry.shadow.transformer.ServiceFileTransformer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+
+/**
+ * The Strawberry shading pipeline. It rewrites the jar merged by Shadow, relocating its classes,
+ * resources and service files.
+ *
+ * <p>Entries are processed in chunks: each chunk is remapped and compressed across a fork-join pool
+ * and then written in the original entry order, so the output is byte-identical whatever the
+ * parallelism. Classes whose constant pool references nothing relocated are kept as they are
+ * without being parsed, which makes already relocated dependencies almost free to process.
+ *
+ * <p>Resources are handed to the {@link ResourceTransformer}s in the same pass, the custom ones
+ * first and then the built-in ones relocating the service files, the Kotlin module metadata and the
+ * plugin descriptors.
+ *
+ * <p>Entries left untouched by the pipeline are copied from the dependency jars they were merged
+ * from, which are mapped in memory: their compressed bytes and checksum are reused as they are,
+ * without inflating or deflating anything in this pass. Shadow still inflates every dependency
+ * entry when it merges the jar beforehand, storing them uncompressed, since its dependency filters,
+ * exclusions and transformers decide which entries end up in the jar.
+ *
+ * <p>The entries are compressed according to a {@link CompressionProfile}. With the release
+ * profile, large entries are deflated like pigz does, in chunks compressed concurrently.
+ *
+ * <p>With a {@link Minimization}, the classes of the dependencies which the plugin can't reach from
+ * its entry points are removed from the output.
+ *
+ * <p>The dependencies whose classes the server already provides can be reported or left out of the
+ * output, according to a {@link ServerProvidedPolicy}.
+ *
+ * <p>The classes shipped by more than one dependency can be reported, or fail the build before the
+ * output is written, according to a {@link DuplicateClassPolicy}.
+ *
+ * <p>With a state directory, the pipeline is incremental: it keeps an index of the content hash of
+ * every entry, and copies the compressed bytes of the unchanged entries from the previous output
+ * instead of remapping and compressing them again.
+ *
+ * <p>Given {@link TaskMetrics}, the pipeline records the entries it read and relocated, the bytes
+ * it read and wrote, the time spent in remapping, compression and I/O, and how many names each
+ * relocation rewrote.
+ */
+public final class ShadingPipeline {
+  private static final int CHUNK_SIZE = 4096;
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String SERVICES_PREFIX = "META-INF/services/";
+  private static final String PREVIOUS_ARCHIVE_NAME = "previous.jar";
+  private static final String INDEX_NAME = "index.bin";
+
+  private static final int DEFLATE_CHUNK_SIZE = 128 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final List<ResourceTransformer> BUILT_IN_TRANSFORMERS =
+      List.of(
+          new ServiceFileTransformer(),
+          new KotlinModuleTransformer(),
+          new PluginDescriptorTransformer());
+
+  private final TrieRelocator relocator;
+  private final boolean parallel;
+  private final File stateDirectory;
+  private final CompressionProfile compression;
+  private final Minimization minimization;
+  private final ServerProvidedPolicy serverProvided;
+  private final DuplicateClassPolicy duplicateClasses;
+  private final List<ResourceTransformer> transformers;
+
+  /**
+   * Create a new shading pipeline.
+   *
+   * @param relocator the relocator to apply
+   * @param parallel whether the entries are remapped across all available cores
+   */
+  public ShadingPipeline(@Nonnull TrieRelocator relocator, boolean parallel) {
+    this(
+        relocator,
+        parallel,
+        null,
+        CompressionProfile.DEFAULT,
+        null,
+        ServerProvidedPolicy.IGNORE,
+        DuplicateClassPolicy.IGNORE);
+  }
+
+  /**
+   * Create a new shading pipeline.
+   *
+   * @param relocator the relocator to apply
+   * @param parallel whether the entries are remapped across all available cores
+   * @param stateDirectory the directory keeping the previous output and its index between runs, or
+   *     {@code null} to process every entry on each run
+   * @param compression the compression profile of the output
+   * @param minimization the roots from which the dependency classes must be reachable to be kept,
+   *     or {@code null} to keep every class
+   * @param serverProvided what to do with the dependencies whose classes the server provides
+   * @param duplicateClasses what to do with the classes shipped by more than one dependency
+   */
+  public ShadingPipeline(
+      @Nonnull TrieRelocator relocator,
+      boolean parallel,
+      @Nullable File stateDirectory,
+      @Nonnull CompressionProfile compression,
+      @Nullable Minimization minimization,
+      @Nonnull ServerProvidedPolicy serverProvided,
+      @Nonnull DuplicateClassPolicy duplicateClasses) {
+    this(
+        relocator,
+        parallel,
+        stateDirectory,
+        compression,
+        minimization,
+        serverProvided,
+        duplicateClasses,
+        BUILT_IN_TRANSFORMERS);
+  }
+
+  private ShadingPipeline(
+      @Nonnull TrieRelocator relocator,
+      boolean parallel,
+      @Nullable File stateDirectory,
+      @Nonnull CompressionProfile compression,
+      @Nullable Minimization minimization,
+      @Nonnull ServerProvidedPolicy serverProvided,
+      @Nonnull DuplicateClassPolicy duplicateClasses,
+      @Nonnull List<ResourceTransformer> transformers) {
+    this.relocator = relocator;
+    this.parallel = parallel;
+    this.stateDirectory = stateDirectory;
+    this.compression = compression;
+    this.minimization = minimization;
+    this.serverProvided = serverProvided;
+    this.duplicateClasses = duplicateClasses;
+    this.transformers = transformers;
+  }
+
+  /**
+   * Creates a copy of this pipeline leaving out some of its relocations.
+   *
+   * @param indexes the indexes of the relocations to leave out, in declaration order
+   * @return the pipeline without the relocations
+   */
+  @Nonnull
+  public ShadingPipeline withoutRelocations(@Nonnull Set<Integer> indexes) {
+    if (indexes.isEmpty()) {
+      return this;
+    }
+
+    List<Relocation> relocations = new ArrayList<>();
+    for (int i = 0; i < this.relocator.getRelocations().size(); i++) {
+      if (!indexes.contains(i)) {
+        relocations.add(this.relocator.getRelocations().get(i));
+      }
+    }
+    return new ShadingPipeline(
+        new TrieRelocator(relocations),
+        this.parallel,
+        this.stateDirectory,
+        this.compression,
+        this.minimization,
+        this.serverProvided,
+        this.duplicateClasses,
+        this.transformers);
+  }
+
+  /**
+   * Creates a copy of this pipeline applying more relocations after its own.
+   *
+   * @param relocations the relocations to add
+   * @return the pipeline with the relocations
+   */
+  @Nonnull
+  public ShadingPipeline withRelocations(@Nonnull List<Relocation> relocations) {
+    if (relocations.isEmpty()) {
+      return this;
+    }
+
+    List<Relocation> combined = new ArrayList<>(this.relocator.getRelocations());
+    combined.addAll(relocations);
+    return new ShadingPipeline(
+        new TrieRelocator(combined),
+        this.parallel,
+        this.stateDirectory,
+        this.compression,
+        this.minimization,
+        this.serverProvided,
+        this.duplicateClasses,
+        this.transformers);
+  }
+
+  /**
+   * Creates a copy of this pipeline running more resource transformers before its own.
+   *
+   * @param transformers the transformers to add, in the order they run
+   * @return the pipeline with the transformers
+   */
+  @Nonnull
+  public ShadingPipeline withTransformers(@Nonnull List<ResourceTransformer> transformers) {
+    if (transformers.isEmpty()) {
+      return this;
+    }
+
+    List<ResourceTransformer> combined = new ArrayList<>(transformers);
+    combined.addAll(this.transformers);
+    return new ShadingPipeline(
+        this.relocator,
+        this.parallel,
+        this.stateDirectory,
+        this.compression,
+        this.minimization,
+        this.serverProvided,
+        this.duplicateClasses,
+        List.copyOf(combined));
+  }
+
+  /**
+   * Gets the class name and fingerprint of every resource transformer of this pipeline, in the
+   * order they run.
+   *
+   * @return the transformer fingerprints
+   */
+  @Nonnull
+  public List<String> getTransformerFingerprints() {
+    List<String> fingerprints = new ArrayList<>(this.transformers.size());
+    for (ResourceTransformer transformer : this.transformers) {
+      fingerprints.add(transformer.getClass().getName() + " " + transformer.fingerprint());
+    }
+    return fingerprints;
+  }
+
+  /**
+   * Gets the relocations applied by this pipeline, in declaration order.
+   *
+   * @return the relocations
+   */
+  @Nonnull
+  public List<Relocation> getRelocations() {
+    return this.relocator.getRelocations();
+  }
+
+  /**
+   * Moves the output of the previous run into the state directory before it gets overwritten, so
+   * its entries can be reused. Does nothing when the pipeline is not incremental.
+   *
+   * @param archive the jar about to be merged by Shadow
+   * @throws IOException if an I/O error occurs
+   */
+  public void retain(@Nonnull Path archive) throws IOException {
+    if (this.stateDirectory == null || !Files.isRegularFile(archive)) {
+      return;
+    }
+
+    Path stateDirectory = this.stateDirectory.toPath();
+    Files.createDirectories(stateDirectory);
+    move(archive, stateDirectory.resolve(PREVIOUS_ARCHIVE_NAME));
+  }
+
+  /**
+   * Processes the archive in place.
+   *
+   * @param archive the jar merged by Shadow
+   * @param sources the dependency jars the archive was merged from
+   * @param libraries the library jars loaded by the server, whose classes are never relocated
+   * @param serverApis the server API jars, with the libraries the server provides along with them
+   * @param logger the logger to report to
+   * @param metrics the metrics to record the run into, or {@code null} to record nothing
+   * @throws IOException if an I/O error occurs
+   */
+  public void process(
+      @Nonnull Path archive,
+      @Nonnull Collection<File> sources,
+      @Nonnull Collection<File> libraries,
+      @Nonnull Collection<File> serverApis,
+      @Nonnull Logger logger,
+      @Nullable TaskMetrics metrics)
+      throws IOException {
+    this.process(archive, sources, libraries, serverApis, null, logger, metrics);
+  }
+
+  /**
+   * Processes the archive in place, running the concurrent work in a pool shared with other runs.
+   *
+   * @param archive the jar merged by Shadow
+   * @param sources the dependency jars the archive was merged from
+   * @param libraries the library jars loaded by the server, whose classes are never relocated
+   * @param serverApis the server API jars, with the libraries the server provides along with them
+   * @param pool the pool running the concurrent work, or {@code null} to create one for this run
+   * @param logger the logger to report to
+   * @param metrics the metrics to record the run into, or {@code null} to record nothing
+   * @throws IOException if an I/O error occurs
+   */
+  public void process(
+      @Nonnull Path archive,
+      @Nonnull Collection<File> sources,
+      @Nonnull Collection<File> libraries,
+      @Nonnull Collection<File> serverApis,
+      @Nullable ForkJoinPool pool,
+      @Nonnull Logger logger,
+      @Nullable TaskMetrics metrics)
+      throws IOException {
+    long start = System.nanoTime();
+    if (this.duplicateClasses != DuplicateClassPolicy.IGNORE) {
+      DuplicateClasses duplicates = DuplicateClasses.analyze(sources);
+      report(duplicates, logger);
+      if (this.duplicateClasses == DuplicateClassPolicy.FAIL && duplicates.hasConflicts()) {
+        throw new GradleException(
+            "Strawberry found classes shipped with different content by more than one dependency,"
+                + " see the warnings above");
+      }
+    }
+
+    Path output = archive.resolveSibling(archive.getFileName() + ".strawberry");
+    Result result = this.shade(archive, output, sources, libraries, serverApis, pool, metrics);
+    move(output, archive);
+    if (metrics != null) {
+      metrics.addDuration(System.nanoTime() - start);
+    }
+
+    double speedup = result.remapping == 0 ? 1 : (double) result.work / result.remapping;
+    logger.lifecycle(
+        String.format(
+            "Strawberry relocated %d of %d classes in %d ms using %d thread(s), remapping took"
+                + " %d ms for %d ms of work (%.1fx speedup)",
+            result.relocatedClasses,
+            result.classes,
+            result.elapsed / 1_000_000,
+            result.parallelism,
+            result.remapping / 1_000_000,
+            result.work / 1_000_000,
+            speedup));
+    logger.lifecycle(
+        String.format(
+            "Strawberry copied %d of %d entries without compressing them again, %d from the"
+                + " dependency jars and %d from the previous output",
+            result.copiedEntries + result.reusedEntries,
+            result.entries,
+            result.copiedEntries,
+            result.reusedEntries));
+    if (this.minimization != null) {
+      logger.lifecycle(
+          String.format(
+              "Strawberry removed %d of %d dependency classes unreachable from the plugin, %d bytes"
+                  + " uncompressed",
+              result.removedClasses,
+              result.dependencyClasses,
+              result.removedBytes));
+    }
+    if (result.serverProvided != null) {
+      report(result.serverProvided, logger);
+    }
+  }
+
+  private static void report(@Nonnull DuplicateClasses duplicates, @Nonnull Logger logger) {
+    for (DuplicateClasses.Conflict conflict : duplicates.getConflicts()) {
+      List<String> classes = conflict.getClasses();
+      String names = String.join(", ", classes.subList(0, Math.min(classes.size(), 10)));
+      if (classes.size() > 10) {
+        names += " and " + (classes.size() - 10) + " more";
+      }
+      logger.warn(
+          "Strawberry found {} classes shipped with different content by {} and {}, only the copies"
+              + " of {} are kept: {}",
+          classes.size(),
+          conflict.getKept(),
+          conflict.getDropped(),
+          conflict.getKept(),
+          names);
+    }
+
+    Map<String, List<String>> splitPackages = duplicates.getSplitPackages();
+    if (!splitPackages.isEmpty()) {
+      StringBuilder packages = new StringBuilder();
+      for (Map.Entry<String, List<String>> entry : splitPackages.entrySet()) {
+        packages
+            .append(System.lineSeparator())
+            .append("  ")
+            .append(entry.getKey())
+            .append(": ")
+            .append(String.join(", ", entry.getValue()));
+      }
+      logger.warn(
+          "Strawberry found {} packages split across more than one dependency:{}",
+          splitPackages.size(),
+          packages);
+    }
+
+    if (duplicates.getIdenticalClasses() > 0) {
+      logger.lifecycle(
+          String.format(
+              "Strawberry kept once %d classes shipped identically by more than one dependency,"
+                  + " out of %d classes",
+              duplicates.getIdenticalClasses(),
+              duplicates.getClasses()));
+    }
+  }
+
+  private static void report(
+      @Nonnull ServerProvidedClasses serverProvided, @Nonnull Logger logger) {
+    int dependencies = 0;
+    int classes = 0;
+    long bytes = 0;
+    for (ServerProvidedClasses.Dependency dependency : serverProvided.getDependencies()) {
+      if (dependency.isExcluded()) {
+        dependencies++;
+        classes += dependency.getProvidedClasses();
+        bytes += dependency.getProvidedBytes();
+      } else {
+        logger.warn(
+            "Strawberry shaded {} of {} classes of {} in packages the server already provides: {}",
+            dependency.getProvidedClasses(),
+            dependency.getClasses(),
+            dependency.getName(),
+            String.join(", ", dependency.getPackages()));
+      }
+    }
+    if (dependencies > 0) {
+      logger.lifecycle(
+          String.format(
+              "Strawberry left out %d dependencies already provided by the server, avoiding %d"
+                  + " classes and %d bytes uncompressed",
+              dependencies,
+              classes,
+              bytes));
+    }
+  }
+
+  /**
+   * Processes the archive into another one. The untouched entries are copied from the input.
+   *
+   * @param input the jar to relocate
+   * @param output the relocated jar to write
+   * @throws IOException if an I/O error occurs
+   */
+  public void process(@Nonnull Path input, @Nonnull Path output) throws IOException {
+    this.shade(input, output, List.of(input.toFile()), List.of(), List.of(), null, null);
+  }
+
+  /**
+   * Checks whether any entry of the archive may need to be relocated. The check stops at the first
+   * entry that does, and never parses a class.
+   *
+   * @param archive the jar
+   * @return whether processing the archive may change it
+   * @throws IOException if an I/O error occurs
+   */
+  public boolean needsRelocation(@Nonnull Path archive) throws IOException {
+    try (ZipArchive zip = ZipArchive.open(archive)) {
+      for (ZipArchive.Entry entry : zip.entries()) {
+        // Directories are never moved
+        String name = entry.getName();
+        if (entry.isDirectory()) {
+          continue;
+        }
+        if (this.relocator.mayRelocate(name)) {
+          return true;
+        }
+        if (!name.endsWith(CLASS_SUFFIX) && !name.startsWith(SERVICES_PREFIX)) {
+          continue;
+        }
+
+        byte[] data = entry.read();
+        boolean mayRelocate =
+            name.endsWith(CLASS_SUFFIX)
+                ? ConstantPoolScanner.mayRelocate(data, this.relocator)
+                : this.relocator.mayRelocate(new String(data, StandardCharsets.UTF_8));
+        if (mayRelocate) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @Nonnull
+  private Result shade(
+      @Nonnull Path input,
+      @Nonnull Path output,
+      @Nonnull Collection<File> sourceFiles,
+      @Nonnull Collection<File> libraryFiles,
+      @Nonnull Collection<File> serverApiFiles,
+      @Nullable ForkJoinPool sharedPool,
+      @Nullable TaskMetrics metrics)
+      throws IOException {
+    boolean release = this.compression == CompressionProfile.RELEASE;
+    boolean concurrent = this.parallel || release;
+    int parallelism =
+        !concurrent
+            ? 1
+            : sharedPool == null
+                ? Runtime.getRuntime().availableProcessors()
+                : sharedPool.getParallelism();
+
+    long start = System.nanoTime();
+    AtomicLong work = new AtomicLong();
+    long remapping = 0;
+
+    Path stateDirectory = this.stateDirectory == null ? null : this.stateDirectory.toPath();
+    ShadingIndex previousIndex = null;
+    ShadingIndex index = null;
+    Path previousArchive = null;
+    Set<String> libraryClasses = LibraryExcludingRelocator.classes(libraryFiles);
+    ServerProvidedClasses serverProvided =
+        this.serverProvided == ServerProvidedPolicy.IGNORE
+            ? null
+            : ServerProvidedClasses.analyze(serverApiFiles, sourceFiles, this.serverProvided);
+    // The server loads the classes left out of the jar under their own names
+    if (serverProvided != null) {
+      libraryClasses.addAll(serverProvided.getExcludedClasses());
+    }
+    Relocator relocator = this.relocator;
+    Relocator literalRelocator = this.relocator.literalRelocator();
+    // Counting the hits costs a lookup per relocated name, only done when metrics are enabled
+    List<Relocation> relocations = this.relocator.getRelocations();
+    LongAdder[] hits = new LongAdder[relocations.size()];
+    if (metrics != null) {
+      Arrays.setAll(hits, i -> new LongAdder());
+      relocator = new CountingRelocator(this.relocator, relocations, hits);
+      literalRelocator =
+          new CountingRelocator(this.relocator.literalRelocator(), relocations, hits);
+    }
+    if (!libraryClasses.isEmpty()) {
+      relocator = new LibraryExcludingRelocator(relocator, libraryClasses);
+      literalRelocator = new LibraryExcludingRelocator(literalRelocator, libraryClasses);
+    }
+    if (stateDirectory != null) {
+      // The classes left unrelocated change every reference to them, whatever jar they come from,
+      // so their names are fingerprinted rather than the names of the jars
+      byte[] libraries =
+          ShadingIndex.hash(
+              String.join("\n", new TreeSet<>(libraryClasses)).getBytes(StandardCharsets.UTF_8));
+      String fingerprint =
+          String.join("\n", this.relocator.fingerprint())
+              + "\ncompression="
+              + this.compression
+              + "\nlibraries="
+              + Base64.getEncoder().encodeToString(libraries)
+              + "\ntransformers="
+              + getTransformerFingerprints();
+      previousIndex = ShadingIndex.read(stateDirectory.resolve(INDEX_NAME), fingerprint);
+      index = new ShadingIndex(fingerprint);
+      previousArchive = stateDirectory.resolve(PREVIOUS_ARCHIVE_NAME);
+      if (previousIndex.isEmpty()
+          || !Files.isRegularFile(previousArchive)
+          || !describes(previousIndex, previousArchive)) {
+        previousArchive = null;
+      }
+    }
+
+    Run run;
+    ClassReachability reachability = null;
+    long removedBytes = 0;
+    // Without a shared pool, one is created for this run only
+    ForkJoinPool ownPool = null;
+    ForkJoinPool pool = null;
+    if (parallelism > 1) {
+      if (sharedPool == null) {
+        ownPool = new ForkJoinPool(parallelism);
+      }
+      pool = sharedPool == null ? ownPool : sharedPool;
+    }
+    try (ZipArchive zip = ZipArchive.open(input);
+        SourceArchives sources = SourceArchives.map(sourceFiles);
+        ZipArchive previous = previousArchive == null ? null : ZipArchive.open(previousArchive);
+        ZipArchiveWriter writer = new ZipArchiveWriter(output);
+        Deflaters deflaters = new Deflaters()) {
+      // The release profile compresses every entry again at the maximum level
+      run =
+          new Run(
+              relocator,
+              literalRelocator,
+              release ? null : sources,
+              sources,
+              previous,
+              previousIndex,
+              index,
+              deflaters);
+      if (this.minimization != null) {
+        reachability = ClassReachability.analyze(zip, sources, this.minimization, pool);
+      }
+      List<ZipArchive.Entry> entries = zip.entries();
+      Set<String> written = new HashSet<>();
+
+      for (int from = 0; from < entries.size(); from += CHUNK_SIZE) {
+        List<Callable<ShadedEntry>> chunk = new ArrayList<>();
+        for (ZipArchive.Entry entry :
+            entries.subList(from, Math.min(from + CHUNK_SIZE, entries.size()))) {
+          if (serverProvided != null && serverProvided.isExcluded(entry)) {
+            continue;
+          }
+          if (reachability != null && reachability.isUnreachable(entry.getName())) {
+            removedBytes += entry.getSize();
+            continue;
+          }
+          chunk.add(
+              () -> {
+                long entryStart = System.nanoTime();
+                ShadedEntry shaded = shade(entry, run);
+                work.addAndGet(System.nanoTime() - entryStart);
+                return shaded;
+              });
+        }
+
+        long chunkStart = System.nanoTime();
+        List<ShadedEntry> shaded = run(pool, chunk);
+        remapping += System.nanoTime() - chunkStart;
+
+        long writeStart = System.nanoTime();
+        for (ShadedEntry entry : shaded) {
+          write(writer, entry, written);
+        }
+        run.ioTime.addAndGet(System.nanoTime() - writeStart);
+      }
+    } finally {
+      if (ownPool != null) {
+        ownPool.shutdown();
+      }
+    }
+
+    if (index != null) {
+      try (ZipArchive written = ZipArchive.open(output)) {
+        index.write(stateDirectory.resolve(INDEX_NAME), written);
+      }
+      Files.deleteIfExists(stateDirectory.resolve(PREVIOUS_ARCHIVE_NAME));
+    }
+
+    if (metrics != null) {
+      metrics.addEntriesRead(run.entries.get());
+      metrics.addEntriesRelocated(run.relocatedEntries.get());
+      metrics.addBytesIn(Files.size(input));
+      metrics.addBytesOut(Files.size(output));
+      metrics.addRemappingTime(run.remappingTime.get());
+      metrics.addCompressionTime(run.compressionTime.get());
+      metrics.addIoTime(run.ioTime.get());
+      for (int i = 0; i < hits.length; i++) {
+        metrics.addRelocationHits(i, hits[i].sum());
+      }
+    }
+
+    return new Result(
+        run.entries.get(),
+        run.copiedEntries.get(),
+        run.reusedEntries.get(),
+        run.classes.get(),
+        run.relocatedClasses.get(),
+        reachability == null ? 0 : reachability.getDependencyClasses(),
+        reachability == null ? 0 : reachability.getUnreachableClasses(),
+        removedBytes,
+        serverProvided,
+        parallelism,
+        System.nanoTime() - start,
+        remapping,
+        work.get());
+  }
+
+  @Nonnull
+  private ShadedEntry shade(@Nonnull ZipArchive.Entry entry, @Nonnull Run run)
+      throws IOException {
+    String name = entry.getName();
+    if (entry.isDirectory()) {
+      return new ShadedEntry(name, entry, 0, ByteBuffer.allocate(0), ZipArchive.STORED, 0, false);
+    }
+
+    run.entries.incrementAndGet();
+    boolean isClass = name.endsWith(CLASS_SUFFIX);
+    boolean isServices =
+        name.startsWith(SERVICES_PREFIX) && name.indexOf('/', SERVICES_PREFIX.length()) < 0;
+    boolean transformed = !isClass && transforms(name);
+    RelocatingRemapper remapper = new RelocatingRemapper(run.relocator, run.literalRelocator);
+
+    // Other resources are only relocated by name, an unmoved one is copied without being read
+    if (!isClass && !transformed && remapper.mapPath(name).equals(name)) {
+      long copyStart = System.nanoTime();
+      ShadedEntry copied = copy(entry, run.sources);
+      run.ioTime.addAndGet(System.nanoTime() - copyStart);
+      if (copied != null) {
+        run.copiedEntries.incrementAndGet();
+        return copied;
+      }
+    }
+
+    long readStart = System.nanoTime();
+    byte[] data = entry.read();
+    run.ioTime.addAndGet(System.nanoTime() - readStart);
+    if (isClass) {
+      run.classes.incrementAndGet();
+    }
+
+    byte[] hash = null;
+    // A transformed resource may depend on more than its own content, such as merged copies
+    if (run.index != null && !transformed) {
+      hash = ShadingIndex.hash(data);
+      long reuseStart = System.nanoTime();
+      ShadedEntry reused = reuse(entry, hash, run.previous, run.previousIndex);
+      run.ioTime.addAndGet(System.nanoTime() - reuseStart);
+      if (reused != null) {
+        ShadingIndex.Record record = run.previousIndex.get(name);
+        if (isClass && record.isRelocated()) {
+          run.relocatedClasses.incrementAndGet();
+        }
+        if (record.isRelocated() || reused.moved) {
+          run.relocatedEntries.incrementAndGet();
+        }
+        run.reusedEntries.incrementAndGet();
+        run.index.put(name, record);
+        return reused;
+      }
+    }
+
+    String mappedName;
+    byte[] mappedData;
+    long remapStart = System.nanoTime();
+    if (isClass) {
+      String path = name.substring(0, name.length() - CLASS_SUFFIX.length());
+      if (!this.relocator.mayRelocate(path)
+          && !ConstantPoolScanner.mayRelocate(data, this.relocator)) {
+        mappedName = name;
+        mappedData = data;
+      } else {
+        mappedName = remapper.mapPath(path) + CLASS_SUFFIX;
+        mappedData = remap(name, data, remapper);
+        if (remapper.isRelocated()) {
+          run.relocatedClasses.incrementAndGet();
+        }
+      }
+    } else {
+      mappedName =
+          isServices
+              ? SERVICES_PREFIX + remapper.mapClassName(name.substring(SERVICES_PREFIX.length()))
+              : remapper.mapPath(name);
+      mappedData = transformed ? transform(name, data, remapper, run) : data;
+    }
+    run.remappingTime.addAndGet(System.nanoTime() - remapStart);
+
+    ShadedEntry shaded = null;
+    if (mappedData == data && mappedName.equals(name)) {
+      long copyStart = System.nanoTime();
+      shaded = copy(entry, run.sources);
+      run.ioTime.addAndGet(System.nanoTime() - copyStart);
+    } else {
+      run.relocatedEntries.incrementAndGet();
+    }
+    if (shaded != null) {
+      run.copiedEntries.incrementAndGet();
+    } else {
+      long compressStart = System.nanoTime();
+      shaded = compress(mappedName, entry, mappedData, !mappedName.equals(name), run.deflaters);
+      run.compressionTime.addAndGet(System.nanoTime() - compressStart);
+    }
+
+    if (run.index != null && hash != null) {
+      run.index.put(
+          name,
+          new ShadingIndex.Record(hash, mappedName, shaded.crc, isClass && remapper.isRelocated()));
+    }
+    return shaded;
+  }
+
+  /**
+   * Copies an untouched entry from the dependency jar it was merged from.
+   *
+   * @param entry the entry of the jar merged by Shadow
+   * @param sources the dependency jars, or {@code null} if entries must not be copied
+   * @return the copied entry, or {@code null} if no dependency jar has the same entry
+   * @throws IOException if an I/O error occurs
+   */
+  @Nullable
+  private static ShadedEntry copy(@Nonnull ZipArchive.Entry entry, @Nullable SourceArchives sources)
+      throws IOException {
+    ZipArchive.Entry source = sources == null ? null : sources.find(entry);
+    if (source == null) {
+      return null;
+    }
+    return new ShadedEntry(
+        entry.getName(),
+        entry,
+        source.getCrc(),
+        source.readRaw(),
+        source.getMethod(),
+        source.getSize(),
+        false);
+  }
+
+  /**
+   * Checks whether the index of the previous run describes the previous output, which may have been
+   * replaced since, such as by an output restored from the build cache.
+   *
+   * @param index the index of the previous run
+   * @param archive the previous output
+   * @return whether the entries of the previous output can be reused through the index
+   */
+  private static boolean describes(@Nonnull ShadingIndex index, @Nonnull Path archive) {
+    try (ZipArchive previous = ZipArchive.open(archive)) {
+      return index.describes(previous);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Copies an unchanged entry from the previous output.
+   *
+   * @param entry the entry of the jar merged by Shadow
+   * @param hash the content hash of the entry
+   * @param previous the previous output
+   * @param previousIndex the index of the previous output
+   * @return the reused entry, or {@code null} if it was changed or is missing from the previous
+   *     output
+   * @throws IOException if an I/O error occurs
+   */
+  @Nullable
+  private static ShadedEntry reuse(
+      @Nonnull ZipArchive.Entry entry,
+      @Nonnull byte[] hash,
+      @Nullable ZipArchive previous,
+      @Nullable ShadingIndex previousIndex)
+      throws IOException {
+    if (previous == null || previousIndex == null) {
+      return null;
+    }
+
+    ShadingIndex.Record record = previousIndex.get(entry.getName());
+    if (record == null || !Arrays.equals(record.getHash(), hash)) {
+      return null;
+    }
+
+    ZipArchive.Entry previousEntry = previous.entry(record.getOutputName());
+    if (previousEntry == null || previousEntry.getCrc() != record.getOutputCrc()) {
+      return null;
+    }
+    return new ShadedEntry(
+        record.getOutputName(),
+        entry,
+        previousEntry.getCrc(),
+        previousEntry.readRaw(),
+        previousEntry.getMethod(),
+        previousEntry.getSize(),
+        !record.getOutputName().equals(entry.getName()));
+  }
+
+  @Nonnull
+  private ShadedEntry compress(
+      @Nonnull String name,
+      @Nonnull ZipArchive.Entry origin,
+      @Nonnull byte[] data,
+      boolean moved,
+      @Nonnull Deflaters deflaters) {
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    if (this.compression == CompressionProfile.DEV) {
+      return new ShadedEntry(
+          name,
+          origin,
+          crc.getValue(),
+          ByteBuffer.wrap(data),
+          ZipArchive.STORED,
+          data.length,
+          moved);
+    }
+
+    byte[] compressed =
+        this.compression == CompressionProfile.RELEASE
+            ? deflateChunked(data, Deflater.BEST_COMPRESSION, deflaters)
+            : deflate(data, 0, data.length, Deflater.DEFAULT_COMPRESSION, true, deflaters);
+    return new ShadedEntry(
+        name,
+        origin,
+        crc.getValue(),
+        ByteBuffer.wrap(compressed),
+        ZipArchive.DEFLATED,
+        data.length,
+        moved);
+  }
+
+  /**
+   * Deflates the data like pigz does. The data is split into chunks compressed concurrently, each
+   * one primed with the end of the previous chunk as dictionary and ended by a sync flush, so the
+   * concatenated chunks form a single deflate stream. The chunks only depend on the data, so the
+   * output is the same whatever the parallelism.
+   *
+   * @param data the data to deflate
+   * @param level the compression level
+   * @param deflaters the deflaters of the run
+   * @return the deflated data
+   */
+  @Nonnull
+  private static byte[] deflateChunked(
+      @Nonnull byte[] data, int level, @Nonnull Deflaters deflaters) {
+    if (data.length <= DEFLATE_CHUNK_SIZE) {
+      return deflate(data, 0, data.length, level, true, deflaters);
+    }
+
+    List<ForkJoinTask<byte[]>> chunks = new ArrayList<>();
+    for (int from = 0; from < data.length; from += DEFLATE_CHUNK_SIZE) {
+      int chunkFrom = from;
+      int chunkTo = Math.min(from + DEFLATE_CHUNK_SIZE, data.length);
+      chunks.add(
+          ForkJoinTask.adapt(
+              () -> deflate(data, chunkFrom, chunkTo, level, chunkTo == data.length, deflaters)));
+    }
+    if (ForkJoinTask.inForkJoinPool()) {
+      ForkJoinTask.invokeAll(chunks);
+    } else {
+      for (ForkJoinTask<byte[]> chunk : chunks) {
+        chunk.invoke();
+      }
+    }
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+    for (ForkJoinTask<byte[]> chunk : chunks) {
+      out.writeBytes(chunk.join());
+    }
+    return out.toByteArray();
+  }
+
+  @Nonnull
+  private static byte[] deflate(
+      @Nonnull byte[] data,
+      int from,
+      int to,
+      int level,
+      boolean last,
+      @Nonnull Deflaters deflaters) {
+    Deflater deflater = deflaters.acquire(level);
+    try {
+      return deflate(data, from, to, last, deflater);
+    } finally {
+      deflaters.release(level, deflater);
+    }
+  }
+
+  @Nonnull
+  private static byte[] deflate(
+      @Nonnull byte[] data, int from, int to, boolean last, @Nonnull Deflater deflater) {
+    if (from > 0) {
+      int dictionary = Math.min(DICTIONARY_SIZE, from);
+      deflater.setDictionary(data, from - dictionary, dictionary);
+    }
+    deflater.setInput(data, from, to - from);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, (to - from) / 2));
+    byte[] buffer = new byte[8192];
+    if (last) {
+      deflater.finish();
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+    } else {
+      // A sync flush ends the chunk on a byte boundary without ending the stream
+      int length;
+      do {
+        length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        out.write(buffer, 0, length);
+      } while (length == buffer.length);
+    }
+    return out.toByteArray();
+  }
+
+  @Nonnull
+  private static byte[] remap(
+      @Nonnull String name, @Nonnull byte[] data, @Nonnull RelocatingRemapper remapper) {
+    try {
+      ClassReader reader = new ClassReader(data);
+      ClassWriter writer = new ClassWriter(0);
+      reader.accept(new ClassRemapper(writer, remapper), 0);
+
+      // Keep the original bytes when nothing was relocated
+      return remapper.isRelocated() ? writer.toByteArray() : data;
+    } catch (Throwable e) {
+      throw new GradleException("Error in ASM processing class " + name, e);
+    }
+  }
+
+  private boolean transforms(@Nonnull String name) {
+    for (ResourceTransformer transformer : this.transformers) {
+      if (transformer.canTransform(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nonnull
+  private byte[] transform(
+      @Nonnull String name,
+      @Nonnull byte[] data,
+      @Nonnull RelocatingRemapper remapper,
+      @Nonnull Run run)
+      throws IOException {
+    EntryContext context = new EntryContext(name, data, remapper, run.copies);
+    for (ResourceTransformer transformer : this.transformers) {
+      if (transformer.canTransform(name)) {
+        context.setData(transformer.transform(context));
+      }
+    }
+    return context.getData();
+  }
+
+  @Nonnull
+  static <T> List<T> run(@Nullable ForkJoinPool pool, @Nonnull List<Callable<T>> tasks)
+      throws IOException {
+    List<T> results = new ArrayList<>(tasks.size());
+    try {
+      if (pool == null) {
+        for (Callable<T> task : tasks) {
+          results.add(task.call());
+        }
+      } else {
+        for (Future<T> future : pool.invokeAll(tasks)) {
+          results.add(future.get());
+        }
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new GradleException("Unable to shade the archive", cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GradleException("Interrupted while shading the archive", e);
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new GradleException("Unable to shade the archive", e);
+    }
+    return results;
+  }
+
+  private static void write(
+      @Nonnull ZipArchiveWriter writer, @Nonnull ShadedEntry entry, @Nonnull Set<String> written)
+      throws IOException {
+    // Like Shadow, a relocated entry gets its new parent directories
+    if (entry.moved) {
+      int separator = entry.name.indexOf('/');
+      while (separator >= 0) {
+        String directory = entry.name.substring(0, separator + 1);
+        if (written.add(directory)) {
+          writer.write(
+              directory,
+              entry.origin.getDosTime(),
+              ZipArchive.STORED,
+              0,
+              0,
+              ByteBuffer.allocate(0));
+        }
+        separator = entry.name.indexOf('/', separator + 1);
+      }
+    }
+
+    // The first entry wins when two entries are relocated to the same name
+    if (!written.add(entry.name)) {
+      return;
+    }
+    writer.write(
+        entry.name,
+        entry.origin.getDosTime(),
+        entry.method,
+        entry.crc,
+        entry.size,
+        entry.data,
+        entry.origin);
+  }
+
+  static void move(@Nonnull Path source, @Nonnull Path target) throws IOException {
+    try {
+      Files.move(
+          source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /** An entry of the archive after being shaded and compressed. */
+  private static final class ShadedEntry {
+    private final String name;
+    // The entry merged by Shadow, whose time and attributes are kept
+    private final ZipArchive.Entry origin;
+    private final long crc;
+    private final ByteBuffer data;
+    private final int method;
+    private final long size;
+    private final boolean moved;
+
+    ShadedEntry(
+        @Nonnull String name,
+        @Nonnull ZipArchive.Entry origin,
+        long crc,
+        @Nonnull ByteBuffer data,
+        int method,
+        long size,
+        boolean moved) {
+      this.name = name;
+      this.origin = origin;
+      this.crc = crc;
+      this.data = data;
+      this.method = method;
+      this.size = size;
+      this.moved = moved;
+    }
+  }
+
+  /** The state of a pipeline run, shared by the entries processed concurrently. */
+  private static final class Run {
+    private final Relocator relocator;
+    private final Relocator literalRelocator;
+    private final SourceArchives sources;
+    private final SourceArchives copies;
+    private final ZipArchive previous;
+    private final ShadingIndex previousIndex;
+    private final ShadingIndex index;
+    private final Deflaters deflaters;
+    private final AtomicInteger entries = new AtomicInteger();
+    private final AtomicInteger copiedEntries = new AtomicInteger();
+    private final AtomicInteger reusedEntries = new AtomicInteger();
+    private final AtomicInteger classes = new AtomicInteger();
+    private final AtomicInteger relocatedClasses = new AtomicInteger();
+    private final AtomicInteger relocatedEntries = new AtomicInteger();
+    // Nanoseconds of work, summed across the threads
+    private final AtomicLong remappingTime = new AtomicLong();
+    private final AtomicLong compressionTime = new AtomicLong();
+    private final AtomicLong ioTime = new AtomicLong();
+
+    Run(
+        @Nonnull Relocator relocator,
+        @Nonnull Relocator literalRelocator,
+        @Nullable SourceArchives sources,
+        @Nonnull SourceArchives copies,
+        @Nullable ZipArchive previous,
+        @Nullable ShadingIndex previousIndex,
+        @Nullable ShadingIndex index,
+        @Nonnull Deflaters deflaters) {
+      this.relocator = relocator;
+      this.literalRelocator = literalRelocator;
+      this.sources = sources;
+      this.copies = copies;
+      this.previous = previous;
+      this.previousIndex = previousIndex;
+      this.index = index;
+      this.deflaters = deflaters;
+    }
+  }
+
+  /**
+   * The deflaters of a pipeline run, reused by the entries compressed one after the other. Each
+   * deflater holds native memory until it is ended, which happens once the run is over rather than
+   * whenever the garbage collector gets to it.
+   */
+  private static final class Deflaters implements AutoCloseable {
+    // The idle deflaters by compression level, from the default one to the best compression
+    private final List<ConcurrentLinkedQueue<Deflater>> idle = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Deflater> created = new ConcurrentLinkedQueue<>();
+
+    Deflaters() {
+      for (int level = Deflater.DEFAULT_COMPRESSION; level <= Deflater.BEST_COMPRESSION; level++) {
+        this.idle.add(new ConcurrentLinkedQueue<>());
+      }
+    }
+
+    @Nonnull
+    Deflater acquire(int level) {
+      Deflater deflater = this.idle.get(level + 1).poll();
+      if (deflater == null) {
+        deflater = new Deflater(level, true);
+        this.created.add(deflater);
+      }
+      return deflater;
+    }
+
+    void release(int level, @Nonnull Deflater deflater) {
+      deflater.reset();
+      this.idle.get(level + 1).add(deflater);
+    }
+
+    @Override
+    public void close() {
+      for (Deflater deflater : this.created) {
+        deflater.end();
+      }
+    }
+  }
+
+  /** The outcome of a pipeline run. */
+  private static final class Result {
+    private final int entries;
+    private final int copiedEntries;
+    private final int reusedEntries;
+    private final int classes;
+    private final int relocatedClasses;
+    private final int dependencyClasses;
+    private final int removedClasses;
+    private final long removedBytes;
+    private final ServerProvidedClasses serverProvided;
+    private final int parallelism;
+    private final long elapsed;
+    private final long remapping;
+    private final long work;
+
+    Result(
+        int entries,
+        int copiedEntries,
+        int reusedEntries,
+        int classes,
+        int relocatedClasses,
+        int dependencyClasses,
+        int removedClasses,
+        long removedBytes,
+        @Nullable ServerProvidedClasses serverProvided,
+        int parallelism,
+        long elapsed,
+        long remapping,
+        long work) {
+      this.entries = entries;
+      this.copiedEntries = copiedEntries;
+      this.reusedEntries = reusedEntries;
+      this.classes = classes;
+      this.relocatedClasses = relocatedClasses;
+      this.dependencyClasses = dependencyClasses;
+      this.removedClasses = removedClasses;
+      this.removedBytes = removedBytes;
+      this.serverProvided = serverProvided;
+      this.parallelism = parallelism;
+      this.elapsed = elapsed;
+      this.remapping = remapping;
+      this.work = work;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * The build service holding the pool which the shading pipelines of every project run their
+ * concurrent work in. The pool is created on first use and shut down once the build is over, so
+ * the shadow jars of a build share its threads instead of each starting their own.
+ */
+public abstract class ShadingPoolService
+    implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+  /** The name of the service, shared by every project of the build. */
+  public static final String NAME = "strawberryShadingPool";
+
+  private ForkJoinPool pool;
+
+  /**
+   * Registers the service, unless another project did already.
+   *
+   * @param project the project
+   * @return the service
+   */
+  @Nonnull
+  public static Provider<ShadingPoolService> register(@Nonnull Project project) {
+    return project
+        .getGradle()
+        .getSharedServices()
+        .registerIfAbsent(NAME, ShadingPoolService.class, spec -> {});
+  }
+
+  /**
+   * Gets the pool, with a thread per available processor. No thread is started until work is
+   * submitted.
+   *
+   * @return the pool
+   */
+  @Nonnull
+  public synchronized ForkJoinPool getPool() {
+    if (this.pool == null) {
+      this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+    return this.pool;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (this.pool != null) {
+      this.pool.shutdown();
+    }
+  }
+}
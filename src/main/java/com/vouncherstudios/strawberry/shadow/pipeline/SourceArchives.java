@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * The jars an archive was merged from, mapped in memory. An entry of the merged archive with the
+ * same name, size and checksum as an entry of a source jar has the same content, so the compressed
+ * bytes of the source entry can be copied as they are.
+ */
+final class SourceArchives implements Closeable {
+  private final List<ZipArchive> archives;
+  private final Map<String, ZipArchive.Entry> entries = new HashMap<>();
+  // The entries shipped by more than one jar, only needed to merge resources
+  private final Map<String, List<ZipArchive.Entry>> copies = new HashMap<>();
+
+  private SourceArchives(@Nonnull List<ZipArchive> archives) {
+    this.archives = archives;
+    for (ZipArchive archive : archives) {
+      for (ZipArchive.Entry entry : archive.entries()) {
+        int method = entry.getMethod();
+        if (!entry.isDirectory()
+            && (method == ZipArchive.STORED || method == ZipArchive.DEFLATED)) {
+          ZipArchive.Entry first = this.entries.putIfAbsent(entry.getName(), entry);
+          if (first != null) {
+            this.copies.computeIfAbsent(entry.getName(), name -> new ArrayList<>()).add(entry);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Maps the source jars. Files which are not jars, like class directories, are ignored.
+   *
+   * @param files the source files
+   * @return the source jars
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  static SourceArchives map(@Nonnull Collection<File> files) throws IOException {
+    List<ZipArchive> archives = new ArrayList<>(files.size());
+    try {
+      for (File file : files) {
+        String name = file.getName();
+        if (file.isFile() && (name.endsWith(".jar") || name.endsWith(".zip"))) {
+          archives.add(ZipArchive.map(file.toPath()));
+        }
+      }
+      return new SourceArchives(archives);
+    } catch (IOException | RuntimeException e) {
+      for (ZipArchive archive : archives) {
+        archive.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Finds the source entry having the same content as an entry of the merged archive.
+   *
+   * @param entry the merged entry
+   * @return the source entry, or {@code null} if none has the same content
+   */
+  @Nullable
+  ZipArchive.Entry find(@Nonnull ZipArchive.Entry entry) {
+    ZipArchive.Entry source = this.entries.get(entry.getName());
+    if (source == null
+        || source.getCrc() != entry.getCrc()
+        || source.getSize() != entry.getSize()) {
+      return null;
+    }
+    return source;
+  }
+
+  /**
+   * Finds every source entry having the name, in the order the jars were merged.
+   *
+   * @param name the entry name
+   * @return the source entries
+   */
+  @Nonnull
+  List<ZipArchive.Entry> findAll(@Nonnull String name) {
+    ZipArchive.Entry first = this.entries.get(name);
+    if (first == null) {
+      return List.of();
+    }
+
+    List<ZipArchive.Entry> copies = this.copies.getOrDefault(name, List.of());
+    List<ZipArchive.Entry> entries = new ArrayList<>(copies.size() + 1);
+    entries.add(first);
+    entries.addAll(copies);
+    return entries;
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (ZipArchive archive : this.archives) {
+      try {
+        archive.close();
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
@@ -0,0 +1,494 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A zip archive read from its central directory. Unlike {@link java.util.zip.ZipFile}, it gives
+ * access to the compressed bytes of each entry, so they can be copied to another archive without
+ * being inflated and deflated again. Entries can be read from several threads at once.
+ *
+ * <p>An archive that is never modified while the build runs, like a dependency jar, can be mapped
+ * in memory: its compressed bytes are then handed out as views of the mapping, without any copy.
+ * The mapping is released when the archive is closed rather than when it is garbage collected, so
+ * the file is not kept locked on Windows; the views must not be used once the archive is closed.
+ *
+ * <p>Entry names are decoded as UTF-8 when their language encoding flag is set, and as CP437, the
+ * encoding of the zip specification, otherwise.
+ */
+final class ZipArchive implements Closeable {
+  static final int STORED = 0;
+  static final int DEFLATED = 8;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int END_SIZE = 22;
+  private static final int ZIP64_LOCATOR_SIZE = 20;
+  private static final int MAX_COMMENT_SIZE = 0xFFFF;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final Charset CP437 = Charset.forName("IBM437");
+  private static final MethodHandle UNMAP = unmapper();
+
+  private final FileChannel channel;
+  private ByteBuffer mapping;
+  private List<Entry> entries;
+  private Map<String, Entry> entriesByName;
+
+  private ZipArchive(@Nonnull FileChannel channel, @Nullable ByteBuffer mapping) {
+    this.channel = channel;
+    this.mapping = mapping;
+  }
+
+  /**
+   * Opens a zip archive.
+   *
+   * @param path the archive
+   * @return the opened archive
+   * @throws IOException if an I/O error occurs or the archive is malformed
+   */
+  @Nonnull
+  static ZipArchive open(@Nonnull Path path) throws IOException {
+    return open(path, false);
+  }
+
+  /**
+   * Opens a zip archive mapped in memory. The archive must not be modified or deleted while the
+   * build runs, archives too large to be mapped are read like opened ones.
+   *
+   * @param path the archive
+   * @return the opened archive
+   * @throws IOException if an I/O error occurs or the archive is malformed
+   */
+  @Nonnull
+  static ZipArchive map(@Nonnull Path path) throws IOException {
+    return open(path, true);
+  }
+
+  @Nonnull
+  private static ZipArchive open(@Nonnull Path path, boolean map) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      long size = channel.size();
+      ByteBuffer mapping =
+          map && size <= Integer.MAX_VALUE
+              ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+              : null;
+      ZipArchive archive = new ZipArchive(channel, mapping);
+      archive.entries = archive.readCentralDirectory(path);
+      return archive;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the entries in central directory order.
+   *
+   * @return the entries
+   */
+  @Nonnull
+  List<Entry> entries() {
+    return this.entries;
+  }
+
+  /**
+   * Gets the first entry with the name.
+   *
+   * @param name the entry name
+   * @return the entry, or {@code null} if there is none
+   */
+  @Nullable
+  synchronized Entry entry(@Nonnull String name) {
+    if (this.entriesByName == null) {
+      this.entriesByName = new HashMap<>();
+      for (Entry entry : this.entries) {
+        this.entriesByName.putIfAbsent(entry.name, entry);
+      }
+    }
+    return this.entriesByName.get(name);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      this.channel.close();
+    } finally {
+      ByteBuffer mapping = this.mapping;
+      this.mapping = null;
+      if (mapping != null && UNMAP != null) {
+        try {
+          UNMAP.invokeExact(mapping);
+        } catch (Throwable e) {
+          // Left to the garbage collector
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the method releasing a mapping, {@code Unsafe.invokeCleaner}.
+   *
+   * @return the method, or {@code null} if the runtime doesn't give access to it
+   */
+  @Nullable
+  private static MethodHandle unmapper() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      return MethodHandles.lookup()
+          .findVirtual(
+              unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  @Nonnull
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer mapping = this.mapping;
+    if (mapping != null) {
+      if (position + length > mapping.capacity()) {
+        throw new EOFException("Unexpected end of zip archive");
+      }
+      ByteBuffer view = mapping.duplicate();
+      view.position((int) position).limit((int) position + length);
+      return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (this.channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of zip archive");
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Nonnull
+  private List<Entry> readCentralDirectory(@Nonnull Path path) throws IOException {
+    long size = this.channel.size();
+    int tailSize = (int) Math.min(size, END_SIZE + MAX_COMMENT_SIZE);
+    ByteBuffer tail = read(size - tailSize, tailSize);
+
+    int end = -1;
+    for (int i = tailSize - END_SIZE; i >= 0; i--) {
+      if (tail.getInt(i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new ZipException("Missing end of central directory in " + path);
+    }
+
+    long count = Short.toUnsignedLong(tail.getShort(end + 10));
+    long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+    long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+    long endOffset = size - tailSize + end;
+    if (endOffset >= ZIP64_LOCATOR_SIZE) {
+      ByteBuffer locator = read(endOffset - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+      if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+        ByteBuffer zip64End = read(locator.getLong(8), 56);
+        if (zip64End.getInt(0) != ZIP64_END_SIGNATURE) {
+          throw new ZipException("Invalid zip64 end of central directory in " + path);
+        }
+        count = zip64End.getLong(32);
+        directorySize = zip64End.getLong(40);
+        directoryOffset = zip64End.getLong(48);
+      }
+    }
+    if (directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > size) {
+      throw new ZipException("Invalid central directory in " + path);
+    }
+
+    ByteBuffer directory = read(directoryOffset, (int) directorySize);
+    List<Entry> entries = new ArrayList<>((int) Math.min(count, 1 << 16));
+    int offset = 0;
+    while (offset < directorySize) {
+      if (directory.getInt(offset) != CENTRAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid central directory header in " + path);
+      }
+      int versionMadeBy = Short.toUnsignedInt(directory.getShort(offset + 4));
+      int flags = Short.toUnsignedInt(directory.getShort(offset + 8));
+      int method = Short.toUnsignedInt(directory.getShort(offset + 10));
+      int dosTime = directory.getInt(offset + 12);
+      long crc = Integer.toUnsignedLong(directory.getInt(offset + 16));
+      long compressedSize = Integer.toUnsignedLong(directory.getInt(offset + 20));
+      long uncompressedSize = Integer.toUnsignedLong(directory.getInt(offset + 24));
+      int nameLength = Short.toUnsignedInt(directory.getShort(offset + 28));
+      int extraLength = Short.toUnsignedInt(directory.getShort(offset + 30));
+      int commentLength = Short.toUnsignedInt(directory.getShort(offset + 32));
+      int externalAttributes = directory.getInt(offset + 38);
+      long localHeaderOffset = Integer.toUnsignedLong(directory.getInt(offset + 42));
+
+      byte[] name = new byte[nameLength];
+      directory.position(offset + 46);
+      directory.get(name);
+
+      // Sizes and offset saturated in the header are stored in the zip64 extra field, the other
+      // fields are kept as they are
+      int extra = offset + 46 + nameLength;
+      int extraEnd = extra + extraLength;
+      ByteArrayOutputStream extraFields = new ByteArrayOutputStream(extraLength);
+      while (extra + 4 <= extraEnd) {
+        int id = Short.toUnsignedInt(directory.getShort(extra));
+        int length = Short.toUnsignedInt(directory.getShort(extra + 2));
+        if (id != ZIP64_EXTRA_ID) {
+          byte[] field = new byte[Math.min(4 + length, extraEnd - extra)];
+          directory.position(extra);
+          directory.get(field);
+          extraFields.writeBytes(field);
+        } else {
+          int value = extra + 4;
+          if (uncompressedSize == 0xFFFFFFFFL) {
+            uncompressedSize = directory.getLong(value);
+            value += 8;
+          }
+          if (compressedSize == 0xFFFFFFFFL) {
+            compressedSize = directory.getLong(value);
+            value += 8;
+          }
+          if (localHeaderOffset == 0xFFFFFFFFL) {
+            localHeaderOffset = directory.getLong(value);
+          }
+        }
+        extra += 4 + length;
+      }
+
+      entries.add(
+          new Entry(
+              this,
+              new String(name, (flags & UTF8_FLAG) != 0 ? StandardCharsets.UTF_8 : CP437),
+              method,
+              dosTime,
+              crc,
+              compressedSize,
+              uncompressedSize,
+              localHeaderOffset,
+              versionMadeBy,
+              externalAttributes,
+              extraFields.toByteArray()));
+      offset = extraEnd + commentLength;
+    }
+    return entries;
+  }
+
+  /** An entry of a zip archive. */
+  static final class Entry {
+    private final ZipArchive archive;
+    private final String name;
+    private final int method;
+    private final int dosTime;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+    private final int versionMadeBy;
+    private final int externalAttributes;
+    private final byte[] extra;
+
+    Entry(
+        @Nonnull ZipArchive archive,
+        @Nonnull String name,
+        int method,
+        int dosTime,
+        long crc,
+        long compressedSize,
+        long size,
+        long localHeaderOffset,
+        int versionMadeBy,
+        int externalAttributes,
+        @Nonnull byte[] extra) {
+      this.archive = archive;
+      this.name = name;
+      this.method = method;
+      this.dosTime = dosTime;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+      this.versionMadeBy = versionMadeBy;
+      this.externalAttributes = externalAttributes;
+      this.extra = extra;
+    }
+
+    @Nonnull
+    String getName() {
+      return this.name;
+    }
+
+    boolean isDirectory() {
+      return this.name.endsWith("/");
+    }
+
+    int getMethod() {
+      return this.method;
+    }
+
+    int getDosTime() {
+      return this.dosTime;
+    }
+
+    long getCrc() {
+      return this.crc;
+    }
+
+    long getCompressedSize() {
+      return this.compressedSize;
+    }
+
+    long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Gets the version made by field of the central directory, whose upper byte tells the platform
+     * the external attributes are meant for.
+     *
+     * @return the version made by
+     */
+    int getVersionMadeBy() {
+      return this.versionMadeBy;
+    }
+
+    /**
+     * Gets the external attributes, like the Unix permissions of the entry.
+     *
+     * @return the external attributes
+     */
+    int getExternalAttributes() {
+      return this.externalAttributes;
+    }
+
+    /**
+     * Gets the extra fields of the central directory, without the zip64 one.
+     *
+     * @return the extra fields
+     */
+    @Nonnull
+    byte[] getExtra() {
+      return this.extra;
+    }
+
+    /**
+     * Reads the bytes of the entry as they are stored in the archive. For a mapped archive, the
+     * buffer is a view of the mapping.
+     *
+     * @return the compressed bytes
+     * @throws IOException if an I/O error occurs
+     */
+    @Nonnull
+    ByteBuffer readRaw() throws IOException {
+      if (this.compressedSize > Integer.MAX_VALUE) {
+        throw new ZipException("Entry " + this.name + " is too large");
+      }
+
+      ByteBuffer header = this.archive.read(this.localHeaderOffset, 30);
+      if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid local header for entry " + this.name);
+      }
+      long dataOffset =
+          this.localHeaderOffset
+              + 30
+              + Short.toUnsignedInt(header.getShort(26))
+              + Short.toUnsignedInt(header.getShort(28));
+      return this.archive.read(dataOffset, (int) this.compressedSize);
+    }
+
+    /**
+     * Reads the uncompressed bytes of the entry.
+     *
+     * @return the uncompressed bytes
+     * @throws IOException if an I/O error occurs
+     */
+    @Nonnull
+    byte[] read() throws IOException {
+      ByteBuffer raw = readRaw();
+      if (this.method == STORED) {
+        if (raw.hasArray() && raw.array().length == raw.remaining()) {
+          return raw.array();
+        }
+        byte[] data = new byte[raw.remaining()];
+        raw.get(data);
+        return data;
+      }
+      if (this.method != DEFLATED) {
+        throw new ZipException(
+            "Unsupported compression method " + this.method + " for entry " + this.name);
+      }
+
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(raw);
+        ByteArrayOutputStream out =
+            new ByteArrayOutputStream((int) Math.min(this.size, Integer.MAX_VALUE - 8));
+        byte[] buffer = new byte[8192];
+        while (!inflater.finished()) {
+          int length = inflater.inflate(buffer);
+          if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            throw new ZipException("Truncated entry " + this.name);
+          }
+          out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+      } catch (DataFormatException e) {
+        throw new ZipException("Invalid compressed data for entry " + this.name);
+      } finally {
+        inflater.end();
+      }
+    }
+  }
+}
@@ -0,0 +1,318 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Writes a zip archive from entries whose compressed bytes and checksums are already known, so
+ * entries can be compressed on other threads or copied from another archive as they are. Entries
+ * larger than 4 GB are not supported, archives with more entries or larger than the zip format
+ * allows get a zip64 end of central directory.
+ *
+ * <p>An entry copied from another archive keeps its platform, external attributes and extra fields
+ * in the central directory, which is what {@link java.util.zip.ZipFile} and unzip tools read them
+ * from. The local headers carry no extra field, since their content may differ from the central
+ * directory one, like for the extended timestamps.
+ */
+final class ZipArchiveWriter implements Closeable {
+  /** 1980-02-01 00:00 in MS-DOS format, the earliest time every zip tool reads back the same. */
+  static final int EARLIEST_DOS_TIME = (2 << 5 | 1) << 16;
+
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int VERSION = 20;
+  private static final int ZIP64_VERSION = 45;
+  private static final long MAX_32 = 0xFFFFFFFFL;
+  private static final int MAX_16 = 0xFFFF;
+  private static final int ZIP64_EXTRA_SIZE = 12;
+  private static final byte[] NO_EXTRA = new byte[0];
+
+  private static final int PENDING_SIZE = 1 << 16;
+
+  private final FileChannel channel;
+  private final List<CentralHeader> headers = new ArrayList<>();
+  private final ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+  private final ByteBuffer pending = ByteBuffer.allocate(PENDING_SIZE);
+  private long position;
+
+  /**
+   * Creates a new writer.
+   *
+   * @param path the archive to write
+   * @throws IOException if an I/O error occurs
+   */
+  ZipArchiveWriter(@Nonnull Path path) throws IOException {
+    this.channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /**
+   * Writes an entry.
+   *
+   * @param name the entry name
+   * @param dosTime the modification time, in MS-DOS format
+   * @param method the compression method
+   * @param crc the CRC-32 of the uncompressed bytes
+   * @param size the number of uncompressed bytes
+   * @param data the compressed bytes, which are consumed
+   * @throws IOException if an I/O error occurs
+   */
+  void write(
+      @Nonnull String name, int dosTime, int method, long crc, long size, @Nonnull ByteBuffer data)
+      throws IOException {
+    write(name, dosTime, method, crc, size, data, null);
+  }
+
+  /**
+   * Writes an entry, keeping the attributes of the entry it comes from.
+   *
+   * @param name the entry name
+   * @param dosTime the modification time, in MS-DOS format
+   * @param method the compression method
+   * @param crc the CRC-32 of the uncompressed bytes
+   * @param size the number of uncompressed bytes
+   * @param data the compressed bytes, which are consumed
+   * @param origin the entry whose platform, external attributes and extra fields are kept, or
+   *     {@code null} for none
+   * @throws IOException if an I/O error occurs
+   */
+  void write(
+      @Nonnull String name,
+      int dosTime,
+      int method,
+      long crc,
+      long size,
+      @Nonnull ByteBuffer data,
+      @Nullable ZipArchive.Entry origin)
+      throws IOException {
+    int compressedSize = data.remaining();
+    if (size >= MAX_32) {
+      throw new ZipException("Entry " + name + " is larger than 4 GB");
+    }
+
+    byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+    int platform = 0;
+    int externalAttributes = 0;
+    byte[] extra = NO_EXTRA;
+    if (origin != null) {
+      platform = origin.getVersionMadeBy() & 0xFF00;
+      externalAttributes = origin.getExternalAttributes();
+      // Dropped when the zip64 field could no longer fit along with them
+      if (origin.getExtra().length <= MAX_16 - ZIP64_EXTRA_SIZE) {
+        extra = origin.getExtra();
+      }
+    }
+    CentralHeader header =
+        new CentralHeader(
+            encodedName,
+            dosTime,
+            method,
+            crc,
+            compressedSize,
+            size,
+            this.position,
+            platform,
+            externalAttributes,
+            extra);
+    this.headers.add(header);
+
+    this.buffer.clear();
+    this.buffer.putInt(LOCAL_HEADER_SIGNATURE);
+    this.buffer.putShort((short) VERSION);
+    this.buffer.putShort((short) UTF8_FLAG);
+    this.buffer.putShort((short) method);
+    this.buffer.putInt(dosTime);
+    this.buffer.putInt((int) crc);
+    this.buffer.putInt(compressedSize);
+    this.buffer.putInt((int) size);
+    this.buffer.putShort((short) encodedName.length);
+    this.buffer.putShort((short) 0);
+    writeBuffer();
+    writeBytes(ByteBuffer.wrap(encodedName));
+    writeBytes(data);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (FileChannel channel = this.channel) {
+      long directoryOffset = this.position;
+      for (CentralHeader header : this.headers) {
+        boolean zip64 = header.localHeaderOffset >= MAX_32;
+
+        this.buffer.clear();
+        this.buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+        this.buffer.putShort((short) (header.platform | (zip64 ? ZIP64_VERSION : VERSION)));
+        this.buffer.putShort((short) (zip64 ? ZIP64_VERSION : VERSION));
+        this.buffer.putShort((short) UTF8_FLAG);
+        this.buffer.putShort((short) header.method);
+        this.buffer.putInt(header.dosTime);
+        this.buffer.putInt((int) header.crc);
+        this.buffer.putInt((int) header.compressedSize);
+        this.buffer.putInt((int) header.size);
+        this.buffer.putShort((short) header.name.length);
+        this.buffer.putShort((short) ((zip64 ? ZIP64_EXTRA_SIZE : 0) + header.extra.length));
+        this.buffer.putShort((short) 0); // comment length
+        this.buffer.putShort((short) 0); // disk number
+        this.buffer.putShort((short) 0); // internal attributes
+        this.buffer.putInt(header.externalAttributes);
+        this.buffer.putInt((int) (zip64 ? MAX_32 : header.localHeaderOffset));
+        writeBuffer();
+        writeBytes(ByteBuffer.wrap(header.name));
+
+        if (zip64) {
+          this.buffer.clear();
+          this.buffer.putShort((short) ZIP64_EXTRA_ID);
+          this.buffer.putShort((short) 8);
+          this.buffer.putLong(header.localHeaderOffset);
+          writeBuffer();
+        }
+        writeBytes(ByteBuffer.wrap(header.extra));
+      }
+
+      long directorySize = this.position - directoryOffset;
+      int count = this.headers.size();
+      if (count >= MAX_16 || directoryOffset >= MAX_32 || directorySize >= MAX_32) {
+        long zip64EndOffset = this.position;
+
+        this.buffer.clear();
+        this.buffer.putInt(ZIP64_END_SIGNATURE);
+        this.buffer.putLong(44); // size of the remaining record
+        this.buffer.putShort((short) ZIP64_VERSION);
+        this.buffer.putShort((short) ZIP64_VERSION);
+        this.buffer.putInt(0); // disk number
+        this.buffer.putInt(0); // disk with the central directory
+        this.buffer.putLong(count);
+        this.buffer.putLong(count);
+        this.buffer.putLong(directorySize);
+        this.buffer.putLong(directoryOffset);
+        writeBuffer();
+
+        this.buffer.clear();
+        this.buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+        this.buffer.putInt(0); // disk with the zip64 end of central directory
+        this.buffer.putLong(zip64EndOffset);
+        this.buffer.putInt(1); // number of disks
+        writeBuffer();
+      }
+
+      this.buffer.clear();
+      this.buffer.putInt(END_SIGNATURE);
+      this.buffer.putShort((short) 0); // disk number
+      this.buffer.putShort((short) 0); // disk with the central directory
+      this.buffer.putShort((short) Math.min(count, MAX_16));
+      this.buffer.putShort((short) Math.min(count, MAX_16));
+      this.buffer.putInt((int) Math.min(directorySize, MAX_32));
+      this.buffer.putInt((int) Math.min(directoryOffset, MAX_32));
+      this.buffer.putShort((short) 0); // comment length
+      writeBuffer();
+      flush();
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    writeBytes(this.buffer.flip());
+  }
+
+  private void writeBytes(@Nonnull ByteBuffer bytes) throws IOException {
+    this.position += bytes.remaining();
+    if (bytes.remaining() <= this.pending.remaining()) {
+      this.pending.put(bytes);
+      return;
+    }
+
+    // Large buffers, like mapped entries, go straight to the channel
+    flush();
+    while (bytes.hasRemaining()) {
+      this.channel.write(bytes);
+    }
+  }
+
+  private void flush() throws IOException {
+    this.pending.flip();
+    while (this.pending.hasRemaining()) {
+      this.channel.write(this.pending);
+    }
+    this.pending.clear();
+  }
+
+  /** The central directory header of a written entry. */
+  private static final class CentralHeader {
+    private final byte[] name;
+    private final int dosTime;
+    private final int method;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private final long localHeaderOffset;
+    private final int platform;
+    private final int externalAttributes;
+    private final byte[] extra;
+
+    CentralHeader(
+        @Nonnull byte[] name,
+        int dosTime,
+        int method,
+        long crc,
+        long compressedSize,
+        long size,
+        long localHeaderOffset,
+        int platform,
+        int externalAttributes,
+        @Nonnull byte[] extra) {
+      this.name = name;
+      this.dosTime = dosTime;
+      this.method = method;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+      this.localHeaderOffset = localHeaderOffset;
+      this.platform = platform;
+      this.externalAttributes = externalAttributes;
+      this.extra = extra;
+    }
+  }
+}
@@ -0,0 +1,392 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.relocation;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.CacheableRelocator;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocateClassContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.RelocatePathContext;
+import com.github.jengelman.gradle.plugins.shadow.relocation.Relocator;
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+
+/**
+ * A relocator compiling a whole set of relocations into a single prefix tree.
+ *
+ * <p>Shadow tests every class name, descriptor and string constant against each relocator in turn.
+ * This relocator walks the prefix tree once per symbol instead, collecting only the relocations
+ * whose pattern is a prefix of the symbol. Those candidates are then checked in declaration order
+ * against their {@link SimpleRelocator}, so includes, excludes and the relocated names are exactly
+ * the same as with one relocator per relocation.
+ */
+@CacheableRelocator
+public final class TrieRelocator implements Relocator {
+  private static final int NO_MATCH = -1;
+
+  private final List<Relocation> relocations;
+  private final List<SimpleRelocator> relocators;
+  private final Node root = new Node();
+  // Raw string relocators match regular expressions, they can't be indexed by prefix
+  private final int[] rawRelocators;
+  private final TrieRelocator literalRelocator;
+
+  /**
+   * Create a new relocator from the relocations, in declaration order.
+   *
+   * @param relocations the relocations to compile
+   */
+  public TrieRelocator(@Nonnull Collection<Relocation> relocations) {
+    this.relocations = List.copyOf(relocations);
+    this.relocators = new ArrayList<>(relocations.size());
+
+    List<Integer> rawRelocators = new ArrayList<>();
+    for (Relocation relocation : this.relocations) {
+      SimpleRelocator relocator =
+          new SimpleRelocator(
+              relocation.getPattern(),
+              relocation.getDestination(),
+              new ArrayList<>(relocation.getIncludes()),
+              new ArrayList<>(relocation.getExcludes()),
+              relocation.isRawString());
+
+      int index = this.relocators.size();
+      this.relocators.add(relocator);
+
+      if (relocation.isRawString()) {
+        rawRelocators.add(index);
+      } else {
+        this.root.insert(relocator.getPathPattern(), index);
+      }
+    }
+    this.rawRelocators = rawRelocators.stream().mapToInt(Integer::intValue).toArray();
+
+    List<Relocation> literalRelocations = new ArrayList<>(this.relocations.size());
+    for (Relocation relocation : this.relocations) {
+      if (!relocation.isSkipStringLiterals()) {
+        literalRelocations.add(relocation);
+      }
+    }
+    this.literalRelocator =
+        literalRelocations.size() == this.relocations.size()
+            ? this
+            : new TrieRelocator(literalRelocations);
+  }
+
+  /**
+   * Gets the relocations compiled into this relocator, in declaration order. They fully describe
+   * the relocator, so they are its task input.
+   *
+   * @return the relocations
+   */
+  @Nested
+  @Nonnull
+  public List<Relocation> getRelocations() {
+    return this.relocations;
+  }
+
+  /**
+   * Gets the relocators compiled into this relocator, in declaration order.
+   *
+   * @return the relocators
+   */
+  @Internal
+  @Nonnull
+  public List<SimpleRelocator> getRelocators() {
+    return this.relocators;
+  }
+
+  /**
+   * Gets the relocator to apply to string literals, leaving out the relocations skipping them.
+   *
+   * @return the relocator of string literals
+   */
+  @Nonnull
+  public TrieRelocator literalRelocator() {
+    return this.literalRelocator;
+  }
+
+  /**
+   * Describes every relocation compiled into this relocator, in declaration order. Two relocators
+   * with the same description relocate identically, so it can be used as a task input.
+   *
+   * @return the description of the relocations
+   */
+  @Nonnull
+  public List<String> fingerprint() {
+    List<String> fingerprint = new ArrayList<>(this.relocations.size());
+    for (Relocation relocation : this.relocations) {
+      fingerprint.add(relocation.toString());
+    }
+    return fingerprint;
+  }
+
+  /**
+   * Finds the first declared relocator able to relocate the path.
+   *
+   * @param path the path, with slashes as separators
+   * @return the relocator, or {@code null} if none can relocate the path
+   */
+  @Nullable
+  public SimpleRelocator findPathRelocator(@Nonnull String path) {
+    int index = findPath(path, false);
+    return index == NO_MATCH ? null : this.relocators.get(index);
+  }
+
+  /**
+   * Finds the first declared relocator able to relocate the class name.
+   *
+   * @param className the class name, with dots as separators
+   * @return the relocator, or {@code null} if none can relocate the class name
+   */
+  @Nullable
+  public SimpleRelocator findClassRelocator(@Nonnull String className) {
+    int index = findClass(className);
+    return index == NO_MATCH ? null : this.relocators.get(index);
+  }
+
+  /**
+   * Checks whether the text may contain a name this relocator would relocate. Every position
+   * starting a name, a descriptor or a path segment is walked through the prefix tree, with dots
+   * read as slashes. Includes and excludes are ignored, so the check may report a false positive
+   * but never a false negative.
+   *
+   * @param text the text, such as a class file constant
+   * @return whether the text may need to be relocated
+   */
+  public boolean mayRelocate(@Nonnull String text) {
+    if (this.rawRelocators.length > 0) {
+      return true;
+    }
+
+    for (int i = 0; i < text.length(); i++) {
+      if (i > 0) {
+        char previous = text.charAt(i - 1);
+        if (previous != 'L' && Character.isJavaIdentifierPart(previous)) {
+          continue;
+        }
+      }
+      if (this.root.matches(text, i)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean canRelocatePath(String path) {
+    return findPath(path, false) != NO_MATCH;
+  }
+
+  @Override
+  public String relocatePath(RelocatePathContext context) {
+    int index = findPath(context.getPath(), false);
+    return index == NO_MATCH
+        ? context.getPath()
+        : this.relocators.get(index).relocatePath(context);
+  }
+
+  @Override
+  public boolean canRelocateClass(String className) {
+    return findClass(className) != NO_MATCH;
+  }
+
+  @Override
+  public String relocateClass(RelocateClassContext context) {
+    int index = findClass(context.getClassName());
+    return index == NO_MATCH
+        ? context.getClassName()
+        : this.relocators.get(index).relocateClass(context);
+  }
+
+  @Override
+  public String applyToSourceContent(String sourceContent) {
+    String content = sourceContent;
+    for (SimpleRelocator relocator : this.relocators) {
+      content = relocator.applyToSourceContent(content);
+    }
+    return content;
+  }
+
+  private int findClass(@Nonnull String className) {
+    // Class names use dots, a slash means this is not a class name
+    if (className.indexOf('/') >= 0) {
+      return NO_MATCH;
+    }
+    return findPath(className, true);
+  }
+
+  private int findPath(@Nonnull String path, boolean className) {
+    if (path.isEmpty()) {
+      return NO_MATCH;
+    }
+
+    // Resources may be referenced with a leading slash, as in Class#getResource("/a/b/c")
+    int start = path.charAt(0) == '/' && !className ? 1 : 0;
+
+    int best = NO_MATCH;
+    for (int index : this.root.collect(path, start, className)) {
+      if (canRelocate(this.relocators.get(index), path, className)) {
+        best = index;
+        break;
+      }
+    }
+
+    for (int index : this.rawRelocators) {
+      if (best != NO_MATCH && index > best) {
+        break;
+      }
+      if (canRelocate(this.relocators.get(index), path, className)) {
+        return index;
+      }
+    }
+    return best;
+  }
+
+  private static boolean canRelocate(
+      @Nonnull SimpleRelocator relocator, @Nonnull String path, boolean className) {
+    return className ? relocator.canRelocateClass(path) : relocator.canRelocatePath(path);
+  }
+
+  /** A node of the prefix tree, keyed by the characters of the path patterns. */
+  private static final class Node {
+    private static final int[] EMPTY = new int[0];
+
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    // The relocators whose pattern ends at this node
+    private int[] terminals = EMPTY;
+
+    void insert(@Nonnull String pattern, int index) {
+      Node node = this;
+      for (int i = 0; i < pattern.length(); i++) {
+        node = node.childOrCreate(pattern.charAt(i));
+      }
+      node.terminals = Arrays.copyOf(node.terminals, node.terminals.length + 1);
+      node.terminals[node.terminals.length - 1] = index;
+    }
+
+    /**
+     * Collects the relocators whose pattern is a prefix of the path, sorted by declaration order.
+     *
+     * @param path the path
+     * @param start the index of the path to start walking from
+     * @param className whether dots of the path should be walked as slashes
+     * @return the relocator indexes
+     */
+    @Nonnull
+    int[] collect(@Nonnull String path, int start, boolean className) {
+      int[] found = this.terminals;
+      Node node = this;
+      for (int i = start; i < path.length(); i++) {
+        char c = path.charAt(i);
+        node = node.child(className && c == '.' ? '/' : c);
+        if (node == null) {
+          break;
+        }
+        if (node.terminals.length > 0) {
+          found = merge(found, node.terminals);
+        }
+      }
+      return found;
+    }
+
+    /**
+     * Checks whether any pattern is a prefix of the text starting at the index.
+     *
+     * @param text the text
+     * @param start the index of the text to start walking from
+     * @return whether a pattern matches
+     */
+    boolean matches(@Nonnull String text, int start) {
+      if (this.terminals.length > 0) {
+        return true;
+      }
+
+      Node node = this;
+      for (int i = start; i < text.length(); i++) {
+        char c = text.charAt(i);
+        node = node.child(c == '.' ? '/' : c);
+        if (node == null) {
+          return false;
+        }
+        if (node.terminals.length > 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Nullable
+    private Node child(char key) {
+      int index = Arrays.binarySearch(this.keys, key);
+      return index >= 0 ? this.children[index] : null;
+    }
+
+    @Nonnull
+    private Node childOrCreate(char key) {
+      int index = Arrays.binarySearch(this.keys, key);
+      if (index >= 0) {
+        return this.children[index];
+      }
+
+      int insertion = -index - 1;
+      Node child = new Node();
+
+      char[] keys = new char[this.keys.length + 1];
+      System.arraycopy(this.keys, 0, keys, 0, insertion);
+      keys[insertion] = key;
+      System.arraycopy(this.keys, insertion, keys, insertion + 1, this.keys.length - insertion);
+
+      Node[] children = new Node[this.children.length + 1];
+      System.arraycopy(this.children, 0, children, 0, insertion);
+      children[insertion] = child;
+      System.arraycopy(
+          this.children, insertion, children, insertion + 1, this.children.length - insertion);
+
+      this.keys = keys;
+      this.children = children;
+      return child;
+    }
+
+    @Nonnull
+    private static int[] merge(@Nonnull int[] first, @Nonnull int[] second) {
+      if (first.length == 0) {
+        return second;
+      }
+      int[] merged = new int[first.length + second.length];
+      System.arraycopy(first, 0, merged, 0, first.length);
+      System.arraycopy(second, 0, merged, first.length, second.length);
+      Arrays.sort(merged);
+      return merged;
+    }
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.pipeline.AutoRelocations;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * The automatic relocations gradle task. It computes the minimal set of relocations moving every
+ * package of the shaded jars under a prefix, leaving the packages of the declared relocations and
+ * the provided packages untouched.
+ */
+@CacheableTask
+public abstract class AutoRelocationTask extends DefaultTask {
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+  /**
+   * The package the shaded packages are moved under.
+   *
+   * @return a property providing the prefix
+   */
+  @Input
+  public abstract Property<String> getPrefix();
+
+  /**
+   * The declared relocations, whose packages are left to them.
+   *
+   * @return a property providing the declared relocations
+   */
+  @Nested
+  public abstract ListProperty<Relocation> getDeclaredRelocations();
+
+  /**
+   * The jars shaded into the project jar.
+   *
+   * @return the shaded classpath collection
+   */
+  @Classpath
+  public abstract ConfigurableFileCollection getShadedClasspath();
+
+  /**
+   * The jars and class directories whose packages must keep their names, such as the project
+   * classes, the server API and the libraries left out of the jar.
+   *
+   * @return the provided classpath collection
+   */
+  @Classpath
+  public abstract ConfigurableFileCollection getProvidedClasspath();
+
+  /**
+   * The directory the package indexes of the jars are stored in. It only speeds up the later
+   * runs, so it is local state of the task, removed when the output is restored from the cache.
+   *
+   * @return the index directory
+   */
+  @LocalState
+  public abstract DirectoryProperty getIndexDirectory();
+
+  /**
+   * The file the relocations are written to.
+   *
+   * @return the output file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getOutputFile();
+
+  /** The task action to compute the relocations. */
+  @TaskAction
+  public void compute() {
+    try {
+      List<Relocation> relocations =
+          AutoRelocations.compute(
+              getPrefix().get(),
+              getDeclaredRelocations().get(),
+              getShadedClasspath().getFiles(),
+              getProvidedClasspath().getFiles(),
+              getIndexDirectory().get().getAsFile().toPath());
+
+      ObjectNode node = MAPPER.createObjectNode();
+      ArrayNode array = node.putArray("relocations");
+      for (Relocation relocation : relocations) {
+        ObjectNode entry = array.addObject();
+        entry.put("pattern", relocation.getPattern());
+        entry.put("destination", relocation.getDestination());
+        getLogger()
+            .info("Relocating {} to {}", relocation.getPattern(), relocation.getDestination());
+      }
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(getOutputFile().get().getAsFile(), node);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Reads the relocations from an automatic relocations file.
+   *
+   * @param file the automatic relocations file
+   * @return the relocations, sorted by pattern
+   */
+  @Nonnull
+  public static List<Relocation> readRelocations(@Nonnull File file) {
+    List<Relocation> relocations = new ArrayList<>();
+    try {
+      MAPPER
+          .readTree(file)
+          .get("relocations")
+          .forEach(
+              relocation ->
+                  relocations.add(
+                      new Relocation(
+                          relocation.get("pattern").asText(),
+                          relocation.get("destination").asText())));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return relocations;
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.task;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.UnusedRelocationPolicy;
+import com.vouncherstudios.strawberry.shadow.pipeline.RelocationUsage;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.annotation.Nonnull;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.LocalState;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * The relocation report gradle task. It reports how many classes, strings and resources each
+ * relocation rewrites in the runtime classpath, and flags the relocations rewriting nothing: the
+ * dead ones, matching nothing, and the shadowed ones, whose names are all rewritten by a
+ * relocation declared before them.
+ *
+ * <p>The names of each jar are read from a package index kept by the task, keyed by the hash of the
+ * jar, so a jar is only indexed the first time it is reported on.
+ */
+@CacheableTask
+public abstract class RelocationReportTask extends DefaultTask {
+  private static final ObjectMapper MAPPER = JsonMapper.builder().build();
+
+  /**
+   * The relocations to report on, in declaration order.
+   *
+   * @return a property providing the relocations
+   */
+  @Nested
+  public abstract ListProperty<Relocation> getRelocations();
+
+  /**
+   * The jars and class directories the relocations are applied to.
+   *
+   * @return the classpath collection
+   */
+  @Classpath
+  public abstract ConfigurableFileCollection getClasspath();
+
+  /**
+   * What to do with the unused relocations.
+   *
+   * @return a property providing the unused relocations policy
+   */
+  @Input
+  public abstract Property<UnusedRelocationPolicy> getPolicy();
+
+  /**
+   * The directory the package indexes of the jars are stored in. Only the jars are indexed, so it
+   * has no effect on the report: it is local state of the task, removed when the output is
+   * restored from the cache.
+   *
+   * @return the index directory
+   */
+  @LocalState
+  public abstract DirectoryProperty getIndexDirectory();
+
+  /**
+   * The file the readable report is written to.
+   *
+   * @return the report file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getReportFile();
+
+  /**
+   * The file the usage of each relocation is written to, as JSON.
+   *
+   * @return the usage file
+   */
+  @OutputFile
+  public abstract RegularFileProperty getUsageFile();
+
+  /** The task action to report on the relocations. */
+  @TaskAction
+  public void report() {
+    List<Relocation> relocations = getRelocations().get();
+    RelocationUsage analysis;
+    try {
+      analysis =
+          RelocationUsage.analyze(
+              relocations,
+              getClasspath().getFiles(),
+              getIndexDirectory().get().getAsFile().toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    List<String> lines = new ArrayList<>();
+    List<String> unused = new ArrayList<>();
+    ObjectNode node = MAPPER.createObjectNode();
+    ArrayNode usages = node.putArray("relocations");
+    for (int i = 0; i < relocations.size(); i++) {
+      RelocationUsage.Usage usage = analysis.getUsages().get(i);
+      String relocation = describe(usage.getRelocation());
+      List<String> overlappedBy = new ArrayList<>();
+      usage.getOverlappedBy().forEach(other -> overlappedBy.add(describe(other)));
+
+      ObjectNode entry = usages.addObject();
+      entry.put("index", i);
+      entry.put("relocation", relocation);
+      entry.put("status", usage.getStatus().name().toLowerCase(Locale.ROOT));
+      entry.put("classes", usage.getClasses());
+      entry.put("strings", usage.getStrings());
+      entry.put("resources", usage.getResources());
+      ArrayNode overlapping = entry.putArray("overlappedBy");
+      overlappedBy.forEach(overlapping::add);
+
+      String line;
+      switch (usage.getStatus()) {
+        case DEAD:
+          line = relocation + ": dead, matches nothing";
+          unused.add(line);
+          break;
+        case SHADOWED:
+          line = relocation + ": shadowed by " + String.join(", ", overlappedBy);
+          unused.add(line);
+          break;
+        default:
+          line =
+              relocation
+                  + ": "
+                  + usage.getClasses()
+                  + " classes, "
+                  + usage.getStrings()
+                  + " strings, "
+                  + usage.getResources()
+                  + " resources";
+          if (!overlappedBy.isEmpty()) {
+            line += ", overlapped by " + String.join(", ", overlappedBy);
+          }
+          break;
+      }
+      lines.add(line);
+    }
+
+    File reportFile = getReportFile().get().getAsFile();
+    try {
+      Files.write(reportFile.toPath(), lines, StandardCharsets.UTF_8);
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(getUsageFile().get().getAsFile(), node);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    if (unused.isEmpty()) {
+      getLogger().lifecycle("Every relocation rewrites some names");
+      return;
+    }
+
+    String message =
+        unused.size()
+            + " relocations rewrite nothing in the runtime classpath:\n  "
+            + String.join("\n  ", unused)
+            + "\nSee the full report at "
+            + reportFile.toURI();
+    switch (getPolicy().get()) {
+      case FAIL:
+        throw new GradleException(message);
+      case PRUNE:
+        getLogger().lifecycle("Pruning " + message);
+        break;
+      default:
+        getLogger().warn(message);
+        break;
+    }
+  }
+
+  @Nonnull
+  private static String describe(@Nonnull Relocation relocation) {
+    return relocation.getPattern() + " -> " + relocation.getDestination();
+  }
+
+  /**
+   * Reads the indexes of the unused relocations from a usage file.
+   *
+   * @param file the usage file
+   * @return the indexes of the unused relocations, in declaration order
+   */
+  @Nonnull
+  public static Set<Integer> readUnused(@Nonnull File file) {
+    Set<Integer> unused = new TreeSet<>();
+    try {
+      MAPPER
+          .readTree(file)
+          .get("relocations")
+          .forEach(
+              usage -> {
+                if (!usage.get("status").asText().equals("used")) {
+                  unused.add(usage.get("index").asInt());
+                }
+              });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return unused;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transform;
+
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.pipeline.ShadingPipeline;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import javax.annotation.Nonnull;
+import org.gradle.api.artifacts.transform.CacheableTransform;
+import org.gradle.api.artifacts.transform.InputArtifact;
+import org.gradle.api.artifacts.transform.TransformAction;
+import org.gradle.api.artifacts.transform.TransformOutputs;
+import org.gradle.api.artifacts.transform.TransformParameters;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+
+/**
+ * The artifact transform relocating a dependency jar. Its result is keyed on the jar content and
+ * the relocations only, so each dependency is relocated once per machine or remote build cache and
+ * shared by every project declaring the same relocations.
+ *
+ * <p>Jars referencing nothing relocated are passed through without being copied.
+ */
+@CacheableTransform
+public abstract class RelocationTransform
+    implements TransformAction<RelocationTransform.Parameters> {
+  /** The attribute telling whether an artifact was relocated by Strawberry. */
+  public static final Attribute<Boolean> RELOCATED_ATTRIBUTE =
+      Attribute.of("com.vouncherstudios.strawberry.relocated", Boolean.class);
+
+  /**
+   * Gets the dependency jar to relocate.
+   *
+   * @return a provider of the dependency jar
+   */
+  @InputArtifact
+  @PathSensitive(PathSensitivity.NONE)
+  public abstract Provider<FileSystemLocation> getInputArtifact();
+
+  @Override
+  public void transform(@Nonnull TransformOutputs outputs) {
+    File input = getInputArtifact().get().getAsFile();
+    if (!input.isFile()) {
+      outputs.file(input);
+      return;
+    }
+
+    ShadingPipeline pipeline =
+        new ShadingPipeline(new TrieRelocator(getParameters().getRelocations().get()), false);
+
+    try {
+      if (!pipeline.needsRelocation(input.toPath())) {
+        outputs.file(input);
+        return;
+      }
+
+      String name = input.getName();
+      int extension = name.lastIndexOf('.');
+      File output =
+          outputs.file(
+              (extension < 0 ? name : name.substring(0, extension)) + "-relocated.jar");
+      pipeline.process(input.toPath(), output.toPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** The relocations to apply, in declaration order. */
+  public interface Parameters extends TransformParameters {
+    /**
+     * Gets the relocations to apply.
+     *
+     * @return the relocations
+     */
+    @Nested
+    ListProperty<Relocation> getRelocations();
+  }
+}
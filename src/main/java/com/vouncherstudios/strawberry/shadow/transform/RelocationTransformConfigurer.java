@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transform;
+
+import com.vouncherstudios.strawberry.gradle.utils.ResolutionUtils;
+import com.vouncherstudios.strawberry.internal.StrawberryExtensionImpl;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.util.ArrayList;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+
+/** Configures the {@link RelocationTransform} of a project caching its relocated dependencies. */
+public final class RelocationTransformConfigurer {
+  private static final String RELOCATED_CLASSPATH_CONFIGURATION_NAME =
+      "strawberryRelocatedRuntimeClasspath";
+
+  private RelocationTransformConfigurer() {}
+
+  /**
+   * Registers the artifact transform relocating the dependency jars, and creates the runtime
+   * classpath requesting them. Nothing is registered until a shadowJar task caches its relocated
+   * dependencies, and only once for all of them.
+   *
+   * @param project the project
+   * @param strawberry the strawberry extension
+   * @return the runtime classpath of relocated jars
+   */
+  @Nonnull
+  public static Configuration configure(
+      @Nonnull Project project, @Nonnull StrawberryExtensionImpl strawberry) {
+    Configuration existing =
+        project.getConfigurations().findByName(RELOCATED_CLASSPATH_CONFIGURATION_NAME);
+    if (existing != null) {
+      return existing;
+    }
+
+    DependencyHandler dependencies = project.getDependencies();
+    dependencies.getAttributesSchema().attribute(RelocationTransform.RELOCATED_ATTRIBUTE);
+    dependencies
+        .getArtifactTypes()
+        .maybeCreate(ArtifactTypeDefinition.JAR_TYPE)
+        .getAttributes()
+        .attribute(RelocationTransform.RELOCATED_ATTRIBUTE, false);
+    dependencies.registerTransform(
+        RelocationTransform.class,
+        spec -> {
+          spec.getFrom()
+              .attribute(
+                  ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE)
+              .attribute(RelocationTransform.RELOCATED_ATTRIBUTE, false);
+          spec.getTo()
+              .attribute(
+                  ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, ArtifactTypeDefinition.JAR_TYPE)
+              .attribute(RelocationTransform.RELOCATED_ATTRIBUTE, true);
+          spec.parameters(
+              parameters ->
+                  parameters.getRelocations().set(strawberry.relocations().map(ArrayList::new)));
+        });
+
+    Configuration runtimeClasspath = ResolutionUtils.runtimeClasspath(project);
+    return project
+        .getConfigurations()
+        .create(
+            RELOCATED_CLASSPATH_CONFIGURATION_NAME,
+            configuration -> {
+              configuration.setDescription("The runtime classpath with relocated jars.");
+              configuration.setCanBeConsumed(false);
+              configuration.setCanBeResolved(true);
+              configuration.setVisible(false);
+              // Extending the classpath itself sees the configurations it extends later on
+              configuration.extendsFrom(runtimeClasspath);
+
+              AttributeContainer attributes = configuration.getAttributes();
+              for (Attribute<?> attribute : runtimeClasspath.getAttributes().keySet()) {
+                inheritAttribute(project, runtimeClasspath.getAttributes(), attributes, attribute);
+              }
+              attributes.attribute(RelocationTransform.RELOCATED_ATTRIBUTE, true);
+            });
+  }
+
+  private static <T> void inheritAttribute(
+      @Nonnull Project project,
+      @Nonnull AttributeContainer from,
+      @Nonnull AttributeContainer to,
+      @Nonnull Attribute<T> attribute) {
+    // Some attributes, like the target JVM version, are only known once the project is configured
+    to.attributeProvider(
+        attribute, project.getProviders().provider(() -> from.getAttribute(attribute)));
+  }
+
+  /**
+   * Checks whether the relocations can be applied to each dependency on its own. A destination
+   * inside a pattern, or matched by a raw string pattern, would be relocated twice when the project
+   * classes are relocated.
+   *
+   * @param relocations the relocations
+   * @return whether the relocations can be applied by the artifact transform
+   */
+  public static boolean isTransformable(@Nonnull Set<Relocation> relocations) {
+    for (Relocation relocation : relocations) {
+      if (relocation.isRawString()) {
+        return false;
+      }
+      for (Relocation other : relocations) {
+        if ((relocation.getDestination() + '.').startsWith(other.getPattern() + '.')) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Relocates the package names of the Kotlin module metadata, the {@code .kotlin_module} files
+ * mapping each package to the classes holding its top-level functions. Without it, the Kotlin
+ * compiler and reflection look the relocated top-level functions up in their original package.
+ *
+ * <p>A module file is a metadata version, as a count followed by that many integers, the module
+ * flags since Kotlin 1.4, and the {@code Module} protocol buffer message. Only the package names of
+ * the message are rewritten, every other field is copied as it is. A malformed or unknown file is
+ * left unchanged.
+ */
+public final class KotlinModuleTransformer implements ResourceTransformer {
+  private static final String PREFIX = "META-INF/";
+  private static final String SUFFIX = ".kotlin_module";
+
+  // The fields of the Module message
+  private static final int PACKAGE_PARTS = 1;
+  private static final int METADATA_PARTS = 2;
+  private static final int JVM_PACKAGE_NAME = 3;
+  // The field of the PackageParts message
+  private static final int PACKAGE_FQ_NAME = 1;
+
+  private static final int VARINT = 0;
+  private static final int FIXED64 = 1;
+  private static final int LENGTH_DELIMITED = 2;
+  private static final int FIXED32 = 5;
+
+  @Override
+  public boolean canTransform(@Nonnull String name) {
+    return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+  }
+
+  @Nonnull
+  @Override
+  public byte[] transform(@Nonnull ResourceContext context) {
+    byte[] data = context.getData();
+    try {
+      int header = headerLength(data);
+      if (header < 0) {
+        return data;
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream(data.length + 64);
+      output.write(data, 0, header);
+      boolean relocated = rewriteModule(data, header, data.length, output, context);
+      return relocated ? output.toByteArray() : data;
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      return data;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public String fingerprint() {
+    return "";
+  }
+
+  private static int headerLength(@Nonnull byte[] data) {
+    if (data.length < 4) {
+      return -1;
+    }
+    int count = readInt(data, 0);
+    if (count < 0 || count > 16) {
+      return -1;
+    }
+    int length = 4 + 4 * count;
+    // The flags are a small integer, and a zero byte is never a valid field tag
+    if (length + 4 <= data.length && data[length] == 0) {
+      length += 4;
+    }
+    return length <= data.length ? length : -1;
+  }
+
+  private static boolean rewriteModule(
+      @Nonnull byte[] data,
+      int offset,
+      int end,
+      @Nonnull ByteArrayOutputStream output,
+      @Nonnull ResourceContext context) {
+    boolean relocated = false;
+    int[] position = {offset};
+    while (position[0] < end) {
+      int fieldStart = position[0];
+      int tag = (int) readVarint(data, position);
+      int field = tag >>> 3;
+      if ((tag & 7) != LENGTH_DELIMITED
+          || (field != PACKAGE_PARTS && field != METADATA_PARTS && field != JVM_PACKAGE_NAME)) {
+        skip(data, position, tag & 7);
+        output.write(data, fieldStart, position[0] - fieldStart);
+        continue;
+      }
+
+      int length = (int) readVarint(data, position);
+      int valueStart = position[0];
+      position[0] += length;
+      if (length < 0 || position[0] > end) {
+        throw new IllegalArgumentException("Truncated field " + field);
+      }
+
+      byte[] value;
+      if (field == JVM_PACKAGE_NAME) {
+        // JVM package names use slashes as separators
+        String packageName = new String(data, valueStart, length, StandardCharsets.UTF_8);
+        String relocatedName =
+            context.relocatePackage(packageName.replace('/', '.')).replace('.', '/');
+        value =
+            relocatedName.equals(packageName)
+                ? null
+                : relocatedName.getBytes(StandardCharsets.UTF_8);
+      } else {
+        value = rewritePackageParts(data, valueStart, position[0], context);
+      }
+
+      if (value == null) {
+        output.write(data, fieldStart, position[0] - fieldStart);
+      } else {
+        writeVarint(output, tag);
+        writeVarint(output, value.length);
+        output.write(value, 0, value.length);
+        relocated = true;
+      }
+    }
+    return relocated;
+  }
+
+  @Nullable
+  private static byte[] rewritePackageParts(
+      @Nonnull byte[] data, int offset, int end, @Nonnull ResourceContext context) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(end - offset + 32);
+    boolean relocated = false;
+    int[] position = {offset};
+    while (position[0] < end) {
+      int fieldStart = position[0];
+      int tag = (int) readVarint(data, position);
+      if (tag != (PACKAGE_FQ_NAME << 3 | LENGTH_DELIMITED)) {
+        skip(data, position, tag & 7);
+        output.write(data, fieldStart, position[0] - fieldStart);
+        continue;
+      }
+
+      int length = (int) readVarint(data, position);
+      String packageName = new String(data, position[0], length, StandardCharsets.UTF_8);
+      position[0] += length;
+      String relocatedName = context.relocatePackage(packageName);
+      if (relocatedName.equals(packageName)) {
+        output.write(data, fieldStart, position[0] - fieldStart);
+      } else {
+        byte[] value = relocatedName.getBytes(StandardCharsets.UTF_8);
+        writeVarint(output, tag);
+        writeVarint(output, value.length);
+        output.write(value, 0, value.length);
+        relocated = true;
+      }
+    }
+    if (position[0] != end) {
+      throw new IllegalArgumentException("Truncated package parts");
+    }
+    return relocated ? output.toByteArray() : null;
+  }
+
+  private static void skip(@Nonnull byte[] data, @Nonnull int[] position, int wireType) {
+    switch (wireType) {
+      case VARINT:
+        readVarint(data, position);
+        break;
+      case FIXED64:
+        position[0] += 8;
+        break;
+      case LENGTH_DELIMITED:
+        int length = (int) readVarint(data, position);
+        if (length < 0) {
+          throw new IllegalArgumentException("Negative length");
+        }
+        position[0] += length;
+        break;
+      case FIXED32:
+        position[0] += 4;
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported wire type " + wireType);
+    }
+    if (position[0] > data.length) {
+      throw new IllegalArgumentException("Truncated field");
+    }
+  }
+
+  private static long readVarint(@Nonnull byte[] data, @Nonnull int[] position) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = data[position[0]++];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Malformed varint");
+  }
+
+  private static void writeVarint(@Nonnull ByteArrayOutputStream output, int value) {
+    while ((value & ~0x7F) != 0) {
+      output.write((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    output.write(value);
+  }
+
+  private static int readInt(@Nonnull byte[] data, int offset) {
+    return ((data[offset] & 0xFF) << 24)
+        | ((data[offset + 1] & 0xFF) << 16)
+        | ((data[offset + 2] & 0xFF) << 8)
+        | (data[offset + 3] & 0xFF);
+  }
+}
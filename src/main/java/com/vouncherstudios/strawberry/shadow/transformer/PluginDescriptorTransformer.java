@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nonnull;
+
+/**
+ * Relocates the class names of the Paper, Bukkit, BungeeCord and Velocity plugin descriptors of the
+ * jar, such as the main class. The descriptors are rewritten in place, so their formatting and
+ * comments are kept.
+ */
+public final class PluginDescriptorTransformer implements ResourceTransformer {
+  private static final Set<String> YAML_DESCRIPTORS =
+      Set.of("plugin.yml", "paper-plugin.yml", "bungee.yml");
+  private static final String VELOCITY_DESCRIPTOR = "velocity-plugin.json";
+  private static final Pattern YAML_CLASS =
+      Pattern.compile("(?m)^(?:main|bootstrapper|loader)\\s*:\\s*['\"]?([\\w.$]+)");
+  private static final Pattern JSON_CLASS = Pattern.compile("\"main\"\\s*:\\s*\"([\\w.$]+)\"");
+
+  @Override
+  public boolean canTransform(@Nonnull String name) {
+    return YAML_DESCRIPTORS.contains(name) || name.equals(VELOCITY_DESCRIPTOR);
+  }
+
+  @Nonnull
+  @Override
+  public byte[] transform(@Nonnull ResourceContext context) {
+    byte[] data = context.getData();
+    String content = new String(data, StandardCharsets.UTF_8);
+    Matcher matcher =
+        (context.getName().equals(VELOCITY_DESCRIPTOR) ? JSON_CLASS : YAML_CLASS).matcher(content);
+
+    StringBuilder builder = new StringBuilder(content.length());
+    boolean relocated = false;
+    int last = 0;
+    while (matcher.find()) {
+      String className = matcher.group(1);
+      String relocatedClassName = context.relocateClass(className);
+      if (!relocatedClassName.equals(className)) {
+        builder.append(content, last, matcher.start(1)).append(relocatedClassName);
+        last = matcher.end(1);
+        relocated = true;
+      }
+    }
+    if (!relocated) {
+      return data;
+    }
+    builder.append(content, last, content.length());
+    return builder.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Nonnull
+  @Override
+  public String fingerprint() {
+    return "";
+  }
+}
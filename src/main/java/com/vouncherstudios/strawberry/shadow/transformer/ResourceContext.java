@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/** A resource handed to a {@link ResourceTransformer}, along with the relocations of the jar. */
+public interface ResourceContext {
+  /**
+   * Gets the entry name of the resource in the jar merged by Shadow, before it is relocated.
+   *
+   * @return the entry name
+   */
+  @Nonnull
+  String getName();
+
+  /**
+   * Gets the content of the resource, as transformed by the previous transformers.
+   *
+   * @return the content
+   */
+  @Nonnull
+  byte[] getData();
+
+  /**
+   * Reads every copy of the resource shipped by the dependency jars, in the order Shadow merges
+   * them. Shadow only keeps the first one, so this is how resources are merged.
+   *
+   * @return the content of the copies
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  List<byte[]> getCopies() throws IOException;
+
+  /**
+   * Relocates a class name.
+   *
+   * @param className the class name, with dots as separators
+   * @return the relocated class name
+   */
+  @Nonnull
+  String relocateClass(@Nonnull String className);
+
+  /**
+   * Relocates the path of a resource or an internal class name.
+   *
+   * @param path the path, with slashes as separators
+   * @return the relocated path
+   */
+  @Nonnull
+  String relocatePath(@Nonnull String path);
+
+  /**
+   * Relocates a package name, like the classes of the package are.
+   *
+   * @param packageName the package name, with dots as separators
+   * @return the relocated package name
+   */
+  @Nonnull
+  String relocatePackage(@Nonnull String packageName);
+}
@@ -0,0 +1,73 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.io.IOException;
+import javax.annotation.Nonnull;
+
+/**
+ * A transformer of the resources of the shaded jar, run by the Strawberry shading pipeline.
+ *
+ * <p>The pipeline streams every entry of the jar exactly once. Each resource, that is each entry
+ * which isn't a class, is handed in turn to the transformers able to transform it, in the same pass
+ * as the relocation of the classes, instead of each transformer scanning the jar again. The custom
+ * transformers run first, in the order they are added, then the built-in ones relocating the
+ * service files, the Kotlin module metadata and the plugin descriptors.
+ *
+ * <p>Resources are transformed concurrently when the pipeline is parallel, so a transformer must be
+ * thread-safe. It is kept by the configuration cache, and its class name along with its {@link
+ * #fingerprint() fingerprint} is an input of the shaded jar and of the incremental shading index.
+ */
+public interface ResourceTransformer {
+  /**
+   * Checks whether the transformer transforms a resource. It is called for every resource of the
+   * jar, so it should only look at the name.
+   *
+   * @param name the entry name of the resource
+   * @return whether the resource is transformed
+   */
+  boolean canTransform(@Nonnull String name);
+
+  /**
+   * Transforms a resource.
+   *
+   * @param context the resource, along with the relocations of the jar
+   * @return the transformed content, or the content of the context itself if it is left unchanged
+   * @throws IOException if an I/O error occurs
+   */
+  @Nonnull
+  byte[] transform(@Nonnull ResourceContext context) throws IOException;
+
+  /**
+   * Gets a stable description of the configuration of the transformer, such as the values of its
+   * fields. The shaded jar is only rebuilt, and its resources only transformed again, when the
+   * fingerprint or the class of a transformer changes, so it must change whenever the output of the
+   * transformer would.
+   *
+   * @return the fingerprint, empty for a transformer without configuration
+   */
+  @Nonnull
+  String fingerprint();
+}
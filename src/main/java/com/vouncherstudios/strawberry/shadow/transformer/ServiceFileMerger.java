@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nonnull;
+
+/**
+ * Merges the {@code META-INF/services} files shipped by several dependencies. Shadow only keeps the
+ * first copy of a file, which hides the providers of the other dependencies. The providers of the
+ * other copies are appended in the order Shadow merges the jars, each one only once.
+ */
+public final class ServiceFileMerger implements ResourceTransformer {
+  @Override
+  public boolean canTransform(@Nonnull String name) {
+    return ServiceFileTransformer.isServiceFile(name);
+  }
+
+  @Nonnull
+  @Override
+  public byte[] transform(@Nonnull ResourceContext context) throws IOException {
+    byte[] data = context.getData();
+    String content = new String(data, StandardCharsets.UTF_8);
+    Set<String> providers = new HashSet<>();
+    for (String line : content.split("\n")) {
+      providers.add(provider(line));
+    }
+
+    StringBuilder builder = new StringBuilder(content);
+    boolean merged = false;
+    for (byte[] copy : context.getCopies()) {
+      for (String line : new String(copy, StandardCharsets.UTF_8).split("\n")) {
+        String provider = provider(line);
+        if (provider.isEmpty() || !providers.add(provider)) {
+          continue;
+        }
+        if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '\n') {
+          builder.append('\n');
+        }
+        builder.append(provider).append('\n');
+        merged = true;
+      }
+    }
+    return merged ? builder.toString().getBytes(StandardCharsets.UTF_8) : data;
+  }
+
+  @Nonnull
+  @Override
+  public String fingerprint() {
+    return "";
+  }
+
+  @Nonnull
+  private static String provider(@Nonnull String line) {
+    int comment = line.indexOf('#');
+    return (comment < 0 ? line : line.substring(0, comment)).strip();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+
+/**
+ * Relocates the provider class names listed in the {@code META-INF/services} files. The file names
+ * themselves are relocated by the shading pipeline like any other entry.
+ */
+public final class ServiceFileTransformer implements ResourceTransformer {
+  static final String SERVICES_PREFIX = "META-INF/services/";
+
+  @Override
+  public boolean canTransform(@Nonnull String name) {
+    return isServiceFile(name);
+  }
+
+  @Nonnull
+  @Override
+  public byte[] transform(@Nonnull ResourceContext context) {
+    byte[] data = context.getData();
+    String content = new String(data, StandardCharsets.UTF_8);
+    StringBuilder builder = new StringBuilder(content.length());
+
+    boolean relocated = false;
+    int lineStart = 0;
+    while (lineStart < content.length()) {
+      int lineEnd = content.indexOf('\n', lineStart);
+      lineEnd = lineEnd < 0 ? content.length() : lineEnd + 1;
+
+      String line = content.substring(lineStart, lineEnd);
+      String provider = line.strip();
+      if (!provider.isEmpty() && !provider.startsWith("#")) {
+        String relocatedProvider = context.relocateClass(provider);
+        if (!relocatedProvider.equals(provider)) {
+          line = line.replace(provider, relocatedProvider);
+          relocated = true;
+        }
+      }
+      builder.append(line);
+      lineStart = lineEnd;
+    }
+    return relocated ? builder.toString().getBytes(StandardCharsets.UTF_8) : data;
+  }
+
+  @Nonnull
+  @Override
+  public String fingerprint() {
+    return "";
+  }
+
+  static boolean isServiceFile(@Nonnull String name) {
+    return name.startsWith(SERVICES_PREFIX) && name.indexOf('/', SERVICES_PREFIX.length()) < 0;
+  }
+}
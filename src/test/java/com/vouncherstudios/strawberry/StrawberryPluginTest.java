@@ -0,0 +1,219 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarFile;
+import javax.annotation.Nonnull;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Runs a build applying Strawberry through TestKit. */
+class StrawberryPluginTest {
+  @TempDir Path projectDirectory;
+
+  @BeforeEach
+  void writeBuild() throws IOException {
+    write("settings.gradle", "rootProject.name = 'example'\n");
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "version = '1.0.0'\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    relocate('com.example.libs', 'com.example.shaded')\n"
+            + "\n"
+            + "    minecraft {\n"
+            + "        plugin {\n"
+            + "            paper {\n"
+            + "                main('com.example.ExamplePlugin')\n"
+            + "                name('ExamplePlugin')\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n");
+    write(
+        "src/main/java/com/example/ExamplePlugin.java",
+        "package com.example;\n\npublic class ExamplePlugin {}\n");
+  }
+
+  @Test
+  void reusesConfigurationCache() {
+    GradleRunner runner =
+        GradleRunner.create()
+            .withProjectDir(this.projectDirectory.toFile())
+            .withPluginClasspath()
+            .withArguments(
+                "shadowJar", "minecraftGeneratePluginDescription", "--configuration-cache");
+
+    BuildResult first = runner.build();
+    assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+    assertEquals(
+        TaskOutcome.SUCCESS, first.task(":minecraftGeneratePluginDescription").getOutcome());
+    assertTrue(
+        Files.isRegularFile(
+            this.projectDirectory.resolve(
+                "build/generated/strawberry/minecraft-plugin-description/plugin.yml")));
+
+    BuildResult second = runner.build();
+    assertTrue(second.getOutput().contains("Reusing configuration cache"), second.getOutput());
+    assertEquals(TaskOutcome.UP_TO_DATE, second.task(":shadowJar").getOutcome());
+    assertEquals(
+        TaskOutcome.UP_TO_DATE, second.task(":minecraftGeneratePluginDescription").getOutcome());
+  }
+
+  @Test
+  void runsShadingPipelineFromConfigurationCache() throws IOException {
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "version = '1.0.0'\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    relocate('com.example.libs', 'com.example.shaded')\n"
+            + "\n"
+            + "    shading {\n"
+            + "        parallel(true)\n"
+            + "        incremental(true)\n"
+            + "        compression('release')\n"
+            + "    }\n"
+            + "}\n");
+    write(
+        "src/main/java/com/example/libs/Library.java",
+        "package com.example.libs;\n\npublic class Library {}\n");
+    GradleRunner runner =
+        GradleRunner.create()
+            .withProjectDir(this.projectDirectory.toFile())
+            .withPluginClasspath()
+            .withArguments("shadowJar", "--configuration-cache");
+
+    BuildResult first = runner.build();
+    assertTrue(first.getOutput().contains("Configuration cache entry stored"), first.getOutput());
+    assertEquals(TaskOutcome.SUCCESS, first.task(":shadowJar").getOutcome());
+
+    // The pipeline runs again from the cache entry, reusing the previous output
+    write(
+        "src/main/java/com/example/ExamplePlugin.java",
+        "package com.example;\n\npublic class ExamplePlugin {\n"
+            + "  private final com.example.libs.Library library = null;\n"
+            + "}\n");
+    BuildResult second = runner.build();
+    assertTrue(second.getOutput().contains("Reusing configuration cache"), second.getOutput());
+    assertEquals(TaskOutcome.SUCCESS, second.task(":shadowJar").getOutcome());
+    try (JarFile jar =
+        new JarFile(this.projectDirectory.resolve("build/libs/example-1.0.0.jar").toFile())) {
+      assertNotNull(jar.getJarEntry("com/example/shaded/Library.class"));
+      assertNotNull(jar.getJarEntry("com/example/ExamplePlugin.class"));
+    }
+  }
+
+  @Test
+  void requiresLibraryPluginOnRoot() throws IOException {
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    shading {\n"
+            + "        sharedLibrary('ExampleLibraries')\n"
+            + "    }\n"
+            + "}\n");
+
+    BuildResult result =
+        GradleRunner.create()
+            .withProjectDir(this.projectDirectory.toFile())
+            .withPluginClasspath()
+            .withArguments("shadowJar")
+            .buildAndFail();
+    assertTrue(
+        result
+            .getOutput()
+            .contains(
+                "apply the com.vouncherstudios.strawberry.library plugin to the root project"),
+        result.getOutput());
+  }
+
+  @Test
+  void reportsUnresolvedPaperLibrariesWhenGenerating() throws IOException {
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    minecraft {\n"
+            + "        plugin {\n"
+            + "            paper {\n"
+            + "                main('com.example.ExamplePlugin')\n"
+            + "                name('ExamplePlugin')\n"
+            + "                libraries('com.example:missing:1.0')\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n");
+    GradleRunner runner =
+        GradleRunner.create()
+            .withProjectDir(this.projectDirectory.toFile())
+            .withPluginClasspath();
+
+    // Configuring the project never resolves the libraries
+    runner.withArguments("help").build();
+
+    BuildResult result = runner.withArguments("minecraftGeneratePluginDescription").buildAndFail();
+    assertEquals(
+        TaskOutcome.FAILED, result.task(":minecraftGeneratePluginDescription").getOutcome());
+    assertTrue(
+        result
+            .getOutput()
+            .contains("Could not resolve the Paper libraries com.example:missing:1.0"),
+        result.getOutput());
+  }
+
+  private void write(@Nonnull String path, @Nonnull String content) throws IOException {
+    Path file = this.projectDirectory.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.distribution.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.vouncherstudios.strawberry.distribution.DetachArchiveAction;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Collects the artifacts of a project through the distribution task. */
+class DistributionTaskTest {
+  @TempDir Path projectDirectory;
+
+  private Path artifact;
+  private Path destination;
+  private DistributionTask task;
+  private Jar jar;
+
+  @BeforeEach
+  void createTask() throws IOException {
+    Project project =
+        ProjectBuilder.builder().withProjectDir(this.projectDirectory.toFile()).build();
+    this.artifact = this.projectDirectory.resolve("libs/example.jar");
+    this.destination = this.projectDirectory.resolve("distribution");
+    Files.createDirectories(this.artifact.getParent());
+    Files.writeString(this.artifact, "first build", StandardCharsets.UTF_8);
+
+    this.task = project.getTasks().register("collect", DistributionTask.class).get();
+    this.task.getArtifacts().from(this.artifact);
+    this.task.getDestinationDirectory().set(this.destination.toFile());
+
+    this.jar = project.getTasks().register("exampleJar", Jar.class).get();
+    this.jar.getDestinationDirectory().set(this.artifact.getParent().toFile());
+    this.jar.getArchiveFileName().set(this.artifact.getFileName().toString());
+  }
+
+  @Test
+  void publishesLinks() throws IOException {
+    this.task.collect();
+
+    Path published = this.destination.resolve("example.jar");
+    assertTrue(Files.isRegularFile(published));
+    assertFalse(Files.isSymbolicLink(published));
+    assertTrue(Files.isSameFile(this.artifact, published));
+    assertEquals("link", method());
+
+    // Shadow rewrites its jar in place, which must not reach the published link once detached
+    new DetachArchiveAction().execute(this.jar);
+    assertFalse(Files.isSameFile(this.artifact, published));
+    Files.writeString(this.artifact, "second build", StandardCharsets.UTF_8);
+    assertEquals("first build", Files.readString(published, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void skipsUnchangedArtifacts() throws IOException {
+    this.task.collect();
+    this.task.collect();
+    assertEquals("unchanged", method());
+
+    new DetachArchiveAction().execute(this.jar);
+    Files.writeString(this.artifact, "second build", StandardCharsets.UTF_8);
+    this.task.collect();
+    assertEquals("link", method());
+    assertEquals(
+        "second build",
+        Files.readString(this.destination.resolve("example.jar"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void removesStaleArtifacts() throws IOException {
+    Files.createDirectories(this.destination);
+    Files.writeString(this.destination.resolve("removed.jar"), "old", StandardCharsets.UTF_8);
+
+    this.task.collect();
+    assertFalse(Files.exists(this.destination.resolve("removed.jar")));
+  }
+
+  @Nonnull
+  private String method() throws IOException {
+    JsonNode manifest =
+        JsonMapper.builder()
+            .build()
+            .readTree(this.destination.resolve(DistributionTask.MANIFEST_FILE_NAME).toFile());
+    assertEquals(1, manifest.size());
+    return manifest.get(0).get("method").asText();
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Runs a build applying Strawberry with the configuration trace through TestKit. */
+class ConfigurationTraceTest {
+  private static final String TRACE = "build/reports/strawberry/configuration-trace.json";
+
+  @TempDir Path projectDirectory;
+
+  @BeforeEach
+  void writeBuild() throws IOException {
+    write("settings.gradle", "rootProject.name = 'example'\n");
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "version = '1.0.0'\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    minecraft {\n"
+            + "        plugin {\n"
+            + "            paper {\n"
+            + "                main('com.example.ExamplePlugin')\n"
+            + "                name('ExamplePlugin')\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n");
+    write(
+        "src/main/java/com/example/ExamplePlugin.java",
+        "package com.example;\n\npublic class ExamplePlugin {}\n");
+  }
+
+  @Test
+  void writesNestedSpans() throws IOException {
+    BuildResult result = runner("-P" + ConfigurationTrace.PROPERTY + "=true").build();
+    assertTrue(
+        result.getOutput().contains("Strawberry wrote the configuration trace"),
+        result.getOutput());
+
+    JsonNode trace =
+        JsonMapper.builder().build().readTree(this.projectDirectory.resolve(TRACE).toFile());
+    Map<String, JsonNode> spans = new HashMap<>();
+    for (JsonNode event : trace.get("traceEvents")) {
+      if (event.get("ph").asText().equals("X")) {
+        assertEquals(":", event.get("args").get("project").asText());
+        spans.putIfAbsent(event.get("name").asText(), event);
+      }
+    }
+    JsonNode project = spans.get(":");
+    assertNotNull(project, spans.keySet().toString());
+    // The steps of applying the plugin run within the span of the project
+    for (String step : new String[] {"apply Indra", "apply Shadow", "paper libraries"}) {
+      JsonNode span = spans.get(step);
+      assertNotNull(span, step);
+      assertEquals(project.get("tid").asLong(), span.get("tid").asLong());
+      assertTrue(span.get("ts").asDouble() >= project.get("ts").asDouble(), step);
+      assertTrue(
+          span.get("ts").asDouble() + span.get("dur").asDouble()
+              <= project.get("ts").asDouble() + project.get("dur").asDouble(),
+          step);
+    }
+    // The callbacks registered by the plugin are recorded when they run
+    assertNotNull(spans.get("configure shadowJar"), spans.keySet().toString());
+    assertNotNull(spans.get("paper description"), spans.keySet().toString());
+  }
+
+  @Test
+  void recordsNothingUnlessEnabled() {
+    BuildResult result = runner().build();
+
+    assertFalse(result.getOutput().contains("configuration trace"), result.getOutput());
+    assertFalse(Files.exists(this.projectDirectory.resolve(TRACE)));
+  }
+
+  @Nonnull
+  private GradleRunner runner(@Nonnull String... arguments) {
+    List<String> all = new ArrayList<>(List.of("shadowJar", "minecraftGeneratePluginDescription"));
+    all.addAll(List.of(arguments));
+    return GradleRunner.create()
+        .withProjectDir(this.projectDirectory.toFile())
+        .withPluginClasspath()
+        .withArguments(all);
+  }
+
+  private void write(@Nonnull String path, @Nonnull String content) throws IOException {
+    Path file = this.projectDirectory.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.writeString(file, content, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.List;
+import javax.annotation.Nonnull;
+import org.junit.jupiter.api.Test;
+
+/** Writes the reports of the metrics of a shadowJar task. */
+class MetricsServiceTest {
+  @Test
+  void writesJsonReport() {
+    TaskMetrics metrics = metrics(":plugin:shadowJar");
+
+    JsonNode task = MetricsService.json(List.of(metrics)).get("tasks").get(":plugin:shadowJar");
+    assertEquals(1_500_000_000L, task.get("durationNanos").asLong());
+    assertEquals(120, task.get("entriesRead").asLong());
+    assertEquals(80, task.get("entriesRelocated").asLong());
+    assertEquals(4096, task.get("bytesIn").asLong());
+    assertEquals(2048, task.get("bytesOut").asLong());
+    assertEquals(250, task.get("remappingNanos").asLong());
+    assertEquals(0, task.get("descriptionGenerationNanos").asLong());
+    JsonNode relocations = task.get("relocations");
+    assertEquals(2, relocations.size());
+    assertEquals("com.google.gson -> shaded.gson", relocations.get(0).get("relocation").asText());
+    assertEquals(7, relocations.get(0).get("hits").asLong());
+    assertEquals(0, relocations.get(1).get("hits").asLong());
+  }
+
+  @Test
+  void writesPrometheusGauges() {
+    String text = MetricsService.prometheus(List.of(metrics(":shadowJar")));
+
+    assertTrue(text.contains("# TYPE strawberry_entries_read gauge\n"), text);
+    assertTrue(text.contains("strawberry_entries_read{task=\":shadowJar\"} 120\n"), text);
+    assertTrue(
+        text.contains("strawberry_duration_seconds{task=\":shadowJar\"} 1.500000000\n"), text);
+    assertTrue(
+        text.contains(
+            "strawberry_phase_seconds{task=\":shadowJar\",phase=\"remapping\"} 0.000000250\n"),
+        text);
+    assertTrue(
+        text.contains(
+            "strawberry_relocation_hits{task=\":shadowJar\","
+                + "relocation=\"com.google.gson -> shaded.gson\"} 7\n"),
+        text);
+  }
+
+  @Test
+  void escapesPrometheusLabels() {
+    TaskMetrics metrics = new TaskMetrics(":odd\"name\\", List.of("a.b -> \"quoted\"\nnext"));
+    metrics.addRelocationHits(0, 3);
+
+    String text = MetricsService.prometheus(List.of(metrics));
+
+    // Backslashes, double quotes and line feeds are the characters escaped in label values
+    assertTrue(
+        text.contains(
+            "strawberry_relocation_hits{task=\":odd\\\"name\\\\\","
+                + "relocation=\"a.b -> \\\"quoted\\\"\\nnext\"} 3\n"),
+        text);
+    for (String line : text.split("\n")) {
+      assertTrue(line.startsWith("# ") || line.startsWith("strawberry_"), line);
+    }
+  }
+
+  @Nonnull
+  private static TaskMetrics metrics(@Nonnull String path) {
+    TaskMetrics metrics =
+        new TaskMetrics(
+            path, List.of("com.google.gson -> shaded.gson", "io.netty -> shaded.netty"));
+    metrics.addRelocationHits(0, 7);
+    metrics.addEntriesRead(120);
+    metrics.addEntriesRelocated(80);
+    metrics.addBytesIn(4096);
+    metrics.addBytesOut(2048);
+    metrics.addRemappingTime(250);
+    metrics.addDuration(1_500_000_000L);
+    return metrics;
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import org.gradle.api.Action;
+import org.junit.jupiter.api.Test;
+
+/** Checks relocations are plain values, whatever the way they are declared. */
+class RelocationTest {
+  private static final String PATTERN = "com.example.lib";
+  private static final String DESTINATION = "com.example.shaded.lib";
+
+  @Test
+  void ignoresDeclarationOrderOfIncludesAndExcludes() {
+    Relocation relocation =
+        new Relocation(PATTERN, DESTINATION, List.of("b", "a"), List.of("d", "c"), false, false);
+    Relocation sorted =
+        new Relocation(PATTERN, DESTINATION, List.of("a", "b"), List.of("c", "d"), false, false);
+
+    assertEquals(List.of("a", "b"), relocation.getIncludes());
+    assertEquals(List.of("c", "d"), relocation.getExcludes());
+    assertEquals(sorted, relocation);
+    assertEquals(sorted.hashCode(), relocation.hashCode());
+    assertEquals(sorted.toString(), relocation.toString());
+  }
+
+  @Test
+  void comparesEveryProperty() {
+    Relocation relocation = new Relocation(PATTERN, DESTINATION);
+
+    assertNotEquals(relocation, new Relocation(PATTERN, "com.example.other"));
+    assertNotEquals(
+        relocation, new Relocation(PATTERN, DESTINATION, List.of("a"), List.of(), false, false));
+    assertNotEquals(
+        relocation, new Relocation(PATTERN, DESTINATION, List.of(), List.of("a"), false, false));
+    assertNotEquals(
+        relocation, new Relocation(PATTERN, DESTINATION, List.of(), List.of(), true, false));
+    assertNotEquals(
+        relocation, new Relocation(PATTERN, DESTINATION, List.of(), List.of(), false, true));
+  }
+
+  @Test
+  void createsRelocationFromSpec() {
+    RelocationSpec spec =
+        new RelocationSpec()
+            .include("com.example.lib.b.**")
+            .include("com.example.lib.a.**")
+            .exclude("com.example.lib.a.internal.**")
+            .skipStringLiterals(true);
+
+    assertEquals(
+        new Relocation(
+            PATTERN,
+            DESTINATION,
+            List.of("com.example.lib.a.**", "com.example.lib.b.**"),
+            List.of("com.example.lib.a.internal.**"),
+            false,
+            true),
+        Relocation.of(PATTERN, DESTINATION, spec));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void keepsShadowRelocatorActions() {
+    Relocation relocation =
+        new Relocation(
+            PATTERN,
+            DESTINATION,
+            relocator -> {
+              relocator.include("com.example.lib.a.**");
+              relocator.exclude("com.example.lib.a.internal.**");
+            });
+
+    assertEquals(
+        Relocation.of(
+            PATTERN,
+            DESTINATION,
+            new RelocationSpec()
+                .include("com.example.lib.a.**")
+                .exclude("com.example.lib.a.internal.**")),
+        relocation);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void acceptsMissingShadowRelocatorAction() {
+    assertEquals(
+        new Relocation(PATTERN, DESTINATION),
+        new Relocation(PATTERN, DESTINATION, (Action<SimpleRelocator>) null));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  void restoresShadowRelocatorConfiguration() {
+    Relocation relocation =
+        new Relocation(
+            PATTERN,
+            DESTINATION,
+            List.of("com.example.lib.a.**"),
+            List.of("com.example.lib.a.internal.**"),
+            false,
+            false);
+
+    SimpleRelocator relocator = new SimpleRelocator(PATTERN, DESTINATION, List.of(), List.of());
+    relocation.getConfiguration().execute(relocator);
+
+    assertEquals(relocation, new Relocation(PATTERN, DESTINATION, relocation.getConfiguration()));
+    assertTrue(relocator.canRelocateClass("com.example.lib.a.Api"));
+    assertFalse(relocator.canRelocateClass("com.example.lib.a.internal.Impl"));
+    assertFalse(relocator.canRelocateClass("com.example.lib.b.Api"));
+  }
+
+  @Test
+  void survivesSerialization() throws IOException, ClassNotFoundException {
+    Relocation relocation =
+        new Relocation(PATTERN, DESTINATION, List.of("a"), List.of("b"), false, true);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+      output.writeObject(relocation);
+    }
+    try (ObjectInputStream input =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      assertEquals(relocation, input.readObject());
+    }
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.nested;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import javax.annotation.Nonnull;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/** Runs a build packaging its dependencies as nested jars through TestKit. */
+class NestedPackagingTest {
+  private static final String LIBRARY = "com/example/lib/Library.class";
+
+  @TempDir Path projectDirectory;
+
+  private byte[] library;
+
+  @BeforeEach
+  void writeBuild() throws IOException {
+    this.library = libraryJar();
+    write("repo/com/example/lib/1.0/lib-1.0.jar", this.library);
+    write(
+        "repo/com/example/lib/1.0/lib-1.0.pom",
+        "<project>\n"
+            + "  <modelVersion>4.0.0</modelVersion>\n"
+            + "  <groupId>com.example</groupId>\n"
+            + "  <artifactId>lib</artifactId>\n"
+            + "  <version>1.0</version>\n"
+            + "</project>\n");
+    write("settings.gradle", "rootProject.name = 'example'\n");
+    write(
+        "build.gradle",
+        "plugins {\n"
+            + "    id 'com.vouncherstudios.strawberry'\n"
+            + "}\n"
+            + "\n"
+            + "version = '1.0.0'\n"
+            + "\n"
+            + "repositories {\n"
+            + "    maven { url = file('repo') }\n"
+            + "}\n"
+            + "\n"
+            + "dependencies {\n"
+            + "    implementation 'com.example:lib:1.0'\n"
+            + "}\n"
+            + "\n"
+            + "strawberry {\n"
+            + "    shading {\n"
+            + "        packaging('nested')\n"
+            + "    }\n"
+            + "\n"
+            + "    minecraft {\n"
+            + "        plugin {\n"
+            + "            paper {\n"
+            + "                main('com.example.ExamplePlugin')\n"
+            + "                name('ExamplePlugin')\n"
+            + "            }\n"
+            + "            velocity {\n"
+            + "                main('com.example.ExamplePlugin')\n"
+            + "                id('example')\n"
+            + "                name('ExamplePlugin')\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n");
+    write(
+        "src/main/java/com/example/ExamplePlugin.java",
+        "package com.example;\n\npublic class ExamplePlugin {}\n");
+  }
+
+  @Test
+  void nestsLibrariesWithBootstraps() throws IOException, NoSuchAlgorithmException {
+    runner().build();
+
+    Path jar = this.projectDirectory.resolve("build/libs/example-1.0.0.jar");
+    try (JarFile file = new JarFile(jar.toFile())) {
+      // The library is stored whole under the hash of its content, never merged
+      JarEntry nested =
+          file.getJarEntry(
+              NestedJarClassLoader.LIBRARIES_DIRECTORY + sha256(this.library) + "/lib-1.0.jar");
+      assertNotNull(nested);
+      assertEquals(JarEntry.STORED, nested.getMethod());
+      assertArrayEquals(this.library, read(file, nested));
+      assertNull(file.getJarEntry(LIBRARY));
+      assertNotNull(file.getJarEntry("com/example/ExamplePlugin.class"));
+      assertNotNull(file.getJarEntry("com/example/strawberry/NestedJarClassLoader.class"));
+
+      String pluginYml =
+          new String(read(file, file.getJarEntry("plugin.yml")), StandardCharsets.UTF_8);
+      assertTrue(pluginYml.contains("main: com.example.strawberry.PaperBootstrap"), pluginYml);
+      ClassShape paper = shape(file, "com/example/strawberry/PaperBootstrap.class");
+      assertEquals("org/bukkit/plugin/java/JavaPlugin", paper.superName);
+      assertTrue(paper.methods.containsAll(Set.of("onLoad()V", "onEnable()V", "onDisable()V")));
+
+      String velocityJson =
+          new String(
+              read(file, file.getJarEntry("velocity-plugin.json")), StandardCharsets.UTF_8);
+      assertTrue(
+          velocityJson.contains("\"main\":\"com.example.strawberry.VelocityBootstrap\""),
+          velocityJson);
+      ClassShape velocity = shape(file, "com/example/strawberry/VelocityBootstrap.class");
+      assertTrue(
+          velocity.annotations.contains(
+              "<init>(Lcom/google/inject/Injector;Ljava/nio/file/Path;)V"
+                  + " Lcom/google/inject/Inject;"));
+      assertTrue(
+          velocity.annotations.contains(
+              "onProxyInitialization(Lcom/velocitypowered/api/event/proxy/ProxyInitializeEvent;)V"
+                  + " Lcom/velocitypowered/api/event/Subscribe;"));
+    }
+  }
+
+  @Test
+  void rejectsPaperMainExtendingJavaPlugin() throws IOException {
+    write(
+        "src/main/java/org/bukkit/plugin/java/JavaPlugin.java",
+        "package org.bukkit.plugin.java;\n\npublic class JavaPlugin {}\n");
+    write(
+        "src/main/java/com/example/ExamplePlugin.java",
+        "package com.example;\n\n"
+            + "public class ExamplePlugin extends org.bukkit.plugin.java.JavaPlugin {}\n");
+
+    BuildResult result = runner().buildAndFail();
+    assertTrue(
+        result
+            .getOutput()
+            .contains(
+                "The Paper main class com.example.ExamplePlugin extends JavaPlugin, which the"
+                    + " nested packaging doesn't support"),
+        result.getOutput());
+  }
+
+  @Nonnull
+  private GradleRunner runner() {
+    return GradleRunner.create()
+        .withProjectDir(this.projectDirectory.toFile())
+        .withPluginClasspath()
+        .withArguments("shadowJar");
+  }
+
+  @Nonnull
+  private static byte[] libraryJar() throws IOException {
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC,
+        LIBRARY.substring(0, LIBRARY.length() - ".class".length()),
+        null,
+        "java/lang/Object",
+        null);
+    writer.visitEnd();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (JarOutputStream out = new JarOutputStream(bytes)) {
+      out.putNextEntry(new JarEntry(LIBRARY));
+      out.write(writer.toByteArray());
+      out.closeEntry();
+    }
+    return bytes.toByteArray();
+  }
+
+  @Nonnull
+  private static ClassShape shape(@Nonnull JarFile file, @Nonnull String name)
+      throws IOException {
+    JarEntry entry = file.getJarEntry(name);
+    assertNotNull(entry, name);
+    ClassShape shape = new ClassShape();
+    new ClassReader(read(file, entry)).accept(shape, ClassReader.SKIP_CODE);
+    return shape;
+  }
+
+  @Nonnull
+  private static byte[] read(@Nonnull JarFile file, @Nonnull JarEntry entry) throws IOException {
+    try (InputStream input = file.getInputStream(entry)) {
+      return input.readAllBytes();
+    }
+  }
+
+  @Nonnull
+  private static String sha256(@Nonnull byte[] data) throws NoSuchAlgorithmException {
+    StringBuilder hash = new StringBuilder();
+    for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+      hash.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hash.toString();
+  }
+
+  private void write(@Nonnull String path, @Nonnull String content) throws IOException {
+    write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void write(@Nonnull String path, @Nonnull byte[] content) throws IOException {
+    Path file = this.projectDirectory.resolve(path);
+    Files.createDirectories(file.getParent());
+    try (OutputStream out = Files.newOutputStream(file)) {
+      out.write(content);
+    }
+  }
+
+  /** The superclass, the methods and the method annotations of a class. */
+  private static final class ClassShape extends ClassVisitor {
+    private final Set<String> methods = new HashSet<>();
+    private final Set<String> annotations = new HashSet<>();
+    private String superName;
+
+    private ClassShape() {
+      super(Opcodes.ASM9);
+    }
+
+    @Override
+    public void visit(
+        int version,
+        int access,
+        String name,
+        String signature,
+        String superName,
+        String[] interfaces) {
+      this.superName = superName;
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        int access, String name, String descriptor, String signature, String[] exceptions) {
+      String method = name + descriptor;
+      this.methods.add(method);
+      return new MethodVisitor(Opcodes.ASM9) {
+        @Override
+        public AnnotationVisitor visitAnnotation(String annotation, boolean visible) {
+          ClassShape.this.annotations.add(method + ' ' + annotation);
+          return null;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.task.AutoRelocationTask;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Computes the automatic relocations of shaded jars next to a provided jar holding the project
+ * classes and {@code com.google.common}.
+ */
+class AutoRelocationsTest {
+  private static final String PREFIX = "com.example.libs";
+
+  @TempDir Path directory;
+
+  @Test
+  void relocatesShortestAncestorsOutsideProvidedPackages() throws IOException {
+    List<Relocation> relocations =
+        AutoRelocations.compute(
+            PREFIX,
+            List.of(),
+            List.of(
+                jar(
+                    "shaded.jar",
+                    "com/google/gson/Gson",
+                    "com/google/gson/internal/Excluder",
+                    "io/netty/buffer/ByteBuf",
+                    "io/netty/util/Recycler",
+                    "lib/Single")),
+            List.of(provided()),
+            this.directory.resolve("index"));
+
+    // com.google holds a provided package, so gson is relocated on its own
+    assertEquals(
+        List.of(relocation("com.google.gson"), relocation("io.netty"), relocation("lib")),
+        relocations);
+  }
+
+  @Test
+  void leavesProvidedAndDeclaredPackages() throws IOException {
+    List<Relocation> relocations =
+        AutoRelocations.compute(
+            PREFIX,
+            List.of(new Relocation("org.apache", "com.example.apache")),
+            List.of(
+                jar(
+                    "shaded.jar",
+                    "org/apache/commons/lang3/StringUtils",
+                    "com/example/app/Split",
+                    "com/google/common/base/Strings",
+                    "net/kyori/adventure/Audience")),
+            List.of(provided()),
+            this.directory.resolve("index"));
+
+    // A package split with a provided jar keeps its name, like the declared ones
+    assertEquals(List.of(relocation("net.kyori")), relocations);
+  }
+
+  @Test
+  void readsTheRelocationsFile() throws IOException {
+    Path file = this.directory.resolve("relocations.json");
+    Files.writeString(
+        file,
+        "{\"relocations\":["
+            + "{\"pattern\":\"io.netty\",\"destination\":\"com.example.libs.io.netty\"}"
+            + "]}",
+        StandardCharsets.UTF_8);
+
+    assertEquals(
+        List.of(relocation("io.netty")), AutoRelocationTask.readRelocations(file.toFile()));
+  }
+
+  @Nonnull
+  private static Relocation relocation(@Nonnull String pattern) {
+    return new Relocation(pattern, PREFIX + '.' + pattern);
+  }
+
+  @Nonnull
+  private File provided() throws IOException {
+    return jar("provided.jar", "com/example/app/Main", "com/google/common/base/Preconditions");
+  }
+
+  @Nonnull
+  private File jar(@Nonnull String name, @Nonnull String... classes) throws IOException {
+    Path jar = this.directory.resolve(name);
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (String className : classes) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null);
+        writer.visitEnd();
+        zip.putNextEntry(new ZipEntry(className + ".class"));
+        zip.write(writer.toByteArray());
+        zip.closeEntry();
+      }
+    }
+    return jar.toFile();
+  }
+}
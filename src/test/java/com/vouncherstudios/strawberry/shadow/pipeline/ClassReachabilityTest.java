@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Finds the reachable classes of a jar merged from the project classes and a dependency jar. The
+ * project class references a library type through a field and loads another by name.
+ */
+class ClassReachabilityTest {
+  private static final String LIBRARY = "com/example/lib/";
+
+  @TempDir Path directory;
+
+  private Path archive;
+  private Path dependency;
+
+  @BeforeEach
+  void writeJars() throws IOException {
+    Map<String, byte[]> library = new LinkedHashMap<>();
+    library.put(LIBRARY + "Used.class", type(LIBRARY + "Used", LIBRARY + "Transitive", null));
+    library.put(LIBRARY + "Transitive.class", type(LIBRARY + "Transitive", null, null));
+    library.put(LIBRARY + "Loaded.class", type(LIBRARY + "Loaded", null, null));
+    library.put(LIBRARY + "Unused.class", type(LIBRARY + "Unused", LIBRARY + "Used", null));
+    library.put(LIBRARY + "Api.class", type(LIBRARY + "Api", null, null));
+    library.put(LIBRARY + "ApiImpl.class", type(LIBRARY + "ApiImpl", null, null));
+    library.put(LIBRARY + "Codec.class", type(LIBRARY + "Codec", null, null));
+    library.put(LIBRARY + "CodecImpl.class", type(LIBRARY + "CodecImpl", null, null));
+    library.put(LIBRARY + "Driver.class", type(LIBRARY + "Driver", null, null));
+    library.put("META-INF/services/com.example.lib.Api", bytes("com.example.lib.ApiImpl\n"));
+    library.put(
+        "META-INF/services/com.example.lib.Codec", bytes("# unused\ncom.example.lib.CodecImpl\n"));
+    library.put("META-INF/services/java.sql.Driver", bytes("com.example.lib.Driver # jdbc\n"));
+    this.dependency = this.directory.resolve("lib.jar");
+    writeJar(this.dependency, library);
+
+    // Shadow merges the project classes with the dependency entries
+    Map<String, byte[]> merged = new LinkedHashMap<>();
+    merged.put(
+        "com/example/app/Main.class",
+        type("com/example/app/Main", LIBRARY + "Used", "com.example.lib.Loaded"));
+    merged.put(
+        "com/example/app/Services.class",
+        type("com/example/app/Services", LIBRARY + "Api", null));
+    merged.putAll(library);
+    this.archive = this.directory.resolve("merged.jar");
+    writeJar(this.archive, merged);
+  }
+
+  @Test
+  void followsReferencesFromProjectClasses() throws IOException {
+    ClassReachability reachability = analyze(new Minimization(List.of(), List.of()), null);
+
+    assertFalse(reachability.isUnreachable(LIBRARY + "Used.class"));
+    assertFalse(reachability.isUnreachable(LIBRARY + "Transitive.class"));
+    assertTrue(reachability.isUnreachable(LIBRARY + "Unused.class"));
+    assertFalse(reachability.isUnreachable("com/example/app/Main.class"));
+    assertEquals(9, reachability.getDependencyClasses());
+  }
+
+  @Test
+  void keepsClassesLoadedByConstantName() throws IOException {
+    ClassReachability reachability = analyze(new Minimization(List.of(), List.of()), null);
+
+    // Class.forName("com.example.lib.Loaded") leaves the name as a string literal
+    assertFalse(reachability.isUnreachable(LIBRARY + "Loaded.class"));
+  }
+
+  @Test
+  void keepsProvidersOfUsedServices() throws IOException {
+    ClassReachability reachability = analyze(new Minimization(List.of(), List.of()), null);
+
+    // The provider of a service used by a reachable class is loaded through the service loader
+    assertFalse(reachability.isUnreachable(LIBRARY + "ApiImpl.class"));
+    // Nothing loads a service of the jar no reachable class uses
+    assertTrue(reachability.isUnreachable(LIBRARY + "Codec.class"));
+    assertTrue(reachability.isUnreachable(LIBRARY + "CodecImpl.class"));
+    // The server or the JDK may load the providers of a service outside the jar
+    assertFalse(reachability.isUnreachable(LIBRARY + "Driver.class"));
+    assertEquals(3, reachability.getUnreachableClasses());
+  }
+
+  @Test
+  void keepsEntryPointsAndKeepRules() throws IOException {
+    ClassReachability reachability =
+        analyze(
+            new Minimization(List.of("com.example.lib.Unused"), List.of("com.example.lib.Codec")),
+            null);
+
+    assertFalse(reachability.isUnreachable(LIBRARY + "Unused.class"));
+    assertFalse(reachability.isUnreachable(LIBRARY + "Codec.class"));
+    assertFalse(reachability.isUnreachable(LIBRARY + "CodecImpl.class"));
+    assertEquals(0, reachability.getUnreachableClasses());
+  }
+
+  @Test
+  void parallelMatchesSequential() throws IOException {
+    Minimization minimization = new Minimization(List.of(), List.of());
+    ClassReachability sequential = analyze(minimization, null);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ClassReachability parallel = analyze(minimization, pool);
+      assertEquals(sequential.getUnreachableClasses(), parallel.getUnreachableClasses());
+      for (String name : List.of("Unused", "Codec", "CodecImpl", "Used", "Loaded")) {
+        assertEquals(
+            sequential.isUnreachable(LIBRARY + name + ".class"),
+            parallel.isUnreachable(LIBRARY + name + ".class"));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Nonnull
+  private ClassReachability analyze(
+      @Nonnull Minimization minimization, @Nullable ForkJoinPool pool) throws IOException {
+    try (ZipArchive merged = ZipArchive.open(this.archive);
+        SourceArchives sources = SourceArchives.map(List.of(this.dependency.toFile()))) {
+      return ClassReachability.analyze(merged, sources, minimization, pool);
+    }
+  }
+
+  /**
+   * Generates a class.
+   *
+   * @param name the internal name of the class
+   * @param field the internal name of the type of its field, or {@code null} for none
+   * @param constant the string literal it loads, or {@code null} for none
+   * @return the class file
+   */
+  @Nonnull
+  private static byte[] type(
+      @Nonnull String name, @Nullable String field, @Nullable String constant) {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    if (field != null) {
+      writer.visitField(Opcodes.ACC_PRIVATE, "field", "L" + field + ";", null, null).visitEnd();
+    }
+    if (constant != null) {
+      MethodVisitor method =
+          writer.visitMethod(
+              Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+              "load",
+              "()Ljava/lang/Class;",
+              null,
+              new String[] {"java/lang/ClassNotFoundException"});
+      method.visitCode();
+      method.visitLdcInsn(constant);
+      method.visitMethodInsn(
+          Opcodes.INVOKESTATIC,
+          "java/lang/Class",
+          "forName",
+          "(Ljava/lang/String;)Ljava/lang/Class;",
+          false);
+      method.visitInsn(Opcodes.ARETURN);
+      method.visitMaxs(0, 0);
+      method.visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  private static void writeJar(@Nonnull Path jar, @Nonnull Map<String, byte[]> entries)
+      throws IOException {
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+  }
+
+  @Nonnull
+  private static byte[] bytes(@Nonnull String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Fingerprints two versions of a library merged in order. The second one changes a class, ships
+ * another one unchanged and adds a class to a package of the first one.
+ */
+class DuplicateClassesTest {
+  @TempDir Path directory;
+
+  private File first;
+  private File second;
+
+  @BeforeEach
+  void writeJars() throws IOException {
+    Map<String, byte[]> first = new LinkedHashMap<>();
+    first.put("io/netty/Buffer.class", bytes("buffer 4.1"));
+    first.put("io/netty/Util.class", bytes("util"));
+    first.put("com/example/First.class", bytes("first"));
+    first.put("META-INF/MANIFEST.MF", bytes("Manifest-Version: 1.0\n"));
+    this.first = writeJar("netty-4.1.jar", first);
+
+    Map<String, byte[]> second = new LinkedHashMap<>();
+    second.put("io/netty/Buffer.class", bytes("buffer 4.2"));
+    second.put("io/netty/Util.class", bytes("util"));
+    second.put("io/netty/Extra.class", bytes("extra"));
+    second.put("META-INF/MANIFEST.MF", bytes("Manifest-Version: 2.0\n"));
+    this.second = writeJar("netty-4.2.jar", second);
+  }
+
+  @Test
+  void countsIdenticalCopies() throws IOException {
+    DuplicateClasses duplicates = DuplicateClasses.analyze(List.of(this.first, this.second));
+
+    assertEquals(4, duplicates.getClasses());
+    assertEquals(1, duplicates.getIdenticalClasses());
+  }
+
+  @Test
+  void reportsClassesWithDifferentContent() throws IOException {
+    DuplicateClasses duplicates = DuplicateClasses.analyze(List.of(this.first, this.second));
+
+    // Resources like the manifest are merged by Shadow and never conflict
+    assertTrue(duplicates.hasConflicts());
+    List<DuplicateClasses.Conflict> conflicts = duplicates.getConflicts();
+    assertEquals(1, conflicts.size());
+    assertEquals("netty-4.1.jar", conflicts.get(0).getKept());
+    assertEquals("netty-4.2.jar", conflicts.get(0).getDropped());
+    assertEquals(List.of("io.netty.Buffer"), conflicts.get(0).getClasses());
+  }
+
+  @Test
+  void reportsSplitPackages() throws IOException {
+    DuplicateClasses duplicates = DuplicateClasses.analyze(List.of(this.first, this.second));
+
+    assertEquals(
+        Map.of("io.netty", List.of("netty-4.1.jar", "netty-4.2.jar")),
+        duplicates.getSplitPackages());
+  }
+
+  @Test
+  void ignoresSourcesOtherThanJars() throws IOException {
+    DuplicateClasses duplicates =
+        DuplicateClasses.analyze(List.of(this.first, this.directory.toFile()));
+
+    assertFalse(duplicates.hasConflicts());
+    assertEquals(3, duplicates.getClasses());
+  }
+
+  @Test
+  void failsBeforeWritingTheJar() throws IOException {
+    Path archive = this.directory.resolve("shaded.jar");
+    Files.copy(this.first.toPath(), archive);
+    ShadingPipeline pipeline =
+        new ShadingPipeline(
+            new TrieRelocator(List.of(new Relocation("io.netty", "shaded.netty"))),
+            false,
+            null,
+            CompressionProfile.DEFAULT,
+            null,
+            ServerProvidedPolicy.IGNORE,
+            DuplicateClassPolicy.FAIL);
+
+    assertThrows(
+        GradleException.class,
+        () ->
+            pipeline.process(
+                archive,
+                List.of(this.first, this.second),
+                List.of(),
+                List.of(),
+                Logging.getLogger(DuplicateClassesTest.class),
+                null));
+    // The jar merged by Shadow is left untouched
+    assertArrayEquals(Files.readAllBytes(this.first.toPath()), Files.readAllBytes(archive));
+  }
+
+  @Nonnull
+  private File writeJar(@Nonnull String name, @Nonnull Map<String, byte[]> entries)
+      throws IOException {
+    Path jar = this.directory.resolve(name);
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+    return jar.toFile();
+  }
+
+  @Nonnull
+  private static byte[] bytes(@Nonnull String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
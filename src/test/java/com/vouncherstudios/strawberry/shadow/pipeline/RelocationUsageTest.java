@@ -0,0 +1,173 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Analyzes relocations against a jar of the {@code com.example.lib} library. Its class loads
+ * another one by name, and it ships a resource and a service file.
+ */
+class RelocationUsageTest {
+  private static final Relocation LIBRARY = relocation("com.example.lib", "shaded.lib");
+  private static final Relocation INTERNAL =
+      relocation("com.example.lib.internal", "shaded.internal");
+  private static final Relocation MISSING = relocation("org.missing", "shaded.missing");
+
+  @TempDir Path directory;
+
+  private File jar;
+
+  @BeforeEach
+  void writeJar() throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("com/example/lib/Type.class", type());
+    entries.put("com/example/lib/internal/Helper.class", empty("com/example/lib/internal/Helper"));
+    entries.put("com/example/lib/Impl.class", empty("com/example/lib/Impl"));
+    entries.put("com/example/lib/messages.properties", bytes("greeting=hello\n"));
+    entries.put("META-INF/services/com.example.lib.Api", bytes("com.example.lib.Impl\n"));
+    Path path = this.directory.resolve("lib.jar");
+    try (OutputStream output = Files.newOutputStream(path);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+    this.jar = path.toFile();
+  }
+
+  @Test
+  void creditsNamesToTheRelocationRewritingThem() throws IOException {
+    RelocationUsage.Usage usage = analyze(List.of(LIBRARY)).get(0);
+
+    assertEquals(RelocationUsage.Status.USED, usage.getStatus());
+    assertTrue(usage.getClasses() > 0, "classes " + usage.getClasses());
+    assertEquals(1, usage.getStrings());
+    assertEquals(1, usage.getResources());
+    assertTrue(usage.getOverlappedBy().isEmpty());
+  }
+
+  @Test
+  void flagsDeadRelocations() throws IOException {
+    RelocationUsage.Usage usage = analyze(List.of(LIBRARY, MISSING)).get(1);
+
+    assertEquals(RelocationUsage.Status.DEAD, usage.getStatus());
+    assertEquals(0, usage.getClasses() + usage.getStrings() + usage.getResources());
+  }
+
+  @Test
+  void flagsRelocationsShadowedByEarlierOnes() throws IOException {
+    List<RelocationUsage.Usage> usages = analyze(List.of(LIBRARY, INTERNAL));
+
+    // Every internal class is rewritten by the library relocation, declared first
+    RelocationUsage.Usage internal = usages.get(1);
+    assertEquals(RelocationUsage.Status.SHADOWED, internal.getStatus());
+    assertEquals(List.of(LIBRARY), internal.getOverlappedBy());
+    assertEquals(RelocationUsage.Status.USED, usages.get(0).getStatus());
+  }
+
+  @Test
+  void reusesTheIndexOfAJar() throws IOException {
+    List<RelocationUsage.Usage> first = analyze(List.of(LIBRARY));
+    Path indexDirectory = this.directory.resolve("index");
+    long indexes;
+    try (Stream<Path> files = Files.list(indexDirectory)) {
+      indexes = files.count();
+    }
+    assertEquals(1, indexes);
+
+    List<RelocationUsage.Usage> second = analyze(List.of(LIBRARY));
+    assertEquals(first.get(0).getClasses(), second.get(0).getClasses());
+    assertEquals(first.get(0).getStrings(), second.get(0).getStrings());
+    assertEquals(first.get(0).getResources(), second.get(0).getResources());
+  }
+
+  @Nonnull
+  private List<RelocationUsage.Usage> analyze(@Nonnull List<Relocation> relocations)
+      throws IOException {
+    return RelocationUsage.analyze(
+            relocations, List.of(this.jar), this.directory.resolve("index"))
+        .getUsages();
+  }
+
+  @Nonnull
+  private static Relocation relocation(@Nonnull String pattern, @Nonnull String destination) {
+    return new Relocation(pattern, destination, List.of(), List.of(), false, false);
+  }
+
+  @Nonnull
+  private static byte[] type() {
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V11, Opcodes.ACC_PUBLIC, "com/example/lib/Type", null, "java/lang/Object", null);
+    MethodVisitor method =
+        writer.visitMethod(
+            Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "helper", "()Ljava/lang/String;", null, null);
+    method.visitCode();
+    method.visitLdcInsn("com.example.lib.internal.Helper");
+    method.visitInsn(Opcodes.ARETURN);
+    method.visitMaxs(0, 0);
+    method.visitEnd();
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static byte[] empty(@Nonnull String name) {
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static byte[] bytes(@Nonnull String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Checks dependency jars against a server API jar providing the {@code com.google.gson} package.
+ * One dependency only has classes in that package, another has some, and the last one has none.
+ */
+class ServerProvidedClassesTest {
+  private static final String GSON = "com/google/gson/Gson";
+
+  @TempDir Path directory;
+
+  private Path serverApi;
+  private Path gson;
+  private Path mixed;
+  private Path unrelated;
+
+  @BeforeEach
+  void writeJars() throws IOException {
+    this.serverApi = this.directory.resolve("paper-api.jar");
+    writeJar(
+        this.serverApi,
+        Map.of(
+            GSON + ".class", type(GSON, null),
+            "com/google/gson/JsonElement.class", type("com/google/gson/JsonElement", null),
+            // Classes of the unnamed package are not part of any API
+            "Root.class", type("Root", null)));
+
+    this.gson = this.directory.resolve("gson.jar");
+    Map<String, byte[]> gson = new LinkedHashMap<>();
+    gson.put("META-INF/MANIFEST.MF", bytes("Manifest-Version: 1.0\n"));
+    gson.put(GSON + ".class", type(GSON, null));
+    gson.put("com/google/gson/JsonElement.class", type("com/google/gson/JsonElement", null));
+    writeJar(this.gson, gson);
+
+    this.mixed = this.directory.resolve("mixed.jar");
+    Map<String, byte[]> mixed = new LinkedHashMap<>();
+    mixed.put("com/google/gson/Extra.class", type("com/google/gson/Extra", null));
+    mixed.put("com/example/mixed/Other.class", type("com/example/mixed/Other", null));
+    writeJar(this.mixed, mixed);
+
+    this.unrelated = this.directory.resolve("unrelated.jar");
+    writeJar(this.unrelated, Map.of("Root.class", type("Root", null)));
+  }
+
+  @Test
+  void reportsDependenciesInServerPackages() throws IOException {
+    ServerProvidedClasses provided = analyze(ServerProvidedPolicy.WARN);
+
+    List<ServerProvidedClasses.Dependency> dependencies = provided.getDependencies();
+    assertEquals(2, dependencies.size());
+    ServerProvidedClasses.Dependency gson = dependencies.get(0);
+    assertEquals("gson.jar", gson.getName());
+    assertEquals(2, gson.getClasses());
+    assertEquals(2, gson.getProvidedClasses());
+    assertEquals(Set.of("com.google.gson"), gson.getPackages());
+    assertFalse(gson.isExcluded());
+    ServerProvidedClasses.Dependency mixed = dependencies.get(1);
+    assertEquals("mixed.jar", mixed.getName());
+    assertEquals(2, mixed.getClasses());
+    assertEquals(1, mixed.getProvidedClasses());
+    assertFalse(mixed.isExcluded());
+    // Warning about a dependency never leaves it out
+    assertTrue(provided.getExcludedClasses().isEmpty());
+  }
+
+  @Test
+  void excludesFullyProvidedDependencies() throws IOException {
+    ServerProvidedClasses provided = analyze(ServerProvidedPolicy.EXCLUDE);
+
+    assertTrue(provided.getDependencies().get(0).isExcluded());
+    // The server may provide another version of a package only some classes are in
+    assertFalse(provided.getDependencies().get(1).isExcluded());
+    assertEquals(Set.of(GSON, "com/google/gson/JsonElement"), provided.getExcludedClasses());
+    try (ZipArchive archive = ZipArchive.open(this.gson)) {
+      assertTrue(provided.isExcluded(archive.entry(GSON + ".class")));
+      assertFalse(provided.isExcluded(archive.entry("META-INF/MANIFEST.MF")));
+    }
+    // The classes of a dependency kept in the jar are shaded as usual
+    try (ZipArchive archive = ZipArchive.open(this.mixed)) {
+      assertFalse(provided.isExcluded(archive.entry("com/google/gson/Extra.class")));
+    }
+  }
+
+  @Test
+  void skipsChecksWithoutServerApis() throws IOException {
+    ServerProvidedClasses provided =
+        ServerProvidedClasses.analyze(
+            List.of(), List.of(this.gson.toFile()), ServerProvidedPolicy.EXCLUDE);
+
+    assertTrue(provided.getDependencies().isEmpty());
+  }
+
+  @Test
+  void leavesOutProvidedDependenciesWithoutRelocatingThem() throws IOException {
+    // Shadow merges the project class with the dependencies
+    Path archive = this.directory.resolve("shaded.jar");
+    Map<String, byte[]> merged = new LinkedHashMap<>();
+    merged.put("com/example/app/Main.class", type("com/example/app/Main", GSON));
+    merged.put(GSON + ".class", type(GSON, null));
+    merged.put("com/google/gson/JsonElement.class", type("com/google/gson/JsonElement", null));
+    merged.put("com/google/gson/Extra.class", type("com/google/gson/Extra", null));
+    merged.put("com/example/mixed/Other.class", type("com/example/mixed/Other", null));
+    writeJar(archive, merged);
+
+    TrieRelocator relocator =
+        new TrieRelocator(
+            List.of(
+                new Relocation(
+                    "com.google.gson", "shaded.gson", List.of(), List.of(), false, false)));
+    new ShadingPipeline(
+            relocator,
+            false,
+            null,
+            CompressionProfile.DEFAULT,
+            null,
+            ServerProvidedPolicy.EXCLUDE,
+            DuplicateClassPolicy.IGNORE)
+        .process(
+            archive,
+            files(this.gson, this.mixed),
+            List.of(),
+            files(this.serverApi),
+            Logging.getLogger(ServerProvidedClassesTest.class),
+            null);
+
+    Map<String, byte[]> shaded = read(archive);
+    assertNull(shaded.get(GSON + ".class"));
+    assertNull(shaded.get("shaded/gson/Gson.class"));
+    assertNotNull(shaded.get("shaded/gson/Extra.class"));
+    // The server loads Gson under its own name
+    assertEquals(List.of("L" + GSON + ";"), fields(shaded.get("com/example/app/Main.class")));
+  }
+
+  @Nonnull
+  private ServerProvidedClasses analyze(@Nonnull ServerProvidedPolicy policy) throws IOException {
+    return ServerProvidedClasses.analyze(
+        files(this.serverApi), files(this.gson, this.mixed, this.unrelated), policy);
+  }
+
+  @Nonnull
+  private static List<File> files(@Nonnull Path... paths) {
+    List<File> files = new ArrayList<>();
+    for (Path path : paths) {
+      files.add(path.toFile());
+    }
+    return files;
+  }
+
+  @Nonnull
+  private static byte[] type(@Nonnull String name, @Nullable String field) {
+    ClassWriter writer = new ClassWriter(0);
+    writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+    if (field != null) {
+      writer.visitField(Opcodes.ACC_PRIVATE, "field", "L" + field + ";", null, null).visitEnd();
+    }
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static List<String> fields(@Nonnull byte[] data) {
+    List<String> fields = new ArrayList<>();
+    new ClassReader(data)
+        .accept(
+            new ClassVisitor(Opcodes.ASM9) {
+              @Override
+              public FieldVisitor visitField(
+                  int access, String name, String descriptor, String signature, Object value) {
+                fields.add(descriptor);
+                return null;
+              }
+            },
+            ClassReader.SKIP_CODE);
+    return fields;
+  }
+
+  private static void writeJar(@Nonnull Path jar, @Nonnull Map<String, byte[]> entries)
+      throws IOException {
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+  }
+
+  @Nonnull
+  private static Map<String, byte[]> read(@Nonnull Path jar) throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    try (InputStream input = Files.newInputStream(jar);
+        ZipInputStream zip = new ZipInputStream(input)) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.put(entry.getName(), zip.readAllBytes());
+      }
+    }
+    return entries;
+  }
+
+  @Nonnull
+  private static byte[] bytes(@Nonnull String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,437 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.vouncherstudios.strawberry.shadow.CompressionProfile;
+import com.vouncherstudios.strawberry.shadow.DuplicateClassPolicy;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import com.vouncherstudios.strawberry.shadow.ServerProvidedPolicy;
+import com.vouncherstudios.strawberry.shadow.relocation.TrieRelocator;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceContext;
+import com.vouncherstudios.strawberry.shadow.transformer.ResourceTransformer;
+import com.vouncherstudios.strawberry.shadow.transformer.ServiceFileMerger;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Runs the shading pipeline over generated jars. Each class references a relocated library type
+ * through a field and a string constant.
+ */
+class ShadingPipelineTest {
+  private static final Logger LOGGER = Logging.getLogger(ShadingPipelineTest.class);
+  private static final int CLASSES = 200;
+
+  @TempDir Path directory;
+
+  @Test
+  void parallelMatchesSequential() throws IOException {
+    Path input = this.directory.resolve("input.jar");
+    writeJar(input, classes(0));
+
+    Path sequential = this.directory.resolve("sequential.jar");
+    Path parallel = this.directory.resolve("parallel.jar");
+    new ShadingPipeline(relocator(false), false).process(input, sequential);
+    new ShadingPipeline(relocator(false), true).process(input, parallel);
+
+    assertEquals(entries(sequential), entries(parallel));
+  }
+
+  @Test
+  void incrementalMatchesFullRun() throws IOException {
+    Path first = this.directory.resolve("first.jar");
+    Path second = this.directory.resolve("second.jar");
+    writeJar(first, classes(0));
+    writeJar(second, classes(1));
+
+    ShadingPipeline incremental =
+        new ShadingPipeline(
+            relocator(false),
+            false,
+            this.directory.resolve("state").toFile(),
+            CompressionProfile.DEFAULT,
+            null,
+            ServerProvidedPolicy.IGNORE,
+            DuplicateClassPolicy.IGNORE);
+    Path archive = this.directory.resolve("incremental.jar");
+    shade(incremental, first, archive);
+    shade(incremental, second, archive);
+
+    Path full = this.directory.resolve("full.jar");
+    shade(new ShadingPipeline(relocator(false), false), second, full);
+
+    assertEquals(entries(full), entries(archive));
+  }
+
+  @Test
+  void ignoresReplacedPreviousOutput() throws IOException {
+    Path first = this.directory.resolve("first.jar");
+    Path second = this.directory.resolve("second.jar");
+    writeJar(first, classes(0));
+    writeJar(second, classes(1));
+
+    ShadingPipeline incremental =
+        new ShadingPipeline(
+            relocator(false),
+            false,
+            this.directory.resolve("state").toFile(),
+            CompressionProfile.DEFAULT,
+            null,
+            ServerProvidedPolicy.IGNORE,
+            DuplicateClassPolicy.IGNORE);
+    Path archive = this.directory.resolve("incremental.jar");
+    shade(incremental, first, archive);
+    // A jar restored from the build cache is not the output the index was written for
+    writeJar(archive, classes(2));
+    shade(incremental, second, archive);
+
+    Path full = this.directory.resolve("full.jar");
+    shade(new ShadingPipeline(relocator(false), false), second, full);
+
+    assertEquals(entries(full), entries(archive));
+  }
+
+  @Test
+  void relocatesStringLiterals() throws IOException {
+    Path input = this.directory.resolve("input.jar");
+    writeJar(input, classes(0));
+
+    Path output = this.directory.resolve("output.jar");
+    new ShadingPipeline(relocator(false), false).process(input, output);
+
+    ClassSummary summary = summarize(read(output).get("com/example/app/Main0.class"));
+    assertEquals(List.of("Lshaded/lib/Type0;"), summary.fields);
+    assertEquals(List.of("shaded.lib.Type0"), summary.constants);
+  }
+
+  @Test
+  void skipsStringLiterals() throws IOException {
+    Path input = this.directory.resolve("input.jar");
+    writeJar(input, classes(0));
+
+    Path output = this.directory.resolve("output.jar");
+    new ShadingPipeline(relocator(true), false).process(input, output);
+
+    ClassSummary summary = summarize(read(output).get("com/example/app/Main0.class"));
+    assertEquals(List.of("Lshaded/lib/Type0;"), summary.fields);
+    assertEquals(List.of("com.example.lib.Type0"), summary.constants);
+  }
+
+  @Test
+  void runsCustomTransformers() throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    entries.put("config.txt", bytes("relocated: com.example.lib.Type0"));
+    entries.put("META-INF/services/com.example.lib.Api", bytes("com.example.lib.Impl\n"));
+    Path input = this.directory.resolve("input.jar");
+    writeJar(input, entries);
+
+    ShadingPipeline pipeline =
+        new ShadingPipeline(relocator(false), false)
+            .withTransformers(List.of(new UpperCaseTransformer("config.txt")));
+    assertEquals(
+        UpperCaseTransformer.class.getName() + " config.txt",
+        pipeline.getTransformerFingerprints().get(0));
+    assertFalse(
+        new ShadingPipeline(relocator(false), false)
+            .getTransformerFingerprints()
+            .contains(pipeline.getTransformerFingerprints().get(0)));
+
+    Path output = this.directory.resolve("output.jar");
+    pipeline.process(input, output);
+
+    Map<String, byte[]> shaded = read(output);
+    assertEquals("RELOCATED: SHADED.LIB.TYPE0", string(shaded.get("config.txt")));
+    assertEquals("shaded.lib.Impl\n", string(shaded.get("META-INF/services/shaded.lib.Api")));
+  }
+
+  @Test
+  void mergesServiceFiles() throws IOException {
+    Path firstSource = this.directory.resolve("first.jar");
+    Path secondSource = this.directory.resolve("second.jar");
+    writeJar(firstSource, Map.of("META-INF/services/org.example.Api", bytes("org.example.A\n")));
+    writeJar(
+        secondSource,
+        Map.of("META-INF/services/org.example.Api", bytes("org.example.A\norg.example.B\n")));
+
+    // Shadow keeps the first copy of the service file
+    Path archive = this.directory.resolve("shaded.jar");
+    Files.copy(firstSource, archive);
+    new ShadingPipeline(relocator(false), false)
+        .withTransformers(List.of(new ServiceFileMerger()))
+        .process(
+            archive,
+            List.of(firstSource.toFile(), secondSource.toFile()),
+            List.of(),
+            List.of(),
+            LOGGER,
+            null);
+
+    assertEquals(
+        "org.example.A\norg.example.B\n",
+        string(read(archive).get("META-INF/services/org.example.Api")));
+  }
+
+  @Test
+  void keepsEntryNamesAndExtraFields() throws IOException {
+    // Without the language encoding flag, the names are encoded in CP437
+    byte[] extra = {(byte) 0xFE, (byte) 0xCA, 2, 0, 1, 2};
+    Path input = this.directory.resolve("input.jar");
+    try (OutputStream output = Files.newOutputStream(input);
+        ZipOutputStream zip = new ZipOutputStream(output, Charset.forName("IBM437"))) {
+      ZipEntry entry = new ZipEntry("caf\u00e9.txt");
+      entry.setExtra(extra);
+      zip.putNextEntry(entry);
+      zip.write(new byte[] {1, 2, 3});
+      zip.closeEntry();
+    }
+
+    Path output = this.directory.resolve("output.jar");
+    new ShadingPipeline(relocator(false), false).process(input, output);
+
+    try (ZipFile zip = new ZipFile(output.toFile(), StandardCharsets.UTF_8)) {
+      ZipEntry entry = zip.getEntry("caf\u00e9.txt");
+      assertNotNull(entry);
+      assertArrayEquals(extra, entry.getExtra());
+    }
+  }
+
+  @Nonnull
+  private static TrieRelocator relocator(boolean skipStringLiterals) {
+    return new TrieRelocator(
+        List.of(
+            new Relocation(
+                "com.example.lib", "shaded.lib", List.of(), List.of(), false, skipStringLiterals)));
+  }
+
+  /**
+   * Lets Shadow merge the jar, then processes it in place like the shadowJar task.
+   *
+   * @param pipeline the pipeline
+   * @param source the single dependency jar
+   * @param archive the jar merged by Shadow
+   */
+  private static void shade(
+      @Nonnull ShadingPipeline pipeline, @Nonnull Path source, @Nonnull Path archive)
+      throws IOException {
+    pipeline.retain(archive);
+    Files.copy(source, archive, StandardCopyOption.REPLACE_EXISTING);
+    List<File> sources = List.of(source.toFile());
+    pipeline.process(archive, sources, List.of(), List.of(), LOGGER, null);
+  }
+
+  /**
+   * Generates the classes of a jar.
+   *
+   * @param revision the revision of the classes, changing the constant of the first class only
+   * @return the class files by entry name
+   */
+  @Nonnull
+  private static Map<String, byte[]> classes(int revision) {
+    Map<String, byte[]> classes = new LinkedHashMap<>();
+    for (int i = 0; i < CLASSES; i++) {
+      classes.put("com/example/app/Main" + i + ".class", generate(i, i == 0 ? revision : 0));
+    }
+    return classes;
+  }
+
+  @Nonnull
+  private static byte[] generate(int index, int revision) {
+    String type = "com/example/lib/Type" + index;
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(
+        Opcodes.V11,
+        Opcodes.ACC_PUBLIC,
+        "com/example/app/Main" + index,
+        null,
+        "java/lang/Object",
+        null);
+    writer.visitField(Opcodes.ACC_PRIVATE, "library", "L" + type + ";", null, null).visitEnd();
+
+    MethodVisitor method =
+        writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "name", "()I", null, null);
+    method.visitCode();
+    method.visitLdcInsn(type.replace('/', '.'));
+    method.visitInsn(Opcodes.POP);
+    method.visitLdcInsn(revision);
+    method.visitInsn(Opcodes.IRETURN);
+    method.visitMaxs(0, 0);
+    method.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  @Nonnull
+  private static ClassSummary summarize(@Nonnull byte[] data) {
+    ClassSummary summary = new ClassSummary();
+    new ClassReader(data)
+        .accept(
+            new ClassVisitor(Opcodes.ASM9) {
+              @Override
+              public FieldVisitor visitField(
+                  int access, String name, String descriptor, String signature, Object value) {
+                summary.fields.add(descriptor);
+                return null;
+              }
+
+              @Override
+              public MethodVisitor visitMethod(
+                  int access,
+                  String name,
+                  String descriptor,
+                  String signature,
+                  String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                  @Override
+                  public void visitLdcInsn(Object value) {
+                    if (value instanceof String) {
+                      summary.constants.add((String) value);
+                    }
+                  }
+                };
+              }
+            },
+            ClassReader.SKIP_DEBUG);
+    return summary;
+  }
+
+  private static void writeJar(@Nonnull Path jar, @Nonnull Map<String, byte[]> entries)
+      throws IOException {
+    try (OutputStream output = Files.newOutputStream(jar);
+        ZipOutputStream zip = new ZipOutputStream(output)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        zip.putNextEntry(new ZipEntry(entry.getKey()));
+        zip.write(entry.getValue());
+        zip.closeEntry();
+      }
+    }
+  }
+
+  @Nonnull
+  private static Map<String, byte[]> read(@Nonnull Path jar) throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    try (InputStream input = Files.newInputStream(jar);
+        ZipInputStream zip = new ZipInputStream(input)) {
+      for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+        entries.put(entry.getName(), zip.readAllBytes());
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Describes the entries of a jar, in order, by name and content.
+   *
+   * @param jar the jar
+   * @return the entry descriptions
+   */
+  @Nonnull
+  private static List<String> entries(@Nonnull Path jar) throws IOException {
+    List<String> entries = new ArrayList<>();
+    for (Map.Entry<String, byte[]> entry : read(jar).entrySet()) {
+      entries.add(entry.getKey() + " " + Base64.getEncoder().encodeToString(entry.getValue()));
+    }
+    return entries;
+  }
+
+  @Nonnull
+  private static byte[] bytes(@Nonnull String content) {
+    return content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Nonnull
+  private static String string(@Nullable byte[] data) {
+    assertNotNull(data, "missing entry");
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+  /** The field descriptors and string constants of a class. */
+  private static final class ClassSummary {
+    private final List<String> fields = new ArrayList<>();
+    private final List<String> constants = new ArrayList<>();
+  }
+
+  /** Upper cases a resource after relocating the class names it holds. */
+  private static final class UpperCaseTransformer implements ResourceTransformer {
+    private final String name;
+
+    UpperCaseTransformer(@Nonnull String name) {
+      this.name = name;
+    }
+
+    @Override
+    public boolean canTransform(@Nonnull String name) {
+      return name.equals(this.name);
+    }
+
+    @Nonnull
+    @Override
+    public byte[] transform(@Nonnull ResourceContext context) {
+      String content = new String(context.getData(), StandardCharsets.UTF_8);
+      String prefix = "relocated: ";
+      String relocated = prefix + context.relocateClass(content.substring(prefix.length()));
+      return relocated.toUpperCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Nonnull
+    @Override
+    public String fingerprint() {
+      return this.name;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.relocation;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.github.jengelman.gradle.plugins.shadow.relocation.SimpleRelocator;
+import com.vouncherstudios.strawberry.shadow.Relocation;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+/** Checks the prefix tree picks the same relocator as testing each one in declaration order. */
+class TrieRelocatorTest {
+  private static final List<Relocation> RELOCATIONS =
+      List.of(
+          new Relocation(
+              "com.example.lib",
+              "shaded.lib",
+              List.of(),
+              List.of("com.example.lib.api.**"),
+              false,
+              false),
+          new Relocation("com.example", "shaded.example"),
+          new Relocation("com.example.lib.api", "shaded.api"),
+          new Relocation(
+              "org.other", "shaded.other", List.of("org.other.Type"), List.of(), false, false));
+
+  private static final List<String> CLASS_NAMES =
+      List.of(
+          "com.example.Main",
+          "com.example.lib.Type",
+          "com.example.lib.api.Type",
+          "com.example.lib.api.internal.Type",
+          "com.examples.Type",
+          "org.other.Type",
+          "org.other.Main",
+          "com");
+
+  private final TrieRelocator relocator = new TrieRelocator(RELOCATIONS);
+
+  @Test
+  void findsFirstDeclaredClassRelocator() {
+    for (String className : CLASS_NAMES) {
+      assertSame(expectedClassRelocator(className), this.relocator.findClassRelocator(className));
+    }
+  }
+
+  @Test
+  void findsFirstDeclaredPathRelocator() {
+    for (String className : CLASS_NAMES) {
+      String path = className.replace('.', '/') + ".class";
+      assertSame(expectedPathRelocator(path), this.relocator.findPathRelocator(path));
+    }
+  }
+
+  @Test
+  void keepsDeclarationOrderOverPatternLength() {
+    // The first relocation excludes the api package, the broader second one is declared before
+    // the exact third one
+    assertSame(
+        this.relocator.getRelocators().get(1),
+        this.relocator.findClassRelocator("com.example.lib.api.Type"));
+    assertSame(
+        this.relocator.getRelocators().get(0),
+        this.relocator.findClassRelocator("com.example.lib.Type"));
+    assertSame(
+        this.relocator.getRelocators().get(3), this.relocator.findClassRelocator("org.other.Type"));
+    assertNull(this.relocator.findClassRelocator("org.other.Main"));
+    assertNull(this.relocator.findClassRelocator("com/example/lib/Type"));
+  }
+
+  @Nullable
+  private SimpleRelocator expectedClassRelocator(@Nonnull String className) {
+    for (SimpleRelocator candidate : this.relocator.getRelocators()) {
+      if (candidate.canRelocateClass(className)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+
+  @Nullable
+  private SimpleRelocator expectedPathRelocator(@Nonnull String path) {
+    for (SimpleRelocator candidate : this.relocator.getRelocators()) {
+      if (candidate.canRelocatePath(path)) {
+        return candidate;
+      }
+    }
+    return null;
+  }
+}
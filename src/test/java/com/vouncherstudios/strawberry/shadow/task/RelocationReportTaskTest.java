@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Reads the usage file written by the relocation report. */
+class RelocationReportTaskTest {
+  @TempDir Path directory;
+
+  @Test
+  void readsUnusedRelocations() throws IOException {
+    Path usage = this.directory.resolve("usage.json");
+    Files.writeString(
+        usage,
+        "{\"relocations\":["
+            + "{\"index\":0,\"relocation\":\"a -> b\",\"status\":\"used\"},"
+            + "{\"index\":1,\"relocation\":\"c -> d\",\"status\":\"shadowed\"},"
+            + "{\"index\":2,\"relocation\":\"e -> f\",\"status\":\"used\"},"
+            + "{\"index\":3,\"relocation\":\"g -> h\",\"status\":\"dead\"}"
+            + "]}",
+        StandardCharsets.UTF_8);
+
+    assertEquals(Set.of(1, 3), RelocationReportTask.readUnused(usage.toFile()));
+  }
+}
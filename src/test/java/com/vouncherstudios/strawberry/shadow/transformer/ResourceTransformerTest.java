@@ -0,0 +1,218 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) Vouncher Studios <contact@vouncherstudios.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.vouncherstudios.strawberry.shadow.transformer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+/** Transforms resources relocating {@code com.example.lib} to {@code shaded.lib}. */
+class ResourceTransformerTest {
+  private static final String SERVICE = "META-INF/services/com.example.lib.Api";
+
+  @Test
+  void mergesServiceFilesInMergeOrder() throws IOException {
+    // Shadow keeps the first copy, the others are appended in the order the jars are merged
+    Context context =
+        new Context(SERVICE, "com.example.lib.A\n", "com.example.lib.A\n")
+            .copy("com.example.lib.C\ncom.example.lib.B # fallback\n")
+            .copy("# none\ncom.example.lib.B\ncom.example.lib.D");
+
+    ServiceFileMerger merger = new ServiceFileMerger();
+    assertTrue(merger.canTransform(SERVICE));
+    assertFalse(merger.canTransform("META-INF/services/nested/com.example.lib.Api"));
+    assertEquals(
+        "com.example.lib.A\ncom.example.lib.C\ncom.example.lib.B\ncom.example.lib.D\n",
+        string(merger.transform(context)));
+  }
+
+  @Test
+  void mergesServiceFilesWithoutTrailingNewline() throws IOException {
+    Context context =
+        new Context(SERVICE, "com.example.lib.A", "com.example.lib.A").copy("com.example.lib.B\n");
+
+    assertEquals(
+        "com.example.lib.A\ncom.example.lib.B\n",
+        string(new ServiceFileMerger().transform(context)));
+  }
+
+  @Test
+  void keepsServiceFilesWithoutOtherProviders() throws IOException {
+    Context context =
+        new Context(SERVICE, "com.example.lib.A\n", "com.example.lib.A\n")
+            .copy("com.example.lib.A # again\n");
+
+    assertSame(context.getData(), new ServiceFileMerger().transform(context));
+  }
+
+  @Test
+  void relocatesServiceProviders() {
+    Context context = new Context(SERVICE, "# providers\n  com.example.lib.A\norg.other.B\n", null);
+
+    assertEquals(
+        "# providers\n  shaded.lib.A\norg.other.B\n",
+        string(new ServiceFileTransformer().transform(context)));
+  }
+
+  @Test
+  void relocatesPluginDescriptors() {
+    PluginDescriptorTransformer transformer = new PluginDescriptorTransformer();
+    assertTrue(transformer.canTransform("paper-plugin.yml"));
+    assertFalse(transformer.canTransform("config.yml"));
+
+    Context yaml =
+        new Context(
+            "plugin.yml",
+            "name: Example\n# the main class\nmain: 'com.example.lib.Main'\nloader: org.Loader\n",
+            null);
+    assertEquals(
+        "name: Example\n# the main class\nmain: 'shaded.lib.Main'\nloader: org.Loader\n",
+        string(transformer.transform(yaml)));
+
+    Context json =
+        new Context(
+            "velocity-plugin.json", "{\"id\":\"example\",\"main\":\"com.example.lib.Main\"}", null);
+    assertEquals(
+        "{\"id\":\"example\",\"main\":\"shaded.lib.Main\"}", string(transformer.transform(json)));
+  }
+
+  @Test
+  void relocatesKotlinModulePackages() {
+    KotlinModuleTransformer transformer = new KotlinModuleTransformer();
+    String name = "META-INF/example.kotlin_module";
+    assertTrue(transformer.canTransform(name));
+
+    Context context = new Context(name, module("com.example.lib", "com/example/lib"));
+    assertArrayEquals(module("shaded.lib", "shaded/lib"), transformer.transform(context));
+
+    // A malformed module is left unchanged
+    Context malformed = new Context(name, new byte[] {0, 0, 0, 1, 0});
+    assertSame(malformed.getData(), transformer.transform(malformed));
+  }
+
+  /**
+   * Writes a module file: the metadata version 1.9.0, the flags, then a {@code Module} message
+   * with the package parts of a package and a JVM package name.
+   */
+  @Nonnull
+  private static byte[] module(@Nonnull String packageName, @Nonnull String jvmPackageName) {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    for (int value : new int[] {3, 1, 9, 0, 0}) {
+      output.writeBytes(new byte[] {0, 0, 0, (byte) value});
+    }
+    ByteArrayOutputStream parts = new ByteArrayOutputStream();
+    field(parts, 1, packageName.getBytes(StandardCharsets.UTF_8));
+    field(output, 1, parts.toByteArray());
+    field(output, 3, jvmPackageName.getBytes(StandardCharsets.UTF_8));
+    return output.toByteArray();
+  }
+
+  private static void field(
+      @Nonnull ByteArrayOutputStream output, int field, @Nonnull byte[] value) {
+    output.write(field << 3 | 2);
+    output.write(value.length);
+    output.writeBytes(value);
+  }
+
+  @Nonnull
+  private static String string(@Nonnull byte[] data) {
+    return new String(data, StandardCharsets.UTF_8);
+  }
+
+  /** A resource of a jar relocating {@code com.example.lib} to {@code shaded.lib}. */
+  private static final class Context implements ResourceContext {
+    private final String name;
+    private final byte[] data;
+    private final List<byte[]> copies = new ArrayList<>();
+
+    Context(@Nonnull String name, @Nonnull String data, @Nullable String firstCopy) {
+      this(name, data.getBytes(StandardCharsets.UTF_8));
+      if (firstCopy != null) {
+        copy(firstCopy);
+      }
+    }
+
+    Context(@Nonnull String name, @Nonnull byte[] data) {
+      this.name = name;
+      this.data = data;
+    }
+
+    @Nonnull
+    Context copy(@Nonnull String content) {
+      this.copies.add(content.getBytes(StandardCharsets.UTF_8));
+      return this;
+    }
+
+    @Nonnull
+    @Override
+    public String getName() {
+      return this.name;
+    }
+
+    @Nonnull
+    @Override
+    public byte[] getData() {
+      return this.data;
+    }
+
+    @Nonnull
+    @Override
+    public List<byte[]> getCopies() {
+      return this.copies;
+    }
+
+    @Nonnull
+    @Override
+    public String relocateClass(@Nonnull String className) {
+      return relocatePackage(className);
+    }
+
+    @Nonnull
+    @Override
+    public String relocatePath(@Nonnull String path) {
+      return relocatePackage(path.replace('/', '.')).replace('.', '/');
+    }
+
+    @Nonnull
+    @Override
+    public String relocatePackage(@Nonnull String packageName) {
+      String pattern = "com.example.lib";
+      return packageName.equals(pattern) || packageName.startsWith(pattern + '.')
+          ? "shaded.lib" + packageName.substring(pattern.length())
+          : packageName;
+    }
+  }
+}